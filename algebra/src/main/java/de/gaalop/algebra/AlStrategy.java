@@ -49,34 +49,17 @@ public class AlStrategy implements AlgebraStrategy {
         InputStream inputStream = null;
         try {
             //load algebra
+            AlgebraRegistry.Entry loadedAlgebra = AlgebraRegistry.getInstance().get(graph);
+
             AlgebraDefinitionFile alFile = graph.getAlgebraDefinitionFile();
             alFile.setUsePrecalculatedTable(plugin.usePrecalulatedTables);
+            alFile.setProductCacheSize(plugin.productCacheSize);
             alFile.setUseAsRessource(graph.asRessource);
-            
-            String baseDir = (graph.asRessource) ? "algebra" : graph.algebraBaseDirectory;
-            
-            if (!baseDir.endsWith("/")) baseDir += "/";
-            
-            baseDir += graph.algebraName+"/";
-            
-            alFile.setProductsFilePath(baseDir+"products.csv");
-
-            inputStream = (graph.asRessource)
-                    ? getClass().getResourceAsStream(baseDir+"definition.csv")
-                    : new FileInputStream(new File(baseDir+"definition.csv"));
-            alFile.loadFromFile(inputStream);
-            
-            createBlades(alFile);
+            alFile.setProductsFilePath(AlgebraRegistry.getAlgebraDirectory(graph)+"products.csv");
+            alFile.copyDefinitionFrom(loadedAlgebra.getDefinition());
 
             //replace all functions / macros
-
-            inputStream = (graph.asRessource)
-                    ? getClass().getResourceAsStream(baseDir+"macros.clu")
-                    : new FileInputStream(new File(baseDir+"macros.clu"));
-            
-            ControlFlowGraph macrosGraph = new de.gaalop.clucalc.input.Plugin().createCodeParser().parseFile(inputStreamToInputFile(inputStream, "macros", null));
-            inputStream.close();
-            HashMap<StringIntContainer, Macro> macros = MacrosVisitor.getAllMacros(macrosGraph);
+            HashMap<StringIntContainer, Macro> macros = loadedAlgebra.getMacros();
             MacrosVisitor.getAllMacros(graph, macros);
             StringIntContainer dual = new StringIntContainer("Dual",1);
             if (macros.containsKey(dual)) {
@@ -99,9 +82,10 @@ public class AlStrategy implements AlgebraStrategy {
             //inline all macros
             Inliner.inline(graph, macros);
             
-            //Remove Macro definitions from graph
+            //Remove Macro definitions from graph, the macros of the algebra are shared and not part of the graph
             for (Macro macro: macros.values()) 
-                graph.removeNode(macro);
+                if (macro.getGraph() == graph)
+                    graph.removeNode(macro);
             
 
             //replace Variables which are basevectors
@@ -138,7 +122,8 @@ public class AlStrategy implements AlgebraStrategy {
             Logger.getLogger(AlStrategy.class.getName()).log(Level.SEVERE, null, ex);
         } finally {
             try {
-                inputStream.close();
+                if (inputStream != null)
+                    inputStream.close();
             } catch (IOException ex) {
                 Logger.getLogger(AlStrategy.class.getName()).log(Level.SEVERE, null, ex);
             }
@@ -171,7 +156,7 @@ public class AlStrategy implements AlgebraStrategy {
      * @param parent The parent file object
      * @return The InputFile
      */
-    private InputFile inputStreamToInputFile(InputStream inputStream, String cluName, File parent) {
+    static InputFile inputStreamToInputFile(InputStream inputStream, String cluName, File parent) {
         StringBuilder sb = new StringBuilder();
         readIn(inputStream, sb, parent);
         sb.append("\n");
@@ -184,7 +169,7 @@ public class AlStrategy implements AlgebraStrategy {
      * @param sb The stringbuilder object to use
      * @param parent The parent file object
      */
-    private void readIn(InputStream inputStream, StringBuilder sb, File parent) {
+    private static void readIn(InputStream inputStream, StringBuilder sb, File parent) {
         try {
             BufferedReader reader = new BufferedReader(new InputStreamReader(inputStream));
             String line;
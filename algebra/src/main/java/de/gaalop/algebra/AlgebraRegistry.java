@@ -0,0 +1,273 @@
+package de.gaalop.algebra;
+
+import de.gaalop.CodeParserException;
+import de.gaalop.cfg.AlgebraDefinitionFile;
+import de.gaalop.cfg.ControlFlowGraph;
+import de.gaalop.cfg.Macro;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Caches loaded algebras process-wide.
+ *
+ * An entry stores the parsed definition with its blades, the macros of the algebra
+ * and further data of other plugins (e.g. the product tables), which are attached to the entry.
+ * Entries are identified by the directory of the algebra and whether it is loaded as ressource.
+ * An entry of an algebra in the file system is reloaded, if one of its files has been modified.
+ * The number of entries is bounded, the least recently used entry is evicted first.
+ *
+ * All methods are thread-safe. The cached data must be treated as read-only.
+ *
+ * @author Christian Steinmetz
+ */
+public class AlgebraRegistry {
+
+    /**
+     * The default maximum number of cached algebras
+     */
+    public static final int DEFAULT_MAX_ENTRIES = 8;
+
+    private static final AlgebraRegistry instance = new AlgebraRegistry(DEFAULT_MAX_ENTRIES);
+
+    private int maxEntries;
+    private LinkedHashMap<String, Entry> entries = new LinkedHashMap<String, Entry>(16, 0.75f, true);
+
+    private long hits = 0;
+    private long misses = 0;
+
+    /**
+     * Creates a new registry
+     * @param maxEntries The maximum number of cached algebras, 0 disables caching
+     */
+    public AlgebraRegistry(int maxEntries) {
+        this.maxEntries = maxEntries;
+    }
+
+    /**
+     * Returns the process-wide registry
+     * @return The registry
+     */
+    public static AlgebraRegistry getInstance() {
+        return instance;
+    }
+
+    /**
+     * Returns the directory of the algebra of a graph, ending with a slash
+     * @param graph The graph
+     * @return The directory of the algebra
+     */
+    public static String getAlgebraDirectory(ControlFlowGraph graph) {
+        String baseDir = (graph.asRessource) ? "algebra" : graph.algebraBaseDirectory;
+        if (!baseDir.endsWith("/")) baseDir += "/";
+        return baseDir + graph.algebraName + "/";
+    }
+
+    /**
+     * Returns the loaded algebra of a graph. The algebra is loaded, if it is not cached or modified.
+     * @param graph The graph
+     * @return The loaded algebra
+     * @throws IOException
+     * @throws CodeParserException
+     */
+    public Entry get(ControlFlowGraph graph) throws IOException, CodeParserException {
+        String directory = getAlgebraDirectory(graph);
+        String key = getKey(directory, graph.asRessource);
+        synchronized (this) {
+            Entry entry = entries.get(key);
+            if (entry != null && entry.lastModified == getLastModified(directory, graph.asRessource)) {
+                hits++;
+                return entry;
+            }
+            misses++;
+        }
+
+        // load outside the lock, concurrent loads of the same algebra are harmless
+        Entry entry = load(directory, graph.asRessource);
+        synchronized (this) {
+            if (maxEntries > 0) {
+                entries.put(key, entry);
+                evict();
+            }
+        }
+        return entry;
+    }
+
+    /**
+     * Returns the cached algebra of a graph without loading it
+     * @param graph The graph
+     * @return The cached algebra, null if the algebra is not cached or modified
+     */
+    public Entry lookup(ControlFlowGraph graph) {
+        String directory = getAlgebraDirectory(graph);
+        Entry entry;
+        synchronized (this) {
+            entry = entries.get(getKey(directory, graph.asRessource));
+        }
+        if (entry != null && entry.lastModified == getLastModified(directory, graph.asRessource))
+            return entry;
+        return null;
+    }
+
+    /**
+     * Removes the algebra of a graph from the cache
+     * @param graph The graph
+     */
+    public synchronized void invalidate(ControlFlowGraph graph) {
+        entries.remove(getKey(getAlgebraDirectory(graph), graph.asRessource));
+    }
+
+    /**
+     * Removes all algebras from the cache
+     */
+    public synchronized void invalidateAll() {
+        entries.clear();
+    }
+
+    /**
+     * Sets the maximum number of cached algebras and evicts algebras, if necessary
+     * @param maxEntries The maximum number of cached algebras, 0 disables caching
+     */
+    public synchronized void setMaxEntries(int maxEntries) {
+        this.maxEntries = Math.max(0, maxEntries);
+        evict();
+    }
+
+    public synchronized int getMaxEntries() {
+        return maxEntries;
+    }
+
+    public synchronized int getSize() {
+        return entries.size();
+    }
+
+    public synchronized long getHitCount() {
+        return hits;
+    }
+
+    public synchronized long getMissCount() {
+        return misses;
+    }
+
+    /**
+     * Evicts the least recently used algebras, until the bound is reached
+     */
+    private void evict() {
+        Iterator<Map.Entry<String, Entry>> it = entries.entrySet().iterator();
+        while (entries.size() > maxEntries && it.hasNext()) {
+            it.next();
+            it.remove();
+        }
+    }
+
+    private static String getKey(String directory, boolean asRessource) {
+        return (asRessource ? "ressource:" : "file:") + directory;
+    }
+
+    /**
+     * Returns the sum of modification times of all files of an algebra, 0 for ressources
+     * @param directory The directory of the algebra
+     * @param asRessource true, if the algebra is a ressource
+     * @return The sum of modification times
+     */
+    private static long getLastModified(String directory, boolean asRessource) {
+        if (asRessource)
+            return 0;
+        return new File(directory + "definition.csv").lastModified()
+                + 31 * new File(directory + "macros.clu").lastModified()
+                + 961 * new File(directory + "products.csv").lastModified();
+    }
+
+    /**
+     * Loads an algebra
+     * @param directory The directory of the algebra
+     * @param asRessource true, if the algebra is a ressource
+     * @return The loaded algebra
+     * @throws IOException
+     * @throws CodeParserException
+     */
+    private static Entry load(String directory, boolean asRessource) throws IOException, CodeParserException {
+        Entry entry = new Entry();
+        entry.lastModified = getLastModified(directory, asRessource);
+
+        InputStream inputStream = open(directory + "definition.csv", asRessource);
+        try {
+            entry.definition.loadFromFile(inputStream);
+        } finally {
+            inputStream.close();
+        }
+        AlStrategy.createBlades(entry.definition);
+
+        inputStream = open(directory + "macros.clu", asRessource);
+        try {
+            ControlFlowGraph macrosGraph = new de.gaalop.clucalc.input.Plugin().createCodeParser().parseFile(AlStrategy.inputStreamToInputFile(inputStream, "macros", null));
+            entry.macros = MacrosVisitor.getAllMacros(macrosGraph);
+        } finally {
+            inputStream.close();
+        }
+        return entry;
+    }
+
+    private static InputStream open(String path, boolean asRessource) throws IOException {
+        InputStream inputStream = (asRessource)
+                ? AlStrategy.class.getResourceAsStream(path)
+                : new FileInputStream(new File(path));
+        if (inputStream == null)
+            throw new IOException("The algebra file " + path + " does not exist");
+        return inputStream;
+    }
+
+    /**
+     * A loaded algebra
+     */
+    public static class Entry {
+
+        private long lastModified;
+        private AlgebraDefinitionFile definition = new AlgebraDefinitionFile();
+        private HashMap<StringIntContainer, Macro> macros;
+        private ConcurrentHashMap<String, Object> attachments = new ConcurrentHashMap<String, Object>();
+
+        /**
+         * Returns the parsed definition, including the blades
+         * @return The definition
+         */
+        public AlgebraDefinitionFile getDefinition() {
+            return definition;
+        }
+
+        /**
+         * Returns a new map of the macros of the algebra, which may be changed by the caller
+         * @return The macros
+         */
+        public HashMap<StringIntContainer, Macro> getMacros() {
+            return new HashMap<StringIntContainer, Macro>(macros);
+        }
+
+        /**
+         * Returns data of another plugin, attached to this algebra
+         * @param key The key of the data
+         * @return The data, null if nothing is attached with this key
+         */
+        public Object getAttachment(String key) {
+            return attachments.get(key);
+        }
+
+        /**
+         * Attaches data of another plugin to this algebra, if no data is attached with this key yet
+         * @param key The key of the data
+         * @param value The data
+         * @return The attached data
+         */
+        public Object attach(String key, Object value) {
+            Object previous = attachments.putIfAbsent(key, value);
+            return (previous != null) ? previous : value;
+        }
+    }
+
+}
@@ -1,231 +1,390 @@
 package de.gaalop.algebra;
 
+import de.gaalop.OptimizationException;
 import de.gaalop.cfg.*;
 import de.gaalop.dfg.Expression;
 import de.gaalop.dfg.FloatConstant;
+import de.gaalop.dfg.FunctionArgument;
 import de.gaalop.dfg.MacroCall;
 import de.gaalop.dfg.MathFunction;
 import de.gaalop.dfg.MathFunctionCall;
 import de.gaalop.dfg.Variable;
-import de.gaalop.visitors.DFGTraversalVisitor;
 import de.gaalop.visitors.ReplaceVisitor;
 import java.util.ArrayList;
 import java.util.HashMap;
-import java.util.LinkedList;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
 
 /**
- * Inlines the macros in a ControlFlowGraph
+ * Inlines the macros in a ControlFlowGraph in a single pass.
+ *
+ * The macro call graph is traversed depth-first from the call sites, so the bodies of the called macros
+ * are expanded in reverse topological order: every macro body is expanded once after the macros it calls,
+ * and cached. A call site then only copies an expanded body, which contains no further calls of known macros.
+ * Recursive macro calls are reported as error.
  * @author Christian Steinmetz
  */
 public class Inliner extends EmptyControlFlowVisitor {
 
+    /**
+     * A macro body, in which all calls of known macros are inlined
+     */
+    private static class Expansion {
+        private final ArrayList<SequentialNode> body = new ArrayList<SequentialNode>();
+        private Expression returnValue;
+        private boolean containsUnknownMacroCalls = false;
+    }
+
+    /**
+     * Receives the nodes of inlined macro bodies
+     */
+    private interface NodeSink {
+
+        /**
+         * Adds a node
+         * @param node The node
+         * @param containsUnknownMacroCalls true, if the node can contain calls of unknown macros
+         */
+        void add(SequentialNode node, boolean containsUnknownMacroCalls);
+    }
+
+    /**
+     * Signals an error during inlining, which is reported as OptimizationException
+     */
+    private static class InlineException extends RuntimeException {
+        public InlineException(String message) {
+            super(message);
+        }
+    }
+
     private int count = 0;
     private HashMap<StringIntContainer, Macro> macros;
     private ControlFlowGraph graph;
-    
-    private ColorNode currentColorNode = null;
+    private HashSet<String> usedNames;
 
-    private boolean containsMacroCall(Expression e) {
-        final LinkedList<MacroCall> calls = new LinkedList<MacroCall>();
-        e.accept(new DFGTraversalVisitor() {
-            @Override
-            public void visit(MacroCall node) {
-                calls.add(node);
-            }
-        });
-        return !calls.isEmpty();
-    }
+    private HashMap<StringIntContainer, Expansion> expansions = new HashMap<StringIntContainer, Expansion>();
+    private LinkedHashSet<StringIntContainer> expanding = new LinkedHashSet<StringIntContainer>();
+    private int inlineExpansions = 0;
+
+    private ColorNode currentColorNode = null;
 
     private Inliner(HashMap<StringIntContainer, Macro> macros, ControlFlowGraph graph) {   //private constructor for making the usage of the static methods mandatory
         this.macros = macros;
         this.graph = graph;
+        VariableCollector collector = new VariableCollector();
+        graph.accept(collector);
+        usedNames = collector.getVariables();
     }
 
-    public static void inline(ControlFlowGraph graph, HashMap<StringIntContainer, Macro> macros) {
+    /**
+     * Inlines all macro calls in a graph
+     * @param graph The graph
+     * @param macros The known macros
+     * @return The number of inline expansions, i.e. the number of macro bodies copied into the graph or into other macro bodies
+     * @throws OptimizationException if a macro is called recursively or a macro without return value is used in an expression
+     */
+    public static int inline(ControlFlowGraph graph, HashMap<StringIntContainer, Macro> macros) throws OptimizationException {
         Inliner inliner = new Inliner(macros, graph);
-        while (!inliner.error && MacroCallCounter.countMacroCallsInGraph(graph)>0)
+        try {
             graph.accept(inliner);
+        } catch (InlineException e) {
+            throw new OptimizationException(e.getMessage(), graph);
+        }
+        if (graph.statistics != null) {
+            graph.statistics.addCounter("algebra.inlineExpansions", inliner.inlineExpansions);
+            graph.statistics.addCounter("algebra.expandedMacros", inliner.expansions.size());
+        }
+        return inliner.inlineExpansions;
+    }
+
+    /**
+     * Creates a sink, which inserts nodes into the graph before a given node
+     * @param before The node
+     * @return The sink
+     */
+    private NodeSink insertBefore(final SequentialNode before) {
+        return new NodeSink() {
+            @Override
+            public void add(SequentialNode node, boolean containsUnknownMacroCalls) {
+                before.insertBefore(node);
+                if (containsUnknownMacroCalls) {
+                    if (node instanceof AssignmentNode) {
+                        AssignmentNode assignmentNode = (AssignmentNode) node;
+                        ArrayList<MacroCall> unknownCalls = new ArrayList<MacroCall>();
+                        assignmentNode.setValue(inlineCalls(assignmentNode.getValue(), this, unknownCalls));
+                        handleUnknownCalls(unknownCalls, node);
+                    } else if (node instanceof ExpressionStatement) {
+                        ExpressionStatement statement = (ExpressionStatement) node;
+                        ArrayList<MacroCall> unknownCalls = new ArrayList<MacroCall>();
+                        statement.setExpression(inlineCalls(statement.getExpression(), this, unknownCalls));
+                        if (handleUnknownCalls(unknownCalls, node))
+                            graph.removeNode(node);
+                    }
+                }
+            }
+        };
     }
 
     @Override
     public void visit(ColorNode node) {
-        curNode = node;
         //make all non-variable arguments to variables
-        Expression c = node.getR();
-        if (!((c instanceof Variable) || (c instanceof FloatConstant))) {
-            Variable newVariable = createNewVariable();
-            AssignmentNode assignmentNode = new AssignmentNode(graph, newVariable, c);
-            curNode.insertBefore(assignmentNode); 
-            StoreResultNode storeNode = new StoreResultNode(graph, newVariable);
-            curNode.insertBefore(storeNode);
-            node.setR(newVariable);
-        } 
-        
-        c = node.getG();
-        if (!((c instanceof Variable) || (c instanceof FloatConstant))) {
-            Variable newVariable = createNewVariable();
-            AssignmentNode assignmentNode = new AssignmentNode(graph, newVariable, c);
-            curNode.insertBefore(assignmentNode); 
-            StoreResultNode storeNode = new StoreResultNode(graph, newVariable);
-            curNode.insertBefore(storeNode);
-            node.setG(newVariable);
-        } 
-
-        c = node.getB();
-        if (!((c instanceof Variable) || (c instanceof FloatConstant))) {
-            Variable newVariable = createNewVariable();
-            AssignmentNode assignmentNode = new AssignmentNode(graph, newVariable, c);
-            curNode.insertBefore(assignmentNode); 
-            StoreResultNode storeNode = new StoreResultNode(graph, newVariable);
-            curNode.insertBefore(storeNode);
-            node.setB(newVariable);
-        } 
-        
-        c = node.getAlpha();
-        if (!((c instanceof Variable) || (c instanceof FloatConstant))) {
-            Variable newVariable = createNewVariable();
-            AssignmentNode assignmentNode = new AssignmentNode(graph, newVariable, c);
-            curNode.insertBefore(assignmentNode); 
-            StoreResultNode storeNode = new StoreResultNode(graph, newVariable);
-            curNode.insertBefore(storeNode);
-            node.setAlpha(newVariable);
-        } 
-        
+        node.setR(toVariable(node.getR(), node));
+        node.setG(toVariable(node.getG(), node));
+        node.setB(toVariable(node.getB(), node));
+        node.setAlpha(toVariable(node.getAlpha(), node));
+
         currentColorNode = node;
         super.visit(node);
     }
 
-    private Inliner() {
-    }
-
-    private SequentialNode curNode;
+    /**
+     * Assigns an expression to a new variable before a node, if it is neither a variable nor a constant
+     * @param c The expression
+     * @param curNode The node
+     * @return The variable or the unchanged expression
+     */
+    private Expression toVariable(Expression c, SequentialNode curNode) {
+        if (c == null || (c instanceof Variable) || (c instanceof FloatConstant))
+            return c;
 
-    private boolean error = false;
+        ArrayList<MacroCall> unknownCalls = new ArrayList<MacroCall>();
+        c = inlineCalls(c, insertBefore(curNode), unknownCalls);
+        Variable newVariable = createNewVariable();
+        AssignmentNode assignmentNode = new AssignmentNode(graph, newVariable, c);
+        curNode.insertBefore(assignmentNode);
+        handleUnknownCalls(unknownCalls, assignmentNode);
+        StoreResultNode storeNode = new StoreResultNode(graph, newVariable);
+        curNode.insertBefore(storeNode);
+        return newVariable;
+    }
 
     @Override
     public void visit(AssignmentNode node) {
-        curNode = node;
-        
-        while (containsMacroCall(node.getValue()) && !error) {
-            replacer.result = null;
-            node.getValue().accept(replacer);
-            if (replacer.result != null) 
-                node.setValue(replacer.result);
-        }
+        ArrayList<MacroCall> unknownCalls = new ArrayList<MacroCall>();
+        node.setValue(inlineCalls(node.getValue(), insertBefore(node), unknownCalls));
+        handleUnknownCalls(unknownCalls, node);
         super.visit(node);
     }
 
     @Override
     public void visit(ExpressionStatement node) {
-        curNode = node;
-        replacer.result = null;
-        delete = false;
-        node.getExpression().accept(replacer);
-        boolean del = delete;
-        Expression result = replacer.result;
-        if (result != null)
-            node.setExpression(result);
+        ArrayList<MacroCall> unknownCalls = new ArrayList<MacroCall>();
+        boolean del = inlineStatement(node, insertBefore(node), unknownCalls);
+        del |= handleUnknownCalls(unknownCalls, node);
 
         super.visit(node);
-        
+
         if (del)
             graph.removeNode(node);
     }
 
-    private boolean delete;
-    
+    /**
+     * Inlines all calls of known macros in an expression statement
+     * @param statement The statement
+     * @param sink Receives the nodes of the inlined macro bodies
+     * @param unknownCalls Receives the calls of unknown macros
+     * @return true, if the statement is a call of a macro without return value and has to be removed
+     */
+    private boolean inlineStatement(ExpressionStatement statement, NodeSink sink, List<MacroCall> unknownCalls) {
+        Expression expression = statement.getExpression();
+        Macro macro = (expression instanceof MacroCall) ? getMacro((MacroCall) expression) : null;
+        if (macro != null && macro.getReturnValue() == null) {
+            // only the body of the macro is needed
+            MacroCall call = (MacroCall) expression;
+            instantiate(getExpansion(call), inlineArguments(call, sink, unknownCalls), sink);
+            return true;
+        }
+        statement.setExpression(inlineCalls(expression, sink, unknownCalls));
+        return false;
+    }
+
+    /**
+     * Reports calls of unknown macros and makes all their non-variable arguments to variables
+     * @param unknownCalls The calls of unknown macros
+     * @param curNode The node, which contains the calls
+     * @return true, if there are calls of unknown macros
+     */
+    private boolean handleUnknownCalls(List<MacroCall> unknownCalls, SequentialNode curNode) {
+        for (MacroCall node: unknownCalls) {
+            System.err.println("Macro "+node.getName()+" is not defined!");
+            graph.unknownMacros.add(new UnknownMacroCall(node, currentColorNode));
+            ArrayList<Expression> newArgs = new ArrayList<Expression>(node.getArguments().size());
+            for (Expression arg: node.getArguments())
+                newArgs.add(toVariable(arg, curNode));
+            node.setArgs(newArgs);
+        }
+        return !unknownCalls.isEmpty();
+    }
+
 //TODO chs (optional) macros are case sensitive, math functions not!
 
-    private ReplaceVisitor replacer = new ReplaceVisitor() {
+    /**
+     * Returns the math function, which is called by a macro call
+     * @param call The macro call
+     * @return The math function, null if the macro call is no math function
+     */
+    private static MathFunction getMathFunction(MacroCall call) {
+        for (MathFunction f: MathFunction.values())
+            if (f.name().toLowerCase().equals(call.getName().toLowerCase()))
+                return f;
+        return null;
+    }
 
-        @Override
-        public void visit(MacroCall node) {
+    private Macro getMacro(MacroCall call) {
+        if (getMathFunction(call) != null)
+            return null;
+        return macros.get(new StringIntContainer(call.getName(), call.getArguments().size()));
+    }
 
-            String macroCallName = node.getName();
+    /**
+     * Inlines all calls of known macros in an expression
+     * @param expression The expression
+     * @param sink Receives the nodes of the inlined macro bodies, which have to be executed before the expression
+     * @param unknownCalls Receives the calls of unknown macros
+     * @return The expression without calls of known macros
+     */
+    private Expression inlineCalls(Expression expression, final NodeSink sink, final List<MacroCall> unknownCalls) {
+        return new ReplaceVisitor() {
+            @Override
+            public void visit(FunctionArgument node) {
+                // an argument of the expanded macro, replaced at the call sites
+            }
 
-            //check if this macro call is a MathFunction
-            for (MathFunction f: MathFunction.values()) {
-                if (f.name().toLowerCase().equals(macroCallName.toLowerCase())) { 
-                    // it is a MathFunction
-                    result = new MathFunctionCall(node.getArguments().get(0), f);
+            @Override
+            public void visit(MacroCall node) {
+                List<Expression> args = inlineArguments(node, sink, unknownCalls);
+
+                MathFunction f = getMathFunction(node);
+                if (f != null) {
+                    result = new MathFunctionCall(args.get(0), f);
                     return;
                 }
-            }
 
-            StringIntContainer container = new StringIntContainer(macroCallName, node.getArguments().size());
-            if (!macros.containsKey(container)) {
-                System.err.println("Macro "+macroCallName+" is not defined!");
-                error = true; //escape endless loop!
-                result = null;
-                delete = true;
-                graph.unknownMacros.add(new UnknownMacroCall(node, currentColorNode));
-                //make all non-variable arguments to variables
-                ArrayList<Expression> newArgs = new ArrayList<Expression>(node.getArguments().size());
-                for (Expression arg: node.getArguments()) {
-                    if (!((arg instanceof Variable) || (arg instanceof FloatConstant))) {
-                        Variable newVariable = createNewVariable();
-                        AssignmentNode assignmentNode = new AssignmentNode(graph, newVariable, arg);
-                        curNode.insertBefore(assignmentNode); 
-                        StoreResultNode storeNode = new StoreResultNode(graph, newVariable);
-                        curNode.insertBefore(storeNode);
-                        newArgs.add(newVariable);
-                    } else 
-                        newArgs.add(arg);
+                Macro macro = getMacro(node);
+                if (macro == null) {
+                    node.setArgs(args);
+                    unknownCalls.add(node);
+                    result = null;
+                    return;
                 }
-                node.setArgs(newArgs);
-                return;
-            }
-            Macro macro = macros.get(container);
-
-            HashMap<String, Expression> replaceMap = new HashMap<String, Expression>();
-            //fill replaceMap with macro call arguments
-            int index = 1;
-            for (Expression e: node.getArguments()) {
-                replaceMap.put("_P("+index+")", e);
-                index++;
+                if (macro.getReturnValue() == null)
+                    throw new InlineException("Macro "+node.getName()+" has no return value and cannot be used in an expression.");
+
+                result = instantiate(getExpansion(node), args, sink);
             }
+        }.replace(expression);
+    }
 
-            //add replacements
-            for (SequentialNode sNode: macro.getBody()) {
-                if (sNode instanceof AssignmentNode) {
-                    AssignmentNode assignmentNode = (AssignmentNode) sNode;
-                    String name = assignmentNode.getVariable().getName();
+    private List<Expression> inlineArguments(MacroCall call, NodeSink sink, List<MacroCall> unknownCalls) {
+        ArrayList<Expression> args = new ArrayList<Expression>(call.getArguments().size());
+        for (Expression arg: call.getArguments())
+            args.add(inlineCalls(arg, sink, unknownCalls));
+        return args;
+    }
 
-                    if (!replaceMap.containsKey(name)) 
-                        replaceMap.put(name, createNewVariable());
-                }
+    /**
+     * Returns the expanded body of a called macro, expands it if it is not cached yet
+     * @param call The macro call
+     * @return The expansion
+     */
+    private Expansion getExpansion(MacroCall call) {
+        StringIntContainer key = new StringIntContainer(call.getName(), call.getArguments().size());
+        Expansion expansion = expansions.get(key);
+        if (expansion != null)
+            return expansion;
+
+        if (!expanding.add(key)) {
+            StringBuilder cycle = new StringBuilder();
+            boolean inCycle = false;
+            for (StringIntContainer c: expanding) {
+                inCycle |= c.equals(key);
+                if (inCycle)
+                    cycle.append(c.getName()).append(" -> ");
             }
+            cycle.append(key.getName());
+            throw new InlineException("Recursive macro call: "+cycle);
+        }
 
-            for (SequentialNode sNode: macro.getBody()) {
-                SequentialNode copySNode = sNode.copy();
-                //replace variables in copySNode
-                MacroVariablesCFGReplacer r = new MacroVariablesCFGReplacer(replaceMap);
-                copySNode.accept(r);
-                //
-                curNode.insertBefore(copySNode);
+        final Expansion result = new Expansion();
+        NodeSink sink = new NodeSink() {
+            @Override
+            public void add(SequentialNode node, boolean containsUnknownMacroCalls) {
+                result.body.add(node);
+                result.containsUnknownMacroCalls |= containsUnknownMacroCalls;
+            }
+        };
+        ArrayList<MacroCall> unknownCalls = new ArrayList<MacroCall>();
+        Macro macro = macros.get(key);
+        for (SequentialNode sNode: macro.getBody()) {
+            SequentialNode copy = sNode.copy();
+            if (copy instanceof AssignmentNode) {
+                AssignmentNode assignmentNode = (AssignmentNode) copy;
+                assignmentNode.setValue(inlineCalls(assignmentNode.getValue(), sink, unknownCalls));
+            } else if (copy instanceof ExpressionStatement) {
+                if (inlineStatement((ExpressionStatement) copy, sink, unknownCalls))
+                    continue;
             }
-            
-            Expression copiedReturnVal = macro.getReturnValue().copy();
-            //replace variables in copiedReturnVal
-            MacroVariablesDFGReplacer d = new MacroVariablesDFGReplacer(replaceMap);
-            copiedReturnVal.accept(d);
-            //
-            result = copiedReturnVal;
+            result.body.add(copy);
         }
+        if (macro.getReturnValue() != null)
+            result.returnValue = inlineCalls(macro.getReturnValue().copy(), sink, unknownCalls);
+        result.containsUnknownMacroCalls |= !unknownCalls.isEmpty();
 
+        expanding.remove(key);
+        expansions.put(key, result);
+        return result;
+    }
 
+    /**
+     * Inserts a copy of an expanded macro body for a call site
+     * @param expansion The expanded macro body
+     * @param args The arguments of the call
+     * @param sink Receives the copied nodes of the body
+     * @return The copy of the return value, null if the macro has no return value
+     */
+    private Expression instantiate(Expansion expansion, List<Expression> args, NodeSink sink) {
+        HashMap<String, Expression> replaceMap = new HashMap<String, Expression>();
+        //fill replaceMap with macro call arguments
+        int index = 1;
+        for (Expression e: args) {
+            replaceMap.put("_P("+index+")", e);
+            index++;
+        }
 
-    };
+        //add replacements
+        for (SequentialNode sNode: expansion.body) {
+            if (sNode instanceof AssignmentNode) {
+                AssignmentNode assignmentNode = (AssignmentNode) sNode;
+                String name = assignmentNode.getVariable().getName();
 
-    private Variable createNewVariable() {
-        VariableCollector collector = new VariableCollector();
-        graph.accept(collector);
+                if (!replaceMap.containsKey(name))
+                    replaceMap.put(name, createNewVariable());
+            }
+        }
+
+        for (SequentialNode sNode: expansion.body) {
+            SequentialNode copySNode = sNode.copy();
+            //replace variables in copySNode
+            copySNode.accept(new MacroVariablesCFGReplacer(replaceMap));
+            sink.add(copySNode, expansion.containsUnknownMacroCalls);
+        }
+        inlineExpansions++;
+
+        if (expansion.returnValue == null)
+            return null;
+        //replace variables in the copied return value
+        return new MacroVariablesDFGReplacer(replaceMap).replace(expansion.returnValue.copy());
+    }
 
+    private Variable createNewVariable() {
         count++;
-        while (collector.getVariables().contains("macroUniqueName"+count))
+        while (usedNames.contains("macroUniqueName"+count))
             count++;
 
-        return new Variable("macroUniqueName"+count);
+        String name = "macroUniqueName"+count;
+        usedNames.add(name);
+        return new Variable(name);
     }
 
 }
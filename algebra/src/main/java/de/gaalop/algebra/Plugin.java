@@ -4,6 +4,7 @@ import de.gaalop.AlgebraStrategy;
 import de.gaalop.AlgebraStrategyPlugin;
 import de.gaalop.ConfigurationProperty;
 import de.gaalop.ConfigurationProperty.Type;
+import de.gaalop.cfg.AlgebraDefinitionFile;
 import de.gaalop.Notifications;
 import java.awt.Image;
 import java.util.Observable;
@@ -17,6 +18,12 @@ public class Plugin extends Observable implements AlgebraStrategyPlugin {
     @ConfigurationProperty(type = Type.BOOLEAN)
     public boolean usePrecalulatedTables = true;
 
+    @ConfigurationProperty(type = Type.NUMBER)
+    public int productCacheSize = AlgebraDefinitionFile.DEFAULT_PRODUCT_CACHE_SIZE;
+
+    @ConfigurationProperty(type = Type.NUMBER)
+    public int algebraCacheSize = AlgebraRegistry.DEFAULT_MAX_ENTRIES;
+
     @ConfigurationProperty(type = Type.DIRPATH)
     public String additionalBaseDirectory = "";
 
@@ -65,6 +72,27 @@ public class Plugin extends Observable implements AlgebraStrategyPlugin {
         this.usePrecalulatedTables = usePrecalulatedTables;
     }
 
+    public int getProductCacheSize() {
+        return productCacheSize;
+    }
+
+    public void setProductCacheSize(int productCacheSize) {
+        this.productCacheSize = productCacheSize;
+    }
+
+    public int getAlgebraCacheSize() {
+        return algebraCacheSize;
+    }
+
+    /**
+     * Sets the maximum number of algebras, which are cached by the process-wide AlgebraRegistry
+     * @param algebraCacheSize The maximum number of cached algebras, 0 disables caching
+     */
+    public void setAlgebraCacheSize(int algebraCacheSize) {
+        this.algebraCacheSize = algebraCacheSize;
+        AlgebraRegistry.getInstance().setMaxEntries(algebraCacheSize);
+    }
+
     public String getAdditionalBaseDirectory() {
         return additionalBaseDirectory;
     }
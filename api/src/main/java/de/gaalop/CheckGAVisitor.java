@@ -13,16 +13,28 @@ import de.gaalop.dfg.Variable;
 /**
  * Simple visitor to check if an expression contains Geometric Algebra. Therefore, operations like {@link InnerProduct}
  * or {@link Reverse} are checked. Variables from the left-hand side of an assignment can be explicitly added by
- * {@link #addGAVariable(Variable)}.
+ * {@link #addGAVariable(Variable)}. The set of these variables is passed by the caller,
+ * so that it belongs to one compilation.
  * 
  * @author Christian Schwinn
  * 
  */
 public class CheckGAVisitor extends EmptyExpressionVisitor {
 
-	private static Set<Variable> gaVariables = new HashSet<Variable>();
+	private final Set<Variable> gaVariables;
 	private boolean isGA = false;
 
+	public CheckGAVisitor() {
+		this(new HashSet<Variable>());
+	}
+
+	/**
+	 * @param gaVariables the variables which represent Geometric Algebra expressions, new variables are added
+	 */
+	public CheckGAVisitor(Set<Variable> gaVariables) {
+		this.gaVariables = gaVariables;
+	}
+
 	@Override
 	public void visit(BaseVector node) {
 		isGA = true;
@@ -72,7 +84,7 @@ public class CheckGAVisitor extends EmptyExpressionVisitor {
 	 * @param v variable to be checked
 	 * @return true if variable represents a Geometric Algebra expression
 	 */
-	public static boolean isGAVariable(Variable v) {
+	public boolean isGAVariable(Variable v) {
 		return gaVariables.contains(v);
 	}
 }
\ No newline at end of file
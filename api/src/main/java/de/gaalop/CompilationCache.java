@@ -0,0 +1,488 @@
+package de.gaalop;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.lang.reflect.Field;
+import java.net.URISyntaxException;
+import java.net.URL;
+import java.nio.charset.Charset;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.security.CodeSource;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * A persistent, content-addressed cache for compilation results.
+ *
+ * The key of a compilation is a hash of the name and text of the source, the files of the used algebra,
+ * the classes of the used plugins and the values of their configuration properties.
+ * The content of files referenced by FILEPATH properties is included as well.
+ *
+ * Every result is stored in its own file in the cache directory.
+ * If the total size of the cache exceeds its bound, the least recently used results are evicted.
+ * Results are written atomically, so a cache directory may be shared by several processes.
+ *
+ * @author Christian Steinmetz
+ */
+public class CompilationCache {
+
+    /**
+     * The system property, that sets the cache directory
+     */
+    public static final String PROPERTY_DIRECTORY = "gaalop.cache.dir";
+
+    /**
+     * The system property, that sets the maximum size of the cache in megabytes
+     */
+    public static final String PROPERTY_MAX_SIZE = "gaalop.cache.size";
+
+    /**
+     * The default maximum size of the cache in megabytes
+     */
+    public static final int DEFAULT_MAX_SIZE = 256;
+
+    /**
+     * The path of the algebras in the classpath, which are loaded as ressource
+     */
+    private static final String RESSOURCE_ALGEBRA_PATH = "de/gaalop/algebra/algebra/";
+
+    private static final String PRODUCTS_FILE = "products.csv";
+
+    private static final String[] ALGEBRA_FILES = {"definition.csv", "macros.clu", PRODUCTS_FILE};
+
+    private static final String SUFFIX = ".result";
+
+    private static final int FORMAT_VERSION = 1;
+
+    private final File directory;
+    private final long maxSize;
+
+    private long hits = 0;
+    private long misses = 0;
+
+    /**
+     * Creates a new cache
+     * @param directory The directory of the cache, which is created if necessary
+     * @param maxSize The maximum size of the cache in bytes
+     */
+    public CompilationCache(File directory, long maxSize) {
+        this.directory = directory;
+        this.maxSize = maxSize;
+        directory.mkdirs();
+    }
+
+    /**
+     * Creates a cache from the system properties gaalop.cache.dir and gaalop.cache.size
+     * @return The cache, null if no cache directory is set
+     */
+    public static CompilationCache fromSystemProperties() {
+        String dir = System.getProperty(PROPERTY_DIRECTORY);
+        if (dir == null || dir.trim().isEmpty()) {
+            return null;
+        }
+        int maxSize = DEFAULT_MAX_SIZE;
+        String size = System.getProperty(PROPERTY_MAX_SIZE);
+        if (size != null) {
+            try {
+                maxSize = Integer.parseInt(size.trim());
+            } catch (NumberFormatException ex) {
+                System.err.println("Invalid cache size " + size + ", using " + DEFAULT_MAX_SIZE + " MB");
+            }
+        }
+        return new CompilationCache(new File(dir.trim()), maxSize * 1024L * 1024L);
+    }
+
+    public File getDirectory() {
+        return directory;
+    }
+
+    public synchronized long getHitCount() {
+        return hits;
+    }
+
+    public synchronized long getMissCount() {
+        return misses;
+    }
+
+    /**
+     * Computes the key of a compilation
+     * @param input The input file
+     * @param algebraName The name of the algebra
+     * @param asRessource true, if the algebra is loaded as ressource
+     * @param algebraBaseDirectory The base directory of user-defined algebras
+     * @param plugins The used plugins
+     * @return The key as hexadecimal string
+     */
+    public static String computeKey(InputFile input, String algebraName, boolean asRessource, String algebraBaseDirectory, Plugin... plugins) {
+        MessageDigest digest = createDigest();
+        update(digest, "format " + FORMAT_VERSION);
+        // code generators derive file and class names from the input name
+        update(digest, input.getName());
+        update(digest, input.getContent());
+        update(digest, algebraName);
+        update(digest, Boolean.toString(asRessource));
+
+        // files of the algebra
+        String baseDir = (asRessource) ? RESSOURCE_ALGEBRA_PATH : String.valueOf(algebraBaseDirectory);
+        if (!baseDir.isEmpty() && !baseDir.endsWith("/")) {
+            baseDir += "/";
+        }
+        for (String name : ALGEBRA_FILES) {
+            String path = baseDir + algebraName + "/" + name;
+            update(digest, path);
+            if (asRessource) {
+                updateWithStream(digest, CompilationCache.class.getClassLoader().getResourceAsStream(path));
+            } else if (name.equals(PRODUCTS_FILE)) {
+                // product tables may be large, so only their size and modification time is used
+                File file = new File(path);
+                update(digest, file.length() + ":" + file.lastModified());
+            } else {
+                updateWithFile(digest, new File(path));
+            }
+        }
+
+        // plugins and their configuration
+        for (Plugin plugin : plugins) {
+            Class<?> pluginClass = plugin.getClass();
+            update(digest, pluginClass.getName());
+            update(digest, Long.toString(getCodeLastModified(pluginClass)));
+
+            for (Field field : getConfigurationFields(pluginClass)) {
+                ConfigurationProperty property = field.getAnnotation(ConfigurationProperty.class);
+                Object value;
+                try {
+                    field.setAccessible(true);
+                    value = field.get(plugin);
+                } catch (IllegalAccessException ex) {
+                    value = null;
+                } catch (SecurityException ex) {
+                    value = null;
+                }
+                update(digest, field.getDeclaringClass().getName() + "." + field.getName() + "=" + value);
+                if (property.type() == ConfigurationProperty.Type.FILEPATH && value != null && !value.toString().trim().isEmpty()) {
+                    updateWithFile(digest, new File(value.toString().trim()));
+                }
+            }
+        }
+
+        StringBuilder sb = new StringBuilder();
+        for (byte b : digest.digest()) {
+            sb.append(String.format("%02x", b & 0xFF));
+        }
+        return sb.toString();
+    }
+
+    /**
+     * Returns all fields of a plugin class and its superclasses, which are annotated with ConfigurationProperty,
+     * in a stable order
+     * @param clazz The plugin class
+     * @return The fields
+     */
+    static List<Field> getConfigurationFields(Class<?> clazz) {
+        List<Field> result = new ArrayList<Field>();
+        for (Class<?> cur = clazz; cur != null && !cur.equals(Object.class); cur = cur.getSuperclass()) {
+            Field[] fields = cur.getDeclaredFields();
+            Arrays.sort(fields, new Comparator<Field>() {
+                @Override
+                public int compare(Field o1, Field o2) {
+                    return o1.getName().compareTo(o2.getName());
+                }
+            });
+            for (Field field : fields) {
+                if (field.isAnnotationPresent(ConfigurationProperty.class)) {
+                    result.add(field);
+                }
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Returns the cached result of a compilation
+     * @param key The key of the compilation
+     * @return The output files, null if the result is not cached
+     */
+    public Set<OutputFile> get(String key) {
+        File file = getFile(key);
+        Set<OutputFile> result = null;
+        if (file.exists()) {
+            try {
+                result = read(file);
+                // mark as recently used
+                file.setLastModified(System.currentTimeMillis());
+            } catch (IOException ex) {
+                Logger.getLogger(CompilationCache.class.getName()).log(Level.WARNING, "Unable to read cached result " + file, ex);
+                file.delete();
+            }
+        }
+        synchronized (this) {
+            if (result != null) {
+                hits++;
+            } else {
+                misses++;
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Stores the result of a compilation and evicts the least recently used results, if necessary
+     * @param key The key of the compilation
+     * @param outputFiles The output files
+     */
+    public void put(String key, Set<OutputFile> outputFiles) {
+        File file = getFile(key);
+        File tempFile = null;
+        try {
+            tempFile = File.createTempFile(key, ".tmp", directory);
+            write(tempFile, outputFiles);
+            try {
+                Files.move(tempFile.toPath(), file.toPath(), StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+            } catch (AtomicMoveNotSupportedException ex) {
+                Files.move(tempFile.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING);
+            }
+        } catch (IOException ex) {
+            Logger.getLogger(CompilationCache.class.getName()).log(Level.WARNING, "Unable to cache result " + file, ex);
+            if (tempFile != null) {
+                tempFile.delete();
+            }
+            return;
+        }
+        evict();
+    }
+
+    /**
+     * Removes all cached results
+     */
+    public void clear() {
+        for (File file : listResults()) {
+            file.delete();
+        }
+    }
+
+    /**
+     * Returns the total size of all cached results
+     * @return The size in bytes
+     */
+    public long getSize() {
+        long size = 0;
+        for (File file : listResults()) {
+            size += file.length();
+        }
+        return size;
+    }
+
+    /**
+     * Deletes the least recently used results, until the size of the cache is not greater than its bound
+     */
+    private void evict() {
+        List<File> files = listResults();
+        long size = 0;
+        for (File file : files) {
+            size += file.length();
+        }
+        if (size <= maxSize) {
+            return;
+        }
+
+        final long[] lastModified = new long[files.size()];
+        List<Integer> order = new ArrayList<Integer>(files.size());
+        for (int i = 0; i < files.size(); i++) {
+            lastModified[i] = files.get(i).lastModified();
+            order.add(i);
+        }
+        Collections.sort(order, new Comparator<Integer>() {
+            @Override
+            public int compare(Integer o1, Integer o2) {
+                return Long.compare(lastModified[o1], lastModified[o2]);
+            }
+        });
+        for (Integer index : order) {
+            if (size <= maxSize) {
+                break;
+            }
+            File file = files.get(index);
+            long length = file.length();
+            if (file.delete()) {
+                size -= length;
+            }
+        }
+    }
+
+    private List<File> listResults() {
+        List<File> result = new ArrayList<File>();
+        File[] files = directory.listFiles();
+        if (files != null) {
+            for (File file : files) {
+                if (file.getName().endsWith(SUFFIX)) {
+                    result.add(file);
+                }
+            }
+        }
+        return result;
+    }
+
+    private File getFile(String key) {
+        return new File(directory, key + SUFFIX);
+    }
+
+    /**
+     * Writes output files into a file
+     * @param file The file
+     * @param outputFiles The output files
+     * @throws IOException
+     */
+    private static void write(File file, Set<OutputFile> outputFiles) throws IOException {
+        DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(file)));
+        try {
+            out.writeInt(FORMAT_VERSION);
+            out.writeInt(outputFiles.size());
+            for (OutputFile outputFile : outputFiles) {
+                writeString(out, outputFile.getName());
+                writeString(out, outputFile.getContent());
+                writeString(out, (outputFile.getEncoding() != null) ? outputFile.getEncoding().name() : null);
+            }
+        } finally {
+            out.close();
+        }
+    }
+
+    /**
+     * Reads output files from a file
+     * @param file The file
+     * @return The output files
+     * @throws IOException
+     */
+    private static Set<OutputFile> read(File file) throws IOException {
+        DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(file)));
+        try {
+            if (in.readInt() != FORMAT_VERSION) {
+                throw new IOException("Unknown format of cached result " + file);
+            }
+            int count = in.readInt();
+            Set<OutputFile> result = new HashSet<OutputFile>();
+            for (int i = 0; i < count; i++) {
+                String name = readString(in);
+                String content = readString(in);
+                String encoding = readString(in);
+                result.add(new OutputFile(name, content, (encoding != null) ? Charset.forName(encoding) : null));
+            }
+            return result;
+        } finally {
+            in.close();
+        }
+    }
+
+    private static void writeString(DataOutputStream out, String str) throws IOException {
+        if (str == null) {
+            out.writeInt(-1);
+            return;
+        }
+        byte[] bytes = str.getBytes("UTF-8");
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    private static String readString(DataInputStream in) throws IOException {
+        int length = in.readInt();
+        if (length < 0) {
+            return null;
+        }
+        byte[] bytes = new byte[length];
+        in.readFully(bytes);
+        return new String(bytes, "UTF-8");
+    }
+
+    private static MessageDigest createDigest() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException ex) {
+            throw new IllegalStateException(ex);
+        }
+    }
+
+    private static void update(MessageDigest digest, String str) {
+        try {
+            byte[] bytes = String.valueOf(str).getBytes("UTF-8");
+            digest.update((byte) (bytes.length >>> 24));
+            digest.update((byte) (bytes.length >>> 16));
+            digest.update((byte) (bytes.length >>> 8));
+            digest.update((byte) bytes.length);
+            digest.update(bytes);
+        } catch (IOException ex) {
+            throw new IllegalStateException(ex);
+        }
+    }
+
+    private static void updateWithFile(MessageDigest digest, File file) {
+        if (!file.isFile()) {
+            update(digest, "missing");
+            return;
+        }
+        try {
+            updateWithStream(digest, new FileInputStream(file));
+        } catch (IOException ex) {
+            update(digest, "missing");
+        }
+    }
+
+    private static void updateWithStream(MessageDigest digest, InputStream inputStream) {
+        if (inputStream == null) {
+            update(digest, "missing");
+            return;
+        }
+        try {
+            byte[] buffer = new byte[8192];
+            int read;
+            while ((read = inputStream.read(buffer)) != -1) {
+                digest.update(buffer, 0, read);
+            }
+        } catch (IOException ex) {
+            update(digest, "unreadable");
+        } finally {
+            try {
+                inputStream.close();
+            } catch (IOException ex) {
+                Logger.getLogger(CompilationCache.class.getName()).log(Level.SEVERE, null, ex);
+            }
+        }
+    }
+
+    /**
+     * Returns the modification time of the jar file or directory, a class is loaded from
+     * @param clazz The class
+     * @return The modification time, 0 if it is unknown
+     */
+    private static long getCodeLastModified(Class<?> clazz) {
+        CodeSource codeSource = clazz.getProtectionDomain().getCodeSource();
+        if (codeSource == null || codeSource.getLocation() == null) {
+            return 0;
+        }
+        URL location = codeSource.getLocation();
+        try {
+            return new File(location.toURI()).lastModified();
+        } catch (URISyntaxException ex) {
+            return 0;
+        } catch (IllegalArgumentException ex) {
+            return 0;
+        }
+    }
+}
@@ -0,0 +1,27 @@
+package de.gaalop;
+
+import java.util.Set;
+
+/**
+ * The result of a compilation: the output files and the statistics of the compilation
+ *
+ * @author Christian Steinmetz
+ */
+public class CompilationResult {
+
+    private final Set<OutputFile> outputFiles;
+    private final CompilationStatistics statistics;
+
+    public CompilationResult(Set<OutputFile> outputFiles, CompilationStatistics statistics) {
+        this.outputFiles = outputFiles;
+        this.statistics = statistics;
+    }
+
+    public Set<OutputFile> getOutputFiles() {
+        return outputFiles;
+    }
+
+    public CompilationStatistics getStatistics() {
+        return statistics;
+    }
+}
@@ -0,0 +1,355 @@
+package de.gaalop;
+
+import de.gaalop.cfg.AssignmentNode;
+import de.gaalop.cfg.ControlFlowGraph;
+import de.gaalop.cfg.EmptyControlFlowVisitor;
+import de.gaalop.cfg.ExpressionStatement;
+import de.gaalop.cfg.IfThenElseNode;
+import de.gaalop.cfg.StoreResultNode;
+import de.gaalop.dfg.BinaryOperation;
+import de.gaalop.dfg.Expression;
+import de.gaalop.dfg.MacroCall;
+import de.gaalop.dfg.UnaryOperation;
+import de.gaalop.visitors.NodeCollector;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * The statistics of a compilation.
+ *
+ * For every stage of the compilation the wall time and the bytes allocated by the compiling thread are recorded.
+ * The allocations of worker threads, e.g. of the parallel Maxima chunks or the parallel table creation,
+ * are not included.
+ * Counting the control flow nodes and expression nodes of the graph before and after every stage
+ * traverses the whole graph, so it is only done, if it is enabled.
+ * Additionally, stages can record named counters, e.g. the runs of optimization passes.
+ *
+ * @author Christian Steinmetz
+ */
+public class CompilationStatistics {
+
+    /**
+     * The statistics of a stage of the compilation
+     */
+    public static class Stage {
+
+        private final String name;
+        private long time;
+        private long allocatedBytes;
+        private int nodeCountBefore = -1;
+        private int nodeCountAfter = -1;
+        private int expressionCountBefore = -1;
+        private int expressionCountAfter = -1;
+        private long startTime;
+        private long startAllocatedBytes;
+
+        private Stage(String name) {
+            this.name = name;
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        /**
+         * Returns the wall time of the stage
+         * @return The time in nanoseconds
+         */
+        public long getTime() {
+            return time;
+        }
+
+        /**
+         * Returns the number of bytes allocated by the compiling thread during the stage,
+         * without the allocations of worker threads started by the stage
+         * @return The number of bytes, -1 if the JVM does not support measuring allocations
+         */
+        public long getAllocatedBytes() {
+            return allocatedBytes;
+        }
+
+        /**
+         * Returns the number of control flow nodes before the stage
+         * @return The number of nodes, -1 if there was no graph before the stage or counting is disabled
+         */
+        public int getNodeCountBefore() {
+            return nodeCountBefore;
+        }
+
+        public int getNodeCountAfter() {
+            return nodeCountAfter;
+        }
+
+        /**
+         * Returns the number of expression nodes in the control flow nodes before the stage
+         * @return The number of expression nodes, -1 if there was no graph before the stage or counting is disabled
+         */
+        public int getExpressionCountBefore() {
+            return expressionCountBefore;
+        }
+
+        public int getExpressionCountAfter() {
+            return expressionCountAfter;
+        }
+
+        @Override
+        public String toString() {
+            return name + ": " + (time / 1000000) + " ms, " + allocatedBytes + " bytes allocated, "
+                    + nodeCountBefore + " -> " + nodeCountAfter + " nodes, "
+                    + expressionCountBefore + " -> " + expressionCountAfter + " expression nodes";
+        }
+    }
+
+    /**
+     * Counts the expression nodes, that are used by the control flow nodes
+     */
+    private static class ExpressionCounter extends EmptyControlFlowVisitor {
+
+        private int count = 0;
+
+        private void count(Expression expression) {
+            if (expression != null) {
+                count += countNodes(expression);
+            }
+        }
+
+        @Override
+        public void visit(AssignmentNode node) {
+            count(node.getVariable());
+            count(node.getValue());
+            super.visit(node);
+        }
+
+        @Override
+        public void visit(StoreResultNode node) {
+            count(node.getValue());
+            super.visit(node);
+        }
+
+        @Override
+        public void visit(ExpressionStatement node) {
+            count(node.getExpression());
+            super.visit(node);
+        }
+
+        @Override
+        public void visit(IfThenElseNode node) {
+            count(node.getCondition());
+            super.visit(node);
+        }
+    }
+
+    private static final ThreadMXBean THREAD_BEAN = ManagementFactory.getThreadMXBean();
+
+    private final String inputName;
+    private final boolean countGraphs;
+    private final ArrayList<Stage> stages = new ArrayList<Stage>();
+    private final LinkedHashMap<String, Long> counters = new LinkedHashMap<String, Long>();
+    private boolean cached = false;
+
+    /**
+     * Creates new statistics, which do not count the nodes of the graph
+     * @param inputName The name of the compiled input file
+     */
+    public CompilationStatistics(String inputName) {
+        this(inputName, false);
+    }
+
+    /**
+     * Creates new statistics
+     * @param inputName The name of the compiled input file
+     * @param countGraphs Count the control flow nodes and expression nodes before and after every stage
+     */
+    public CompilationStatistics(String inputName, boolean countGraphs) {
+        this.inputName = inputName;
+        this.countGraphs = countGraphs;
+    }
+
+    /**
+     * Starts a stage
+     * @param name The name of the stage
+     * @param graph The graph before the stage, null if there is no graph yet
+     * @return The started stage
+     */
+    public Stage startStage(String name, ControlFlowGraph graph) {
+        Stage stage = new Stage(name);
+        if (countGraphs && graph != null) {
+            stage.nodeCountBefore = countNodes(graph);
+            stage.expressionCountBefore = countExpressions(graph);
+        }
+        stages.add(stage);
+        stage.startAllocatedBytes = getAllocatedBytes();
+        stage.startTime = System.nanoTime();
+        return stage;
+    }
+
+    /**
+     * Ends a stage
+     * @param stage The started stage
+     * @param graph The graph after the stage, null if there is no graph
+     */
+    public void endStage(Stage stage, ControlFlowGraph graph) {
+        stage.time = System.nanoTime() - stage.startTime;
+        long allocated = getAllocatedBytes();
+        stage.allocatedBytes = (allocated < 0 || stage.startAllocatedBytes < 0) ? -1 : allocated - stage.startAllocatedBytes;
+        if (countGraphs && graph != null) {
+            stage.nodeCountAfter = countNodes(graph);
+            stage.expressionCountAfter = countExpressions(graph);
+        }
+    }
+
+    /**
+     * Adds a value to a counter
+     * @param name The name of the counter
+     * @param value The value to be added
+     */
+    public synchronized void addCounter(String name, long value) {
+        Long old = counters.get(name);
+        counters.put(name, (old == null) ? value : old + value);
+    }
+
+    public List<Stage> getStages() {
+        return Collections.unmodifiableList(stages);
+    }
+
+    public synchronized Map<String, Long> getCounters() {
+        return new LinkedHashMap<String, Long>(counters);
+    }
+
+    public String getInputName() {
+        return inputName;
+    }
+
+    /**
+     * Returns, if the result has been taken from the compilation cache
+     * @return true, if no stage has been run
+     */
+    public boolean isCached() {
+        return cached;
+    }
+
+    void setCached(boolean cached) {
+        this.cached = cached;
+    }
+
+    /**
+     * Returns the wall time of all stages
+     * @return The time in nanoseconds
+     */
+    public long getTotalTime() {
+        long total = 0;
+        for (Stage stage : stages) {
+            total += stage.time;
+        }
+        return total;
+    }
+
+    /**
+     * Returns the statistics as JSON object
+     * @return The JSON text
+     */
+    public synchronized String toJson() {
+        StringBuilder sb = new StringBuilder();
+        sb.append("{\"input\": ").append(quote(inputName));
+        sb.append(", \"cached\": ").append(cached);
+        sb.append(", \"totalTimeNs\": ").append(getTotalTime());
+        sb.append(", \"stages\": [");
+        for (int i = 0; i < stages.size(); i++) {
+            Stage stage = stages.get(i);
+            sb.append((i == 0) ? "" : ", ");
+            sb.append("{\"name\": ").append(quote(stage.name));
+            sb.append(", \"timeNs\": ").append(stage.time);
+            sb.append(", \"allocatedBytes\": ").append(stage.allocatedBytes);
+            sb.append(", \"nodesBefore\": ").append(stage.nodeCountBefore);
+            sb.append(", \"nodesAfter\": ").append(stage.nodeCountAfter);
+            sb.append(", \"expressionNodesBefore\": ").append(stage.expressionCountBefore);
+            sb.append(", \"expressionNodesAfter\": ").append(stage.expressionCountAfter);
+            sb.append("}");
+        }
+        sb.append("], \"counters\": {");
+        boolean first = true;
+        for (Map.Entry<String, Long> counter : counters.entrySet()) {
+            sb.append(first ? "" : ", ").append(quote(counter.getKey())).append(": ").append(counter.getValue());
+            first = false;
+        }
+        sb.append("}}");
+        return sb.toString();
+    }
+
+    private static String quote(String text) {
+        if (text == null) {
+            return "null";
+        }
+        StringBuilder sb = new StringBuilder("\"");
+        for (char c : text.toCharArray()) {
+            if (c == '"' || c == '\\') {
+                sb.append('\\').append(c);
+            } else if (c < 0x20) {
+                sb.append(String.format("\\u%04x", (int) c));
+            } else {
+                sb.append(c);
+            }
+        }
+        return sb.append('"').toString();
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder sb = new StringBuilder("Compilation of ").append(inputName);
+        sb.append((cached) ? " (cached)" : "").append(": ").append(getTotalTime() / 1000000).append(" ms");
+        for (Stage stage : stages) {
+            sb.append("\n").append(stage);
+        }
+        for (Map.Entry<String, Long> counter : getCounters().entrySet()) {
+            sb.append("\n").append(counter.getKey()).append(": ").append(counter.getValue());
+        }
+        return sb.toString();
+    }
+
+    /**
+     * Returns the number of bytes allocated by the current thread
+     * @return The number of bytes, -1 if the JVM does not support measuring allocations
+     */
+    private static long getAllocatedBytes() {
+        if (THREAD_BEAN instanceof com.sun.management.ThreadMXBean) {
+            com.sun.management.ThreadMXBean bean = (com.sun.management.ThreadMXBean) THREAD_BEAN;
+            if (bean.isThreadAllocatedMemorySupported() && bean.isThreadAllocatedMemoryEnabled()) {
+                return bean.getThreadAllocatedBytes(Thread.currentThread().getId());
+            }
+        }
+        return -1;
+    }
+
+    private static int countNodes(ControlFlowGraph graph) {
+        return NodeCollector.collectNodes(graph).size();
+    }
+
+    private static int countNodes(Expression expression) {
+        if (expression instanceof BinaryOperation) {
+            BinaryOperation operation = (BinaryOperation) expression;
+            return 1 + countNodes(operation.getLeft()) + countNodes(operation.getRight());
+        }
+        if (expression instanceof UnaryOperation) {
+            return 1 + countNodes(((UnaryOperation) expression).getOperand());
+        }
+        if (expression instanceof MacroCall) {
+            int count = 1;
+            for (Expression argument : ((MacroCall) expression).getArguments()) {
+                count += countNodes(argument);
+            }
+            return count;
+        }
+        return 1;
+    }
+
+    private static int countExpressions(ControlFlowGraph graph) {
+        ExpressionCounter counter = new ExpressionCounter();
+        graph.accept(counter);
+        return counter.count;
+    }
+}
@@ -8,6 +8,14 @@ import java.util.Set;
 
 /**
  * Represents the high level compilation process.
+ * <p>
+ * Concurrency contract: a facade and the subsystems it has been constructed with belong to one thread at a time,
+ * so a facade must not be used for two compilations at the same time.
+ * Different facades can compile concurrently within one JVM, if each facade has its own subsystems.
+ * The subsystems should be created from configuration snapshots of the plugins (see {@link Plugins#createSnapshot(Plugin)}),
+ * so that configuration changes in the GUI do not affect running compilations.
+ * A {@link CompilationCache} can be shared between facades.
+ * Parsers, strategies and code generators must not keep per-compilation state in static fields.
  */
 public final class CompilerFacade extends Observable {
 
@@ -27,17 +35,11 @@ public final class CompilerFacade extends Observable {
     private final boolean asRessource;
     private final String algebraBaseDirectory;
     
-    private static boolean useCodeSegmenter;
+    private CompilationCache cache;
+    private Plugin[] plugins;
+    private boolean countGraphs = false;
 
-    public static boolean isUseCodeSegmenter() {
-		return useCodeSegmenter;
-	}
-
-	public static void setUseCodeSegmenter(boolean useCodeSegmenter) {
-		CompilerFacade.useCodeSegmenter = useCodeSegmenter;
-	}
-
-	/**
+    /**
      * Constructs a new compiler facade.
      *
      * @param codeParser The code parser used by this facade to construct a dataflow graph from an input file.
@@ -64,23 +66,87 @@ public final class CompilerFacade extends Observable {
      * @throws CompilationException If any error occurs during compilation.
      */
     public Set<OutputFile> compile(InputFile input) throws CompilationException {
-    	return realCompile(input);
+        return compileWithStatistics(input).getOutputFiles();
+    }
+
+    /**
+     * Compiles an input file using the previously configured subsystems and records
+     * the time, the allocated bytes and, if enabled by {@link #setCountGraphs(boolean)},
+     * the size of the graph for every stage of the compilation.
+     *
+     * @param input The input file that should be compiled.
+     * @return The output files and the statistics of the compilation.
+     * @throws CompilationException If any error occurs during compilation.
+     */
+    public CompilationResult compileWithStatistics(InputFile input) throws CompilationException {
+        CompilationStatistics statistics = new CompilationStatistics(input.getName(), countGraphs);
+        if (cache == null)
+            return new CompilationResult(realCompile(input, statistics), statistics);
+
+        CompilationStatistics.Stage stage = statistics.startStage("cache lookup", null);
+        String key = CompilationCache.computeKey(input, algebraName, asRessource, algebraBaseDirectory, plugins);
+        Set<OutputFile> output = cache.get(key);
+        statistics.endStage(stage, null);
+        if (output != null && !output.isEmpty()) {
+            statistics.setCached(true);
+            setChanged();
+            notifyObservers("Finished (cached)");
+            return new CompilationResult(output, statistics);
+        }
+        output = realCompile(input, statistics);
+        // code generators without output files work through side effects like opening the visualizer,
+        // so their results must not be replayed from the cache
+        if (!output.isEmpty())
+            cache.put(key, output);
+        return new CompilationResult(output, statistics);
+    }
+
+    /**
+     * Sets a cache for the compilation results. The results are identified by the input,
+     * the algebra and the configuration of the given plugins, which must be the plugins of the subsystems of this facade.
+     * Empty results are not cached, because they come from code generators, which work through side effects.
+     *
+     * @param cache The cache, null disables caching
+     * @param plugins The plugins of the subsystems
+     */
+    public void setCompilationCache(CompilationCache cache, Plugin... plugins) {
+        this.cache = cache;
+        this.plugins = plugins;
+    }
+
+    public CompilationCache getCompilationCache() {
+        return cache;
+    }
+
+    /**
+     * Enables counting the nodes of the graph before and after every stage of the compilation.
+     * Counting traverses the whole graph twice per stage, so it is disabled by default.
+     *
+     * @param countGraphs true to count the nodes
+     */
+    public void setCountGraphs(boolean countGraphs) {
+        this.countGraphs = countGraphs;
     }
     
     
     
-    private Set<OutputFile> realCompile(InputFile input) throws CompilationException {
+    private Set<OutputFile> realCompile(InputFile input, CompilationStatistics statistics) throws CompilationException {
     	setChanged();
     	notifyObservers("Parsing...");
+        CompilationStatistics.Stage stage = statistics.startStage("parse", null);
         ControlFlowGraph graph = codeParser.parseFile(input);
+        statistics.endStage(stage, graph);
         setChanged();
         
         graph.algebraName = algebraName;
         graph.asRessource = asRessource;
         graph.algebraBaseDirectory = algebraBaseDirectory;
+        graph.statistics = statistics;
         
         notifyObservers("Setting global settings...");
+        stage = statistics.startStage("globalSettings", graph);
         globalSettingsStrategy.transform(graph);
+        statistics.endStage(stage, graph);
         setChanged();
         
         //notifyObservers("Algebra inserting...");  
@@ -88,19 +154,27 @@ public final class CompilerFacade extends Observable {
         //setChanged();
 
         notifyObservers("Inserting code for visualization...");
+        stage = statistics.startStage("visualCodeInserter", graph);
         visualizerStrategy.transform(graph);
+        statistics.endStage(stage, graph);
         setChanged();
 
         notifyObservers("Algebra inserting...");  
+        stage = statistics.startStage("algebra", graph);
         algebraStrategy.transform(graph);
+        statistics.endStage(stage, graph);
         setChanged();
         
         notifyObservers("Optimizing...");  //FIXME thomas
+        stage = statistics.startStage("optimization", graph);
         optimizationStrategy.transform(graph);
+        statistics.endStage(stage, graph);
         setChanged();
         
         notifyObservers("Generating Code...");
+        stage = statistics.startStage("codeGeneration", graph);
         Set<OutputFile> output = codeGenerator.generate(graph);  
+        statistics.endStage(stage, graph);
         setChanged();
         notifyObservers("Finished");        
         return output;   	
@@ -11,6 +11,7 @@ import java.util.Set;
  * Some C++ variable names are not maple conform. For example "class->var" should throw a syntax error.
  * However 'cause we still want to use those variables we need to replace them in the code we give to maple.
  * NameTable is supposed to be the lookup table for all variables. 
+ * The table is shared by all compilations, so its methods are synchronized.
  * @author Thomas Kanold
  *
  */
@@ -21,7 +22,7 @@ public class NameTable {
 	/**
 	 * describes if the name table is used or just the true variable name.
 	 */
-	private static boolean use = true; 
+	private static volatile boolean use = true; 
 
 
 	private Map <String, String> table;
@@ -30,7 +31,7 @@ public class NameTable {
 		table = new HashMap<String, String>();
 	}
 	
-	public static NameTable getInstance() {
+	public static synchronized NameTable getInstance() {
 		if (instance == null) {
 			instance = new NameTable();
 		} 
@@ -42,7 +43,7 @@ public class NameTable {
 	 * @param textv True is we already have a key for the variable.
 	 * @return 
 	 */
-	public boolean has(String textv) {
+	public synchronized boolean has(String textv) {
 		return table.containsValue(textv);
 	}
 	
@@ -72,7 +73,7 @@ public class NameTable {
 	 * @return
 	 */
 
-	public String add(String textv) {
+	public synchronized String add(String textv) {
 		if (use)
 			return addValue(textv);
 		return textv;  // we dont want to use NameTable
@@ -94,7 +95,7 @@ public class NameTable {
 	 * @param key
 	 * @return Returns the stored name. If name is not in table it returns the key.
 	 */
-	public String get(String key) {
+	public synchronized String get(String key) {
 		if ((table.get(key) == null) || (!use))
 			return key;
 		
@@ -1,19 +1,20 @@
 package de.gaalop;
 
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
 
 /**
  * General-purpose class for different notifications as status information, warnings or errors which can be passed to
  * observers. Additionally, this class can be used as a central means to store and retrieve notifications, e.g. warnings
- * that occurred at different places.
+ * that occurred at different places. The stored warnings are thread-safe, but shared by all compilations of a JVM.
  * 
  * @author Christian Schwinn
  * 
  */
 public abstract class Notifications {
 
-	private static List<Warning> warnings = new ArrayList<Warning>();
+	private static final List<Warning> warnings = Collections.synchronizedList(new ArrayList<Warning>());
 
 	public static void addWarning(Warning warning) {
 		warnings.add(warning);
@@ -23,8 +24,13 @@ public abstract class Notifications {
 		warnings.add(new Warning(message));
 	}
 
+	/**
+	 * @return a copy of the warnings stored so far
+	 */
 	public static List<Warning> getWarnings() {
-		return warnings;
+		synchronized (warnings) {
+			return new ArrayList<Warning>(warnings);
+		}
 	}
 
 	public static boolean hasWarnings() {
@@ -3,6 +3,7 @@ package de.gaalop;
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
 
+import java.lang.reflect.Field;
 import java.util.*;
 
 /**
@@ -11,6 +12,10 @@ import java.util.*;
  * Please note that this class can only find plugins that have been loaded with the same
  * class loader as this file.
  *
+ * The registered plugins are singletons, whose configuration can be changed at any time, e.g. by the GUI.
+ * Compilations, which may run concurrently, should therefore use configuration snapshots
+ * created by {@link #createSnapshot(Plugin)}.
+ *
  * @see java.util.ServiceLoader How finding the plugins is facilitated.
  */
 public final class Plugins {
@@ -62,6 +67,35 @@ public final class Plugins {
     private Plugins() {
     }
 
+    /**
+     * Creates a snapshot of the configuration of a plugin: a new instance of the plugin class,
+     * whose configuration properties are copied from the given plugin.
+     * The subsystems created by the snapshot are not affected by later configuration changes of the plugin.
+     * Observers of the plugin are not copied.
+     *
+     * @param plugin The plugin
+     * @param <T> The class of the plugin
+     * @return The snapshot, or the plugin itself if its class cannot be instantiated
+     */
+    @SuppressWarnings("unchecked")
+    public static <T extends Plugin> T createSnapshot(T plugin) {
+        Class<?> clazz = plugin.getClass();
+        try {
+            T snapshot = (T) clazz.getConstructor().newInstance();
+            for (Field field : CompilationCache.getConfigurationFields(clazz)) {
+                field.setAccessible(true);
+                field.set(snapshot, field.get(plugin));
+            }
+            return snapshot;
+        } catch (ReflectiveOperationException e) {
+            log.warn("Cannot create a configuration snapshot of " + clazz.getName() + ", the plugin is used directly", e);
+            return plugin;
+        } catch (SecurityException e) {
+            log.warn("Cannot create a configuration snapshot of " + clazz.getName() + ", the plugin is used directly", e);
+            return plugin;
+        }
+    }
+
     /**
      * Gets the available code parser plugins.
      *
@@ -1,17 +1,20 @@
 package de.gaalop.annotation;
 
+import java.util.Collections;
+import java.util.Map;
 import java.util.WeakHashMap;
 
 /**
  * This class models a container that is capable of annotating arbitrary objects with custom annotations.
  * <p/>
  * Only weak references to the annotated objects are held by this container to avoid creating memory leaks.
+ * The container is thread-safe, so that objects of concurrent compilations can be annotated.
  *
  * @param <T> The class of the annotations contained in this object.
  */
 public class AnnotationContainer<T> {
 
-    private WeakHashMap<Object, T> annotationMap = new WeakHashMap<Object, T>();
+    private final Map<Object, T> annotationMap = Collections.synchronizedMap(new WeakHashMap<Object, T>());
 
     /**
      * Checks whether this container contains an annotation for an object.
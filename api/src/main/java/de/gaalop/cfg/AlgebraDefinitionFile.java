@@ -42,6 +42,13 @@ public class AlgebraDefinitionFile {
     private String productsFilePath;
     private boolean useAsRessource;
 
+    /**
+     * The default maximum number of cached products per product table in live computation mode
+     */
+    public static final int DEFAULT_PRODUCT_CACHE_SIZE = 262144;
+
+    private int productCacheSize = DEFAULT_PRODUCT_CACHE_SIZE;
+
     /**
      * The indices of the base vectors
      */
@@ -111,6 +118,19 @@ public class AlgebraDefinitionFile {
         this.useAsRessource = useAsRessource;
     }
 
+    /**
+     * Returns the maximum number of cached products per product table in live computation mode.
+     * 0 disables caching.
+     * @return The maximum number of cached products
+     */
+    public int getProductCacheSize() {
+        return productCacheSize;
+    }
+
+    public void setProductCacheSize(int productCacheSize) {
+        this.productCacheSize = productCacheSize;
+    }
+
     /**
      * Loads a algebra definition from a inputStream
      * @param inputStream The InputStream to be used
@@ -126,6 +146,25 @@ public class AlgebraDefinitionFile {
         createIndices();
     }
 
+    /**
+     * Copies the definition of an already loaded algebra into this file.
+     * The blade expressions are copied, so they can be changed independently of the source.
+     * @param source The loaded algebra definition
+     */
+    public void copyDefinitionFrom(AlgebraDefinitionFile source) {
+        base = source.base;
+        lineMapPlusMinusToZeroInf = source.lineMapPlusMinusToZeroInf;
+        base2 = source.base2;
+        baseSquares = new HashMap<String, Byte>(source.baseSquares);
+        lineMapZeroInfToPlusMinus = source.lineMapZeroInfToPlusMinus;
+        indices = new HashMap<String, Integer>(source.indices);
+        if (source.blades != null) {
+            blades = new Expression[source.blades.length];
+            for (int i = 0; i < blades.length; i++)
+                blades[i] = source.blades[i].copy();
+        }
+    }
+
     /**
      * Parses a String array, splitet with commas
      * @param The string to be parsed
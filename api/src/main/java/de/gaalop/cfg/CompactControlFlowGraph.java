@@ -0,0 +1,558 @@
+package de.gaalop.cfg;
+
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.LinkedList;
+import java.util.Set;
+
+import de.gaalop.dfg.Expression;
+import de.gaalop.dfg.Variable;
+
+/**
+ * A compact, index based store for the statements of a straight-line control flow graph.
+ * <p/>
+ * The statements between start and end node are kept in parallel arrays that are indexed by statement: the kind of the
+ * statement, the indices of its successor and predecessor, the assigned or stored variable together with an id of this
+ * variable and the assigned value. Assignments and store result nodes are not kept as node objects, all other
+ * statements (e.g. expression statements or colors) are kept as they are. Removing a statement only marks it as removed
+ * and relinks its neighbours, so it takes constant time and does not allocate anything.
+ * <p/>
+ * {@link #compact(ControlFlowGraph)} moves the statements of a graph into a new store, {@link #expand()} moves them
+ * back. Passes can work on the indices directly or traverse the statements with an existing {@link ControlFlowVisitor}
+ * by calling {@link #accept(ControlFlowVisitor)}.
+ *
+ * @author Christian Steinmetz
+ */
+public final class CompactControlFlowGraph {
+
+	/** The kind of an assignment of a value to a variable */
+	public static final byte ASSIGNMENT = 0;
+
+	/** The kind of a statement that stores a variable to the output */
+	public static final byte STORE_RESULT = 1;
+
+	/** The kind of all other statements, that are kept as nodes */
+	public static final byte OTHER = 2;
+
+	/** The index of no statement, e.g. the successor of the last statement */
+	public static final int NONE = -1;
+
+	private static final int INITIAL_CAPACITY = 16;
+
+	private final ControlFlowGraph graph;
+
+	/** The kind of every statement */
+	private byte[] kinds = new byte[INITIAL_CAPACITY];
+
+	/** The index of the next statement of every statement */
+	private int[] successors = new int[INITIAL_CAPACITY];
+
+	/** The index of the previous statement of every statement */
+	private int[] predecessors = new int[INITIAL_CAPACITY];
+
+	/** The id of the assigned or stored variable of every statement, NONE for other statements */
+	private int[] variableIds = new int[INITIAL_CAPACITY];
+
+	/** The assigned or stored variable of every statement */
+	private Variable[] variables = new Variable[INITIAL_CAPACITY];
+
+	/** The assigned value of every assignment and the node of every other statement */
+	private Object[] payloads = new Object[INITIAL_CAPACITY];
+
+	/** The indices of the removed statements */
+	private final BitSet removed = new BitSet();
+
+	/** The number of used indices */
+	private int allocated = 0;
+
+	/** The number of statements that are not removed */
+	private int size = 0;
+
+	private int first = NONE;
+
+	private int last = NONE;
+
+	/** The ids of the variables, equal variables have the same id */
+	private final HashMap<Variable, Integer> ids = new HashMap<Variable, Integer>();
+
+	private CompactControlFlowGraph(ControlFlowGraph graph) {
+		this.graph = graph;
+	}
+
+	/**
+	 * Determines, if a control flow graph contains neither branches nor loops.
+	 *
+	 * @param graph The control flow graph
+	 * @return true, if the graph can be compacted
+	 */
+	public static boolean isStraightLine(ControlFlowGraph graph) {
+		Node node = graph.getStartNode().getSuccessor();
+		while (node instanceof SequentialNode) {
+			if (!isStraightLineNode((SequentialNode) node)) {
+				return false;
+			}
+			node = ((SequentialNode) node).getSuccessor();
+		}
+		return node == graph.getEndNode();
+	}
+
+	private static boolean isStraightLineNode(SequentialNode node) {
+		return !(node instanceof IfThenElseNode || node instanceof LoopNode || node instanceof BreakNode
+				|| node instanceof BlockEndNode);
+	}
+
+	/**
+	 * Moves the statements of a straight-line control flow graph into a new compact store. Until {@link #expand()} is
+	 * called, the start node of the graph is directly followed by its end node.
+	 *
+	 * @param graph The control flow graph
+	 * @return The compact store of the statements
+	 * @throws IllegalArgumentException if the graph contains branches or loops
+	 */
+	public static CompactControlFlowGraph compact(ControlFlowGraph graph) {
+		if (!isStraightLine(graph)) {
+			throw new IllegalArgumentException("Only control flow graphs without branches and loops can be compacted.");
+		}
+		CompactControlFlowGraph compact = new CompactControlFlowGraph(graph);
+		Node node = graph.getStartNode().getSuccessor();
+		while (node != graph.getEndNode()) {
+			SequentialNode statement = (SequentialNode) node;
+			node = statement.getSuccessor();
+			compact.insertBefore(NONE, statement);
+		}
+		link(graph.getStartNode(), graph.getEndNode());
+		return compact;
+	}
+
+	/**
+	 * Moves the statements back into the control flow graph. Assignments and store result nodes are created anew. The
+	 * compact store must not be used afterwards.
+	 */
+	public void expand() {
+		SequentialNode previous = graph.getStartNode();
+		for (int index = first; index != NONE; index = successors[index]) {
+			SequentialNode node = toNode(index);
+			link(previous, node);
+			previous = node;
+		}
+		link(previous, graph.getEndNode());
+	}
+
+	/**
+	 * Makes a node the only successor of a sequential node and the sequential node the only predecessor of the node.
+	 */
+	private static void link(SequentialNode node, Node successor) {
+		clearPredecessors(successor);
+		node.setSuccessor(successor);
+		successor.addPredecessor(node);
+	}
+
+	private static void clearPredecessors(Node node) {
+		for (Node predecessor : node.getPredecessors().toArray(new Node[0])) {
+			node.removePredecessor(predecessor);
+		}
+	}
+
+	/**
+	 * Returns the control flow graph, whose statements are stored.
+	 *
+	 * @return The control flow graph
+	 */
+	public ControlFlowGraph getGraph() {
+		return graph;
+	}
+
+	/**
+	 * Returns the number of statements.
+	 *
+	 * @return The number of statements, that are not removed
+	 */
+	public int size() {
+		return size;
+	}
+
+	/**
+	 * Returns the index of the first statement.
+	 *
+	 * @return The index, NONE if there are no statements
+	 */
+	public int getFirst() {
+		return first;
+	}
+
+	/**
+	 * Returns the index of the last statement.
+	 *
+	 * @return The index, NONE if there are no statements
+	 */
+	public int getLast() {
+		return last;
+	}
+
+	/**
+	 * Returns the index of the statement after a statement.
+	 *
+	 * @param index The index of the statement
+	 * @return The index of the next statement, NONE if the statement is the last statement
+	 */
+	public int getNext(int index) {
+		checkIndex(index);
+		return successors[index];
+	}
+
+	/**
+	 * Returns the index of the statement before a statement.
+	 *
+	 * @param index The index of the statement
+	 * @return The index of the previous statement, NONE if the statement is the first statement
+	 */
+	public int getPrevious(int index) {
+		checkIndex(index);
+		return predecessors[index];
+	}
+
+	/**
+	 * Determines, if a statement has been removed.
+	 *
+	 * @param index The index of the statement
+	 * @return true, if the statement has been removed
+	 */
+	public boolean isRemoved(int index) {
+		return removed.get(index);
+	}
+
+	/**
+	 * Returns the kind of a statement.
+	 *
+	 * @param index The index of the statement
+	 * @return ASSIGNMENT, STORE_RESULT or OTHER
+	 */
+	public byte getKind(int index) {
+		checkIndex(index);
+		return kinds[index];
+	}
+
+	/**
+	 * Returns the variable, that an assignment assigns to or that a store result node stores.
+	 *
+	 * @param index The index of the statement
+	 * @return The variable, null for other statements
+	 */
+	public Variable getVariable(int index) {
+		checkIndex(index);
+		return variables[index];
+	}
+
+	/**
+	 * Returns the id of the variable, that an assignment assigns to or that a store result node stores. Equal variables
+	 * have the same id.
+	 *
+	 * @param index The index of the statement
+	 * @return The id, NONE for other statements
+	 */
+	public int getVariableId(int index) {
+		checkIndex(index);
+		return variableIds[index];
+	}
+
+	/**
+	 * Returns the id of a variable.
+	 *
+	 * @param variable The variable
+	 * @return The id, NONE if no statement has assigned to or stored an equal variable
+	 */
+	public int findVariableId(Variable variable) {
+		Integer id = ids.get(variable);
+		return (id != null) ? id : NONE;
+	}
+
+	/**
+	 * Returns the number of variable ids.
+	 *
+	 * @return The number of ids, all ids are smaller than this number
+	 */
+	public int getVariableIdCount() {
+		return ids.size();
+	}
+
+	/**
+	 * Changes the variable, that an assignment assigns to or that a store result node stores.
+	 *
+	 * @param index The index of the statement
+	 * @param variable The new variable
+	 */
+	public void setVariable(int index, Variable variable) {
+		checkIndex(index);
+		if (kinds[index] == OTHER) {
+			throw new IllegalArgumentException("Statement " + index + " has no variable.");
+		}
+		variables[index] = variable;
+		variableIds[index] = getId(variable);
+	}
+
+	/**
+	 * Returns the value of an assignment.
+	 *
+	 * @param index The index of the statement
+	 * @return The value, null for other statements
+	 */
+	public Expression getValue(int index) {
+		checkIndex(index);
+		return (kinds[index] == ASSIGNMENT) ? (Expression) payloads[index] : null;
+	}
+
+	/**
+	 * Changes the value of an assignment.
+	 *
+	 * @param index The index of the assignment
+	 * @param value The new value
+	 */
+	public void setValue(int index, Expression value) {
+		checkIndex(index);
+		if (kinds[index] != ASSIGNMENT) {
+			throw new IllegalArgumentException("Statement " + index + " is no assignment.");
+		}
+		payloads[index] = value;
+	}
+
+	/**
+	 * Returns a statement as node. A new node is created for assignments and store result nodes, that has neither
+	 * predecessor nor successor.
+	 *
+	 * @param index The index of the statement
+	 * @return The node
+	 */
+	public SequentialNode getNode(int index) {
+		checkIndex(index);
+		SequentialNode node = toNode(index);
+		if (kinds[index] == OTHER) {
+			clearPredecessors(node);
+			node.setSuccessor(null);
+		}
+		return node;
+	}
+
+	private SequentialNode toNode(int index) {
+		switch (kinds[index]) {
+		case ASSIGNMENT:
+			return new AssignmentNode(graph, variables[index], (Expression) payloads[index]);
+		case STORE_RESULT:
+			return new StoreResultNode(graph, variables[index]);
+		default:
+			return (SequentialNode) payloads[index];
+		}
+	}
+
+	/**
+	 * Removes a statement by marking it as removed and linking its predecessor and its successor.
+	 *
+	 * @param index The index of the statement
+	 */
+	public void remove(int index) {
+		checkIndex(index);
+		int previous = predecessors[index];
+		int next = successors[index];
+		if (previous == NONE) {
+			first = next;
+		} else {
+			successors[previous] = next;
+		}
+		if (next == NONE) {
+			last = previous;
+		} else {
+			predecessors[next] = previous;
+		}
+		removed.set(index);
+		variables[index] = null;
+		payloads[index] = null;
+		size--;
+	}
+
+	/**
+	 * Inserts an assignment before a statement without creating a node.
+	 *
+	 * @param index The index of the statement, NONE to append the assignment
+	 * @param variable The variable that is assigned to
+	 * @param value The assigned value
+	 * @return The index of the new assignment
+	 */
+	public int insertAssignmentBefore(int index, Variable variable, Expression value) {
+		int newIndex = allocate(index);
+		kinds[newIndex] = ASSIGNMENT;
+		variables[newIndex] = variable;
+		variableIds[newIndex] = getId(variable);
+		payloads[newIndex] = value;
+		return newIndex;
+	}
+
+	/**
+	 * Inserts a node before a statement. Assignments and store result nodes are not kept as nodes.
+	 *
+	 * @param index The index of the statement, NONE to append the node
+	 * @param node The node, that must be neither a branch nor a loop
+	 * @return The index of the new statement
+	 */
+	public int insertBefore(int index, SequentialNode node) {
+		if (!isStraightLineNode(node)) {
+			throw new IllegalArgumentException("Branches and loops can not be inserted: " + node);
+		}
+		int newIndex = allocate(index);
+		set(newIndex, node);
+		return newIndex;
+	}
+
+	/**
+	 * Sets kind, variable and payload of a statement from a node.
+	 */
+	private void set(int index, SequentialNode node) {
+		if (node instanceof AssignmentNode && ((AssignmentNode) node).getGAPP() == null) {
+			AssignmentNode assignment = (AssignmentNode) node;
+			kinds[index] = ASSIGNMENT;
+			variables[index] = assignment.getVariable();
+			variableIds[index] = getId(assignment.getVariable());
+			payloads[index] = assignment.getValue();
+		} else if (node instanceof StoreResultNode) {
+			StoreResultNode storeResult = (StoreResultNode) node;
+			kinds[index] = STORE_RESULT;
+			variables[index] = storeResult.getValue();
+			variableIds[index] = getId(storeResult.getValue());
+			payloads[index] = null;
+		} else {
+			kinds[index] = OTHER;
+			variables[index] = null;
+			variableIds[index] = NONE;
+			payloads[index] = node;
+		}
+	}
+
+	/**
+	 * Allocates a new index and links it before a statement.
+	 */
+	private int allocate(int next) {
+		if (next != NONE) {
+			checkIndex(next);
+		}
+		if (allocated == kinds.length) {
+			int capacity = allocated + (allocated >> 1);
+			kinds = Arrays.copyOf(kinds, capacity);
+			successors = Arrays.copyOf(successors, capacity);
+			predecessors = Arrays.copyOf(predecessors, capacity);
+			variableIds = Arrays.copyOf(variableIds, capacity);
+			variables = Arrays.copyOf(variables, capacity);
+			payloads = Arrays.copyOf(payloads, capacity);
+		}
+		int index = allocated++;
+		int previous = (next == NONE) ? last : predecessors[next];
+		successors[index] = next;
+		predecessors[index] = previous;
+		if (previous == NONE) {
+			first = index;
+		} else {
+			successors[previous] = index;
+		}
+		if (next == NONE) {
+			last = index;
+		} else {
+			predecessors[next] = index;
+		}
+		size++;
+		return index;
+	}
+
+	private int getId(Variable variable) {
+		Integer id = ids.get(variable);
+		if (id == null) {
+			id = ids.size();
+			ids.put(variable, id);
+		}
+		return id;
+	}
+
+	private void checkIndex(int index) {
+		if (index < 0 || index >= allocated || removed.get(index)) {
+			throw new IllegalArgumentException("There is no statement with index " + index + ".");
+		}
+	}
+
+	/**
+	 * Traverses the statements with a visitor, that is written for the linked control flow graph. Every statement is
+	 * presented as a node, whose successor ends the traversal, so the visitor must not rely on reaching further nodes
+	 * from a node. The end node of the graph is visited at last, the start node is not visited.
+	 * <p/>
+	 * Changes of the variable and the value of the presented node are taken over. If the visitor removes the node with
+	 * {@link ControlFlowGraph#removeNode(SequentialNode)}, the statement is removed. Nodes that are inserted before or
+	 * after the presented node are inserted as statements, the inserted statements are not visited.
+	 *
+	 * @param visitor The visitor
+	 */
+	public void accept(ControlFlowVisitor visitor) {
+		Terminator terminator = new Terminator(graph);
+		int index = first;
+		while (index != NONE) {
+			SequentialNode node = getNode(index);
+			node.setSuccessor(terminator);
+			terminator.removedPredecessor = null;
+			node.accept(visitor);
+
+			int next = successors[index];
+			// nodes inserted before the presented node are linked from the last to the first inserted node
+			LinkedList<SequentialNode> inserted = new LinkedList<SequentialNode>();
+			for (Node previous = single(node.getPredecessors()); previous != null; previous = single(previous.getPredecessors())) {
+				inserted.addFirst((SequentialNode) previous);
+			}
+			for (SequentialNode insertedNode : inserted) {
+				insertBefore(index, insertedNode);
+			}
+			if (node.getSuccessor() != terminator) {
+				for (Node successor = node.getSuccessor(); successor != terminator; successor = ((SequentialNode) successor).getSuccessor()) {
+					insertBefore(next, (SequentialNode) successor);
+				}
+				set(index, node);
+			} else if (terminator.removedPredecessor == node) {
+				remove(index);
+			} else {
+				set(index, node);
+			}
+			index = next;
+		}
+		graph.getEndNode().accept(visitor);
+	}
+
+	private static Node single(Set<Node> nodes) {
+		return nodes.isEmpty() ? null : nodes.iterator().next();
+	}
+
+	/**
+	 * The successor of the nodes that are presented to a visitor. It ends the traversal and notices the removal of its
+	 * predecessor.
+	 */
+	private static final class Terminator extends Node {
+
+		private Node removedPredecessor;
+
+		Terminator(ControlFlowGraph graph) {
+			super(graph);
+		}
+
+		@Override
+		public void accept(ControlFlowVisitor visitor) {
+			// the traversal ends here
+		}
+
+		@Override
+		public void replaceSuccessor(Node oldSuccessor, Node newSuccessor) {
+			// a terminator has no successor
+		}
+
+		@Override
+		public void addPredecessor(Node node) {
+			// predecessors are not recorded
+		}
+
+		@Override
+		public void removePredecessor(Node node) {
+			removedPredecessor = node;
+		}
+	}
+}
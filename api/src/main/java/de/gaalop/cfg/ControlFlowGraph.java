@@ -11,6 +11,7 @@ import java.util.LinkedList;
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
 
+import de.gaalop.CompilationStatistics;
 import de.gaalop.InputFile;
 import de.gaalop.dfg.Expression;
 import de.gaalop.dfg.MacroCall;
@@ -72,6 +73,9 @@ public final class ControlFlowGraph {
         public String algebraName;
         public boolean asRessource;
         public String algebraBaseDirectory;
+
+        /* the statistics of the running compilation, null if the graph is not compiled by a CompilerFacade */
+        public CompilationStatistics statistics;
         
         public HashMap<String, Expression> getRenderingExpressions() {
             return renderingExpressions;
@@ -341,8 +345,8 @@ public final class ControlFlowGraph {
 	public void removeNode(SequentialNode node) {
 		Node successor = node.getSuccessor();
 		successor.removePredecessor(node);
-		Set<Node> predecessors = new HashSet<Node>(node.getPredecessors());
-		for (Node predecessor : predecessors) {
+		// replaceSuccessor removes the predecessors of node, so iterate over a copy
+		for (Node predecessor : node.getPredecessors().toArray(new Node[0])) {
 			successor.addPredecessor(predecessor);
 			predecessor.replaceSuccessor(node, successor);
 		}
@@ -10,6 +10,10 @@ public class GlobalSettings {
     
     public boolean optMaxima;
 
+    public int maximaSessions;
+
+    public boolean optPolynomialSimplifier;
+
     public String getMaximaCommand() {
         return maximaCommand;
     }
@@ -17,6 +21,14 @@ public class GlobalSettings {
     public boolean isOptMaxima() {
         return optMaxima;
     }
+
+    public int getMaximaSessions() {
+        return maximaSessions;
+    }
+
+    public boolean isOptPolynomialSimplifier() {
+        return optPolynomialSimplifier;
+    }
     
     
 
@@ -18,8 +18,11 @@ import de.gaalop.dfg.Expression;
  * @since 1.0
  */
 public abstract class Node {
-	/** All predecessors of this node. */
-	private Set<Node> predecessors = new HashSet<Node>();
+	/** The predecessor of this node, if it has at most one predecessor, which is the case for most nodes. */
+	private Node predecessor;
+
+	/** All predecessors of this node, if it had more than one predecessor at some time. */
+	private Set<Node> predecessors;
 
 	/** A reference to the graph that contains this node. */
 	private final ControlFlowGraph graph;
@@ -58,7 +61,10 @@ public abstract class Node {
 	 * @return An unmodifiable set of nodes that contains all predecessors of this node.
 	 */
 	public Set<Node> getPredecessors() {
-		return Collections.unmodifiableSet(predecessors);
+		if (predecessors != null) {
+			return Collections.unmodifiableSet(predecessors);
+		}
+		return (predecessor != null) ? Collections.singleton(predecessor) : Collections.<Node>emptySet();
 	}
 
 	/**
@@ -71,7 +77,16 @@ public abstract class Node {
 	 * @see UnsupportedOperationException
 	 */
 	public void addPredecessor(Node node) {
-		predecessors.add(node);
+		if (predecessors != null) {
+			predecessors.add(node);
+		} else if (predecessor == null) {
+			predecessor = node;
+		} else if (!predecessor.equals(node)) {
+			predecessors = new HashSet<Node>();
+			predecessors.add(predecessor);
+			predecessors.add(node);
+			predecessor = null;
+		}
 	}
 
 	/**
@@ -83,7 +98,11 @@ public abstract class Node {
 	 * @param node The node that should be removed from the predecessors of this node.
 	 */
 	public void removePredecessor(Node node) {
-		predecessors.remove(node);
+		if (predecessors != null) {
+			predecessors.remove(node);
+		} else if (predecessor != null && predecessor.equals(node)) {
+			predecessor = null;
+		}
 	}
 
 	/**
@@ -118,11 +137,10 @@ public abstract class Node {
 	 */
 	public void insertBefore(SequentialNode newNode) {
 		newNode.setSuccessor(this);
-		Set<Node> predecessors = new HashSet<Node>(getPredecessors());
-		for (Node predecessor : predecessors) {
+		// replaceSuccessor removes the predecessors of this node, so iterate over a copy
+		for (Node predecessor : getPredecessors().toArray(new Node[0])) {
 			predecessor.replaceSuccessor(this, newNode);
 		}
-		predecessors.clear(); // previous predecessors are no predecessors anymore
 		addPredecessor(newNode);
 	}
 }
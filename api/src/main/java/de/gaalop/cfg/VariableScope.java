@@ -3,13 +3,14 @@ package de.gaalop.cfg;
 import java.util.Arrays;
 import java.util.HashSet;
 import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import de.gaalop.dfg.Variable;
 
 public final class VariableScope {
 	/** Special scope representing global scope. */
 	public static final VariableScope GLOBAL = new VariableScope();
-	private static int num;
+	private static final AtomicInteger num = new AtomicInteger();
 
 	private String name;
 	private Set<Variable> variables = new HashSet<Variable>();
@@ -25,7 +26,7 @@ public final class VariableScope {
 
 	public VariableScope(VariableScope parent) {
 		this.parent = parent;
-		name = Integer.toString(++num);
+		name = Integer.toString(num.incrementAndGet());
 	}
 
 	public void addVariable(Variable v) {
@@ -40,6 +40,9 @@ public abstract class BinaryOperation extends Expression {
     
     @Override
     public void replaceExpression(Expression old, Expression newExpression) {
+    	if (skipReplace(old)) {
+    		return;
+    	}
     	if (old == left) {
     		left = newExpression;
     	} else if (left.isComposite()) {
@@ -92,6 +95,7 @@ public abstract class BinaryOperation extends Expression {
     public boolean equals(Object o) {
         if (this == o) return true;
         if (o == null || getClass() != o.getClass()) return false;
+        if (interner != null && interner == ((Expression) o).interner) return false;
 
         BinaryOperation that = (BinaryOperation) o;
 
@@ -103,16 +107,19 @@ public abstract class BinaryOperation extends Expression {
 
     @Override
     public int hashCode() {
+        if (interner != null) return internedHash;
         int result = left != null ? left.hashCode() : 0;
         result = 31 * result + (right != null ? right.hashCode() : 0);
         return result;
     }
 
     public void setLeft(Expression left) {
+        checkChangeable();
         this.left = left;
     }
 
     public void setRight(Expression right) {
+        checkChangeable();
         this.right = right;
     }
 
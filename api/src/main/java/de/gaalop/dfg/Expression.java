@@ -1,5 +1,10 @@
 package de.gaalop.dfg;
 
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.LinkedList;
+import java.util.Set;
+
 /**
  * This class represents a node of a dataflow graph.
  * 
@@ -7,6 +12,77 @@ package de.gaalop.dfg;
  */
 public abstract class Expression {
 
+	/**
+	 * The interner, that created this expression as canonical representative of its structure, null if this expression
+	 * is not interned. Interned expressions are shared and must not be changed.
+	 */
+	ExpressionInterner interner;
+
+	/**
+	 * The cached hash code of an interned expression.
+	 */
+	int internedHash;
+
+	/**
+	 * Indicates that this expression is the shared, immutable representative of its structure, created by an
+	 * {@link ExpressionInterner}. Use {@link #copy()} to get a changeable expression.
+	 * 
+	 * @return True if this expression is interned.
+	 */
+	public boolean isInterned() {
+		return interner != null;
+	}
+
+	/**
+	 * Throws an exception, if this expression is interned.
+	 */
+	void checkChangeable() {
+		if (interner != null)
+			throw new UnsupportedOperationException("Interned expressions are shared and must not be changed, use copy() instead.");
+	}
+
+	/**
+	 * Checks an interned expression before replacing a subexpression. Replacing is a no-op, if the old expression is
+	 * not part of this expression, otherwise an exception is thrown, because interned expressions must not be changed.
+	 * 
+	 * @param old The expression to be replaced
+	 * @return True if this expression is interned and nothing has to be replaced
+	 */
+	boolean skipReplace(Expression old) {
+		if (interner == null)
+			return false;
+		// all subexpressions of an interned expression are interned by the same interner
+		if (old.interner == interner && contains(old))
+			checkChangeable();
+		return true;
+	}
+
+	/**
+	 * Checks whether an expression is part of this expression. Shared subexpressions are visited once.
+	 * 
+	 * @param other The expression to be searched
+	 * @return True if the other expression is this expression or one of its subexpressions
+	 */
+	private boolean contains(Expression other) {
+		Set<Expression> visited = Collections.newSetFromMap(new IdentityHashMap<Expression, Boolean>());
+		LinkedList<Expression> stack = new LinkedList<Expression>();
+		stack.push(this);
+		while (!stack.isEmpty()) {
+			Expression e = stack.pop();
+			if (e == other)
+				return true;
+			if (!visited.add(e))
+				continue;
+			if (e instanceof BinaryOperation) {
+				stack.push(((BinaryOperation) e).getLeft());
+				stack.push(((BinaryOperation) e).getRight());
+			} else if (e instanceof UnaryOperation) {
+				stack.push(((UnaryOperation) e).getOperand());
+			}
+		}
+		return false;
+	}
+
 	/**
 	 * Creates a deep copy of this expression and returns it. We do not use the clone method of the Object class here,
 	 * because by definition it only creates shallow copies.
@@ -0,0 +1,252 @@
+package de.gaalop.dfg;
+
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+
+/**
+ * This class implements hash-consing of dataflow graphs: structurally equal subtrees are replaced by one shared,
+ * canonical expression.
+ * <p/>
+ * Canonical expressions cache their hash code and are compared by identity with other canonical expressions of the same
+ * interner, so hashing and comparing a tree is done in constant time, independent of its depth. Canonical expressions
+ * are immutable: changing them throws an {@link UnsupportedOperationException}, {@link Expression#copy()} returns a
+ * changeable deep copy. {@link Expression#replaceExpression(Expression, Expression)} is a no-op on a canonical
+ * expression, if the replaced expression is not part of it.
+ * <p/>
+ * Expressions whose type is not supported (macro calls, relations, function arguments) are copied, but not
+ * interned. Expressions containing them are not interned either.
+ * <p/>
+ * An interner is not thread-safe.
+ */
+public final class ExpressionInterner implements ExpressionVisitor {
+
+	private HashMap<Expression, Expression> canonicals = new HashMap<Expression, Expression>();
+
+	private IdentityHashMap<Expression, Expression> visited;
+
+	private Expression result;
+
+	/**
+	 * Returns the canonical expression, which is structurally equal to the given expression. The given expression is
+	 * not changed.
+	 * 
+	 * @param expression The expression to be interned
+	 * @return The canonical expression, or a not interned copy, if the expression contains unsupported types
+	 */
+	public Expression intern(Expression expression) {
+		return intern(expression, new IdentityHashMap<Expression, Expression>());
+	}
+
+	/**
+	 * Returns the canonical expression, which is structurally equal to the given expression, and records the canonical
+	 * expressions of all visited subexpressions in the given map. Subexpressions already contained in the map are not
+	 * visited again, so interning many overlapping trees with the same map takes linear time overall. The given
+	 * expression is not changed.
+	 * 
+	 * @param expression The expression to be interned
+	 * @param interned The canonical expressions of already interned, not changed expressions
+	 * @return The canonical expression, or a not interned copy, if the expression contains unsupported types
+	 */
+	public Expression intern(Expression expression, IdentityHashMap<Expression, Expression> interned) {
+		visited = interned;
+		try {
+			return internRecursive(expression);
+		} finally {
+			visited = null;
+		}
+	}
+
+	/**
+	 * Returns the number of canonical expressions
+	 * 
+	 * @return The number of canonical expressions
+	 */
+	public int size() {
+		return canonicals.size();
+	}
+
+	/**
+	 * Forgets all canonical expressions. Already interned expressions remain immutable.
+	 */
+	public void clear() {
+		canonicals.clear();
+	}
+
+	private Expression internRecursive(Expression expression) {
+		if (expression.interner == this) {
+			return expression;
+		}
+		Expression canonical = visited.get(expression);
+		if (canonical == null) {
+			expression.accept(this);
+			canonical = result;
+			visited.put(expression, canonical);
+		}
+		return canonical;
+	}
+
+	/**
+	 * Returns the canonical expression for a new expression, whose operands are interned already
+	 * 
+	 * @param expression The new expression
+	 * @param operands The interned operands of the new expression
+	 * @return The canonical expression, or the new expression, if one of the operands is not interned
+	 */
+	private Expression canonical(Expression expression, Expression... operands) {
+		for (Expression operand : operands) {
+			if (operand.interner != this) {
+				return expression;
+			}
+		}
+		Expression canonical = canonicals.get(expression);
+		if (canonical == null) {
+			expression.internedHash = expression.hashCode();
+			expression.interner = this;
+			canonicals.put(expression, expression);
+			canonical = expression;
+		}
+		return canonical;
+	}
+
+	private void visitLeaf(Expression node) {
+		result = canonical(node.copy());
+	}
+
+	@Override
+	public void visit(Subtraction node) {
+		Expression left = internRecursive(node.getLeft());
+		Expression right = internRecursive(node.getRight());
+		result = canonical(new Subtraction(left, right), left, right);
+	}
+
+	@Override
+	public void visit(Addition node) {
+		Expression left = internRecursive(node.getLeft());
+		Expression right = internRecursive(node.getRight());
+		result = canonical(new Addition(left, right), left, right);
+	}
+
+	@Override
+	public void visit(Division node) {
+		Expression left = internRecursive(node.getLeft());
+		Expression right = internRecursive(node.getRight());
+		result = canonical(new Division(left, right), left, right);
+	}
+
+	@Override
+	public void visit(InnerProduct node) {
+		Expression left = internRecursive(node.getLeft());
+		Expression right = internRecursive(node.getRight());
+		result = canonical(new InnerProduct(left, right), left, right);
+	}
+
+	@Override
+	public void visit(Multiplication node) {
+		Expression left = internRecursive(node.getLeft());
+		Expression right = internRecursive(node.getRight());
+		result = canonical(new Multiplication(left, right), left, right);
+	}
+
+	@Override
+	public void visit(MathFunctionCall node) {
+		Expression operand = internRecursive(node.getOperand());
+		result = canonical(new MathFunctionCall(operand, node.getFunction()), operand);
+	}
+
+	@Override
+	public void visit(Variable node) {
+		visitLeaf(node);
+	}
+
+	@Override
+	public void visit(MultivectorComponent node) {
+		visitLeaf(node);
+	}
+
+	@Override
+	public void visit(Exponentiation node) {
+		Expression left = internRecursive(node.getLeft());
+		Expression right = internRecursive(node.getRight());
+		result = canonical(new Exponentiation(left, right), left, right);
+	}
+
+	@Override
+	public void visit(FloatConstant node) {
+		visitLeaf(node);
+	}
+
+	@Override
+	public void visit(OuterProduct node) {
+		Expression left = internRecursive(node.getLeft());
+		Expression right = internRecursive(node.getRight());
+		result = canonical(new OuterProduct(left, right), left, right);
+	}
+
+	@Override
+	public void visit(BaseVector node) {
+		visitLeaf(node);
+	}
+
+	@Override
+	public void visit(Negation node) {
+		Expression operand = internRecursive(node.getOperand());
+		result = canonical(new Negation(operand), operand);
+	}
+
+	@Override
+	public void visit(Reverse node) {
+		Expression operand = internRecursive(node.getOperand());
+		result = canonical(new Reverse(operand), operand);
+	}
+
+	@Override
+	public void visit(LogicalOr node) {
+		Expression left = internRecursive(node.getLeft());
+		Expression right = internRecursive(node.getRight());
+		result = canonical(new LogicalOr(left, right), left, right);
+	}
+
+	@Override
+	public void visit(LogicalAnd node) {
+		Expression left = internRecursive(node.getLeft());
+		Expression right = internRecursive(node.getRight());
+		result = canonical(new LogicalAnd(left, right), left, right);
+	}
+
+	@Override
+	public void visit(LogicalNegation node) {
+		Expression operand = internRecursive(node.getOperand());
+		result = canonical(new LogicalNegation(operand), operand);
+	}
+
+	@Override
+	public void visit(Equality node) {
+		Expression left = internRecursive(node.getLeft());
+		Expression right = internRecursive(node.getRight());
+		result = canonical(new Equality(left, right), left, right);
+	}
+
+	@Override
+	public void visit(Inequality node) {
+		Expression left = internRecursive(node.getLeft());
+		Expression right = internRecursive(node.getRight());
+		result = canonical(new Inequality(left, right), left, right);
+	}
+
+	@Override
+	public void visit(Relation relation) {
+		// equals() of relations ignores the type, so they are not interned
+		result = new Relation(internRecursive(relation.getLeft()), internRecursive(relation.getRight()), relation.getType());
+	}
+
+	@Override
+	public void visit(FunctionArgument node) {
+		result = node.copy();
+	}
+
+	@Override
+	public void visit(MacroCall node) {
+		result = node.copy();
+	}
+
+}
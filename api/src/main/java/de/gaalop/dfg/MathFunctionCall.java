@@ -76,6 +76,7 @@ public final class MathFunctionCall extends UnaryOperation {
 
 	@Override
 	public int hashCode() {
+		if (interner != null) return internedHash;
 		int result = super.hashCode();
 		result = 31 * result + (function != null ? function.hashCode() : 0);
 		return result;
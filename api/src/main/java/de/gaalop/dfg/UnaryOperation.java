@@ -36,6 +36,9 @@ public abstract class UnaryOperation extends Expression {
     
     @Override
     public void replaceExpression(Expression old, Expression newExpression) {
+    	if (skipReplace(old)) {
+    		return;
+    	}
     	if (old == operand) {
     		operand = newExpression;
     	} else {
@@ -55,6 +58,7 @@ public abstract class UnaryOperation extends Expression {
     public boolean equals(Object o) {
         if (this == o) return true;
         if (o == null || getClass() != o.getClass()) return false;
+        if (interner != null && interner == ((Expression) o).interner) return false;
 
         UnaryOperation that = (UnaryOperation) o;
 
@@ -65,10 +69,12 @@ public abstract class UnaryOperation extends Expression {
 
     @Override
     public int hashCode() {
+        if (interner != null) return internedHash;
         return operand.hashCode();
     }
 
     public void setOperand(Expression operand) {
+        checkChangeable();
         this.operand = operand;
     }
 
@@ -0,0 +1,154 @@
+package de.gaalop;
+
+import de.gaalop.cfg.ControlFlowGraph;
+import java.awt.Image;
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.Charset;
+import java.util.HashSet;
+import java.util.Set;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+/**
+ * Tests the persistent cache of compilation results
+ * @author Christian Steinmetz
+ */
+public class CompilationCacheTest {
+
+    public static class TestPlugin implements Plugin {
+
+        @ConfigurationProperty(type = ConfigurationProperty.Type.BOOLEAN)
+        public boolean optimize = true;
+
+        @Override
+        public String getName() {
+            return "Test";
+        }
+
+        @Override
+        public String getDescription() {
+            return "Test";
+        }
+
+        @Override
+        public Image getIcon() {
+            return null;
+        }
+    }
+
+    private File directory;
+
+    @Before
+    public void createDirectory() throws IOException {
+        directory = File.createTempFile("CompilationCacheTest", "");
+        directory.delete();
+        directory.mkdirs();
+    }
+
+    @After
+    public void deleteDirectory() {
+        for (File file : directory.listFiles())
+            file.delete();
+        directory.delete();
+    }
+
+    private Set<OutputFile> createOutput(String content) {
+        Set<OutputFile> result = new HashSet<OutputFile>();
+        result.add(new OutputFile("out.c", content, Charset.forName("UTF-8")));
+        result.add(new OutputFile("empty.txt", "", Charset.forName("UTF-8")));
+        return result;
+    }
+
+    @Test
+    public void keys() {
+        TestPlugin plugin = new TestPlugin();
+        InputFile input = new InputFile("a.clu", "?x = 1;\n");
+        String key = CompilationCache.computeKey(input, "3d", true, "", plugin);
+        assertEquals(key, CompilationCache.computeKey(new InputFile("a.clu", "?x = 1;\n"), "3d", true, "", new TestPlugin()));
+        assertFalse(key.equals(CompilationCache.computeKey(new InputFile("b.clu", "?x = 1;\n"), "3d", true, "", plugin)));
+        assertFalse(key.equals(CompilationCache.computeKey(new InputFile("a.clu", "?x = 2;\n"), "3d", true, "", plugin)));
+        assertFalse(key.equals(CompilationCache.computeKey(input, "5d", true, "", plugin)));
+        plugin.optimize = false;
+        assertFalse(key.equals(CompilationCache.computeKey(input, "3d", true, "", plugin)));
+    }
+
+    @Test
+    public void storeAndLoad() {
+        CompilationCache cache = new CompilationCache(directory, 1024 * 1024);
+        assertNull(cache.get("key"));
+        Set<OutputFile> output = createOutput("int main() { return 0; } // ä");
+        cache.put("key", output);
+        assertEquals(output, cache.get("key"));
+        assertEquals(output, new CompilationCache(directory, 1024 * 1024).get("key"));
+        assertEquals(1, cache.getHitCount());
+        assertEquals(1, cache.getMissCount());
+
+        cache.clear();
+        assertNull(cache.get("key"));
+    }
+
+    @Test
+    public void eviction() {
+        CompilationCache cache = new CompilationCache(directory, 2500);
+        StringBuilder content = new StringBuilder();
+        for (int i = 0; i < 1000; i++)
+            content.append('x');
+        cache.put("first", createOutput(content.toString()));
+        new File(directory, "first.result").setLastModified(System.currentTimeMillis() - 20000);
+        cache.put("second", createOutput(content.toString()));
+        new File(directory, "second.result").setLastModified(System.currentTimeMillis() - 10000);
+        assertNotNull(cache.get("first"));
+
+        // the least recently used result is evicted
+        cache.put("third", createOutput(content.toString()));
+        assertTrue(cache.getSize() <= 2500);
+        assertNotNull(cache.get("first"));
+        assertNull(cache.get("second"));
+        assertNotNull(cache.get("third"));
+    }
+
+    /**
+     * A code generator, which works through side effects and counts its calls
+     */
+    private static class SideEffectCodeGenerator implements CodeGenerator {
+
+        private int calls = 0;
+
+        @Override
+        public Set<OutputFile> generate(ControlFlowGraph in) {
+            calls++;
+            return new HashSet<OutputFile>();
+        }
+    }
+
+    private static class EmptyStrategy implements GlobalSettingsStrategy, VisualCodeInserterStrategy, AlgebraStrategy, OptimizationStrategy {
+
+        @Override
+        public void transform(ControlFlowGraph graph) {
+        }
+    }
+
+    @Test
+    public void emptyResultsAreNotCached() throws CompilationException {
+        EmptyStrategy strategy = new EmptyStrategy();
+        SideEffectCodeGenerator generator = new SideEffectCodeGenerator();
+        CompilerFacade facade = new CompilerFacade(new CodeParser() {
+            @Override
+            public ControlFlowGraph parseFile(InputFile input) {
+                return new ControlFlowGraph();
+            }
+        }, strategy, strategy, strategy, strategy, generator, "3d", true, "");
+        CompilationCache cache = new CompilationCache(directory, 1024 * 1024);
+        facade.setCompilationCache(cache, new TestPlugin());
+
+        InputFile input = new InputFile("a.clu", "?x = 1;\n");
+        facade.compile(input);
+        facade.compile(input);
+        assertEquals(2, generator.calls);
+        assertEquals(0, cache.getSize());
+    }
+}
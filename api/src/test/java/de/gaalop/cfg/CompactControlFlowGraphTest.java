@@ -0,0 +1,141 @@
+package de.gaalop.cfg;
+
+import static org.junit.Assert.*;
+
+import de.gaalop.dfg.Addition;
+import de.gaalop.dfg.FloatConstant;
+import de.gaalop.dfg.Variable;
+import java.util.ArrayList;
+import java.util.List;
+import org.junit.Test;
+
+/**
+ * This test case tests the compact store of straight-line control flow graphs.
+ */
+public class CompactControlFlowGraphTest {
+
+    /**
+     * Creates the graph a = 1; b = a + 2; ?b
+     */
+    private ControlFlowGraph createGraph() {
+        ControlFlowGraph graph = new ControlFlowGraph();
+        SequentialNode last = graph.getStartNode();
+        SequentialNode[] nodes = {
+            new AssignmentNode(graph, new Variable("a"), new FloatConstant(1)),
+            new AssignmentNode(graph, new Variable("b"), new Addition(new Variable("a"), new FloatConstant(2))),
+            new StoreResultNode(graph, new Variable("b"))
+        };
+        for (SequentialNode node : nodes) {
+            last.insertAfter(node);
+            last = node;
+        }
+        return graph;
+    }
+
+    private List<String> statements(ControlFlowGraph graph) {
+        List<String> result = new ArrayList<String>();
+        Node node = graph.getStartNode().getSuccessor();
+        Node previous = graph.getStartNode();
+        while (node != graph.getEndNode()) {
+            assertEquals(1, node.getPredecessors().size());
+            assertSame(previous, node.getPredecessors().iterator().next());
+            result.add(node.toString());
+            previous = node;
+            node = ((SequentialNode) node).getSuccessor();
+        }
+        assertEquals(1, node.getPredecessors().size());
+        return result;
+    }
+
+    @Test
+    public void testCompactAndExpand() {
+        ControlFlowGraph graph = createGraph();
+        CompactControlFlowGraph compact = CompactControlFlowGraph.compact(graph);
+        assertSame(graph.getEndNode(), graph.getStartNode().getSuccessor());
+        assertEquals(3, compact.size());
+
+        int a = compact.getFirst();
+        int b = compact.getNext(a);
+        int store = compact.getLast();
+        assertEquals(CompactControlFlowGraph.ASSIGNMENT, compact.getKind(b));
+        assertEquals(CompactControlFlowGraph.STORE_RESULT, compact.getKind(store));
+        assertEquals(compact.getVariableId(b), compact.getVariableId(store));
+        assertEquals(2, compact.getVariableIdCount());
+
+        compact.remove(b);
+        assertTrue(compact.isRemoved(b));
+        assertEquals(store, compact.getNext(a));
+        assertEquals(a, compact.getPrevious(store));
+        int c = compact.insertAssignmentBefore(store, new Variable("b"), new FloatConstant(3));
+        compact.setValue(a, new FloatConstant(4));
+        assertEquals(compact.getVariableId(c), compact.getVariableId(store));
+
+        compact.expand();
+        assertEquals("[a := 4.0, b := 3.0, ?b]", statements(graph).toString());
+    }
+
+    @Test
+    public void testVisitorAdapter() {
+        ControlFlowGraph graph = createGraph();
+        CompactControlFlowGraph compact = CompactControlFlowGraph.compact(graph);
+        final List<Node> visited = new ArrayList<Node>();
+        compact.accept(new EmptyControlFlowVisitor() {
+            @Override
+            public void visit(AssignmentNode node) {
+                visited.add(node);
+                if (node.getVariable().getName().equals("a")) {
+                    node.getGraph().removeNode(node);
+                } else {
+                    node.setValue(new FloatConstant(3));
+                    node.insertBefore(new AssignmentNode(node.getGraph(), new Variable("c"), new FloatConstant(5)));
+                    node.insertAfter(new StoreResultNode(node.getGraph(), new Variable("c")));
+                }
+                super.visit(node);
+            }
+
+            @Override
+            public void visit(StoreResultNode node) {
+                visited.add(node);
+                super.visit(node);
+            }
+
+            @Override
+            public void visit(EndNode node) {
+                visited.add(node);
+            }
+        });
+        // ?c is reached by the visitor itself from b
+        assertEquals(5, visited.size());
+        assertSame(graph.getEndNode(), visited.get(4));
+        assertEquals(4, compact.size());
+
+        compact.expand();
+        assertEquals("[c := 5.0, b := 3.0, ?c, ?b]", statements(graph).toString());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testBranchesAreRejected() {
+        ControlFlowGraph graph = createGraph();
+        assertTrue(CompactControlFlowGraph.isStraightLine(graph));
+        graph.getStartNode().insertAfter(new IfThenElseNode(graph, new Variable("a")));
+        assertFalse(CompactControlFlowGraph.isStraightLine(graph));
+        CompactControlFlowGraph.compact(graph);
+    }
+
+    @Test
+    public void testPredecessors() {
+        ControlFlowGraph graph = createGraph();
+        SequentialNode a = (SequentialNode) graph.getStartNode().getSuccessor();
+        SequentialNode b = (SequentialNode) a.getSuccessor();
+        graph.removeNode(b);
+        assertSame(a.getSuccessor().getPredecessors().iterator().next(), a);
+
+        AssignmentNode d = new AssignmentNode(graph, new Variable("d"), new FloatConstant(6));
+        Node end = graph.getEndNode();
+        end.addPredecessor(d);
+        assertEquals(2, end.getPredecessors().size());
+        end.removePredecessor(d);
+        assertEquals(1, end.getPredecessors().size());
+        assertEquals("[a := 1.0, ?b]", statements(graph).toString());
+    }
+}
@@ -0,0 +1,102 @@
+package de.gaalop.dfg;
+
+import java.util.IdentityHashMap;
+
+import static org.junit.Assert.*;
+import org.junit.Test;
+
+/**
+ * This test case tests the hash-consing of expressions.
+ */
+public class ExpressionInternerTest {
+
+    private Expression createTree() {
+        Expression ab = new Addition(new Variable("a"), new Variable("b"));
+        Expression abCopy = new Addition(new Variable("a"), new Variable("b"));
+        return new Multiplication(new MathFunctionCall(ab, MathFunction.SQRT), new Negation(abCopy));
+    }
+
+    @Test
+    public void testSharing() {
+        ExpressionInterner interner = new ExpressionInterner();
+        Expression tree = createTree();
+        Multiplication interned = (Multiplication) interner.intern(tree);
+
+        assertTrue(interned.isInterned());
+        assertEquals(tree, interned);
+        assertEquals(tree.hashCode(), interned.hashCode());
+        assertSame(interned, interner.intern(createTree()));
+
+        // a + b is shared between both operands
+        Expression left = ((MathFunctionCall) interned.getLeft()).getOperand();
+        Expression right = ((Negation) interned.getRight()).getOperand();
+        assertSame(left, right);
+        // a, b, a + b, sqrt(a + b), -(a + b) and the product
+        assertEquals(6, interner.size());
+
+        assertFalse(interned.equals(interner.intern(new Variable("a"))));
+        assertNotSame(tree, interned);
+        assertFalse(tree.isInterned());
+    }
+
+    @Test
+    public void testImmutable() {
+        ExpressionInterner interner = new ExpressionInterner();
+        Multiplication interned = (Multiplication) interner.intern(createTree());
+
+        try {
+            interned.setLeft(new Variable("c"));
+            fail("Interned expressions must not be changed");
+        } catch (UnsupportedOperationException e) {
+            // expected
+        }
+
+        // replacing expressions, which are not part of the interned expression, is a no-op
+        interned.replaceExpression(new Variable("a"), new Variable("c"));
+        interned.replaceExpression(interner.intern(new Variable("c")), new Variable("d"));
+        assertEquals(createTree(), interned);
+
+        try {
+            interned.replaceExpression(interner.intern(new Variable("a")), new Variable("c"));
+            fail("Interned expressions must not be changed");
+        } catch (UnsupportedOperationException e) {
+            // expected
+        }
+
+        // copies are changeable
+        Multiplication copy = (Multiplication) interned.copy();
+        assertFalse(copy.isInterned());
+        assertEquals(interned, copy);
+        copy.replaceExpression(((MathFunctionCall) copy.getLeft()).getOperand(), new Variable("c"));
+        assertEquals(new MathFunctionCall(new Variable("c"), MathFunction.SQRT), copy.getLeft());
+        assertEquals(createTree(), interned);
+    }
+
+    @Test
+    public void testInternedMap() {
+        ExpressionInterner interner = new ExpressionInterner();
+        Multiplication tree = (Multiplication) createTree();
+        IdentityHashMap<Expression, Expression> interned = new IdentityHashMap<Expression, Expression>();
+        Expression canonical = interner.intern(tree, interned);
+
+        // the subexpressions are looked up in the map
+        assertSame(canonical, interned.get(tree));
+        assertSame(((Multiplication) canonical).getRight(), interned.get(tree.getRight()));
+        assertSame(interned.get(((MathFunctionCall) tree.getLeft()).getOperand()), interned.get(((Negation) tree.getRight()).getOperand()));
+
+        Expression square = new Multiplication(tree.getLeft(), tree.getLeft());
+        assertSame(interner.intern(square.copy()), interner.intern(square, interned));
+    }
+
+    @Test
+    public void testUnsupported() {
+        ExpressionInterner interner = new ExpressionInterner();
+        Expression relation = new Relation(new Variable("a"), new Variable("b"), Relation.Type.LESS);
+        Expression interned = interner.intern(new Addition(relation, new Variable("c")));
+
+        assertFalse(interned.isInterned());
+        assertTrue(((Addition) interned).getRight().isInterned());
+        assertEquals(new Addition(relation, new Variable("c")), interned);
+    }
+
+}
@@ -0,0 +1,327 @@
+package de.gaalop.cli;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileReader;
+import java.io.IOException;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.PathMatcher;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compiles a set of input files with a bounded number of concurrent compilations
+ * and optionally recompiles files, which have been changed.
+ *
+ * A failed compilation of one file is reported and does not abort the other compilations.
+ */
+public class BatchCompiler {
+
+  /**
+   * The time to wait for further file system events, before changed files are recompiled.
+   */
+  private static final long DEBOUNCE_MILLIS = 100;
+
+  private Main main;
+  private ExecutorService executor;
+
+  /**
+   * The last compiled contents of the input files, used in watch mode to detect real changes
+   */
+  private Map<File, byte[]> contents = Collections.synchronizedMap(new HashMap<File, byte[]>());
+
+  public BatchCompiler(Main main, int threads) {
+    this.main = main;
+    this.executor = Executors.newFixedThreadPool(Math.max(1, threads));
+  }
+
+  /**
+   * Compiles files concurrently and waits for the end of all compilations.
+   * The output files are written to the directory of the input file relative to the base directory of the input set.
+   *
+   * @param inputs The input set
+   * @param files The input files of the set
+   * @return The number of failed compilations
+   */
+  public int compile(final InputSet inputs, List<File> files) throws InterruptedException {
+    long start = System.currentTimeMillis();
+    List<Future<Boolean>> results = new ArrayList<Future<Boolean>>(files.size());
+    for (final File file : files) {
+      results.add(executor.submit(new Callable<Boolean>() {
+        @Override
+        public Boolean call() {
+          return compileFile(file, inputs.getDirectory(file));
+        }
+      }));
+    }
+
+    int failed = 0;
+    for (Future<Boolean> result : results) {
+      try {
+        if (!result.get()) {
+          failed++;
+        }
+      } catch (ExecutionException e) {
+        failed++;
+      }
+    }
+
+    System.err.println("Compiled " + files.size() + " files, " + failed + " failed ("
+        + (System.currentTimeMillis() - start) + " ms)");
+    try {
+      main.writeStatistics();
+    } catch (IOException e) {
+      System.err.println("Unable to write the statistics: " + e);
+    }
+    return failed;
+  }
+
+  private boolean compileFile(File file, String directory) {
+    try {
+      byte[] content = Files.readAllBytes(file.toPath());
+      main.compile(file, directory);
+      contents.put(file, content);
+      return true;
+    } catch (Throwable e) {
+      System.err.println(file.getPath() + ": " + e);
+      return false;
+    }
+  }
+
+  /**
+   * Watches the directories of an input set and recompiles all files of the set,
+   * whose content has changed. This method returns only if the current thread is interrupted.
+   *
+   * @param inputs The input set
+   */
+  public void watch(InputSet inputs) throws IOException {
+    WatchService watchService = FileSystems.getDefault().newWatchService();
+    try {
+      Set<Path> registered = new LinkedHashSet<Path>();
+      register(watchService, inputs.getBaseDirectory().toPath(), inputs.isRecursive(), registered);
+      for (File file : inputs.listFiles()) {
+        register(watchService, file.getAbsoluteFile().getParentFile().toPath(), false, registered);
+      }
+      System.err.println("Watching " + inputs.getBaseDirectory() + " for changes");
+
+      while (true) {
+        WatchKey key = watchService.take();
+
+        // collect all events, which occur in a short time, e.g. several writes of an editor.
+        // Every event (including an OVERFLOW) leads to a rescan of the input set.
+        do {
+          Path directory = (Path) key.watchable();
+          for (WatchEvent<?> event : key.pollEvents()) {
+            if (event.kind() != StandardWatchEventKinds.OVERFLOW && inputs.isRecursive()) {
+              Path child = directory.resolve((Path) event.context());
+              if (Files.isDirectory(child)) {
+                register(watchService, child, true, registered);
+              }
+            }
+          }
+          if (!key.reset()) {
+            registered.remove(directory);
+          }
+          key = watchService.poll(DEBOUNCE_MILLIS, TimeUnit.MILLISECONDS);
+        } while (key != null);
+
+        List<File> changed = getChangedFiles(inputs.listFiles());
+        if (!changed.isEmpty()) {
+          compile(inputs, changed);
+        }
+      }
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    } finally {
+      watchService.close();
+    }
+  }
+
+  private List<File> getChangedFiles(List<File> files) {
+    List<File> changed = new ArrayList<File>();
+    for (File file : files) {
+      try {
+        byte[] content = Files.readAllBytes(file.toPath());
+        if (!Arrays.equals(content, contents.get(file))) {
+          changed.add(file);
+        }
+      } catch (IOException e) {
+        // the file is removed or still written, it is examined again with the next event
+      }
+    }
+    return changed;
+  }
+
+  private static void register(WatchService watchService, Path directory, boolean recursive, Set<Path> registered) throws IOException {
+    directory = directory.toAbsolutePath().normalize();
+    if (!registered.add(directory)) {
+      return;
+    }
+    directory.register(watchService, StandardWatchEventKinds.ENTRY_CREATE, StandardWatchEventKinds.ENTRY_MODIFY);
+    if (recursive) {
+      File[] children = directory.toFile().listFiles();
+      if (children != null) {
+        for (File child : children) {
+          if (child.isDirectory()) {
+            register(watchService, child.toPath(), true, registered);
+          }
+        }
+      }
+    }
+  }
+
+  /**
+   * Waits for the end of running compilations and stops the threads.
+   */
+  public void shutdown() throws InterruptedException {
+    executor.shutdown();
+    executor.awaitTermination(Long.MAX_VALUE, TimeUnit.MILLISECONDS);
+  }
+
+  /**
+   * Specifies the input files of a batch. The specification is either
+   * <ul>
+   * <li>a directory, which stands for all .clu files in the directory and its subdirectories,</li>
+   * <li>a manifest file prefixed by @, which lists one input file per line
+   * (empty lines and lines starting with # are ignored, relative paths are relative to the manifest),</li>
+   * <li>an existing file or</li>
+   * <li>a glob pattern like <code>examples/**.clu</code>.</li>
+   * </ul>
+   */
+  public static class InputSet {
+
+    private File baseDirectory;
+    private boolean recursive;
+    private PathMatcher matcher;
+    private List<File> listedFiles;
+
+    private InputSet(File baseDirectory, boolean recursive, PathMatcher matcher, List<File> listedFiles) {
+      this.baseDirectory = baseDirectory;
+      this.recursive = recursive;
+      this.matcher = matcher;
+      this.listedFiles = listedFiles;
+    }
+
+    /**
+     * Creates an input set from its specification
+     * @param spec The specification
+     * @return The input set
+     * @throws IOException If the manifest can't be read
+     */
+    public static InputSet create(String spec) throws IOException {
+      if (spec.startsWith("@")) {
+        File manifest = new File(spec.substring(1)).getAbsoluteFile();
+        List<File> files = new ArrayList<File>();
+        BufferedReader reader = new BufferedReader(new FileReader(manifest));
+        try {
+          String line;
+          while ((line = reader.readLine()) != null) {
+            line = line.trim();
+            if (line.isEmpty() || line.startsWith("#")) {
+              continue;
+            }
+            File file = new File(line);
+            files.add(file.isAbsolute() ? file : new File(manifest.getParentFile(), line));
+          }
+        } finally {
+          reader.close();
+        }
+        return new InputSet(manifest.getParentFile(), false, null, files);
+      }
+
+      File file = new File(spec);
+      if (file.isDirectory()) {
+        return new InputSet(file, true, FileSystems.getDefault().getPathMatcher("glob:**.clu"), null);
+      }
+      if (file.isFile()) {
+        return new InputSet(file.getAbsoluteFile().getParentFile(), false, null, Collections.singletonList(file));
+      }
+
+      // the base directory of a glob pattern is the part before the first segment with a wildcard
+      String[] segments = spec.replace('\\', '/').split("/");
+      StringBuilder base = new StringBuilder();
+      for (String segment : segments) {
+        if (segment.contains("*") || segment.contains("?") || segment.contains("[") || segment.contains("{")) {
+          break;
+        }
+        base.append(segment).append('/');
+      }
+      File baseDirectory = new File(base.length() == 0 ? "." : base.toString());
+      String pattern = spec.substring(Math.min(base.length(), spec.length()));
+      return new InputSet(baseDirectory, pattern.contains("/") || pattern.contains("**"),
+          FileSystems.getDefault().getPathMatcher("glob:" + pattern), null);
+    }
+
+    public File getBaseDirectory() {
+      return baseDirectory;
+    }
+
+    public boolean isRecursive() {
+      return recursive;
+    }
+
+    /**
+     * Returns the directory of an input file relative to the base directory.
+     * Files outside of the base directory, e.g. absolute paths of a manifest, have no relative directory.
+     * @param file The input file
+     * @return The relative directory or null, if the file is directly in or outside of the base directory
+     */
+    public String getDirectory(File file) {
+      Path basePath = baseDirectory.getAbsoluteFile().toPath().normalize();
+      Path parent = basePath.relativize(file.getAbsoluteFile().toPath().normalize()).getParent();
+      if (parent == null || parent.startsWith("..")) {
+        return null;
+      }
+      return parent.toString();
+    }
+
+    /**
+     * Returns the current input files of this set, ordered by their path
+     * @return The input files
+     */
+    public List<File> listFiles() {
+      if (listedFiles != null) {
+        return listedFiles;
+      }
+      List<File> result = new ArrayList<File>();
+      collect(baseDirectory, result);
+      Collections.sort(result);
+      return result;
+    }
+
+    private void collect(File directory, List<File> result) {
+      File[] children = directory.listFiles();
+      if (children == null) {
+        return;
+      }
+      Path basePath = baseDirectory.toPath();
+      for (File child : children) {
+        if (child.isDirectory()) {
+          if (recursive) {
+            collect(child, result);
+          }
+        } else if (matcher.matches(basePath.relativize(child.toPath()))) {
+          result.add(child);
+        }
+      }
+    }
+  }
+}
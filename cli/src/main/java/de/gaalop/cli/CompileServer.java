@@ -0,0 +1,410 @@
+package de.gaalop.cli;
+
+import de.gaalop.AlgebraStrategyPlugin;
+import de.gaalop.CodeGeneratorPlugin;
+import de.gaalop.CodeParserPlugin;
+import de.gaalop.CompilationCache;
+import de.gaalop.CompilerFacade;
+import de.gaalop.GlobalSettingsStrategyPlugin;
+import de.gaalop.InputFile;
+import de.gaalop.OptimizationStrategyPlugin;
+import de.gaalop.OutputFile;
+import de.gaalop.Plugin;
+import de.gaalop.Plugins;
+import de.gaalop.VisualCodeInserterStrategyPlugin;
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.charset.Charset;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * A long-lived compile server, which accepts compile requests on a local TCP socket.
+ * The plugins and the loaded algebras are kept between the requests,
+ * the requests are compiled concurrently by a bounded number of threads.
+ *
+ * The protocol is line-based, every line is terminated by '\n' and encoded in UTF-8.
+ * A connection may be used for several requests. A request starts with a command line,
+ * followed by header lines "key: value" and an empty line.
+ * <ul>
+ * <li><code>COMPILE</code> compiles a source. The headers may override the plugins
+ * (parser, globalSettings, visualizer, algebraStrategy, optimizer, generator),
+ * the algebra (algebraName, algebraBaseDir) and set the name of the source (name).
+ * The header length is mandatory and gives the number of bytes of the source, which follows the empty line.
+ * The answer is either <code>OK n</code> followed by n output files, each consisting of a line
+ * <code>FILE length name</code> and length bytes of content (encoded in UTF-8),
+ * or <code>ERROR message</code>.</li>
+ * <li><code>STATS</code> answers with <code>OK</code>, followed by statistics lines "key: value" and an empty line.</li>
+ * </ul>
+ * A malformed request, e.g. a missing or invalid length, a source larger than the maximum request size
+ * or a line longer than 64 KiB, is answered with <code>ERROR message</code> and the connection is closed,
+ * because the rest of the stream can't be interpreted.
+ */
+public class CompileServer {
+
+  private static final Charset UTF8 = Charset.forName("UTF-8");
+
+  public static final int DEFAULT_MAX_REQUEST_SIZE = 16 * 1024 * 1024;
+  private static final int MAX_LINE_LENGTH = 64 * 1024;
+
+  /**
+   * A malformed request, which is answered with an ERROR response before the connection is closed
+   */
+  private static class RequestException extends IOException {
+
+    public RequestException(String message) {
+      super(message);
+    }
+  }
+
+  private Map<String, String> defaults;
+  private CompilationCache compilationCache;
+  private volatile int maxRequestSize = DEFAULT_MAX_REQUEST_SIZE;
+  private ThreadPoolExecutor workers;
+  private ExecutorService connections = Executors.newCachedThreadPool();
+
+  private Map<String, Plugin> plugins = new HashMap<String, Plugin>();
+  private Map<String, Boolean> predefinedAlgebras = new HashMap<String, Boolean>();
+
+  private AtomicLong requestCount = new AtomicLong();
+  private AtomicLong failedCount = new AtomicLong();
+  private AtomicLong totalLatency = new AtomicLong();
+  private AtomicLong maxLatency = new AtomicLong();
+  private AtomicLong totalQueueTime = new AtomicLong();
+  private long startTime = System.currentTimeMillis();
+
+  /**
+   * Creates a new server
+   *
+   * @param defaults The default values of the request headers
+   * @param threads The maximum number of concurrent compilations
+   * @param compilationCache The cache of compilation results, may be null
+   */
+  public CompileServer(Map<String, String> defaults, int threads, CompilationCache compilationCache) {
+    this.defaults = defaults;
+    this.compilationCache = compilationCache;
+    int count = Math.max(1, threads);
+    this.workers = new ThreadPoolExecutor(count, count, 0, TimeUnit.MILLISECONDS, new LinkedBlockingQueue<Runnable>());
+
+    addPlugins(Plugins.getCodeParserPlugins());
+    addPlugins(Plugins.getGlobalSettingsStrategyPlugins());
+    addPlugins(Plugins.getVisualizerStrategyPlugins());
+    addPlugins(Plugins.getAlgebraStrategyPlugins());
+    addPlugins(Plugins.getOptimizationStrategyPlugins());
+    addPlugins(Plugins.getCodeGeneratorPlugins());
+  }
+
+  private void addPlugins(Set<? extends Plugin> set) {
+    for (Plugin plugin : set) {
+      plugins.put(plugin.getClass().getName(), plugin);
+    }
+  }
+
+  /**
+   * Accepts connections on a port of the loopback interface, until the current thread is interrupted
+   * or the socket is closed.
+   *
+   * @param port The port
+   * @throws IOException If the socket can't be opened
+   */
+  public void serve(int port) throws IOException {
+    ServerSocket serverSocket = new ServerSocket(port, 50, InetAddress.getByName(null));
+    System.err.println("Compile server listening on " + serverSocket.getLocalSocketAddress());
+    serve(serverSocket);
+  }
+
+  /**
+   * Accepts connections on a server socket, until the current thread is interrupted
+   * or the socket is closed.
+   *
+   * @param serverSocket The server socket
+   * @throws IOException If accepting a connection fails
+   */
+  public void serve(ServerSocket serverSocket) throws IOException {
+    try {
+      while (!Thread.currentThread().isInterrupted()) {
+        final Socket socket = serverSocket.accept();
+        connections.execute(new Runnable() {
+          @Override
+          public void run() {
+            handleConnection(socket);
+          }
+        });
+      }
+    } finally {
+      serverSocket.close();
+      shutdown();
+    }
+  }
+
+  /**
+   * Sets the maximum size of the source of a compile request
+   *
+   * @param maxRequestSize The maximum number of bytes
+   */
+  public void setMaxRequestSize(int maxRequestSize) {
+    this.maxRequestSize = maxRequestSize;
+  }
+
+  /**
+   * Stops the threads of this server
+   */
+  public void shutdown() {
+    connections.shutdownNow();
+    workers.shutdown();
+  }
+
+  private void handleConnection(Socket socket) {
+    OutputStream out = null;
+    try {
+      InputStream in = new BufferedInputStream(socket.getInputStream());
+      out = new BufferedOutputStream(socket.getOutputStream());
+      String command;
+      while ((command = readLine(in)) != null) {
+        Map<String, String> headers = readHeaders(in);
+        if (command.equals("COMPILE")) {
+          handleCompile(headers, in, out);
+        } else if (command.equals("STATS")) {
+          writeLine(out, "OK");
+          for (Map.Entry<String, String> entry : getStatistics().entrySet()) {
+            writeLine(out, entry.getKey() + ": " + entry.getValue());
+          }
+          writeLine(out, "");
+        } else {
+          writeLine(out, "ERROR Unknown command: " + command);
+        }
+        out.flush();
+      }
+    } catch (RequestException e) {
+      writeError(out, e.getMessage());
+    } catch (IOException e) {
+      // the client has closed the connection
+      System.err.println("Compile server: " + e.getMessage());
+    } catch (RuntimeException e) {
+      System.err.println("Compile server: " + e);
+      writeError(out, e.toString());
+    } finally {
+      try {
+        socket.close();
+      } catch (IOException e) {
+      }
+    }
+  }
+
+  private void handleCompile(Map<String, String> headers, InputStream in, OutputStream out) throws IOException {
+    byte[] source = new byte[parseLength(headers.get("length"))];
+    readFully(in, source);
+
+    final Map<String, String> request = new HashMap<String, String>(defaults);
+    request.putAll(headers);
+    final InputFile input = new InputFile(request.containsKey("name") ? request.get("name") : "input.clu", new String(source, UTF8));
+    final long submitTime = System.nanoTime();
+
+    Future<Set<OutputFile>> result = workers.submit(new Callable<Set<OutputFile>>() {
+      @Override
+      public Set<OutputFile> call() throws Exception {
+        totalQueueTime.addAndGet(System.nanoTime() - submitTime);
+        return createCompiler(request).compile(input);
+      }
+    });
+
+    try {
+      Set<OutputFile> outputFiles = result.get();
+      writeLine(out, "OK " + outputFiles.size());
+      for (OutputFile output : outputFiles) {
+        byte[] content = output.getContent().getBytes(UTF8);
+        writeLine(out, "FILE " + content.length + " " + output.getName());
+        out.write(content);
+      }
+    } catch (ExecutionException e) {
+      failedCount.incrementAndGet();
+      Throwable cause = (e.getCause() != null) ? e.getCause() : e;
+      String message = (cause.getMessage() != null) ? cause.getMessage() : cause.toString();
+      writeLine(out, "ERROR " + message.replace('\r', ' ').replace('\n', ' '));
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new IOException("Interrupted");
+    } finally {
+      long latency = System.nanoTime() - submitTime;
+      requestCount.incrementAndGet();
+      totalLatency.addAndGet(latency);
+      long max;
+      while (latency > (max = maxLatency.get()) && !maxLatency.compareAndSet(max, latency)) {
+      }
+    }
+  }
+
+  /**
+   * Validates the length header of a compile request
+   * @param value The value of the header, null if it is missing
+   * @return The number of bytes of the source
+   * @throws RequestException If the length is missing, invalid or larger than the maximum request size
+   */
+  private int parseLength(String value) throws RequestException {
+    if (value == null) {
+      throw new RequestException("Missing header: length");
+    }
+    int length;
+    try {
+      length = Integer.parseInt(value);
+    } catch (NumberFormatException e) {
+      throw new RequestException("Invalid header: length: " + value);
+    }
+    if (length < 0) {
+      throw new RequestException("Invalid header: length: " + value);
+    }
+    if (length > maxRequestSize) {
+      throw new RequestException("Request too large: " + length + " bytes, the maximum is " + maxRequestSize + " bytes");
+    }
+    return length;
+  }
+
+  private CompilerFacade createCompiler(Map<String, String> request) throws IllegalArgumentException {
+    CodeParserPlugin parser = getPlugin(request, "parser", CodeParserPlugin.class);
+    GlobalSettingsStrategyPlugin globalSettings = getPlugin(request, "globalSettings", GlobalSettingsStrategyPlugin.class);
+    VisualCodeInserterStrategyPlugin visualizer = getPlugin(request, "visualizer", VisualCodeInserterStrategyPlugin.class);
+    AlgebraStrategyPlugin algebra = getPlugin(request, "algebraStrategy", AlgebraStrategyPlugin.class);
+    OptimizationStrategyPlugin optimizer = getPlugin(request, "optimizer", OptimizationStrategyPlugin.class);
+    CodeGeneratorPlugin generator = getPlugin(request, "generator", CodeGeneratorPlugin.class);
+
+    String algebraName = request.get("algebraName");
+    String algebraBaseDir = request.get("algebraBaseDir");
+    if (algebraName == null) {
+      throw new IllegalArgumentException("Missing header: algebraName");
+    }
+    boolean asRessource;
+    synchronized (predefinedAlgebras) {
+      String key = algebraName + ";" + algebraBaseDir;
+      if (!predefinedAlgebras.containsKey(key)) {
+        predefinedAlgebras.put(key, Main.isPredefinedAlgebra(algebraName, algebraBaseDir));
+      }
+      asRessource = predefinedAlgebras.get(key);
+    }
+
+    CompilerFacade facade = new CompilerFacade(parser.createCodeParser(), globalSettings.createGlobalSettingsStrategy(),
+        visualizer.createVisualCodeInserterStrategy(), algebra.createAlgebraStrategy(),
+        optimizer.createOptimizationStrategy(), generator.createCodeGenerator(),
+        algebraName, asRessource, algebraBaseDir);
+    facade.setCompilationCache(compilationCache, parser, globalSettings, visualizer, algebra, optimizer, generator);
+    return facade;
+  }
+
+  private <T extends Plugin> T getPlugin(Map<String, String> request, String key, Class<T> type) {
+    Plugin plugin = plugins.get(request.get(key));
+    if (!type.isInstance(plugin)) {
+      throw new IllegalArgumentException("Unknown " + key + " plugin: " + request.get(key));
+    }
+    return type.cast(plugin);
+  }
+
+  /**
+   * Returns the statistics of this server: the number of queued and running compilations,
+   * the number of handled and failed requests and the mean and maximum latency in milliseconds.
+   *
+   * @return The statistics, ordered by name
+   */
+  public Map<String, String> getStatistics() {
+    Map<String, String> stats = new LinkedHashMap<String, String>();
+    long requests = requestCount.get();
+    stats.put("uptime", Long.toString(System.currentTimeMillis() - startTime));
+    stats.put("queued", Integer.toString(workers.getQueue().size()));
+    stats.put("running", Integer.toString(workers.getActiveCount()));
+    stats.put("requests", Long.toString(requests));
+    stats.put("failed", Long.toString(failedCount.get()));
+    stats.put("meanLatency", Long.toString((requests == 0) ? 0 : totalLatency.get() / requests / 1000000));
+    stats.put("maxLatency", Long.toString(maxLatency.get() / 1000000));
+    stats.put("meanQueueTime", Long.toString((requests == 0) ? 0 : totalQueueTime.get() / requests / 1000000));
+    if (compilationCache != null) {
+      stats.put("cacheHits", Long.toString(compilationCache.getHitCount()));
+      stats.put("cacheMisses", Long.toString(compilationCache.getMissCount()));
+    }
+    return stats;
+  }
+
+  private static Map<String, String> readHeaders(InputStream in) throws IOException {
+    Map<String, String> headers = new HashMap<String, String>();
+    String line;
+    while ((line = readLine(in)) != null && !line.isEmpty()) {
+      int colon = line.indexOf(':');
+      if (colon < 0) {
+        throw new RequestException("Malformed header: " + line);
+      }
+      headers.put(line.substring(0, colon).trim(), line.substring(colon + 1).trim());
+    }
+    return headers;
+  }
+
+  /**
+   * Reads a line terminated by '\n'
+   * @param in The stream
+   * @return The line without terminator, null at the end of the stream
+   */
+  private static String readLine(InputStream in) throws IOException {
+    ByteArrayOutputStream line = new ByteArrayOutputStream();
+    int b;
+    while ((b = in.read()) != '\n') {
+      if (b < 0) {
+        return (line.size() == 0) ? null : new String(line.toByteArray(), UTF8);
+      }
+      if (b != '\r') {
+        if (line.size() >= MAX_LINE_LENGTH) {
+          throw new RequestException("Line too long");
+        }
+        line.write(b);
+      }
+    }
+    return new String(line.toByteArray(), UTF8);
+  }
+
+  private static void readFully(InputStream in, byte[] buffer) throws IOException {
+    int offset = 0;
+    while (offset < buffer.length) {
+      int count = in.read(buffer, offset, buffer.length - offset);
+      if (count < 0) {
+        throw new EOFException("Unexpected end of source");
+      }
+      offset += count;
+    }
+  }
+
+  /**
+   * Answers a request with an error, if the connection is still writable
+   * @param out The stream, null if it has not been opened
+   * @param message The error message
+   */
+  private static void writeError(OutputStream out, String message) {
+    if (out == null) {
+      return;
+    }
+    try {
+      writeLine(out, "ERROR " + message.replace('\r', ' ').replace('\n', ' '));
+      out.flush();
+    } catch (IOException e) {
+      // the client has closed the connection
+    }
+  }
+
+  private static void writeLine(OutputStream out, String line) throws IOException {
+    out.write(line.getBytes(UTF8));
+    out.write('\n');
+  }
+}
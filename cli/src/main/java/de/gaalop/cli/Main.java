@@ -9,6 +9,11 @@ import org.kohsuke.args4j.CmdLineParser;
 import org.kohsuke.args4j.Option;
 
 import java.io.*;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
 import java.util.Set;
 import java.util.logging.Level;
 import java.util.logging.Logger;
@@ -23,7 +28,7 @@ public class Main {
 
   private Log log = LogFactory.getLog(Main.class);
 
-  @Option(name = "-i", required = true, usage = "The input file.")
+  @Option(name = "-i", required = false, usage = "The input file.")
   private String inputFile;
 
   @Option(name = "-o", required = false, usage = "Sets the directory where the output files are created.")
@@ -52,11 +57,42 @@ public class Main {
   
   @Option(name = "-algebraBaseDir", required = false, usage = "Sets the base directory path of the user-defined algebras.")
   private String algebraBaseDirectory;
+
+  @Option(name = "-cacheDir", required = false, usage = "Enables the cache of compilation results in the given directory.")
+  private String cacheDirectory;
+
+  @Option(name = "-cacheSize", required = false, usage = "Sets the maximum size of the compilation cache in megabytes.")
+  private int cacheSize = CompilationCache.DEFAULT_MAX_SIZE;
+
+  @Option(name = "-batch", required = false, usage = "Compiles all .clu files of a directory, all files matching a glob pattern or all files listed in a manifest file (@file).")
+  private String batch;
+
+  @Option(name = "-threads", required = false, usage = "Sets the number of concurrent compilations in batch and server mode.")
+  private int threads = Runtime.getRuntime().availableProcessors();
+
+  @Option(name = "-watch", required = false, usage = "Recompiles changed files of the batch, until the process is terminated.")
+  private boolean watch;
+
+  @Option(name = "-server", required = false, usage = "Starts a compile server on the given port of the loopback interface.")
+  private int serverPort = -1;
+
+  @Option(name = "-stats", aliases = "--stats", required = false, usage = "Writes the statistics of the compilations as JSON to the given file, - for the standard error.")
+  private String statisticsFile;
+
+  private CodeParserPlugin selectedCodeParserPlugin;
+  private GlobalSettingsStrategyPlugin selectedGlobalSettingsPlugin;
+  private AlgebraStrategyPlugin selectedAlgebraPlugin;
+  private VisualCodeInserterStrategyPlugin selectedVisualizerPlugin;
+  private OptimizationStrategyPlugin selectedOptimizationPlugin;
+  private CodeGeneratorPlugin selectedCodeGeneratorPlugin;
+  private boolean asRessource;
+  private CompilationCache compilationCache;
+  private final List<CompilationStatistics> statistics = Collections.synchronizedList(new ArrayList<CompilationStatistics>());
   
   /**
    * Starts the command line interface of Gaalop.
    * 
-   * @param args -i to specify the input file (mandatory), -o to specify the output directory,
+   * @param args -i to specify the input file or -batch to specify several input files, -o to specify the output directory,
    * -parser to set the input parser, -generator to set the code generator plugin, -optimizer to
    * select the optimization strategy.
    */
@@ -78,23 +114,122 @@ public class Main {
   public void run() throws Exception {
     log.debug("Starting up compilation process.");
 
+    if (serverPort >= 0) {
+      // the options are the defaults of the requests
+      Map<String, String> defaults = new HashMap<String, String>();
+      defaults.put("parser", codeParserPlugin);
+      defaults.put("globalSettings", globalSettingsStrategyPlugin);
+      defaults.put("visualizer", visualizerStrategyPlugin);
+      defaults.put("algebraStrategy", algebraStrategyPlugin);
+      defaults.put("optimizer", optimizationStrategyPlugin);
+      defaults.put("generator", codeGeneratorPlugin);
+      defaults.put("algebraName", algebraName);
+      if (algebraBaseDirectory != null) {
+        defaults.put("algebraBaseDir", algebraBaseDirectory);
+      }
+      new CompileServer(defaults, threads, createCompilationCache()).serve(serverPort);
+      return;
+    }
+
+    if ((inputFile == null) == (batch == null)) {
+      System.err.println("Either an input file (-i) or a batch of input files (-batch) must be given.");
+      System.exit(-1);
+    }
+
     // Configure the compiler
+    setupPlugins();
+
+    if (batch != null) {
+      BatchCompiler batchCompiler = new BatchCompiler(this, threads);
+      BatchCompiler.InputSet inputs = BatchCompiler.InputSet.create(batch);
+      int failed = batchCompiler.compile(inputs, inputs.listFiles());
+      if (watch) {
+        batchCompiler.watch(inputs);
+      }
+      batchCompiler.shutdown();
+      if (failed > 0) {
+        System.exit(1);
+      }
+      return;
+    }
+
     CompilerFacade compiler = createCompiler();
 
     // Perform compilation
     InputFile inputFile = getInputFile();
-    Set<OutputFile> outputFiles = compiler.compile(inputFile);
-    for (OutputFile output : outputFiles) {
-      writeFile(output);
+    CompilationResult result = compiler.compileWithStatistics(inputFile);
+    statistics.add(result.getStatistics());
+    writeFiles(result.getOutputFiles(), null);
+    writeStatistics();
+  }
+
+  /**
+   * Compiles a file of a batch and writes the output files.
+   * This method may be called concurrently.
+   *
+   * The name of the file without its directory determines the names of the output files,
+   * because code generators derive file and class names from it.
+   *
+   * @param file The input file
+   * @param directory The directory of the output files relative to the output directory, null for the output directory itself
+   * @throws Exception If the file can't be read or compiled
+   */
+  void compile(File file, String directory) throws Exception {
+    CompilerFacade compiler = createCompiler();
+    CompilationResult result = compiler.compileWithStatistics(readInputFile(new FileReader(file), file.getName()));
+    statistics.add(result.getStatistics());
+    writeFiles(result.getOutputFiles(), directory);
+  }
+
+  /**
+   * Writes the statistics of the compilations since the last call as JSON array, if this is desired by -stats.
+   */
+  void writeStatistics() throws IOException {
+    if (statisticsFile == null) {
+      statistics.clear();
+      return;
+    }
+    StringBuilder json = new StringBuilder("[");
+    synchronized (statistics) {
+      for (CompilationStatistics compilation : statistics) {
+        json.append((json.length() == 1) ? "\n  " : ",\n  ").append(compilation.toJson());
+      }
+      statistics.clear();
+    }
+    json.append("\n]");
+    if (statisticsFile.equals("-")) {
+      System.err.println(json);
+    } else {
+      Writer writer = new OutputStreamWriter(new FileOutputStream(statisticsFile), "UTF-8");
+      try {
+        writer.write(json.toString());
+        writer.write('\n');
+      } finally {
+        writer.close();
+      }
     }
   }
 
-  private void writeFile(OutputFile output) throws FileNotFoundException,
+  private void writeFiles(Set<OutputFile> outputFiles, String directory) throws FileNotFoundException,
+      UnsupportedEncodingException {
+    // print the output files of one input without interruption by concurrent compilations
+    synchronized (System.out) {
+      for (OutputFile output : outputFiles) {
+        writeFile(output, directory);
+      }
+    }
+  }
+
+  private void writeFile(OutputFile output, String directory) throws FileNotFoundException,
       UnsupportedEncodingException {
     if (outputDirectory.equals("-")) {
       printFileToConsole(output);
     } else {
-      File outFile = new File(outputDirectory, output.getName());
+      File outDirectory = (directory == null) ? new File(outputDirectory) : new File(outputDirectory, directory);
+      File outFile = new File(outDirectory, output.getName());
+      if (outFile.getParentFile() != null) {
+        outFile.getParentFile().mkdirs();
+      }
       PrintWriter writer = new PrintWriter(outFile, output.getEncoding().name());
       writer.print(output.getContent());
       writer.close();
@@ -109,43 +244,81 @@ public class Main {
     System.out.println("----------------------------------------------------------");
   }
 
-  private CompilerFacade createCompiler() {
-    CodeParser codeParser = createCodeParser();
-    
-    GlobalSettingsStrategy globalSettingsStrategy = createGlobalSettingsStrategy();
-
-    AlgebraStrategy algebraStrategy = createAlgebraStrategy();
+  /**
+   * Looks the selected plugins up and determines, if the algebra is a predefined one.
+   * This is done only once, also in batch mode.
+   */
+  private void setupPlugins() {
+    selectedCodeParserPlugin = findCodeParserPlugin();
+    selectedGlobalSettingsPlugin = findGlobalSettingsStrategyPlugin();
+    selectedAlgebraPlugin = findAlgebraStrategyPlugin();
+    selectedVisualizerPlugin = findVisualizerStrategyPlugin();
+    selectedOptimizationPlugin = findOptimizationStrategyPlugin();
+    selectedCodeGeneratorPlugin = findCodeGeneratorPlugin();
+
+    asRessource = isPredefinedAlgebra(algebraName, algebraBaseDirectory);
+    compilationCache = createCompilationCache();
+  }
 
-    VisualCodeInserterStrategy visualizerStrategy = createVisualizerStrategy();
+  /**
+   * Creates the cache of compilation results, either from the command line options or from the system properties
+   * @return The cache, null if caching is disabled
+   */
+  private CompilationCache createCompilationCache() {
+    if (cacheDirectory != null)
+      return new CompilationCache(new File(cacheDirectory), cacheSize * 1024L * 1024L);
+    return CompilationCache.fromSystemProperties();
+  }
 
-    OptimizationStrategy optimizationStrategy = createOptimizationStrategy();
+  /**
+   * Determines, if an algebra is one of the algebras, which are shipped as ressources
+   * @param algebraName The name of the algebra
+   * @param algebraBaseDirectory The base directory of the user-defined algebras, may be null
+   * @return <value>true</value> if the algebra should be loaded as ressource
+   */
+  static boolean isPredefinedAlgebra(String algebraName, String algebraBaseDirectory) {
+    // a user-defined algebra with the same name takes precedence
+    if (algebraBaseDirectory != null && new File(algebraBaseDirectory, algebraName.trim()).isDirectory())
+        return false;
 
-    CodeGenerator codeGenerator = createCodeGenerator();
-    
     boolean asRessource = false;
-    
     try {
         InputStream inputStream = AlStrategy.class.getResourceAsStream("algebra/definedAlgebras.txt");
         BufferedReader reader = new BufferedReader(new InputStreamReader(inputStream));
 
         String line;
         while ((line = reader.readLine()) != null) 
-            if (line.trim().equals(algebraName.trim()))
+            if (line.split(";")[0].trim().equals(algebraName.trim()))
                 asRessource = true;
 
         reader.close();
     } catch (IOException ex) {
         Logger.getLogger(Main.class.getName()).log(Level.SEVERE, null, ex);
     }
+    return asRessource;
+  }
 
-    return new CompilerFacade(codeParser, globalSettingsStrategy, visualizerStrategy, algebraStrategy, optimizationStrategy, codeGenerator, algebraName, asRessource, algebraBaseDirectory);
+  private CompilerFacade createCompiler() {
+    CompilerFacade facade = new CompilerFacade(
+        selectedCodeParserPlugin.createCodeParser(),
+        selectedGlobalSettingsPlugin.createGlobalSettingsStrategy(),
+        selectedVisualizerPlugin.createVisualCodeInserterStrategy(),
+        selectedAlgebraPlugin.createAlgebraStrategy(),
+        selectedOptimizationPlugin.createOptimizationStrategy(),
+        selectedCodeGeneratorPlugin.createCodeGenerator(),
+        algebraName, asRessource, algebraBaseDirectory);
+    facade.setCompilationCache(compilationCache, selectedCodeParserPlugin, selectedGlobalSettingsPlugin,
+        selectedVisualizerPlugin, selectedAlgebraPlugin, selectedOptimizationPlugin, selectedCodeGeneratorPlugin);
+    // the sizes of the graphs are only needed for the written statistics
+    facade.setCountGraphs(statisticsFile != null);
+    return facade;
   }
 
-  private CodeParser createCodeParser() {
+  private CodeParserPlugin findCodeParserPlugin() {
     Set<CodeParserPlugin> plugins = Plugins.getCodeParserPlugins();
     for (CodeParserPlugin plugin : plugins) {
       if (plugin.getClass().getName().equals(codeParserPlugin)) {
-        return plugin.createCodeParser();
+        return plugin;
       }
     }
 
@@ -154,11 +327,11 @@ public class Main {
     return null;
   }
   
-  private GlobalSettingsStrategy createGlobalSettingsStrategy() {
+  private GlobalSettingsStrategyPlugin findGlobalSettingsStrategyPlugin() {
     Set<GlobalSettingsStrategyPlugin> plugins = Plugins.getGlobalSettingsStrategyPlugins();
     for (GlobalSettingsStrategyPlugin plugin : plugins) {
       if (plugin.getClass().getName().equals(globalSettingsStrategyPlugin)) {
-        return plugin.createGlobalSettingsStrategy();
+        return plugin;
       }
     }
 
@@ -167,11 +340,11 @@ public class Main {
     return null;
   }
 
-  private AlgebraStrategy createAlgebraStrategy() {
+  private AlgebraStrategyPlugin findAlgebraStrategyPlugin() {
     Set<AlgebraStrategyPlugin> plugins = Plugins.getAlgebraStrategyPlugins();
     for (AlgebraStrategyPlugin plugin : plugins) {
       if (plugin.getClass().getName().equals(algebraStrategyPlugin)) {
-        return plugin.createAlgebraStrategy();
+        return plugin;
       }
     }
 
@@ -180,11 +353,11 @@ public class Main {
     return null;
   }
 
-  private VisualCodeInserterStrategy createVisualizerStrategy() {
+  private VisualCodeInserterStrategyPlugin findVisualizerStrategyPlugin() {
     Set<VisualCodeInserterStrategyPlugin> plugins = Plugins.getVisualizerStrategyPlugins();
     for (VisualCodeInserterStrategyPlugin plugin : plugins) {
       if (plugin.getClass().getName().equals(visualizerStrategyPlugin)) {
-        return plugin.createVisualCodeInserterStrategy();
+        return plugin;
       }
     }
 
@@ -193,11 +366,11 @@ public class Main {
     return null;
   }
 
-  private OptimizationStrategy createOptimizationStrategy() {
+  private OptimizationStrategyPlugin findOptimizationStrategyPlugin() {
     Set<OptimizationStrategyPlugin> plugins = Plugins.getOptimizationStrategyPlugins();
     for (OptimizationStrategyPlugin plugin : plugins) {
       if (plugin.getClass().getName().equals(optimizationStrategyPlugin)) {
-        return plugin.createOptimizationStrategy();
+        return plugin;
       }
     }
 
@@ -206,11 +379,11 @@ public class Main {
     return null;
   }
 
-  private CodeGenerator createCodeGenerator() {
+  private CodeGeneratorPlugin findCodeGeneratorPlugin() {
     Set<CodeGeneratorPlugin> plugins = Plugins.getCodeGeneratorPlugins();
     for (CodeGeneratorPlugin plugin : plugins) {
       if (plugin.getClass().getName().equals(codeGeneratorPlugin)) {
-        return plugin.createCodeGenerator();
+        return plugin;
       }
     }
 
@@ -231,6 +404,10 @@ public class Main {
       filename = inputFile;
     }
 
+    return readInputFile(reader, filename);
+  }
+
+  private InputFile readInputFile(Reader reader, String filename) throws IOException {
     try {
       BufferedReader bufReader = new BufferedReader(reader);
       String line;
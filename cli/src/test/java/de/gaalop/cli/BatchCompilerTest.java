@@ -0,0 +1,156 @@
+package de.gaalop.cli;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.kohsuke.args4j.CmdLineParser;
+
+import static org.junit.Assert.*;
+
+/**
+ * Tests the input sets and the output directories of the batch compiler
+ * @author Christian Steinmetz
+ */
+public class BatchCompilerTest {
+
+  private static final String SOURCE = "a = e1 + e2;\n?b = a * e1;\n";
+
+  /**
+   * Records the compiled files instead of compiling them
+   */
+  private static class RecordingMain extends Main {
+
+    private final List<String> compiled = Collections.synchronizedList(new ArrayList<String>());
+
+    @Override
+    void compile(File file, String directory) throws Exception {
+      if (file.getName().startsWith("fail")) {
+        throw new Exception("failed");
+      }
+      compiled.add(directory + ":" + file.getName());
+    }
+  }
+
+  private File directory;
+
+  @Before
+  public void createDirectory() throws IOException {
+    directory = File.createTempFile("BatchCompilerTest", "");
+    directory.delete();
+    directory.mkdirs();
+    write(new File(directory, "a.clu"), SOURCE);
+    write(new File(directory, "sub/b.clu"), SOURCE);
+    write(new File(directory, "sub/notes.txt"), "");
+  }
+
+  @After
+  public void deleteDirectory() {
+    delete(directory);
+  }
+
+  private static void write(File file, String content) throws IOException {
+    file.getParentFile().mkdirs();
+    Writer writer = new OutputStreamWriter(new FileOutputStream(file), "UTF-8");
+    try {
+      writer.write(content);
+    } finally {
+      writer.close();
+    }
+  }
+
+  private static void delete(File file) {
+    File[] children = file.listFiles();
+    if (children != null) {
+      for (File child : children) {
+        delete(child);
+      }
+    }
+    file.delete();
+  }
+
+  private static List<String> getNames(List<File> files) {
+    List<String> result = new ArrayList<String>();
+    for (File file : files) {
+      result.add(file.getName());
+    }
+    return result;
+  }
+
+  @Test
+  public void directoryInput() throws IOException {
+    BatchCompiler.InputSet inputs = BatchCompiler.InputSet.create(directory.getPath());
+    List<File> files = inputs.listFiles();
+    assertEquals(Arrays.asList("a.clu", "b.clu"), getNames(files));
+    assertNull(inputs.getDirectory(files.get(0)));
+    assertEquals("sub", inputs.getDirectory(files.get(1)));
+  }
+
+  @Test
+  public void globInput() throws IOException {
+    BatchCompiler.InputSet inputs = BatchCompiler.InputSet.create(directory.getPath() + "/sub/*.clu");
+    List<File> files = inputs.listFiles();
+    assertEquals(Arrays.asList("b.clu"), getNames(files));
+    assertNull(inputs.getDirectory(files.get(0)));
+
+    inputs = BatchCompiler.InputSet.create(directory.getPath() + "/**.clu");
+    files = inputs.listFiles();
+    assertEquals(Arrays.asList("a.clu", "b.clu"), getNames(files));
+    assertEquals("sub", inputs.getDirectory(files.get(1)));
+  }
+
+  @Test
+  public void manifestInput() throws IOException {
+    File outside = File.createTempFile("BatchCompilerTest", ".clu");
+    try {
+      write(new File(directory, "list.txt"), "# inputs\n\na.clu\nsub/b.clu\n" + outside.getAbsolutePath() + "\n");
+      BatchCompiler.InputSet inputs = BatchCompiler.InputSet.create("@" + new File(directory, "list.txt").getPath());
+      List<File> files = inputs.listFiles();
+      assertEquals(Arrays.asList("a.clu", "b.clu", outside.getName()), getNames(files));
+      assertNull(inputs.getDirectory(files.get(0)));
+      assertEquals("sub", inputs.getDirectory(files.get(1)));
+      assertNull(inputs.getDirectory(files.get(2)));
+    } finally {
+      outside.delete();
+    }
+  }
+
+  @Test
+  public void failedCompilationsAreCounted() throws Exception {
+    write(new File(directory, "sub/fail.clu"), SOURCE);
+    RecordingMain main = new RecordingMain();
+    BatchCompiler compiler = new BatchCompiler(main, 2);
+    try {
+      BatchCompiler.InputSet inputs = BatchCompiler.InputSet.create(directory.getPath());
+      assertEquals(1, compiler.compile(inputs, inputs.listFiles()));
+    } finally {
+      compiler.shutdown();
+    }
+    Collections.sort(main.compiled);
+    assertEquals(Arrays.asList("null:a.clu", "sub:b.clu"), main.compiled);
+  }
+
+  @Test
+  public void outputFilesAreWrittenToRelativeDirectories() throws Exception {
+    File output = new File(directory, "out");
+    Main main = new Main();
+    new CmdLineParser(main).parseArgument(new String[] {"-batch", directory.getPath(), "-o", output.getPath(),
+        "-algebraName", "3d", "-optimizer", "de.gaalop.tba.Plugin", "-generator", "de.gaalop.java.Plugin", "-threads", "2"});
+    main.run();
+
+    assertTrue(new File(output, "a.java").isFile());
+    File nested = new File(output, "sub/b.java");
+    assertTrue(nested.isFile());
+    String code = new String(Files.readAllBytes(nested.toPath()), "UTF-8");
+    assertTrue(code, code.contains("public class b "));
+  }
+}
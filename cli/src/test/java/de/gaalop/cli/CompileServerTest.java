@@ -0,0 +1,256 @@
+package de.gaalop.cli;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+/**
+ * Tests the protocol of the compile server on a loopback connection
+ * @author Christian Steinmetz
+ */
+public class CompileServerTest {
+
+  private static final String SOURCE = "a = e1 + e2;\n?b = a * e1;\n";
+
+  private static final int MAX_REQUEST_SIZE = 1024;
+
+  /**
+   * A client connection, which reads the responses of the server
+   */
+  private static class Connection {
+
+    private final Socket socket;
+    private final InputStream in;
+    private final OutputStream out;
+
+    public Connection(int port) throws IOException {
+      socket = new Socket(InetAddress.getByName(null), port);
+      socket.setSoTimeout(30000);
+      in = new BufferedInputStream(socket.getInputStream());
+      out = socket.getOutputStream();
+    }
+
+    public void send(String request) throws IOException {
+      out.write(request.getBytes("UTF-8"));
+      out.flush();
+    }
+
+    /**
+     * Reads a line of the response
+     * @return The line without '\n', null at the end of the stream
+     */
+    public String readLine() throws IOException {
+      ByteArrayOutputStream line = new ByteArrayOutputStream();
+      int b;
+      while ((b = in.read()) != '\n') {
+        if (b == -1) {
+          return (line.size() == 0) ? null : line.toString("UTF-8");
+        }
+        line.write(b);
+      }
+      return line.toString("UTF-8");
+    }
+
+    public String readBytes(int length) throws IOException {
+      byte[] bytes = new byte[length];
+      int offset = 0;
+      while (offset < length) {
+        int read = in.read(bytes, offset, length - offset);
+        assertTrue("unexpected end of stream", read >= 0);
+        offset += read;
+      }
+      return new String(bytes, "UTF-8");
+    }
+
+    /**
+     * Sends a STATS request and reads the statistics of the response
+     */
+    public Map<String, String> readStatisticsAfter(String request) throws IOException {
+      send(request);
+      assertEquals("OK", readLine());
+      Map<String, String> stats = new LinkedHashMap<String, String>();
+      String line;
+      while (!(line = readLine()).isEmpty()) {
+        int colon = line.indexOf(": ");
+        stats.put(line.substring(0, colon), line.substring(colon + 2));
+      }
+      return stats;
+    }
+
+    public void close() throws IOException {
+      socket.close();
+    }
+  }
+
+  private ServerSocket serverSocket;
+  private Thread serverThread;
+
+  @Before
+  public void startServer() throws IOException {
+    Map<String, String> defaults = new HashMap<String, String>();
+    defaults.put("parser", "de.gaalop.clucalc.input.Plugin");
+    defaults.put("globalSettings", "de.gaalop.globalSettings.Plugin");
+    defaults.put("visualizer", "de.gaalop.visualCodeInserter.Plugin");
+    defaults.put("algebraStrategy", "de.gaalop.algebra.Plugin");
+    defaults.put("optimizer", "de.gaalop.tba.Plugin");
+    defaults.put("generator", "de.gaalop.java.Plugin");
+    defaults.put("algebraName", "3d");
+    final CompileServer server = new CompileServer(defaults, 2, null);
+    server.setMaxRequestSize(MAX_REQUEST_SIZE);
+
+    serverSocket = new ServerSocket(0, 50, InetAddress.getByName(null));
+    serverThread = new Thread() {
+      @Override
+      public void run() {
+        try {
+          server.serve(serverSocket);
+        } catch (IOException e) {
+          // the socket is closed at the end of the test
+        }
+      }
+    };
+    serverThread.start();
+  }
+
+  @After
+  public void stopServer() throws IOException, InterruptedException {
+    serverSocket.close();
+    serverThread.join();
+  }
+
+  private static String createCompileRequest(String name, String source) throws IOException {
+    return "COMPILE\nname: " + name + "\nlength: " + source.getBytes("UTF-8").length + "\n\n" + source;
+  }
+
+  @Test
+  public void compileRoundTrip() throws IOException {
+    Connection connection = new Connection(serverSocket.getLocalPort());
+    try {
+      connection.send(createCompileRequest("foo.clu", SOURCE));
+      assertEquals("OK 2", connection.readLine());
+      Map<String, String> files = new HashMap<String, String>();
+      for (int i = 0; i < 2; i++) {
+        String[] header = connection.readLine().split(" ", 3);
+        assertEquals("FILE", header[0]);
+        files.put(header[2], connection.readBytes(Integer.parseInt(header[1])));
+      }
+      assertTrue(files.containsKey("GAProgram.java"));
+      assertTrue(files.get("foo.java"), files.get("foo.java").contains("public class foo "));
+
+      // the connection is kept for further requests
+      Map<String, String> stats = connection.readStatisticsAfter("STATS\n\n");
+      assertEquals("1", stats.get("requests"));
+      assertEquals("0", stats.get("failed"));
+    } finally {
+      connection.close();
+    }
+  }
+
+  @Test
+  public void concurrentRequests() throws IOException {
+    // more connections than workers, the requests are queued in the worker pool
+    Connection[] connections = new Connection[5];
+    try {
+      for (int i = 0; i < connections.length; i++) {
+        connections[i] = new Connection(serverSocket.getLocalPort());
+        connections[i].send(createCompileRequest("file" + i + ".clu", SOURCE));
+      }
+      for (int i = 0; i < connections.length; i++) {
+        assertEquals("OK 2", connections[i].readLine());
+        boolean found = false;
+        for (int f = 0; f < 2; f++) {
+          String[] header = connections[i].readLine().split(" ", 3);
+          String content = connections[i].readBytes(Integer.parseInt(header[1]));
+          if (header[2].equals("file" + i + ".java")) {
+            found = content.contains("public class file" + i + " ");
+          }
+        }
+        assertTrue(found);
+      }
+      assertEquals(Integer.toString(connections.length), connections[0].readStatisticsAfter("STATS\n\n").get("requests"));
+    } finally {
+      for (Connection connection : connections) {
+        if (connection != null) {
+          connection.close();
+        }
+      }
+    }
+  }
+
+  @Test
+  public void failedCompilation() throws IOException {
+    Connection connection = new Connection(serverSocket.getLocalPort());
+    try {
+      connection.send("COMPILE\ngenerator: unknown\nlength: 0\n\n");
+      assertEquals("ERROR Unknown generator plugin: unknown", connection.readLine());
+
+      Map<String, String> stats = connection.readStatisticsAfter("STATS\n\n");
+      assertEquals("1", stats.get("requests"));
+      assertEquals("1", stats.get("failed"));
+    } finally {
+      connection.close();
+    }
+  }
+
+  @Test
+  public void unknownCommand() throws IOException {
+    Connection connection = new Connection(serverSocket.getLocalPort());
+    try {
+      connection.send("DELETE\n\n");
+      assertEquals("ERROR Unknown command: DELETE", connection.readLine());
+      assertEquals("0", connection.readStatisticsAfter("STATS\n\n").get("requests"));
+    } finally {
+      connection.close();
+    }
+  }
+
+  /**
+   * Sends a malformed request and expects an error response, after which the connection is closed
+   */
+  private void assertRejected(String request, String expectedError) throws IOException {
+    Connection connection = new Connection(serverSocket.getLocalPort());
+    try {
+      connection.send(request);
+      assertEquals(expectedError, connection.readLine());
+      assertNull(connection.readLine());
+    } finally {
+      connection.close();
+    }
+  }
+
+  @Test
+  public void missingLength() throws IOException {
+    assertRejected("COMPILE\nname: foo.clu\n\n", "ERROR Missing header: length");
+  }
+
+  @Test
+  public void invalidLength() throws IOException {
+    assertRejected("COMPILE\nlength: -1\n\n", "ERROR Invalid header: length: -1");
+    assertRejected("COMPILE\nlength: many\n\n", "ERROR Invalid header: length: many");
+  }
+
+  @Test
+  public void oversizedLength() throws IOException {
+    assertRejected("COMPILE\nlength: " + (MAX_REQUEST_SIZE + 1) + "\n\n",
+        "ERROR Request too large: " + (MAX_REQUEST_SIZE + 1) + " bytes, the maximum is " + MAX_REQUEST_SIZE + " bytes");
+    assertRejected("COMPILE\nlength: 99999999999\n\n", "ERROR Invalid header: length: 99999999999");
+  }
+
+  @Test
+  public void malformedHeader() throws IOException {
+    assertRejected("COMPILE\nlength\n\n", "ERROR Malformed header: length");
+  }
+}
@@ -143,7 +143,9 @@ public final class GraphBuilder {
 	private Set<String> macros = new HashSet<String>();
 	private String currentMacroDefinition;
 
-	private VariableScope currentScope = VariableScope.GLOBAL;
+	private VariableScope currentScope = new VariableScope(VariableScope.GLOBAL);
+
+	private final Set<Variable> gaVariables = new HashSet<Variable>();
 
 	public void beginNewScope() {
 		currentScope = new VariableScope(currentScope);
@@ -225,7 +227,7 @@ public final class GraphBuilder {
 	public AssignmentNode handleAssignment(Variable variable, Expression expression) {
 		checkIllegalVariable(variable);
 
-		CheckGAVisitor gaVisitor = new CheckGAVisitor();
+		CheckGAVisitor gaVisitor = new CheckGAVisitor(gaVariables);
 		expression.accept(gaVisitor);
 		if (gaVisitor.isGA()) {
 			gaVisitor.addGAVariable(variable);
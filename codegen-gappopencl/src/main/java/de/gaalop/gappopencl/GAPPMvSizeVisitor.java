@@ -23,6 +23,15 @@ import java.util.Map;
 public class GAPPMvSizeVisitor extends de.gaalop.gapp.visitor.CFGGAPPVisitor {
 
     protected Map<String,Integer> mvSizes = new HashMap<String,Integer>();
+    protected final int block;
+
+    public GAPPMvSizeVisitor(int block) {
+        this.block = block;
+    }
+
+    protected String getVarName(final String mvName) {
+        return GAPPOpenCLCodeGenerator.getVarName(mvName, block);
+    }
     
     @Override
     public Object visitAssignMv(GAPPAssignMv gappAssignMv, Object arg) {
@@ -31,19 +40,19 @@ public class GAPPMvSizeVisitor extends de.gaalop.gapp.visitor.CFGGAPPVisitor {
 
     @Override
     public Object visitDotVectors(GAPPDotVectors gappDotVectors, Object arg) {
-        incrementSize(GAPPOpenCLCodeGenerator.getVarName(gappDotVectors.getDestination().getName()),1);        
+        incrementSize(getVarName(gappDotVectors.getDestination().getName()),1);        
         return null;
     }
 
     @Override
     public Object visitResetMv(GAPPResetMv gappResetMv, Object arg) {
-        getMvSizes().put(GAPPOpenCLCodeGenerator.getVarName(gappResetMv.getDestination().getName()), 0);
+        getMvSizes().put(getVarName(gappResetMv.getDestination().getName()), 0);
         return null;
     }
 
     @Override
     public Object visitSetMv(GAPPSetMv gappSetMv, Object arg) {
-        incrementSize(GAPPOpenCLCodeGenerator.getVarName(gappSetMv.getDestination().getName()),
+        incrementSize(getVarName(gappSetMv.getDestination().getName()),
                       gappSetMv.getSelectorsDest().size());        
         return null;
     }
@@ -64,7 +73,7 @@ public class GAPPMvSizeVisitor extends de.gaalop.gapp.visitor.CFGGAPPVisitor {
 
     @Override
     public Object visitCalculateMvCoeff(GAPPCalculateMvCoeff gappCalculateMvCoeff, Object arg) {
-        incrementSize(GAPPOpenCLCodeGenerator.getVarName(gappCalculateMvCoeff.getDestination().getName()),1);        
+        incrementSize(getVarName(gappCalculateMvCoeff.getDestination().getName()),1);        
         return null;
     }
 
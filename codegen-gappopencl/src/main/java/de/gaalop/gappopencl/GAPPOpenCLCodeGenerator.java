@@ -13,19 +13,24 @@ import java.nio.charset.Charset;
  */
 public class GAPPOpenCLCodeGenerator implements CodeGenerator {
     
-    public static Integer numBlocks = -1;
     public static final String inputsVector = "inputsVector";
     public static final String tempMv = "tempmv";
     public static final String dot = "dot";
     private final Plugin plugin;
+
+    /**
+     * The number of the current block, per generator instead of static,
+     * so that concurrent compilations do not share the numbering
+     */
+    private int numBlocks = -1;
     
     GAPPOpenCLCodeGenerator(Plugin plugin) {
     	this.plugin = plugin;
     }
     
-    public static String getVarName(final String mvName) {
+    public static String getVarName(final String mvName, final int block) {
         if(mvName.startsWith(tempMv) || mvName.startsWith(dot) || mvName.startsWith(inputsVector))          
-            return mvName + "_" + numBlocks;
+            return mvName + "_" + block;
         else
             return mvName;
     }
@@ -64,7 +69,7 @@ public class GAPPOpenCLCodeGenerator implements CodeGenerator {
         ++numBlocks;
         
         // determine sizes of multivectors
-        GAPPMvSizeVisitor mvSizeVisitor = new GAPPMvSizeVisitor();
+        GAPPMvSizeVisitor mvSizeVisitor = new GAPPMvSizeVisitor(numBlocks);
         try {
         	in.accept(mvSizeVisitor);
         } catch (Throwable error) {
@@ -72,7 +77,7 @@ public class GAPPOpenCLCodeGenerator implements CodeGenerator {
         }        
         
         // generate code
-        GAPPOpenCLVisitor visitor = new GAPPOpenCLVisitor(mvSizeVisitor.getMvSizes());
+        GAPPOpenCLVisitor visitor = new GAPPOpenCLVisitor(mvSizeVisitor.getMvSizes(), numBlocks);
         try {
         	in.accept(visitor);
         } catch (Throwable error) {
@@ -39,7 +39,7 @@ import java.util.StringTokenizer;
 public class GAPPOpenCLVisitor extends de.gaalop.gapp.visitor.CFGGAPPVisitor
     implements de.gaalop.gapp.variables.GAPPVariableVisitor {
 
-    protected static int dotCount = 0;
+    protected int dotCount = 0;
     protected static final String lo = ".lo";
     protected static final String hi = ".hi";
     protected static final int maxOpenCLVectorSize = 16;
@@ -48,13 +48,20 @@ public class GAPPOpenCLVisitor extends de.gaalop.gapp.visitor.CFGGAPPVisitor
     protected Map<String,Map<Integer,String>> mvBladeMap = new HashMap<String,Map<Integer,String>>();
     protected StringBuilder result = new StringBuilder();
 
-    public GAPPOpenCLVisitor(Map<String, Integer> mvSizes) {
+    protected final int block;
+
+    public GAPPOpenCLVisitor(Map<String, Integer> mvSizes, int block) {
         this.mvSizes = mvSizes;
+        this.block = block;
+    }
+
+    protected String getVarName(final String mvName) {
+        return GAPPOpenCLCodeGenerator.getVarName(mvName, block);
     }
     
     @Override
     public Object visitResetMv(GAPPResetMv gappResetMv, Object arg) {
-        final String destMv = GAPPOpenCLCodeGenerator.getVarName(gappResetMv.getDestination().getName());
+        final String destMv = getVarName(gappResetMv.getDestination().getName());
         
         if(gpcMetaInfo && !destMv.startsWith(GAPPOpenCLCodeGenerator.tempMv))
             result.append("//#pragma gpc multivector ").append(destMv).append("\n");
@@ -69,7 +76,7 @@ public class GAPPOpenCLVisitor extends de.gaalop.gapp.visitor.CFGGAPPVisitor
 
     @Override
     public Object visitSetMv(GAPPSetMv gappSetMv, Object arg) {
-        final String destMv = GAPPOpenCLCodeGenerator.getVarName(gappSetMv.getDestination().getName());
+        final String destMv = getVarName(gappSetMv.getDestination().getName());
         Integer thisMvSetCount = mvBladeMap.get(destMv).size();
 
         int selCount = 0;
@@ -82,7 +89,7 @@ public class GAPPOpenCLVisitor extends de.gaalop.gapp.visitor.CFGGAPPVisitor
             result.append(" = ");
             if(gappSetMv.getSelectorsSrc().get(0).getSign() < 0)
                 result.append("-");
-            result.append(mvBladeMap.get(GAPPOpenCLCodeGenerator.getVarName(gappSetMv.getSource().getName())).get(gappSetMv.getSelectorsSrc().get(selCount++).getIndex()));
+            result.append(mvBladeMap.get(getVarName(gappSetMv.getSource().getName())).get(gappSetMv.getSelectorsSrc().get(selCount++).getIndex()));
             result.append(";\n");
 
             mvBladeMap.get(destMv).put(sel.getIndex(),bladeCoeff);
@@ -134,7 +141,7 @@ public class GAPPOpenCLVisitor extends de.gaalop.gapp.visitor.CFGGAPPVisitor
         }
         
         // get destVecBase
-        final String destVecBase = GAPPOpenCLCodeGenerator.getVarName(gappSetVector.getDestination().getName());
+        final String destVecBase = getVarName(gappSetVector.getDestination().getName());
 
         // collect all entries as string
         ArrayList<String> entries = new ArrayList<String>();
@@ -152,7 +159,7 @@ public class GAPPOpenCLVisitor extends de.gaalop.gapp.visitor.CFGGAPPVisitor
                 // get all entries from selectors
                 while (itSelector.hasNext())
                     entries.add(visitSelector(itSelector.next(),
-                                              GAPPOpenCLCodeGenerator.getVarName(pair.getSetOfVariable().getName())));
+                                              getVarName(pair.getSetOfVariable().getName())));
             }
         }
         
@@ -280,15 +287,15 @@ public class GAPPOpenCLVisitor extends de.gaalop.gapp.visitor.CFGGAPPVisitor
 
     @Override
     public Object visitCalculateMvCoeff(GAPPCalculateMvCoeff gappCalculateMvCoeff, Object arg) {
-        final String destMv = GAPPOpenCLCodeGenerator.getVarName(gappCalculateMvCoeff.getDestination().getName());
+        final String destMv = getVarName(gappCalculateMvCoeff.getDestination().getName());
         final Integer thisMvSetCount = mvBladeMap.get(destMv).size();
         final String bladeCoeff = getBladeCoeff(destMv,thisMvSetCount);
 
         result.append(bladeCoeff);
         result.append(" = ");
         visitCalculateOp(gappCalculateMvCoeff.getType(),
-                         GAPPOpenCLCodeGenerator.getVarName(gappCalculateMvCoeff.getOperand1().getName()),
-                         GAPPOpenCLCodeGenerator.getVarName(gappCalculateMvCoeff.getOperand2().getName()));
+                         getVarName(gappCalculateMvCoeff.getOperand1().getName()),
+                         getVarName(gappCalculateMvCoeff.getOperand2().getName()));
         result.append(";\n");
 
         mvBladeMap.get(destMv).put(gappCalculateMvCoeff.getDestination().getBladeIndex(),bladeCoeff);
@@ -365,7 +372,7 @@ public class GAPPOpenCLVisitor extends de.gaalop.gapp.visitor.CFGGAPPVisitor
     
     @Override
     public Object visitAssignMv(GAPPAssignMv gappAssignMv, Object arg) {
-        final String destMv = GAPPOpenCLCodeGenerator.getVarName(gappAssignMv.getDestination().getName());
+        final String destMv = getVarName(gappAssignMv.getDestination().getName());
         Integer thisMvSetCount = mvBladeMap.get(destMv).size();
 
         int selCount = 0;
@@ -386,7 +393,7 @@ public class GAPPOpenCLVisitor extends de.gaalop.gapp.visitor.CFGGAPPVisitor
 
     @Override
     public Object visitDotVectors(GAPPDotVectors gappDotVectors, Object arg) {
-        final String destMv = GAPPOpenCLCodeGenerator.getVarName(gappDotVectors.getDestination().getName());
+        final String destMv = getVarName(gappDotVectors.getDestination().getName());
         Integer thisMvSetCount = mvBladeMap.get(destMv).size();
 
         // print gpc meta info
@@ -401,7 +408,7 @@ public class GAPPOpenCLVisitor extends de.gaalop.gapp.visitor.CFGGAPPVisitor
                 put(gappDotVectors.getDestSelector().getIndex(),bladeCoeff);
 
         // special case for operands of size 1
-        final int operandSize = mvBladeMap.get(GAPPOpenCLCodeGenerator.getVarName(gappDotVectors.getParts().get(0).getName())).size();
+        final int operandSize = mvBladeMap.get(getVarName(gappDotVectors.getParts().get(0).getName())).size();
         if(operandSize == 1) {
             result.append(bladeCoeff).append(" = ");
             visitDotVectorsParallelMultiply(gappDotVectors,0);
@@ -564,7 +571,7 @@ public class GAPPOpenCLVisitor extends de.gaalop.gapp.visitor.CFGGAPPVisitor
 
     @Override
     public Object visitAssignInputsVector(GAPPAssignInputsVector gappAssignInputsVector, Object arg) {
-        final String inputsArrayName = GAPPOpenCLCodeGenerator.getVarName(GAPPOpenCLCodeGenerator.inputsVector);
+        final String inputsArrayName = getVarName(GAPPOpenCLCodeGenerator.inputsVector);
 
         // create bladeIndex map
         Map<Integer,String> bladeMap = new HashMap<Integer,String>();
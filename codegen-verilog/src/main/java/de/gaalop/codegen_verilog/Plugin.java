@@ -2,6 +2,8 @@ package de.gaalop.codegen_verilog;
 
 import de.gaalop.CodeGenerator;
 import de.gaalop.CodeGeneratorPlugin;
+import de.gaalop.ConfigurationProperty;
+import de.gaalop.ConfigurationProperty.Type;
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
 
@@ -19,6 +21,10 @@ public class Plugin implements CodeGeneratorPlugin {
 
     private Image icon;
 
+    // compare the operations in the common subexpression elimination by interned expressions
+    @ConfigurationProperty(type = Type.BOOLEAN)
+    public boolean internExpressions = false;
+
     public Plugin() {
         URL url = getClass().getResource("icon.png");
         if (url != null) {
@@ -32,9 +38,17 @@ public class Plugin implements CodeGeneratorPlugin {
         }
     }
 
+    public void setInternExpressions(boolean internExpressions) {
+        this.internExpressions = internExpressions;
+    }
+
+    public boolean getInternExpressions() {
+        return internExpressions;
+    }
+
     @Override
     public CodeGenerator createCodeGenerator() {
-        return VerilogCodegen.INSTANCE;
+        return new VerilogCodegen(this);
     }
 
     @Override
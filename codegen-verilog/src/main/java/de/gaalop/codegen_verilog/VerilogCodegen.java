@@ -19,14 +19,17 @@ import java.util.Collections;
 import java.nio.charset.Charset;
 import java.util.logging.Level;
 import java.util.logging.Logger;
-import org.omg.PortableInterceptor.INACTIVE;
 
 /**
  * This class facilitates Verilog code generation.
  */
-public enum VerilogCodegen implements CodeGenerator {
+public class VerilogCodegen implements CodeGenerator {
 
-    INSTANCE;
+    private final Plugin plugin;
+
+    VerilogCodegen(Plugin plugin) {
+        this.plugin = plugin;
+    }
 
     @Override
     public Set<OutputFile> generate(ControlFlowGraph in) {
@@ -83,8 +86,8 @@ public enum VerilogCodegen implements CodeGenerator {
         in.accept(new ConstantFolding());
       }
       // to start CSE remove the comments on the following line remove quadopt instead
-      in.accept(new CSE_Collector());
-      in.accept(new CSE_Collector());
+      in.accept(new CSE_Collector(plugin.getInternExpressions()));
+      in.accept(new CSE_Collector(plugin.getInternExpressions()));
       //in.accept(new Quadopt());
     	
  //   	cpp = new CppVisitor();
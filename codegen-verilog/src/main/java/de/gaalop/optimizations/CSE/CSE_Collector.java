@@ -24,6 +24,7 @@ import de.gaalop.dfg.Division;
 import de.gaalop.dfg.Equality;
 import de.gaalop.dfg.Exponentiation;
 import de.gaalop.dfg.Expression;
+import de.gaalop.dfg.ExpressionInterner;
 import de.gaalop.dfg.ExpressionVisitor;
 import de.gaalop.dfg.FloatConstant;
 import de.gaalop.dfg.FunctionArgument;
@@ -55,6 +56,18 @@ public class CSE_Collector implements ExpressionVisitor, ControlFlowVisitor {
     ControlFlowGraph cfg;
     AssignmentNode currentAssignment;
     OperationStore opstor;
+    boolean internExpressions;
+
+    public CSE_Collector() {
+        this(false);
+    }
+
+    /**
+     * @param internExpressions Compare the operations by interned expressions instead of their strings
+     */
+    public CSE_Collector(boolean internExpressions) {
+        this.internExpressions = internExpressions;
+    }
 
     public OperationStore getOpstor() {
         return opstor;
@@ -209,7 +222,7 @@ public class CSE_Collector implements ExpressionVisitor, ControlFlowVisitor {
     @Override   //cfg
     public void visit(StartNode node) {
         System.out.println("Starting CSE Collections");
-        opstor = new OperationStore();
+        opstor = internExpressions ? new OperationStore(new ExpressionInterner()) : new OperationStore();
 
         this.cfg = node.getGraph();
         node.getSuccessor().accept(this);
@@ -8,10 +8,12 @@ package de.gaalop.optimizations.CSE;
 import de.gaalop.cfg.AssignmentNode;
 import de.gaalop.dfg.BinaryOperation;
 import de.gaalop.dfg.Expression;
+import de.gaalop.dfg.ExpressionInterner;
 import de.gaalop.dfg.UnaryOperation;
 import de.gaalop.dfg.Variable;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.IdentityHashMap;
 import java.util.Iterator;
 
 /**
@@ -21,16 +23,45 @@ import java.util.Iterator;
 public class OperationStore {
 
    // HashSet<OperationToken> allops = new HashSet();
-    HashMap<Integer, OperationToken> allOpsSet = new HashMap();
-    HashMap<Integer, OperationToken> ReplaceAbleOpsSet = new HashMap();
+    HashMap<Object, OperationToken> allOpsSet = new HashMap();
+    HashMap<Object, OperationToken> ReplaceAbleOpsSet = new HashMap();
      private int savedoperations;
 
-    public HashMap<Integer, OperationToken> getReplaceAbleOpsSet() {
+    // compares the operations by their canonical expressions, if not null
+    private ExpressionInterner interner;
+    // the canonical expressions of the already visited nodes, the nodes are not changed during CSE
+    private IdentityHashMap<Expression, Expression> interned = new IdentityHashMap<Expression, Expression>();
+
+    public OperationStore() {
+    }
+
+    /**
+     * Creates a store, which compares the operations by their interned expressions
+     * instead of the hash codes of their strings, so comparing a deep operation takes constant time.
+     * @param interner The interner
+     */
+    public OperationStore(ExpressionInterner interner) {
+        this.interner = interner;
+    }
+
+    /**
+     * Returns the key of an operation
+     * @param e The operation
+     * @return The canonical expression, if an interner is used, otherwise the hash code of the string
+     */
+    private Object getKey(Expression e) {
+        if (interner != null) {
+            return interner.intern(e, interned);
+        }
+        return e.toString().hashCode();
+    }
+
+    public HashMap<Object, OperationToken> getReplaceAbleOpsSet() {
         return ReplaceAbleOpsSet;
     }
     public boolean add(Expression extoadd, AssignmentNode a) {
 
-        int exToAddToHash = extoadd.toString().hashCode();
+        Object exToAddToHash = getKey(extoadd);
         OperationToken optok = null;
         assert (extoadd instanceof BinaryOperation) || (extoadd instanceof UnaryOperation);
 
@@ -71,7 +102,7 @@ public class OperationStore {
 
     }
 
-    public HashMap<Integer, OperationToken> getAllOpsSet() {
+    public HashMap<Object, OperationToken> getAllOpsSet() {
         return allOpsSet;
     }
 
@@ -80,14 +111,14 @@ public class OperationStore {
 
 public boolean containsOperation (Expression e){
 
-return allOpsSet.containsKey(e.toString().hashCode());
+return allOpsSet.containsKey(getKey(e));
 
 }
 
 
 public boolean OperationShouldBeReplaced (Expression e){
 
-return ReplaceAbleOpsSet.containsKey(e.toString().hashCode());
+return ReplaceAbleOpsSet.containsKey(getKey(e));
 
 }
 
@@ -95,7 +126,8 @@ return ReplaceAbleOpsSet.containsKey(e.toString().hashCode());
 
 public String getReplacementID (Expression e){
     
-OperationToken optok = ReplaceAbleOpsSet.get(e.toString().hashCode());
+Object key = getKey(e);
+OperationToken optok = ReplaceAbleOpsSet.get(key);
 
 if (!optok.isUsedToReplace())
     { 
@@ -104,7 +136,7 @@ if (!optok.isUsedToReplace())
     }
 
 
- return ReplaceAbleOpsSet.get(e.toString().hashCode()).getIdentifier();
+ return ReplaceAbleOpsSet.get(key).getIdentifier();
 
 }
 
@@ -8,10 +8,18 @@ public class DifferentiaterCreator {
     
     private boolean optMaxima;
     private String maximaCommand;
+    private int maximaSessions;
+    private boolean optPolynomialSimplifier;
 
-    public DifferentiaterCreator(boolean optMaxima, String maximaCommand) {
+    public DifferentiaterCreator(boolean optMaxima, String maximaCommand, int maximaSessions) {
+        this(optMaxima, maximaCommand, maximaSessions, false);
+    }
+
+    public DifferentiaterCreator(boolean optMaxima, String maximaCommand, int maximaSessions, boolean optPolynomialSimplifier) {
         this.optMaxima = optMaxima;
         this.maximaCommand = maximaCommand;
+        this.maximaSessions = maximaSessions;
+        this.optPolynomialSimplifier = optPolynomialSimplifier;
     }
 
     /**
@@ -19,8 +27,10 @@ public class DifferentiaterCreator {
      * @return The differentiater
      */
     public Differentiater createDifferentiater() {
+        if (optPolynomialSimplifier)
+            return new PolynomialDifferentiater();
         return (optMaxima)
-                ? new MaximaDifferentiater(maximaCommand)
+                ? new MaximaDifferentiater(maximaCommand, maximaSessions)
                 : new CFGDifferentiater();
     }
     
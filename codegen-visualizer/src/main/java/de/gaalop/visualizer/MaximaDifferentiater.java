@@ -9,7 +9,7 @@ import de.gaalop.tba.cfgImport.optimization.maxima.MaximaConnection;
 import de.gaalop.tba.cfgImport.optimization.maxima.MaximaInput;
 import de.gaalop.tba.cfgImport.optimization.maxima.MaximaOutput;
 import de.gaalop.tba.cfgImport.optimization.maxima.MaximaRoutines;
-import de.gaalop.tba.cfgImport.optimization.maxima.ProcessBuilderMaximaConnection;
+import de.gaalop.tba.cfgImport.optimization.maxima.MaximaSessionPool;
 import java.util.LinkedList;
 import java.util.ListIterator;
 import java.util.logging.Level;
@@ -22,15 +22,17 @@ import java.util.logging.Logger;
 public class MaximaDifferentiater implements Differentiater {
     
     private String maximaCommand;
+    private int maximaSessions;
 
-    public MaximaDifferentiater(String maximaCommand) {
+    public MaximaDifferentiater(String maximaCommand, int maximaSessions) {
         this.maximaCommand = maximaCommand;
+        this.maximaSessions = maximaSessions;
     }
  
     @Override
     public LinkedList<AssignmentNode> differentiate(LinkedList<AssignmentNode> toDerive, MultivectorComponent variable) {
         try {
-            MaximaConnection connection = new ProcessBuilderMaximaConnection(maximaCommand);
+            MaximaConnection connection = MaximaSessionPool.createConnection(maximaCommand, maximaSessions);
             
             MaximaInput input = new MaximaInput();
             input.add("display2d:false;"); // very important!
@@ -24,6 +24,7 @@ import de.gaalop.visualizer.gui.SettingsPanel;
 import de.gaalop.visualizer.gui.VisiblePanel;
 import de.gaalop.visualizer.zerofinding.DiscreteCubeMethod;
 import de.gaalop.visualizer.zerofinding.GradientMethod;
+import de.gaalop.visualizer.zerofinding.OctreeMethod;
 import de.gaalop.visualizer.zerofinding.PrepareZerofinder;
 import de.gaalop.visualizer.zerofinding.RayMethod;
 import de.gaalop.visualizer.zerofinding.ZeroFinder;
@@ -57,6 +58,7 @@ import javax.swing.event.ChangeEvent;
 public class NewDrawSettingsCodeGen extends DrawSettings implements CodeGenerator, Rendering {
     
     private String lwJglNativePath;
+    private boolean jitCompilation;
     
     private LinkedList<AssignmentNode> graphAssignmentNodes;
     private Differentiater differentiater;
@@ -75,8 +77,9 @@ public class NewDrawSettingsCodeGen extends DrawSettings implements CodeGenerato
     
     private boolean renderIn2d; //for cr4d
 
-    public NewDrawSettingsCodeGen(String lwJglNativePath) {
+    public NewDrawSettingsCodeGen(String lwJglNativePath, boolean jitCompilation) {
         this.lwJglNativePath = lwJglNativePath;
+        this.jitCompilation = jitCompilation;
         
         jButton_Repaint.addActionListener(new ActionListener() {
             @Override
@@ -159,6 +162,7 @@ public class NewDrawSettingsCodeGen extends DrawSettings implements CodeGenerato
         zerofinderList.add(defaultZeroFinder);
         zerofinderList.add(new RayMethod());
         zerofinderList.add(new DiscreteCubeMethod());
+        zerofinderList.add(new OctreeMethod());
         setZerofinderMethods(zerofinderList, defaultZeroFinder);
     }
 
@@ -174,7 +178,7 @@ public class NewDrawSettingsCodeGen extends DrawSettings implements CodeGenerato
         in.accept(collector);
         graphAssignmentNodes = collector.getAssignmentNodes();
         
-        differentiater = new DifferentiaterCreator(in.globalSettings.optMaxima, in.globalSettings.maximaCommand).createDifferentiater();
+        differentiater = new DifferentiaterCreator(in.globalSettings.optMaxima, in.globalSettings.maximaCommand, in.globalSettings.maximaSessions, in.globalSettings.optPolynomialSimplifier).createDifferentiater();
         renderingExpressions = in.getRenderingExpressions();
         colors = ColorEvaluater.getColors(in);
         
@@ -203,6 +207,7 @@ public class NewDrawSettingsCodeGen extends DrawSettings implements CodeGenerato
         
         final ZeroFinder curZeroFinder = getSelectedZeroFinder();
         curZeroFinder.setDifferentiater(differentiater);
+        curZeroFinder.setJitCompilation(jitCompilation);
 
         jLabel_Info.setText("Please wait while rendering ...");
         jLabel_Info.repaint();
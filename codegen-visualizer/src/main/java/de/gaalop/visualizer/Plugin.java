@@ -21,6 +21,9 @@ public class Plugin extends Observable implements CodeGeneratorPlugin {
     @ConfigurationProperty(type = Type.DIRPATH)
     public String lwJglNativePath = "/usr/lib/jni/";
 
+    @ConfigurationProperty(type = Type.BOOLEAN)
+    public boolean jitCompilation = false;
+
     private Log log = LogFactory.getLog(Plugin.class);
 
     private Image icon;
@@ -40,7 +43,7 @@ public class Plugin extends Observable implements CodeGeneratorPlugin {
 
     @Override
     public CodeGenerator createCodeGenerator() {
-        return new NewDrawSettingsCodeGen(lwJglNativePath);
+        return new NewDrawSettingsCodeGen(lwJglNativePath, jitCompilation);
     }
 
     @Override
@@ -70,5 +73,13 @@ public class Plugin extends Observable implements CodeGeneratorPlugin {
     public void setLwJglNativePath(String lwJglNativePath) {
         this.lwJglNativePath = lwJglNativePath;
     }
+
+    public boolean isJitCompilation() {
+        return jitCompilation;
+    }
+
+    public void setJitCompilation(boolean jitCompilation) {
+        this.jitCompilation = jitCompilation;
+    }
     
 }
@@ -0,0 +1,82 @@
+package de.gaalop.visualizer;
+
+import java.util.Arrays;
+import java.util.LinkedList;
+
+/**
+ * Represents a growing list of points in 3d space,
+ * whose coordinates are stored consecutively in a float array
+ * @author Christian Steinmetz
+ */
+public class PointBuffer {
+
+    private float[] coordinates;
+    private int size;
+
+    public PointBuffer() {
+        this(1024);
+    }
+
+    /**
+     * Creates an empty buffer
+     * @param capacity The number of points, the buffer can hold before it grows
+     */
+    public PointBuffer(int capacity) {
+        coordinates = new float[3 * Math.max(capacity, 1)];
+    }
+
+    /**
+     * Appends a point
+     * @param x The x coordinate
+     * @param y The y coordinate
+     * @param z The z coordinate
+     */
+    public void add(float x, float y, float z) {
+        if (3 * size + 3 > coordinates.length)
+            coordinates = Arrays.copyOf(coordinates, 2 * coordinates.length);
+        int index = 3 * size;
+        coordinates[index] = x;
+        coordinates[index + 1] = y;
+        coordinates[index + 2] = z;
+        size++;
+    }
+
+    /**
+     * Appends all points of another buffer
+     * @param other The other buffer
+     */
+    public void addAll(PointBuffer other) {
+        if (3 * (size + other.size) > coordinates.length)
+            coordinates = Arrays.copyOf(coordinates, Math.max(2 * coordinates.length, 3 * (size + other.size)));
+        System.arraycopy(other.coordinates, 0, coordinates, 3 * size, 3 * other.size);
+        size += other.size;
+    }
+
+    /**
+     * Returns the number of points
+     * @return The number of points
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Returns the coordinates of all points
+     * @return The array x0,y0,z0,x1,y1,z1,... with 3*size() entries
+     */
+    public float[] getCoordinates() {
+        return Arrays.copyOf(coordinates, 3 * size);
+    }
+
+    /**
+     * Converts the buffer into a list of points
+     * @return The list of points
+     */
+    public LinkedList<Point3d> toPoints() {
+        LinkedList<Point3d> points = new LinkedList<Point3d>();
+        for (int i = 0; i < 3 * size; i += 3)
+            points.add(new Point3d(coordinates[i], coordinates[i + 1], coordinates[i + 2]));
+        return points;
+    }
+
+}
@@ -0,0 +1,26 @@
+package de.gaalop.visualizer;
+
+import de.gaalop.cfg.AssignmentNode;
+import de.gaalop.dfg.MultivectorComponent;
+import de.gaalop.tba.cfgImport.optimization.polynomial.PolynomialSimplifier;
+import java.util.LinkedList;
+
+/**
+ * Differentiates an Expression directly in Gaalop with respect to an
+ * Multivector component and simplifies the result in-process with a PolynomialSimplifier
+ * @author Christian
+ */
+public class PolynomialDifferentiater implements Differentiater {
+
+    private PolynomialSimplifier simplifier = new PolynomialSimplifier();
+
+    @Override
+    public LinkedList<AssignmentNode> differentiate(LinkedList<AssignmentNode> toDerive, MultivectorComponent variable) {
+        LinkedList<AssignmentNode> result = new CFGDifferentiater().differentiate(toDerive, variable);
+        for (AssignmentNode node : result) {
+            node.setValue(simplifier.simplify(node.getValue()));
+        }
+        return result;
+    }
+
+}
@@ -3,6 +3,7 @@ package de.gaalop.visualizer.zerofinding;
 import de.gaalop.cfg.AssignmentNode;
 import de.gaalop.dfg.MultivectorComponent;
 import de.gaalop.visualizer.Point3d;
+import de.gaalop.visualizer.PointBuffer;
 import java.util.HashMap;
 import java.util.LinkedList;
 import java.util.logging.Level;
@@ -14,14 +15,21 @@ import java.util.logging.Logger;
  */
 public class DiscreteCubeMethod extends ZeroFinder {
 
+    static final MultivectorComponent X = new MultivectorComponent("_V_X", 0);
+    static final MultivectorComponent Y = new MultivectorComponent("_V_Y", 0);
+    static final MultivectorComponent Z = new MultivectorComponent("_V_Z", 0);
+
     @Override
     public HashMap<String, LinkedList<Point3d>> findZeroLocations(HashMap<MultivectorComponent, Double> globalValues, LinkedList<AssignmentNode> assignmentNodes, HashMap<String, String> mapSettings, boolean renderIn2d) {
-        HashMap<String, LinkedList<Point3d>> points = new HashMap<String, LinkedList<Point3d>>();
+        HashMap<String, PointBuffer> points = new HashMap<String, PointBuffer>();
 
         int a = Integer.parseInt(mapSettings.get("cubeEdgeLength"));
         float dist = Float.parseFloat(mapSettings.get("density"));
         double epsilon = Double.parseDouble(mapSettings.get("epsilon"));
         
+        // the tape is only evaluated in lanes, which are always interpreted, so it is not jit compiled
+        InstructionTape tape = new InstructionTape(assignmentNodes, X, Y, Z);
+
         int processorCount = Runtime.getRuntime().availableProcessors();
         
         DiscreteCubeMethodThread[] threads = new DiscreteCubeMethodThread[processorCount];
@@ -29,7 +37,7 @@ public class DiscreteCubeMethod extends ZeroFinder {
             int from = (i*2*a)/processorCount - a;
             int to = ((i != processorCount-1) ? ((i+1)*2*a)/processorCount : 2*a) - a; 
 
-            threads[i] = new DiscreteCubeMethodThread(from, to, a, dist, globalValues, assignmentNodes, epsilon, renderIn2d);
+            threads[i] = new DiscreteCubeMethodThread(from, to, a, dist, globalValues, tape, epsilon, renderIn2d);
             threads[i].start();
         }
         
@@ -47,7 +55,11 @@ public class DiscreteCubeMethod extends ZeroFinder {
             }
         }
         
-        return points;
+        HashMap<String, LinkedList<Point3d>> result = new HashMap<String, LinkedList<Point3d>>();
+        for (String point: points.keySet()) 
+            if (points.get(point).size() > 0)
+                result.put(point, points.get(point).toPoints());
+        return result;
     }
 
     @Override
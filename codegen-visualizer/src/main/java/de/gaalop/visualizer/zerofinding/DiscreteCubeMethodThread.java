@@ -1,16 +1,18 @@
 package de.gaalop.visualizer.zerofinding;
 
-import de.gaalop.cfg.AssignmentNode;
 import de.gaalop.dfg.MultivectorComponent;
-import de.gaalop.visualizer.Point3d;
+import de.gaalop.visualizer.PointBuffer;
 import java.util.HashMap;
-import java.util.LinkedList;
+import java.util.LinkedHashMap;
 
 /**
  * Implements a zero finder thread, which samples a cube
  * @author christian
  */
 public class DiscreteCubeMethodThread extends Thread {
+
+    /** The number of sample points, that are evaluated at once */
+    private static final int TILE_SIZE = 256;
     
     private double epsilon;
     
@@ -19,21 +21,22 @@ public class DiscreteCubeMethodThread extends Thread {
     
     private int a;
     private float dist;
-    private LinkedList<AssignmentNode> assignmentNodes;
+    private InstructionTape tape;
     
     private HashMap<MultivectorComponent, Double> globalValues;
     
     private boolean renderIn2d;
     
-    public HashMap<String, LinkedList<Point3d>> points = new HashMap<String, LinkedList<Point3d>>();
+    /** The found points of every product, the buffers can be empty */
+    public HashMap<String, PointBuffer> points = new HashMap<String, PointBuffer>();
 
-    public DiscreteCubeMethodThread(int fromX_Incl, int toX_Excl, int a, float dist, HashMap<MultivectorComponent, Double> globalValues, LinkedList<AssignmentNode> assignmentNodes, double epsilon, boolean renderIn2d) {
+    public DiscreteCubeMethodThread(int fromX_Incl, int toX_Excl, int a, float dist, HashMap<MultivectorComponent, Double> globalValues, InstructionTape tape, double epsilon, boolean renderIn2d) {
         this.fromX_Incl = fromX_Incl;
         this.toX_Excl = toX_Excl;
         this.a = a;
         this.dist = dist;
         this.globalValues = globalValues;
-        this.assignmentNodes = assignmentNodes;
+        this.tape = tape;
         this.epsilon = epsilon;
         this.renderIn2d = renderIn2d;
     }
@@ -47,92 +50,112 @@ public class DiscreteCubeMethodThread extends Thread {
     }
     
     private void run2d() {
-        Point3d p = new Point3d(0, 0, 0);
-        
-        HashMap<MultivectorComponent, Double> globalValuesL = new HashMap<MultivectorComponent, Double>(globalValues);
-        globalValuesL.put(new MultivectorComponent("_V_Z", 0), p.z);
-        
-        for (float x = fromX_Incl; x < toX_Excl; x += dist) {
-            for (float y = -a; y <= a; y += dist) {
-
-                    p.x = x;
-                    p.y = y;
+        float[] samples = getSamples(a, dist);
+        Sampler sampler = new Sampler();
+        for (float x = fromX_Incl; x < toX_Excl; x += dist) 
+            for (float y: samples) 
+                sampler.add(x, y, 0);
+        sampler.flush();
+    }
+    
+    private void run3d() {
+        float[] samples = getSamples(a, dist);
+        Sampler sampler = new Sampler();
+        for (float x = fromX_Incl; x < toX_Excl; x += dist) 
+            for (float y: samples) 
+                for (float z: samples) 
+                    sampler.add(x, y, z);
+        sampler.flush();
+    }
 
-                    HashMap<MultivectorComponent, Double> values = new HashMap<MultivectorComponent, Double>(globalValuesL);
-                    values.put(new MultivectorComponent("_V_X", 0), p.x);
-                    values.put(new MultivectorComponent("_V_Y", 0), p.y);
+    /**
+     * Returns the sample coordinates in [-a, a] of an axis
+     * @param a The half edge length of the cube
+     * @param dist The distance of two samples
+     * @return The sample coordinates
+     */
+    static float[] getSamples(int a, float dist) {
+        int count = 0;
+        for (float v = -a; v <= a; v += dist) 
+            count++;
+        float[] samples = new float[count];
+        int i = 0;
+        for (float v = -a; v <= a; v += dist) 
+            samples[i++] = v;
+        return samples;
+    }
 
-                    Evaluater evaluater = new Evaluater(values);
-                    evaluater.evaluate(assignmentNodes);
+    /**
+     * Collects sample points in a tile and evaluates the tape on the whole tile at once
+     */
+    private class Sampler {
 
-                    HashMap<String, Double> squaredAndSummedValues = new HashMap<String, Double>();
-                    for (MultivectorComponent mvC : values.keySet()) {
+        private final double[] initial = tape.createRegisters(globalValues);
+        private final double[][] lanes = tape.createLanes(globalValues, TILE_SIZE);
+        private final double[] laneX = lanes[tape.getSlot(DiscreteCubeMethod.X)];
+        private final double[] laneY = lanes[tape.getSlot(DiscreteCubeMethod.Y)];
+        private final double[] laneZ = lanes[tape.getSlot(DiscreteCubeMethod.Z)];
+        private final float[] xs = new float[TILE_SIZE];
+        private final float[] ys = new float[TILE_SIZE];
+        private final float[] zs = new float[TILE_SIZE];
+        private int count = 0;
 
-                        String name = mvC.getName();
-                        if (name.startsWith("_V_PRODUCT")) {
-                            if (!squaredAndSummedValues.containsKey(name)) {
-                                squaredAndSummedValues.put(name, new Double(0));
-                            }
+        private final PointBuffer[] productPoints;
+        private final int[][] productSlots;
 
-                            double value = values.get(mvC);
-                            squaredAndSummedValues.put(name, squaredAndSummedValues.get(name) + value * value);
-                        }
-                    }
-                    for (String key : squaredAndSummedValues.keySet()) {
-                        if (Math.sqrt(squaredAndSummedValues.get(key)) <= epsilon) {
-                            //output point!
-                            if (!points.containsKey(key)) {
-                                points.put(key, new LinkedList<Point3d>());
-                            }
-                            points.get(key).add(new Point3d(p));
-                        }
-                    }
+        public Sampler() {
+            LinkedHashMap<String, int[]> products = tape.getSlotsByName("_V_PRODUCT");
+            productPoints = new PointBuffer[products.size()];
+            productSlots = products.values().toArray(new int[0][]);
+            int i = 0;
+            for (String name: products.keySet()) {
+                productPoints[i] = new PointBuffer();
+                points.put(name, productPoints[i]);
+                i++;
             }
         }
-    }
-    
-    private void run3d() {
-        Point3d p = new Point3d(0, 0, 0);
-        for (float x = fromX_Incl; x < toX_Excl; x += dist) {
-            for (float y = -a; y <= a; y += dist) {
-                for (float z = -a; z <= a; z += dist) {
 
-                    p.x = x;
-                    p.y = y;
-                    p.z = z;
-
-                    HashMap<MultivectorComponent, Double> values = new HashMap<MultivectorComponent, Double>(globalValues);
-                    values.put(new MultivectorComponent("_V_X", 0), p.x);
-                    values.put(new MultivectorComponent("_V_Y", 0), p.y);
-                    values.put(new MultivectorComponent("_V_Z", 0), p.z);
-
-                    Evaluater evaluater = new Evaluater(values);
-                    evaluater.evaluate(assignmentNodes);
+        /**
+         * Adds a sample point to the tile and evaluates the tile, if it is full
+         * @param x The x coordinate
+         * @param y The y coordinate
+         * @param z The z coordinate
+         */
+        public void add(float x, float y, float z) {
+            xs[count] = x;
+            ys[count] = y;
+            zs[count] = z;
+            laneX[count] = x;
+            laneY[count] = y;
+            laneZ[count] = z;
+            count++;
+            if (count == TILE_SIZE) 
+                flush();
+        }
 
-                    HashMap<String, Double> squaredAndSummedValues = new HashMap<String, Double>();
-                    for (MultivectorComponent mvC : values.keySet()) {
+        /**
+         * Evaluates the tape on all sample points of the tile and outputs every point for every product,
+         * whose squared and summed components are near to zero
+         */
+        public void flush() {
+            if (count == 0) return;
+            tape.evaluateLanes(lanes, count);
 
-                        String name = mvC.getName();
-                        if (name.startsWith("_V_PRODUCT")) {
-                            if (!squaredAndSummedValues.containsKey(name)) {
-                                squaredAndSummedValues.put(name, new Double(0));
-                            }
+            for (int p = 0; p < productSlots.length; p++) {
+                int[] slots = productSlots[p];
+                PointBuffer buffer = productPoints[p];
+                for (int i = 0; i < count; i++) {
+                    double squaredAndSummed = 0;
+                    for (int slot: slots) 
+                        squaredAndSummed += lanes[slot][i] * lanes[slot][i];
 
-                            double value = values.get(mvC);
-                            squaredAndSummedValues.put(name, squaredAndSummedValues.get(name) + value * value);
-                        }
-                    }
-                    for (String key : squaredAndSummedValues.keySet()) {
-                        if (Math.sqrt(squaredAndSummedValues.get(key)) <= epsilon) {
-                            //output point!
-                            if (!points.containsKey(key)) {
-                                points.put(key, new LinkedList<Point3d>());
-                            }
-                            points.get(key).add(new Point3d(p));
-                        }
-                    }
+                    if (Math.sqrt(squaredAndSummed) <= epsilon) 
+                        buffer.add(xs[i], ys[i], zs[i]);
                 }
             }
+            // every sample point starts with the global values
+            tape.restoreAssignedLanes(lanes, initial, count);
+            count = 0;
         }
     }
     
@@ -142,6 +142,12 @@ public class GradientMethod extends PrepareZerofinder {
     private LinkedList<Point3d> searchZeroLocations(CodePiece cp, HashMap<MultivectorComponent, Double> globalValues, int a, float dist, double epsilon, int max_n, boolean renderIn2d) {
         LinkedList<Point3d> points = new LinkedList<Point3d>();
 
+        String product = cp.nameOfMultivector;
+        InstructionTape tape = createTape(cp, 
+                new MultivectorComponent("_V_ox", 0), new MultivectorComponent("_V_oy", 0), new MultivectorComponent("_V_oz", 0),
+                new MultivectorComponent(product, 0), new MultivectorComponent(product+"Dx", 0),
+                new MultivectorComponent(product+"Dy", 0), new MultivectorComponent(product+"Dz", 0));
+
         int processorCount = Runtime.getRuntime().availableProcessors();
         
         GradientMethodThread[] threads = new GradientMethodThread[processorCount];
@@ -149,7 +155,7 @@ public class GradientMethod extends PrepareZerofinder {
             float from = (i*2*a)/((float) processorCount) - a;
             float to = ((i != processorCount-1) ? ((i+1)*2*a)/((float) processorCount) : 2*a) - a; 
 
-            threads[i] = new GradientMethodThread(from, to, a, dist, globalValues, cp, epsilon, max_n, renderIn2d);
+            threads[i] = new GradientMethodThread(from, to, a, dist, globalValues, product, tape, epsilon, max_n, renderIn2d);
             threads[i].start();
         }
 
@@ -20,7 +20,18 @@ public class GradientMethodThread extends Thread {
     
     private HashMap<MultivectorComponent, Double> globalValues;
     
-    private CodePiece codePiece;
+    private InstructionTape tape;
+
+    /** The initial and the reused register file of this thread and the registers of the inputs and outputs */
+    private double[] initial;
+    private double[] registers;
+    private int slotOX;
+    private int slotOY;
+    private int slotOZ;
+    private int slotF;
+    private int slotDx;
+    private int slotDy;
+    private int slotDz;
             
     public LinkedList<Point3d> points = new LinkedList<Point3d>();
     
@@ -29,13 +40,16 @@ public class GradientMethodThread extends Thread {
     
     private boolean renderIn2d;
 
-    public GradientMethodThread(float fromOX_Incl, float toOX_Excl, float a, float dist, HashMap<MultivectorComponent, Double> globalValues, CodePiece codePiece, double epsilon, int max_n, boolean renderIn2d) {
+    private String productName;
+
+    public GradientMethodThread(float fromOX_Incl, float toOX_Excl, float a, float dist, HashMap<MultivectorComponent, Double> globalValues, String productName, InstructionTape tape, double epsilon, int max_n, boolean renderIn2d) {
         this.fromOX_Incl = fromOX_Incl;
         this.toOX_Excl = toOX_Excl;
         this.a = a;
         this.dist = dist;
         this.globalValues = globalValues;
-        this.codePiece = codePiece;
+        this.tape = tape;
+        this.productName = productName;
         this.epsilon = epsilon;
         this.max_n = max_n;
         this.renderIn2d = renderIn2d;
@@ -43,6 +57,16 @@ public class GradientMethodThread extends Thread {
 
     @Override
     public void run() {
+        initial = tape.createRegisters(globalValues);
+        registers = tape.createRegisters(globalValues);
+        slotOX = tape.getSlot(new MultivectorComponent("_V_ox", 0));
+        slotOY = tape.getSlot(new MultivectorComponent("_V_oy", 0));
+        slotOZ = tape.getSlot(new MultivectorComponent("_V_oz", 0));
+        slotF = tape.getSlot(new MultivectorComponent(productName, 0));
+        slotDx = tape.getSlot(new MultivectorComponent(productName+"Dx", 0));
+        slotDy = tape.getSlot(new MultivectorComponent(productName+"Dy", 0));
+        slotDz = tape.getSlot(new MultivectorComponent(productName+"Dz", 0));
+
         if (renderIn2d)
             run2d();
         else 
@@ -118,22 +142,15 @@ public class GradientMethodThread extends Thread {
      * @return The evaluation result
      */
     private EvaluationResult evaluate(float ox, float oy, float oz) {
-        final String productName = codePiece.nameOfMultivector;
-        HashMap<MultivectorComponent, Double> valuesIn = new HashMap<MultivectorComponent, Double>(globalValues);
-        valuesIn.put(new MultivectorComponent("_V_ox", 0), (double) ox);
-        valuesIn.put(new MultivectorComponent("_V_oy", 0), (double) oy);
-        valuesIn.put(new MultivectorComponent("_V_oz", 0), (double) oz);
-        Evaluater evaluater = new Evaluater(valuesIn);
-        evaluater.evaluate(codePiece);
-        HashMap<MultivectorComponent, Double> valuesOut = evaluater.getValues();
+        tape.restoreAssigned(registers, initial);
+        registers[slotOX] = ox;
+        registers[slotOY] = oy;
+        registers[slotOZ] = oz;
+        tape.evaluate(registers);
         
         EvaluationResult result = new EvaluationResult();
-        result.f = valuesOut.get(new MultivectorComponent(productName,0));
-        result.gradient = new VecN3(
-                valuesOut.get(new MultivectorComponent(productName+"Dx",0)),
-                valuesOut.get(new MultivectorComponent(productName+"Dy",0)),
-                valuesOut.get(new MultivectorComponent(productName+"Dz",0))
-                );
+        result.f = registers[slotF];
+        result.gradient = new VecN3(registers[slotDx], registers[slotDy], registers[slotDz]);
         return result;
     }
     
@@ -0,0 +1,557 @@
+package de.gaalop.visualizer.zerofinding;
+
+import de.gaalop.cfg.AssignmentNode;
+import de.gaalop.dfg.*;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Lowers a list of assignment nodes once into a flat tape of instructions,
+ * that work on a register file of doubles.
+ *
+ * Every multivector component and every constant gets its own register,
+ * the temporary values of an assignment use registers behind them.
+ * The slots of the variables are resolved at compile time,
+ * so that an evaluation of the tape does not allocate anything.
+ * A tape can be shared between threads, every thread uses its own register file.
+ *
+ * @author Christian Steinmetz
+ */
+public class InstructionTape {
+
+    // Every instruction consists of the opcode, the destination register and two operand registers
+    static final int INSTRUCTION_SIZE = 4;
+
+    static final int MOV = 0;
+    static final int ADD = 1;
+    static final int SUB = 2;
+    static final int MUL = 3;
+    static final int DIV = 4;
+    static final int NEG = 5;
+    static final int POW = 6;
+    static final int SQUARE = 7;
+    static final int ABS = 8;
+    static final int ACOS = 9;
+    static final int ASIN = 10;
+    static final int ATAN = 11;
+    static final int CEIL = 12;
+    static final int COS = 13;
+    static final int EXP = 14;
+    static final int FACT = 15;
+    static final int FLOOR = 16;
+    static final int LOG = 17;
+    static final int SIN = 18;
+    static final int SQRT = 19;
+    static final int TAN = 20;
+
+    final int[] code;
+    final int registerCount;
+
+    /** The positions in the code after every assignment */
+    final int[] statementEnds;
+
+    /** The first register of the temporary values */
+    final int temporaryBase;
+
+    /** The registers of the variables, that are assigned by the tape */
+    final int[] assignedSlots;
+
+    /** The registers of the constants and their values */
+    final int[] constantSlots;
+    final double[] constantValues;
+
+    private final LinkedHashMap<MultivectorComponent, Integer> slots;
+
+    /** The compiled tape, null if the tape is interpreted */
+    private TapeProgram program;
+
+    /**
+     * Compiles a list of assignment nodes
+     * @param nodes The assignment nodes
+     * @param inputs Multivector components, that get a register even if they are not used by the nodes
+     */
+    public InstructionTape(List<AssignmentNode> nodes, MultivectorComponent... inputs) {
+        Compiler compiler = new Compiler();
+        for (MultivectorComponent input : inputs)
+            compiler.getSlot(input);
+        for (AssignmentNode node : nodes)
+            compiler.collect(node);
+        compiler.temporaryBase = compiler.slotCount;
+        statementEnds = new int[nodes.size()];
+        int statement = 0;
+        for (AssignmentNode node : nodes) {
+            compiler.compile(node);
+            statementEnds[statement++] = compiler.codeLength;
+        }
+
+        code = Arrays.copyOf(compiler.code, compiler.codeLength);
+        temporaryBase = compiler.temporaryBase;
+        boolean[] assigned = new boolean[temporaryBase];
+        int assignedCount = 0;
+        for (int pc = 0; pc < code.length; pc += INSTRUCTION_SIZE) {
+            int dest = code[pc + 1];
+            if (dest < temporaryBase && !assigned[dest]) {
+                assigned[dest] = true;
+                assignedCount++;
+            }
+        }
+        assignedSlots = new int[assignedCount];
+        for (int slot = 0, i = 0; slot < temporaryBase; slot++)
+            if (assigned[slot])
+                assignedSlots[i++] = slot;
+        registerCount = compiler.temporaryBase + compiler.maxTemporaries;
+        slots = compiler.slots;
+        constantSlots = new int[compiler.constants.size()];
+        constantValues = new double[compiler.constants.size()];
+        int i = 0;
+        for (Map.Entry<Double, Integer> constant : compiler.constants.entrySet()) {
+            constantValues[i] = constant.getKey();
+            constantSlots[i] = constant.getValue();
+            i++;
+        }
+    }
+
+    /**
+     * Returns the register of a multivector component
+     * @param component The multivector component
+     * @return The index of the register, -1 if the component is unknown
+     */
+    public int getSlot(MultivectorComponent component) {
+        Integer slot = slots.get(component);
+        return (slot != null) ? slot : -1;
+    }
+
+    /**
+     * Returns the registers of all components of the multivectors, whose names start with a prefix
+     * @param prefix The prefix
+     * @return The map of the names of the multivectors to the registers of their components
+     */
+    public LinkedHashMap<String, int[]> getSlotsByName(String prefix) {
+        LinkedHashMap<String, int[]> result = new LinkedHashMap<String, int[]>();
+        for (Map.Entry<MultivectorComponent, Integer> entry : slots.entrySet()) {
+            String name = entry.getKey().getName();
+            if (name.startsWith(prefix)) {
+                int[] old = result.get(name);
+                int[] slotsOfName = (old == null) ? new int[1] : Arrays.copyOf(old, old.length + 1);
+                slotsOfName[slotsOfName.length - 1] = entry.getValue();
+                result.put(name, slotsOfName);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Creates a new register file, that contains the constants and the given global values.
+     * All other registers are NaN.
+     * @param globalValues The global values
+     * @return The register file
+     */
+    public double[] createRegisters(Map<MultivectorComponent, Double> globalValues) {
+        double[] registers = new double[registerCount];
+        Arrays.fill(registers, Double.NaN);
+        for (Map.Entry<MultivectorComponent, Double> global : globalValues.entrySet()) {
+            Integer slot = slots.get(global.getKey());
+            if (slot != null)
+                registers[slot] = global.getValue();
+        }
+        for (int i = 0; i < constantSlots.length; i++)
+            registers[constantSlots[i]] = constantValues[i];
+        return registers;
+    }
+
+    /**
+     * Restores the registers of all variables, that are assigned by the tape, from an initial register file.
+     * A register file, that is reused for several evaluations, has to be restored before every evaluation,
+     * otherwise a variable, that is read before it is assigned (e.g. a global value), has the value of the last evaluation.
+     * All other registers are not changed by an evaluation.
+     * @param r The register file
+     * @param initial The initial register file, that was created by createRegisters
+     */
+    public void restoreAssigned(double[] r, double[] initial) {
+        for (int slot : assignedSlots)
+            r[slot] = initial[slot];
+    }
+
+    /**
+     * Compiles the tape into a Java class, which evaluates the tape from now on.
+     * Has to be called before the tape is shared between threads.
+     * @return true, if the tape has been compiled, false if the tape stays interpreted
+     */
+    public boolean compileToBytecode() {
+        program = TapeJitCompiler.compile(this);
+        return program != null;
+    }
+
+    /**
+     * Evaluates the tape
+     * @param r The register file, that was created by createRegisters
+     */
+    public void evaluate(double[] r) {
+        if (program != null) {
+            program.evaluate(r);
+            return;
+        }
+        final int[] code = this.code;
+        for (int pc = 0; pc < code.length; pc += INSTRUCTION_SIZE) {
+            int dest = code[pc + 1];
+            double a = r[code[pc + 2]];
+            switch (code[pc]) {
+                case MOV: r[dest] = a; break;
+                case ADD: r[dest] = a + r[code[pc + 3]]; break;
+                case SUB: r[dest] = a - r[code[pc + 3]]; break;
+                case MUL: r[dest] = a * r[code[pc + 3]]; break;
+                case DIV: r[dest] = a / r[code[pc + 3]]; break;
+                case NEG: r[dest] = -a; break;
+                case POW: r[dest] = Math.pow(a, r[code[pc + 3]]); break;
+                case SQUARE: r[dest] = a * a; break;
+                case ABS: r[dest] = Math.abs(a); break;
+                case ACOS: r[dest] = Math.acos(a); break;
+                case ASIN: r[dest] = Math.asin(a); break;
+                case ATAN: r[dest] = Math.atan(a); break;
+                case CEIL: r[dest] = Math.ceil(a); break;
+                case COS: r[dest] = Math.cos(a); break;
+                case EXP: r[dest] = Math.exp(a); break;
+                case FACT: r[dest] = factorial(a); break;
+                case FLOOR: r[dest] = Math.floor(a); break;
+                case LOG: r[dest] = Math.log(a); break;
+                case SIN: r[dest] = Math.sin(a); break;
+                case SQRT: r[dest] = Math.sqrt(a); break;
+                case TAN: r[dest] = Math.tan(a); break;
+                default: throw new IllegalStateException("Unknown opcode " + code[pc]);
+            }
+        }
+    }
+
+    /**
+     * Creates a new register file for the batched evaluation of the tape.
+     * Every register consists of one lane per sample point, the constants and the given global values are set in all lanes.
+     * All other lanes are NaN.
+     * @param globalValues The global values
+     * @param width The number of lanes
+     * @return The register file, indexed by register and lane
+     */
+    public double[][] createLanes(Map<MultivectorComponent, Double> globalValues, int width) {
+        double[] registers = createRegisters(globalValues);
+        double[][] lanes = new double[registerCount][width];
+        for (int slot = 0; slot < registerCount; slot++)
+            Arrays.fill(lanes[slot], registers[slot]);
+        return lanes;
+    }
+
+    /**
+     * Restores the lanes of all variables, that are assigned by the tape, from an initial register file
+     * @param l The register file, that was created by createLanes
+     * @param initial The initial register file, that was created by createRegisters
+     * @param count The number of lanes to restore
+     * @see #restoreAssigned(double[], double[])
+     */
+    public void restoreAssignedLanes(double[][] l, double[] initial, int count) {
+        for (int slot : assignedSlots)
+            Arrays.fill(l[slot], 0, count, initial[slot]);
+    }
+
+    /**
+     * Evaluates the tape on several sample points at once.
+     * Every instruction is executed on all lanes in a tight loop, which the JIT can vectorize.
+     * The batched evaluation is always interpreted, because the dispatch is amortized over the lanes.
+     * @param l The register file, that was created by createLanes
+     * @param count The number of lanes to evaluate
+     */
+    public void evaluateLanes(double[][] l, int count) {
+        final int[] code = this.code;
+        for (int pc = 0; pc < code.length; pc += INSTRUCTION_SIZE) {
+            double[] dest = l[code[pc + 1]];
+            double[] a = l[code[pc + 2]];
+            double[] b = l[code[pc + 3]];
+            switch (code[pc]) {
+                case MOV: System.arraycopy(a, 0, dest, 0, count); break;
+                case ADD: for (int i = 0; i < count; i++) dest[i] = a[i] + b[i]; break;
+                case SUB: for (int i = 0; i < count; i++) dest[i] = a[i] - b[i]; break;
+                case MUL: for (int i = 0; i < count; i++) dest[i] = a[i] * b[i]; break;
+                case DIV: for (int i = 0; i < count; i++) dest[i] = a[i] / b[i]; break;
+                case NEG: for (int i = 0; i < count; i++) dest[i] = -a[i]; break;
+                case POW: for (int i = 0; i < count; i++) dest[i] = Math.pow(a[i], b[i]); break;
+                case SQUARE: for (int i = 0; i < count; i++) dest[i] = a[i] * a[i]; break;
+                case ABS: for (int i = 0; i < count; i++) dest[i] = Math.abs(a[i]); break;
+                case ACOS: for (int i = 0; i < count; i++) dest[i] = Math.acos(a[i]); break;
+                case ASIN: for (int i = 0; i < count; i++) dest[i] = Math.asin(a[i]); break;
+                case ATAN: for (int i = 0; i < count; i++) dest[i] = Math.atan(a[i]); break;
+                case CEIL: for (int i = 0; i < count; i++) dest[i] = Math.ceil(a[i]); break;
+                case COS: for (int i = 0; i < count; i++) dest[i] = Math.cos(a[i]); break;
+                case EXP: for (int i = 0; i < count; i++) dest[i] = Math.exp(a[i]); break;
+                case FACT: for (int i = 0; i < count; i++) dest[i] = factorial(a[i]); break;
+                case FLOOR: for (int i = 0; i < count; i++) dest[i] = Math.floor(a[i]); break;
+                case LOG: for (int i = 0; i < count; i++) dest[i] = Math.log(a[i]); break;
+                case SIN: for (int i = 0; i < count; i++) dest[i] = Math.sin(a[i]); break;
+                case SQRT: for (int i = 0; i < count; i++) dest[i] = Math.sqrt(a[i]); break;
+                case TAN: for (int i = 0; i < count; i++) dest[i] = Math.tan(a[i]); break;
+                default: throw new IllegalStateException("Unknown opcode " + code[pc]);
+            }
+        }
+    }
+
+    static double factorial(double value) {
+        int n = (int) value;
+        double result = 1.0;
+        for (int i = 2; i <= n; i++)
+            result *= i;
+        return result;
+    }
+
+    /**
+     * Returns the opcode of a math function
+     * @param function The math function
+     * @return The opcode
+     */
+    private static int getOpcode(MathFunction function) {
+        switch (function) {
+            case ABS: return ABS;
+            case ACOS: return ACOS;
+            case ASIN: return ASIN;
+            case ATAN: return ATAN;
+            case CEIL: return CEIL;
+            case COS: return COS;
+            case EXP: return EXP;
+            case FACT: return FACT;
+            case FLOOR: return FLOOR;
+            case LOG: return LOG;
+            case SIN: return SIN;
+            case SQRT: return SQRT;
+            case TAN: return TAN;
+            default: throw new UnsupportedOperationException("The function " + function + " is not supported by the visualizer.");
+        }
+    }
+
+    /**
+     * Resolves the variables to registers and emits the instructions
+     */
+    private static class Compiler implements ExpressionVisitor {
+
+        private final LinkedHashMap<MultivectorComponent, Integer> slots = new LinkedHashMap<MultivectorComponent, Integer>();
+        private final LinkedHashMap<Double, Integer> constants = new LinkedHashMap<Double, Integer>();
+        private int slotCount = 0;
+
+        private int[] code = new int[64];
+        private int codeLength = 0;
+
+        private int temporaryBase;
+        private int temporaries;
+        private int maxTemporaries = 0;
+
+        private boolean collecting;
+        /** The register that should receive the result of the visited expression, -1 for a new temporary */
+        private int target;
+        private int result;
+
+        private int getSlot(MultivectorComponent component) {
+            Integer slot = slots.get(component);
+            if (slot == null) {
+                slot = slotCount++;
+                slots.put(component, slot);
+            }
+            return slot;
+        }
+
+        private static MultivectorComponent toComponent(Variable variable) {
+            // Variables are stored as scalar components, like in the Evaluater
+            return (variable instanceof MultivectorComponent)
+                    ? (MultivectorComponent) variable
+                    : new MultivectorComponent(variable.getName(), 0);
+        }
+
+        private void collect(AssignmentNode node) {
+            collecting = true;
+            getSlot(toComponent(node.getVariable()));
+            node.getValue().accept(this);
+        }
+
+        private void compile(AssignmentNode node) {
+            collecting = false;
+            temporaries = 0;
+            target = slots.get(toComponent(node.getVariable()));
+            node.getValue().accept(this);
+            if (result != target)
+                emit(MOV, target, result, 0);
+        }
+
+        private int operand(Expression expression) {
+            int oldTarget = target;
+            target = -1;
+            expression.accept(this);
+            target = oldTarget;
+            return result;
+        }
+
+        private int destination() {
+            if (target != -1)
+                return target;
+            temporaries++;
+            maxTemporaries = Math.max(maxTemporaries, temporaries);
+            return temporaryBase + temporaries - 1;
+        }
+
+        private void emit(int opcode, int dest, int a, int b) {
+            if (codeLength + INSTRUCTION_SIZE > code.length)
+                code = Arrays.copyOf(code, code.length * 2);
+            code[codeLength++] = opcode;
+            code[codeLength++] = dest;
+            code[codeLength++] = a;
+            code[codeLength++] = b;
+            result = dest;
+        }
+
+        /**
+         * Releases the temporaries of the operands, before the destination is allocated,
+         * so that an instruction can overwrite its own operands
+         */
+        private void release(int mark) {
+            temporaries = mark;
+        }
+
+        private void binary(int opcode, BinaryOperation node) {
+            if (collecting) {
+                node.getLeft().accept(this);
+                node.getRight().accept(this);
+                return;
+            }
+            int mark = temporaries;
+            int left = operand(node.getLeft());
+            int right = operand(node.getRight());
+            release(mark);
+            emit(opcode, destination(), left, right);
+        }
+
+        private void unary(int opcode, Expression operand) {
+            if (collecting) {
+                operand.accept(this);
+                return;
+            }
+            int mark = temporaries;
+            int a = operand(operand);
+            release(mark);
+            emit(opcode, destination(), a, 0);
+        }
+
+        @Override
+        public void visit(Subtraction node) {
+            binary(SUB, node);
+        }
+
+        @Override
+        public void visit(Addition node) {
+            binary(ADD, node);
+        }
+
+        @Override
+        public void visit(Division node) {
+            binary(DIV, node);
+        }
+
+        @Override
+        public void visit(Multiplication node) {
+            binary(MUL, node);
+        }
+
+        @Override
+        public void visit(Exponentiation node) {
+            Expression exponent = node.getRight();
+            if (exponent instanceof FloatConstant && ((FloatConstant) exponent).getValue() == 2)
+                unary(SQUARE, node.getLeft());
+            else
+                binary(POW, node);
+        }
+
+        @Override
+        public void visit(Negation node) {
+            unary(NEG, node.getOperand());
+        }
+
+        @Override
+        public void visit(MathFunctionCall node) {
+            unary(getOpcode(node.getFunction()), node.getOperand());
+        }
+
+        @Override
+        public void visit(FloatConstant node) {
+            Integer slot = constants.get(node.getValue());
+            if (slot == null) {
+                slot = slotCount++;
+                constants.put(node.getValue(), slot);
+            }
+            result = slot;
+        }
+
+        @Override
+        public void visit(MultivectorComponent node) {
+            result = getSlot(node);
+        }
+
+        @Override
+        public void visit(Variable node) {
+            result = getSlot(toComponent(node));
+        }
+
+        @Override
+        public void visit(OuterProduct node) {
+            throw new UnsupportedOperationException("OuterProducts should have been removed by TBA.");
+        }
+
+        @Override
+        public void visit(BaseVector node) {
+            throw new UnsupportedOperationException("BaseVectors should have been removed by TBA.");
+        }
+
+        @Override
+        public void visit(Reverse node) {
+            throw new UnsupportedOperationException("Reverses should have been removed by TBA.");
+        }
+
+        @Override
+        public void visit(InnerProduct node) {
+            throw new UnsupportedOperationException("Inner products should have been removed by TBA.");
+        }
+
+        @Override
+        public void visit(MacroCall node) {
+            throw new UnsupportedOperationException("MacroCalls should have been removed by TBA.");
+        }
+
+        @Override
+        public void visit(LogicalOr node) {
+            throw new UnsupportedOperationException("LogicalOrs should have been removed by TBA.");
+        }
+
+        @Override
+        public void visit(LogicalAnd node) {
+            throw new UnsupportedOperationException("LogicalAnds should have been removed by TBA.");
+        }
+
+        @Override
+        public void visit(LogicalNegation node) {
+            throw new UnsupportedOperationException("LogicalNegations should have been removed by TBA.");
+        }
+
+        @Override
+        public void visit(Equality node) {
+            throw new UnsupportedOperationException("Equalities should have been removed by TBA.");
+        }
+
+        @Override
+        public void visit(Inequality node) {
+            throw new UnsupportedOperationException("Inequalities should have been removed by TBA.");
+        }
+
+        @Override
+        public void visit(Relation relation) {
+            throw new UnsupportedOperationException("Relations should have been removed by TBA.");
+        }
+
+        @Override
+        public void visit(FunctionArgument node) {
+            throw new UnsupportedOperationException("FunctionArguments should have been removed by TBA.");
+        }
+    }
+
+}
@@ -72,7 +72,10 @@ public class IntervalEvaluater implements ExpressionVisitor {
         node.getOperand().accept(this);
         switch (node.getFunction()) {
             case ABS:
-                result = new RealInterval(Math.min(result.lo(),result.hi()),Math.max(result.lo(),result.hi()));
+                if (result.lo() < 0)
+                    result = (result.hi() <= 0)
+                        ? new RealInterval(-result.hi(),-result.lo())
+                        : new RealInterval(0,Math.max(-result.lo(),result.hi()));
                 break;
             case ACOS:
                 result = IAMath.acos(result);
@@ -93,12 +96,8 @@ public class IntervalEvaluater implements ExpressionVisitor {
                 result = IAMath.exp(result);
                 break;
             case FACT:
-                int n = (int) result.lo();
-                double r = 1.0;
-                for (int i = 2; i <= (int) n; i++) {
-                    r *= i;
-                }
-                result = new RealInterval(r);
+                // the factorial of the truncated argument is monotonic
+                result = new RealInterval(InstructionTape.factorial(result.lo()),InstructionTape.factorial(result.hi()));
                 break;
             case FLOOR:
                 result = new RealInterval(Math.floor(result.lo()),Math.floor(result.hi()));
@@ -0,0 +1,268 @@
+package de.gaalop.visualizer.zerofinding;
+
+import de.gaalop.dfg.MultivectorComponent;
+import de.gaalop.visualizer.ia_math.IAException;
+import de.gaalop.visualizer.ia_math.IAMath;
+import de.gaalop.visualizer.ia_math.RMath;
+import de.gaalop.visualizer.ia_math.RealInterval;
+import java.util.Map;
+
+/**
+ * Evaluates an instruction tape with interval arithmetic.
+ *
+ * The intervals are stored in two register files of the lower and the upper bounds,
+ * which use the slots of the instruction tape, so that an evaluation does not allocate anything.
+ * The arithmetic operations round outwards like IAMath and give the same results as the IntervalEvaluater,
+ * only the elementary functions are delegated to IAMath.
+ * Invalid intervals are propagated as NaN, instead of throwing an IAException.
+ *
+ * @author Christian Steinmetz
+ */
+public class IntervalTape {
+
+    private final InstructionTape tape;
+
+    public IntervalTape(InstructionTape tape) {
+        this.tape = tape;
+    }
+
+    /**
+     * Creates a new register file for the lower or the upper bounds,
+     * that contains the constants and the given global values as degenerated intervals
+     * @param globalValues The global values
+     * @return The register file
+     */
+    public double[] createRegisters(Map<MultivectorComponent, Double> globalValues) {
+        return tape.createRegisters(globalValues);
+    }
+
+    /**
+     * Restores the registers of all variables, that are assigned by the tape, from an initial register file
+     * @param lo The register file of the lower bounds
+     * @param hi The register file of the upper bounds
+     * @param initial The initial register file, that was created by createRegisters
+     * @see InstructionTape#restoreAssigned(double[], double[])
+     */
+    public void restoreAssigned(double[] lo, double[] hi, double[] initial) {
+        tape.restoreAssigned(lo, initial);
+        tape.restoreAssigned(hi, initial);
+    }
+
+    /**
+     * Evaluates the tape
+     * @param lo The register file of the lower bounds
+     * @param hi The register file of the upper bounds
+     */
+    public void evaluate(double[] lo, double[] hi) {
+        final int[] code = tape.code;
+        for (int pc = 0; pc < code.length; pc += InstructionTape.INSTRUCTION_SIZE) {
+            int dest = code[pc + 1];
+            double aLo = lo[code[pc + 2]];
+            double aHi = hi[code[pc + 2]];
+            double bLo = lo[code[pc + 3]];
+            double bHi = hi[code[pc + 3]];
+            switch (code[pc]) {
+                case InstructionTape.MOV:
+                    lo[dest] = aLo;
+                    hi[dest] = aHi;
+                    break;
+                case InstructionTape.ABS:
+                    if (aLo >= 0) {
+                        lo[dest] = aLo;
+                        hi[dest] = aHi;
+                    } else if (aHi <= 0) {
+                        lo[dest] = -aHi;
+                        hi[dest] = -aLo;
+                    } else {
+                        lo[dest] = 0;
+                        hi[dest] = Math.max(-aLo, aHi);
+                    }
+                    break;
+                case InstructionTape.ADD:
+                    lo[dest] = RMath.add_lo(aLo, bLo);
+                    hi[dest] = RMath.add_hi(aHi, bHi);
+                    break;
+                case InstructionTape.SUB:
+                    lo[dest] = RMath.sub_lo(aLo, bHi);
+                    hi[dest] = RMath.sub_hi(aHi, bLo);
+                    break;
+                case InstructionTape.MUL:
+                    mul(aLo, aHi, bLo, bHi, lo, hi, dest);
+                    break;
+                case InstructionTape.DIV:
+                    div(aLo, aHi, bLo, bHi, lo, hi, dest);
+                    break;
+                case InstructionTape.NEG:
+                    lo[dest] = -aHi;
+                    hi[dest] = -aLo;
+                    break;
+                case InstructionTape.POW:
+                    // like the IntervalEvaluater, an integral exponent is computed by multiplications
+                    if (Math.abs(bHi - bLo) < 0.001 && Math.abs(bHi - ((int) bHi)) < 0.001 && bHi >= 0)
+                        integralPower(aLo, aHi, (int) bHi, lo, hi, dest);
+                    else
+                        store(isNaN(aLo, aHi, bLo, bHi) ? null : IAMath.power(new RealInterval(aLo, aHi), new RealInterval(bLo, bHi)), lo, hi, dest);
+                    break;
+                case InstructionTape.SQUARE:
+                    integralPower(aLo, aHi, 2, lo, hi, dest);
+                    break;
+                case InstructionTape.CEIL:
+                    lo[dest] = Math.ceil(aLo);
+                    hi[dest] = Math.ceil(aHi);
+                    break;
+                case InstructionTape.FLOOR:
+                    lo[dest] = Math.floor(aLo);
+                    hi[dest] = Math.floor(aHi);
+                    break;
+                case InstructionTape.SQRT:
+                    lo[dest] = Math.sqrt(aLo);
+                    hi[dest] = Math.sqrt(aHi);
+                    break;
+                case InstructionTape.FACT:
+                    // the factorial of the truncated argument is monotonic
+                    lo[dest] = InstructionTape.factorial(aLo);
+                    hi[dest] = InstructionTape.factorial(aHi);
+                    break;
+                default:
+                    store(isNaN(aLo, aHi, aLo, aHi) ? null : function(code[pc], new RealInterval(aLo, aHi)), lo, hi, dest);
+            }
+        }
+    }
+
+    /**
+     * Evaluates an elementary function with IAMath
+     * @param opcode The opcode of the function
+     * @param x The argument
+     * @return The result
+     */
+    private static RealInterval function(int opcode, RealInterval x) {
+        switch (opcode) {
+            case InstructionTape.ACOS: return IAMath.acos(x);
+            case InstructionTape.ASIN: return IAMath.asin(x);
+            case InstructionTape.ATAN: return IAMath.atan(x);
+            case InstructionTape.COS: return IAMath.cos(x);
+            case InstructionTape.EXP: return IAMath.exp(x);
+            case InstructionTape.LOG: return IAMath.log(x);
+            case InstructionTape.SIN: return IAMath.sin(x);
+            case InstructionTape.TAN: return IAMath.tan(x);
+            default: throw new IllegalStateException("Unknown opcode " + opcode);
+        }
+    }
+
+    private static boolean isNaN(double aLo, double aHi, double bLo, double bHi) {
+        return Double.isNaN(aLo) || Double.isNaN(aHi) || Double.isNaN(bLo) || Double.isNaN(bHi);
+    }
+
+    private static void store(RealInterval x, double[] lo, double[] hi, int dest) {
+        lo[dest] = (x != null) ? x.lo() : Double.NaN;
+        hi[dest] = (x != null) ? x.hi() : Double.NaN;
+    }
+
+    /**
+     * Computes x^n as 1*x*...*x like the IntervalEvaluater
+     */
+    private static void integralPower(double xLo, double xHi, int n, double[] lo, double[] hi, int dest) {
+        lo[dest] = 1;
+        hi[dest] = 1;
+        for (int i = 0; i < n; i++)
+            mul(lo[dest], hi[dest], xLo, xHi, lo, hi, dest);
+    }
+
+    /**
+     * Multiplies two intervals like IAMath.mul
+     */
+    private static void mul(double xLo, double xHi, double yLo, double yHi, double[] lo, double[] hi, int dest) {
+        double zLo;
+        double zHi;
+        if (((xLo == 0.0) && (xHi == 0.0)) || ((yLo == 0.0) && (yHi == 0.0))) {
+            zLo = 0.0; zHi = -0.0;
+        } else if (xLo >= 0.0) {
+            if (yLo >= 0.0) {
+                zLo = Math.max(0.0, RMath.mul_lo(xLo, yLo));
+                zHi = RMath.mul_hi(xHi, yHi);
+            } else if (yHi <= 0.0) {
+                zLo = RMath.mul_lo(xHi, yLo);
+                zHi = Math.min(0.0, RMath.mul_hi(xLo, yHi));
+            } else {
+                zLo = RMath.mul_lo(xHi, yLo);
+                zHi = RMath.mul_hi(xHi, yHi);
+            }
+        } else if (xHi <= 0.0) {
+            if (yLo >= 0.0) {
+                zLo = RMath.mul_lo(xLo, yHi);
+                zHi = Math.min(0.0, RMath.mul_hi(xHi, yLo));
+            } else if (yHi <= 0.0) {
+                zLo = Math.max(0.0, RMath.mul_lo(xHi, yHi));
+                zHi = RMath.mul_hi(xLo, yLo);
+            } else {
+                zLo = RMath.mul_lo(xLo, yHi);
+                zHi = RMath.mul_hi(xLo, yLo);
+            }
+        } else {
+            if (yLo >= 0.0) {
+                zLo = RMath.mul_lo(xLo, yHi);
+                zHi = RMath.mul_hi(xHi, yHi);
+            } else if (yHi <= 0.0) {
+                zLo = RMath.mul_lo(xHi, yLo);
+                zHi = RMath.mul_hi(xLo, yLo);
+            } else {
+                zLo = Math.min(RMath.mul_lo(xHi, yLo), RMath.mul_lo(xLo, yHi));
+                zHi = Math.max(RMath.mul_hi(xLo, yLo), RMath.mul_hi(xHi, yHi));
+            }
+        }
+        lo[dest] = zLo;
+        hi[dest] = zHi;
+    }
+
+    /**
+     * Divides two intervals like IAMath.div
+     */
+    private static void div(double xLo, double xHi, double yLo, double yHi, double[] lo, double[] hi, int dest) {
+        if ((yLo == 0.0) && (yHi == 0.0))
+            throw new IAException("div(X,Y): Division by Zero");
+
+        double zLo;
+        double zHi;
+        if (((xLo <= 0.0) && (0.0 <= xHi)) && ((yLo <= 0.0) && (0.0 <= yHi))) {
+            zLo = Double.NEGATIVE_INFINITY; zHi = Double.POSITIVE_INFINITY;
+        } else {
+            if (yLo == 0.0) yLo = 0.0;
+            if (yHi == 0.0) yHi = -0.0;
+
+            if (xLo >= 0.0) {
+                if (yLo >= 0.0) {
+                    zLo = Math.max(0.0, RMath.div_lo(xLo, yHi));
+                    zHi = RMath.div_hi(xHi, yLo);
+                } else if (yHi <= 0.0) {
+                    zLo = RMath.div_lo(xHi, yHi);
+                    zHi = Math.min(0.0, RMath.div_hi(xLo, yLo));
+                } else {
+                    zLo = Double.NEGATIVE_INFINITY; zHi = Double.POSITIVE_INFINITY;
+                }
+            } else if (xHi <= 0.0) {
+                if (yLo >= 0.0) {
+                    zLo = RMath.div_lo(xLo, yLo);
+                    zHi = Math.min(0.0, RMath.div_hi(xHi, yHi));
+                } else if (yHi <= 0.0) {
+                    zLo = Math.max(0.0, RMath.div_lo(xHi, yLo));
+                    zHi = RMath.div_hi(xLo, yHi);
+                } else {
+                    zLo = Double.NEGATIVE_INFINITY; zHi = Double.POSITIVE_INFINITY;
+                }
+            } else {
+                if (yLo >= 0.0) {
+                    zLo = RMath.div_lo(xLo, yLo);
+                    zHi = RMath.div_hi(xHi, yLo);
+                } else if (yHi <= 0.0) {
+                    zLo = RMath.div_lo(xHi, yHi);
+                    zHi = RMath.div_hi(xLo, yHi);
+                } else {
+                    zLo = Double.NEGATIVE_INFINITY; zHi = Double.POSITIVE_INFINITY;
+                }
+            }
+        }
+        lo[dest] = zLo;
+        hi[dest] = zHi;
+    }
+
+}
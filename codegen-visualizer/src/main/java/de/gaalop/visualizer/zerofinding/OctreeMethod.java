@@ -0,0 +1,292 @@
+package de.gaalop.visualizer.zerofinding;
+
+import de.gaalop.cfg.AssignmentNode;
+import de.gaalop.dfg.MultivectorComponent;
+import de.gaalop.visualizer.Point3d;
+import de.gaalop.visualizer.PointBuffer;
+import de.gaalop.visualizer.ia_math.IAException;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedList;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * Implements a zero finder method, which subdivides the cube recursively as an octree.
+ *
+ * Every cell is evaluated with interval arithmetic on the instruction tape. A cell is discarded,
+ * if the enclosure of _V_PRODUCT_S shows, that no point of the cell is near to zero.
+ * Only the remaining leaves are sampled with the density,
+ * so the cost is proportional to the area of the surfaces rather than the volume of the cube.
+ * The subtrees are processed by a work-stealing thread pool.
+ *
+ * @author Christian Steinmetz
+ */
+public class OctreeMethod extends PrepareZerofinder {
+
+    /** The maximum number of samples per axis of a cell, which is sampled without subdividing */
+    private static final int LEAF_SAMPLES = 8;
+
+    /** The number of sample points, that are evaluated at once */
+    private static final int TILE_SIZE = 512;
+
+    /**
+     * Prepares the graph, given by a list of assignment nodes, i.e. create code pieces, ...
+     * @param nodes The list of nodes
+     * @return The generated code pieces
+     */
+    private LinkedList<CodePiece> prepareGraph(LinkedList<AssignmentNode> nodes) {
+        //Insert expressions, like Maxima,  !!!
+        InsertingExpression.insertExpressions(nodes);
+
+        //search _V_PRODUCT and apply the sum of the squares = _V_PRODUCT_S
+        //and store the result in myNodes
+        LinkedList<AssignmentNode> myNodes = createSumOfSquares(nodes);
+
+        //Optimize pieces of code for each multivector to be rendered
+        return optimizeCodePieces(myNodes);
+    }
+
+    @Override
+    public HashMap<String, LinkedList<Point3d>> findZeroLocations(HashMap<MultivectorComponent, Double> globalValues, LinkedList<AssignmentNode> assignmentNodes, HashMap<String, String> mapSettings, boolean renderIn2d) {
+        int a = Integer.parseInt(mapSettings.get("cubeEdgeLength"));
+        float dist = Float.parseFloat(mapSettings.get("density"));
+        double epsilon = Double.parseDouble(mapSettings.get("epsilon"));
+        int maxDepth = Integer.parseInt(mapSettings.get("maxDepth"));
+
+        float[] samples = DiscreteCubeMethodThread.getSamples(a, dist);
+        // like the discrete cube method, x is sampled in [-a,a), y and z in [-a,a]
+        int countX = samples.length;
+        while (countX > 0 && samples[countX - 1] >= a)
+            countX--;
+        float[] samplesX = Arrays.copyOf(samples, countX);
+        float[] samplesZ = renderIn2d ? new float[] {0} : samples;
+
+        HashMap<String, LinkedList<Point3d>> result = new HashMap<String, LinkedList<Point3d>>();
+        ForkJoinPool pool = new ForkJoinPool(Runtime.getRuntime().availableProcessors());
+        try {
+            for (CodePiece cp: prepareGraph(assignmentNodes)) {
+                Search search = new Search(cp, globalValues, samplesX, samples, samplesZ, epsilon, maxDepth);
+                pool.invoke(search.new Cell(0, samplesX.length, 0, samples.length, 0, samplesZ.length, 0));
+                result.put(cp.nameOfMultivector, search.getPoints().toPoints());
+            }
+        } finally {
+            pool.shutdown();
+        }
+        return result;
+    }
+
+    /**
+     * Searches the zero locations of one code piece
+     */
+    private class Search {
+
+        private final HashMap<MultivectorComponent, Double> globalValues;
+        private final InstructionTape tape;
+        private final IntervalTape intervalTape;
+        private final MultivectorComponent product;
+
+        private final float[] samplesX;
+        private final float[] samplesY;
+        private final float[] samplesZ;
+        private final double epsilon;
+        private final int maxDepth;
+
+        /** Every thread of the pool uses its own worker, which collects the found points */
+        private final LinkedList<Worker> workers = new LinkedList<Worker>();
+        private final ThreadLocal<Worker> worker = new ThreadLocal<Worker>() {
+            @Override
+            protected Worker initialValue() {
+                Worker result = new Worker();
+                synchronized (workers) {
+                    workers.add(result);
+                }
+                return result;
+            }
+        };
+
+        public Search(CodePiece codePiece, HashMap<MultivectorComponent, Double> globalValues, float[] samplesX, float[] samplesY, float[] samplesZ, double epsilon, int maxDepth) {
+            this.globalValues = globalValues;
+            this.samplesX = samplesX;
+            this.samplesY = samplesY;
+            this.samplesZ = samplesZ;
+            this.epsilon = epsilon;
+            this.maxDepth = maxDepth;
+            product = new MultivectorComponent(codePiece.nameOfMultivector, 0);
+            // the tape is only evaluated in lanes and with intervals, which are always interpreted, so it is not jit compiled
+            tape = new InstructionTape(codePiece, DiscreteCubeMethod.X, DiscreteCubeMethod.Y, DiscreteCubeMethod.Z, product);
+            intervalTape = new IntervalTape(tape);
+        }
+
+        /**
+         * Returns the found points, has to be called after all cells are processed
+         * @return The found points
+         */
+        public PointBuffer getPoints() {
+            PointBuffer points = new PointBuffer();
+            for (Worker w: workers) {
+                w.flush();
+                points.addAll(w.points);
+            }
+            return points;
+        }
+
+        /**
+         * Represents a cell of the octree, i.e. a box of sample indices
+         */
+        private class Cell extends RecursiveAction {
+
+            private final int fromX_Incl;
+            private final int toX_Excl;
+            private final int fromY_Incl;
+            private final int toY_Excl;
+            private final int fromZ_Incl;
+            private final int toZ_Excl;
+            private final int depth;
+
+            public Cell(int fromX_Incl, int toX_Excl, int fromY_Incl, int toY_Excl, int fromZ_Incl, int toZ_Excl, int depth) {
+                this.fromX_Incl = fromX_Incl;
+                this.toX_Excl = toX_Excl;
+                this.fromY_Incl = fromY_Incl;
+                this.toY_Excl = toY_Excl;
+                this.fromZ_Incl = fromZ_Incl;
+                this.toZ_Excl = toZ_Excl;
+                this.depth = depth;
+            }
+
+            @Override
+            protected void compute() {
+                Worker w = worker.get();
+                if (!w.mayContainZeros(this))
+                    return;
+
+                if (depth >= maxDepth || (toX_Excl - fromX_Incl <= LEAF_SAMPLES && toY_Excl - fromY_Incl <= LEAF_SAMPLES && toZ_Excl - fromZ_Incl <= LEAF_SAMPLES)) {
+                    w.sample(this);
+                    return;
+                }
+
+                int[] bordersX = split(fromX_Incl, toX_Excl);
+                int[] bordersY = split(fromY_Incl, toY_Excl);
+                int[] bordersZ = split(fromZ_Incl, toZ_Excl);
+                LinkedList<Cell> children = new LinkedList<Cell>();
+                for (int x = 0; x < bordersX.length - 1; x++)
+                    for (int y = 0; y < bordersY.length - 1; y++)
+                        for (int z = 0; z < bordersZ.length - 1; z++)
+                            children.add(new Cell(bordersX[x], bordersX[x + 1], bordersY[y], bordersY[y + 1], bordersZ[z], bordersZ[z + 1], depth + 1));
+                invokeAll(children);
+            }
+
+            /**
+             * Splits a range of sample indices into halves, if it contains more than one sample
+             * @param from_Incl The first index
+             * @param to_Excl The index behind the last index
+             * @return The borders of the parts
+             */
+            private int[] split(int from_Incl, int to_Excl) {
+                if (to_Excl - from_Incl <= 1)
+                    return new int[] {from_Incl, to_Excl};
+                return new int[] {from_Incl, (from_Incl + to_Excl) / 2, to_Excl};
+            }
+        }
+
+        /**
+         * Evaluates cells with interval arithmetic and samples leaves in tiles
+         */
+        private class Worker {
+
+            private final double[] initial = tape.createRegisters(globalValues);
+            private final double[] lo = intervalTape.createRegisters(globalValues);
+            private final double[] hi = intervalTape.createRegisters(globalValues);
+            private final int slotX = tape.getSlot(DiscreteCubeMethod.X);
+            private final int slotY = tape.getSlot(DiscreteCubeMethod.Y);
+            private final int slotZ = tape.getSlot(DiscreteCubeMethod.Z);
+            private final int slotProduct = tape.getSlot(product);
+
+            private final double[][] lanes = tape.createLanes(globalValues, TILE_SIZE);
+            private final double[] laneX = lanes[slotX];
+            private final double[] laneY = lanes[slotY];
+            private final double[] laneZ = lanes[slotZ];
+            private final double[] laneProduct = lanes[slotProduct];
+            private final float[] xs = new float[TILE_SIZE];
+            private final float[] ys = new float[TILE_SIZE];
+            private final float[] zs = new float[TILE_SIZE];
+            private int count = 0;
+
+            private final PointBuffer points = new PointBuffer();
+
+            /**
+             * Evaluates _V_PRODUCT_S on a cell with interval arithmetic
+             * @param cell The cell
+             * @return false, if no sample point of the cell can be a zero location
+             */
+            public boolean mayContainZeros(Cell cell) {
+                intervalTape.restoreAssigned(lo, hi, initial);
+                lo[slotX] = samplesX[cell.fromX_Incl];
+                hi[slotX] = samplesX[cell.toX_Excl - 1];
+                lo[slotY] = samplesY[cell.fromY_Incl];
+                hi[slotY] = samplesY[cell.toY_Excl - 1];
+                lo[slotZ] = samplesZ[cell.fromZ_Incl];
+                hi[slotZ] = samplesZ[cell.toZ_Excl - 1];
+                try {
+                    intervalTape.evaluate(lo, hi);
+                } catch (IAException e) {
+                    // e.g. a division by an interval [0,0], so the cell can not be discarded
+                    return true;
+                }
+
+                // _V_PRODUCT_S is the sum of the squares, so a point is a zero location, if _V_PRODUCT_S <= epsilon^2
+                return !(lo[slotProduct] > epsilon * epsilon);
+            }
+
+            /**
+             * Adds all sample points of a leaf to the tile
+             * @param cell The leaf
+             */
+            public void sample(Cell cell) {
+                for (int x = cell.fromX_Incl; x < cell.toX_Excl; x++)
+                    for (int y = cell.fromY_Incl; y < cell.toY_Excl; y++)
+                        for (int z = cell.fromZ_Incl; z < cell.toZ_Excl; z++) {
+                            xs[count] = samplesX[x];
+                            ys[count] = samplesY[y];
+                            zs[count] = samplesZ[z];
+                            laneX[count] = xs[count];
+                            laneY[count] = ys[count];
+                            laneZ[count] = zs[count];
+                            count++;
+                            if (count == TILE_SIZE)
+                                flush();
+                        }
+            }
+
+            /**
+             * Evaluates the tape on all sample points of the tile and outputs the zero locations
+             */
+            public void flush() {
+                if (count == 0) return;
+                tape.evaluateLanes(lanes, count);
+                for (int i = 0; i < count; i++)
+                    if (Math.sqrt(laneProduct[i]) <= epsilon)
+                        points.add(xs[i], ys[i], zs[i]);
+                // every sample point starts with the global values
+                tape.restoreAssignedLanes(lanes, initial, count);
+                count = 0;
+            }
+        }
+    }
+
+    @Override
+    public String getName() {
+        return "Octree Method";
+    }
+
+    @Override
+    public HashMap<String, String> getSettings() {
+        HashMap<String, String> result = new HashMap<String, String>();
+        result.put("cubeEdgeLength", "5");
+        result.put("density", "0.1");
+        result.put("epsilon", "1E-1");
+        result.put("maxDepth", "10");
+        return result;
+    }
+
+}
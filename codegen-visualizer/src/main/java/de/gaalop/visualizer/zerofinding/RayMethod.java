@@ -119,6 +119,9 @@ public class RayMethod extends PrepareZerofinder {
     private LinkedList<Point3d> searchZeroLocations(CodePiece cp, HashMap<MultivectorComponent, Double> globalValues, int a, float dist, double epsilon, boolean renderIn2d) {
         LinkedList<Point3d> points = new LinkedList<Point3d>();
 
+        InstructionTape tape = createTape(cp, 
+                new MultivectorComponent("_V_ox", 0), new MultivectorComponent("_V_oy", 0), new MultivectorComponent("_V_oz", 0),
+                new MultivectorComponent("_V_t", 0), new MultivectorComponent(cp.nameOfMultivector, 0), new MultivectorComponent(cp.nameOfMultivector+"D", 0));
         
         int processorCount = Runtime.getRuntime().availableProcessors();
         
@@ -127,7 +130,7 @@ public class RayMethod extends PrepareZerofinder {
             float from = (i*2*a)/((float) processorCount) - a;
             float to = ((i != processorCount-1) ? ((i+1)*2*a)/((float) processorCount) : 2*a) - a; 
 
-            threads[i] = new RayMethodThread(from, to, a, dist, globalValues, cp, epsilon, renderIn2d);
+            threads[i] = new RayMethodThread(from, to, a, dist, globalValues, cp, tape, epsilon, renderIn2d);
             threads[i].start();
         }
 
@@ -2,7 +2,6 @@ package de.gaalop.visualizer.zerofinding;
 
 import de.gaalop.dfg.MultivectorComponent;
 import de.gaalop.visualizer.Point3d;
-import de.gaalop.visualizer.ia_math.RealInterval;
 import java.util.HashMap;
 import java.util.LinkedList;
 
@@ -22,146 +21,166 @@ public class RayMethodThread extends Thread {
     private HashMap<MultivectorComponent, Double> globalValues;
     
     private CodePiece codePiece;
+
+    /** The tape for the evaluations at single points, its initial register file with the current inputs,
+     * the reused register file and the registers of the inputs and the product */
+    private InstructionTape tape;
+    private double[] initial;
+    private double[] registers;
+    private int slotOX;
+    private int slotOY;
+    private int slotOZ;
+    private int slotT;
+    private int slotF;
+
+    /** The interval evaluation of the tape, its register files of the lower and upper bounds and the register of the derivative */
+    private IntervalTape intervalTape;
+    private double[] lo;
+    private double[] hi;
+    private int slotDF;
             
     public LinkedList<Point3d> points = new LinkedList<Point3d>();
     
     private boolean renderIn2d;
 
-    public RayMethodThread(float fromOY_Incl, float toOY_Excl, float a, float dist, HashMap<MultivectorComponent, Double> globalValues, CodePiece codePiece, double epsilon, boolean renderIn2d) {
+    public RayMethodThread(float fromOY_Incl, float toOY_Excl, float a, float dist, HashMap<MultivectorComponent, Double> globalValues, CodePiece codePiece, InstructionTape tape, double epsilon, boolean renderIn2d) {
         this.fromOY_Incl = fromOY_Incl;
         this.toOY_Excl = toOY_Excl;
         this.a = a;
         this.dist = dist;
         this.globalValues = globalValues;
         this.codePiece = codePiece;
+        this.tape = tape;
         this.epsilon = epsilon;
         this.renderIn2d = renderIn2d;
     }
 
     @Override
     public void run() {
+        initial = tape.createRegisters(globalValues);
+        registers = tape.createRegisters(globalValues);
+        slotOX = tape.getSlot(new MultivectorComponent("_V_ox", 0));
+        slotOY = tape.getSlot(new MultivectorComponent("_V_oy", 0));
+        slotOZ = tape.getSlot(new MultivectorComponent("_V_oz", 0));
+        slotT = tape.getSlot(new MultivectorComponent("_V_t", 0));
+        slotF = tape.getSlot(new MultivectorComponent(codePiece.nameOfMultivector, 0));
+
+        intervalTape = new IntervalTape(tape);
+        lo = intervalTape.createRegisters(globalValues);
+        hi = intervalTape.createRegisters(globalValues);
+        slotDF = tape.getSlot(new MultivectorComponent(codePiece.nameOfMultivector+"D", 0));
+
         if (renderIn2d)
             run2d();
         else 
             run3d();
     }
+
+    /**
+     * Sets an input of the single point and the interval evaluation
+     * @param slot The register of the input
+     * @param value The value
+     */
+    private void setInput(int slot, double value) {
+        initial[slot] = value;
+        registers[slot] = value;
+        lo[slot] = value;
+        hi[slot] = value;
+    }
     
     private void run2d() {
-        HashMap<MultivectorComponent, RealInterval> values = new HashMap<MultivectorComponent, RealInterval>();
-        for (MultivectorComponent mvC: globalValues.keySet())
-            values.put(mvC, new RealInterval(globalValues.get(mvC)));    
-        values.put(new MultivectorComponent("_V_oz", 0), new RealInterval(0));
+        setInput(slotOZ, 0);
         
         float ox = -a;
-        values.put(new MultivectorComponent("_V_ox", 0), new RealInterval(ox));
+        setInput(slotOX, ox);
         
         for (float oy = fromOY_Incl; oy <= toOY_Excl; oy += dist) {
-            values.put(new MultivectorComponent("_V_oy", 0), new RealInterval(oy));
-            isolation(new RealInterval(0, 2*a),values);
+            setInput(slotOY, oy);
+            isolation(0, 2*a);
         }
     }
     
     private void run3d() {
-        HashMap<MultivectorComponent, RealInterval> values = new HashMap<MultivectorComponent, RealInterval>();
-        for (MultivectorComponent mvC: globalValues.keySet())
-            values.put(mvC, new RealInterval(globalValues.get(mvC)));        
-        
         float ox = -a;
-        values.put(new MultivectorComponent("_V_ox", 0), new RealInterval(ox));
+        setInput(slotOX, ox);
         
         for (float oy = fromOY_Incl; oy <= toOY_Excl; oy += dist) {
-            values.put(new MultivectorComponent("_V_oy", 0), new RealInterval(oy));
+            setInput(slotOY, oy);
             for (float oz = -a; oz <= a; oz += dist) {
-                values.put(new MultivectorComponent("_V_oz", 0), new RealInterval(oz));
-                isolation(new RealInterval(0, 2*a),values);
+                setInput(slotOZ, oz);
+                isolation(0, 2*a);
             }
         }
     }
     
     /**
      * Splits an interval as long as more than one root exists in this interval
-     * @param t The interval to be splitted
-     * @param values The gloabal values
+     * @param tLo The lower bound of the interval to be splitted
+     * @param tHi The upper bound of the interval to be splitted
      */
-    private void isolation(RealInterval t, HashMap<MultivectorComponent, RealInterval> values) {
-        final String product = codePiece.nameOfMultivector;
-        
-        values.put(new MultivectorComponent("_V_t", 0), t);
-        IntervalEvaluater evaluater = new IntervalEvaluater(values);
-        evaluater.evaluate(codePiece);
+    private void isolation(double tLo, double tHi) {
+        intervalTape.restoreAssigned(lo, hi, initial);
+        lo[slotT] = tLo;
+        hi[slotT] = tHi;
+        intervalTape.evaluate(lo, hi);
         
-        RealInterval f = values.get(new MultivectorComponent(product,0));
-        if (f.lo() <= 0 && 0 <= f.hi()) {
-            RealInterval df = values.get(new MultivectorComponent(product+"D",0));
-            if (df.lo() <= 0 && 0 <= df.hi()) {
-                if (t.hi()-t.lo() > 0.05) {
-                    double center = (t.lo()+t.hi())/2.0d;
-                    isolation(new RealInterval(t.lo(), center), values);
-                    isolation(new RealInterval(center, t.hi()), values);
+        if (lo[slotF] <= 0 && 0 <= hi[slotF]) {
+            if (lo[slotDF] <= 0 && 0 <= hi[slotDF]) {
+                if (tHi-tLo > 0.05) {
+                    double center = (tLo+tHi)/2.0d;
+                    isolation(tLo, center);
+                    isolation(center, tHi);
                 } else {
-                    double tCenter = (t.lo()+t.hi())/2.0d;
-                    values.put(new MultivectorComponent("_V_t", 0), new RealInterval(tCenter));
-                    evaluater = new IntervalEvaluater(values);
-                    evaluater.evaluate(codePiece);
-                    f = values.get(new MultivectorComponent(product,0));
-                    if (Math.abs((f.lo()+f.hi())/2) <= epsilon)
-                        points.add(new Point3d(
-                                values.get(new MultivectorComponent("_V_ox", 0)).lo()+tCenter, 
-                                values.get(new MultivectorComponent("_V_oy", 0)).lo(), 
-                                values.get(new MultivectorComponent("_V_oz", 0)).lo()
-                                ));
+                    double tCenter = (tLo+tHi)/2.0d;
+                    if (Math.abs(evaluateAt(tCenter)) <= epsilon)
+                        points.add(new Point3d(initial[slotOX]+tCenter, initial[slotOY], initial[slotOZ]));
                 }
             } else {
-                refinement(t, values);
+                refinement(tLo, tHi);
             }
         }
 
     }
 
+    /**
+     * Evaluates the code piece at a single point of the ray
+     * @param t The parameter of the point on the ray
+     * @return The value of the product at the point
+     */
+    private double evaluateAt(double t) {
+        tape.restoreAssigned(registers, initial);
+        registers[slotT] = t;
+        tape.evaluate(registers);
+        return registers[slotF];
+    }
+
     /**
      * Given an interval, where only one root exists, find the root.
-     * @param t The interval
-     * @param values The global values
+     * @param tLo The lower bound of the interval
+     * @param tHi The upper bound of the interval
      */
-    private void refinement(RealInterval t, HashMap<MultivectorComponent, RealInterval> values) {
-        final String product = codePiece.nameOfMultivector;
-        
-        MultivectorComponent pr = new MultivectorComponent(product, 0);
+    private void refinement(double tLo, double tHi) {
         boolean refine = true;
         double ce = 1000;
         while (refine) {
             
-            double center = (t.lo()+t.hi())/2.0d;
-            
-            values.put(new MultivectorComponent("_V_t", 0), new RealInterval(t.lo()));
-            
-            IntervalEvaluater evaluater = new IntervalEvaluater(values);
-            evaluater.evaluate(codePiece);
-
-            double lo = values.get(pr).lo();
-            
-            values.put(new MultivectorComponent("_V_t", 0), new RealInterval(center));  
+            double center = (tLo+tHi)/2.0d;
             
-            evaluater = new IntervalEvaluater(values);
-            evaluater.evaluate(codePiece);
-            ce = values.get(pr).lo();
+            double left = evaluateAt(tLo);
+            ce = evaluateAt(center);
             
             if (Math.abs(ce) <= epsilon) refine = false;
-            if (t.hi()-t.lo() < 0.001) return;
+            if (tHi-tLo < 0.001) return;
         
-            if (ce*lo < 0) 
-                t = new RealInterval(t.lo(),center);
+            if (ce*left < 0) 
+                tHi = center;
             else
-                t = new RealInterval(center,t.hi());
+                tLo = center;
 
         }
 
         if (Math.abs(ce) <= epsilon)
-            points.add(new Point3d(
-                    values.get(new MultivectorComponent("_V_ox", 0)).lo()+(t.lo()+t.hi())/2.0d, 
-                    values.get(new MultivectorComponent("_V_oy", 0)).lo(), 
-                    values.get(new MultivectorComponent("_V_oz", 0)).lo()
-                    ));
+            points.add(new Point3d(initial[slotOX]+(tLo+tHi)/2.0d, initial[slotOY], initial[slotOZ]));
 
     }
 
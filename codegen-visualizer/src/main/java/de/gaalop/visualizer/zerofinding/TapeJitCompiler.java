@@ -0,0 +1,305 @@
+package de.gaalop.visualizer.zerofinding;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.OutputStream;
+import java.net.URI;
+import java.net.URISyntaxException;
+import java.security.CodeSource;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import javax.tools.Diagnostic;
+import javax.tools.DiagnosticCollector;
+import javax.tools.FileObject;
+import javax.tools.ForwardingJavaFileManager;
+import javax.tools.JavaCompiler;
+import javax.tools.JavaFileManager;
+import javax.tools.JavaFileObject;
+import javax.tools.SimpleJavaFileObject;
+import javax.tools.StandardJavaFileManager;
+import javax.tools.ToolProvider;
+
+/**
+ * Compiles instruction tapes at runtime into Java classes.
+ *
+ * The generated class contains the instructions of the tape as straight-line code,
+ * the registers are held in local variables and the constants are inlined,
+ * so that HotSpot can optimize the arithmetic.
+ * The instructions are split at assignment boundaries into several methods,
+ * because HotSpot does not compile huge methods.
+ * The compiled classes are cached by their source code.
+ *
+ * @author Christian Steinmetz
+ */
+public class TapeJitCompiler {
+
+    private static final String PACKAGE = TapeJitCompiler.class.getPackage().getName();
+
+    /** The number of instructions, after which a generated method ends at the next assignment boundary */
+    private static final int INSTRUCTIONS_PER_METHOD = 250;
+
+    /** The maximum number of instructions of a generated method, which splits huge assignments */
+    private static final int MAX_INSTRUCTIONS_PER_METHOD = 500;
+
+    private static final int CACHE_SIZE = 32;
+
+    private static final Map<String, TapeProgram> cache = Collections.synchronizedMap(
+            new LinkedHashMap<String, TapeProgram>(16, 0.75f, true) {
+                @Override
+                protected boolean removeEldestEntry(Map.Entry<String, TapeProgram> eldest) {
+                    return size() > CACHE_SIZE;
+                }
+            });
+
+    private static final AtomicInteger classCounter = new AtomicInteger();
+
+    /**
+     * Compiles a tape into a Java class or returns the cached class of an equal tape
+     * @param tape The tape
+     * @return An instance of the compiled class, null if no Java compiler is available or the compilation failed
+     */
+    public static TapeProgram compile(InstructionTape tape) {
+        String body = generateBody(tape);
+        TapeProgram program = cache.get(body);
+        if (program == null) {
+            program = compile(body);
+            if (program != null)
+                cache.put(body, program);
+        }
+        return program;
+    }
+
+    /**
+     * Generates the body of the class for a tape
+     * @param tape The tape
+     * @return The source code of the body
+     */
+    static String generateBody(InstructionTape tape) {
+        StringBuilder methods = new StringBuilder();
+        StringBuilder evaluate = new StringBuilder();
+        evaluate.append("    public void evaluate(double[] r) {\n");
+
+        double[] constants = new double[tape.registerCount];
+        boolean[] isConstant = new boolean[tape.registerCount];
+        for (int i = 0; i < tape.constantSlots.length; i++) {
+            isConstant[tape.constantSlots[i]] = true;
+            constants[tape.constantSlots[i]] = tape.constantValues[i];
+        }
+
+        int methodCount = 0;
+        int from = 0;
+        int statement = 0;
+        boolean usesFactorial = false;
+        for (int to = InstructionTape.INSTRUCTION_SIZE; to <= tape.code.length; to += InstructionTape.INSTRUCTION_SIZE) {
+            while (tape.statementEnds[statement] < to)
+                statement++;
+            boolean statementEnd = tape.statementEnds[statement] == to;
+            int count = (to - from) / InstructionTape.INSTRUCTION_SIZE;
+            if (to == tape.code.length || (statementEnd && count >= INSTRUCTIONS_PER_METHOD) || count >= MAX_INSTRUCTIONS_PER_METHOD) {
+                String name = "evaluate" + methodCount++;
+                evaluate.append("        ").append(name).append("(r);\n");
+                usesFactorial |= generateMethod(methods, name, tape, from, to, !statementEnd, isConstant, constants);
+                from = to;
+            }
+        }
+        evaluate.append("    }\n");
+
+        if (usesFactorial) {
+            methods.append("\n    private static double factorial(double value) {\n");
+            methods.append("        int n = (int) value;\n");
+            methods.append("        double result = 1.0;\n");
+            methods.append("        for (int i = 2; i <= n; i++)\n");
+            methods.append("            result *= i;\n");
+            methods.append("        return result;\n");
+            methods.append("    }\n");
+        }
+        return evaluate.append(methods).toString();
+    }
+
+    /**
+     * Generates a method for the instructions in [from, to)
+     * @param storeTemporaries true, if the method ends inside of an assignment,
+     * so that the temporary values have to be stored for the next method
+     * @return true, if the method uses the factorial function
+     */
+    private static boolean generateMethod(StringBuilder out, String name, InstructionTape tape, int from, int to, boolean storeTemporaries, boolean[] isConstant, double[] constants) {
+        int[] code = tape.code;
+        boolean[] declared = new boolean[tape.registerCount];
+        boolean[] written = new boolean[tape.registerCount];
+        boolean usesFactorial = false;
+
+        out.append("\n    private static void ").append(name).append("(double[] r) {\n");
+
+        // load the registers, that are read before they are written
+        for (int pc = from; pc < to; pc += InstructionTape.INSTRUCTION_SIZE) {
+            int operands = isBinary(code[pc]) ? 2 : 1;
+            for (int i = 0; i < operands; i++) {
+                int register = code[pc + 2 + i];
+                if (!isConstant[register] && !written[register] && !declared[register]) {
+                    out.append("        double v").append(register).append(" = r[").append(register).append("];\n");
+                    declared[register] = true;
+                }
+            }
+            written[code[pc + 1]] = true;
+        }
+
+        Arrays.fill(written, false);
+        for (int pc = from; pc < to; pc += InstructionTape.INSTRUCTION_SIZE) {
+            int dest = code[pc + 1];
+            String a = operand(code[pc + 2], isConstant, constants);
+            String b = isBinary(code[pc]) ? operand(code[pc + 3], isConstant, constants) : null;
+            out.append("        ");
+            if (!declared[dest]) {
+                out.append("double ");
+                declared[dest] = true;
+            }
+            out.append('v').append(dest).append(" = ");
+            switch (code[pc]) {
+                case InstructionTape.MOV: out.append(a); break;
+                case InstructionTape.ADD: out.append(a).append(" + ").append(b); break;
+                case InstructionTape.SUB: out.append(a).append(" - ").append(b); break;
+                case InstructionTape.MUL: out.append(a).append(" * ").append(b); break;
+                case InstructionTape.DIV: out.append(a).append(" / ").append(b); break;
+                case InstructionTape.NEG: out.append("-").append(a); break;
+                case InstructionTape.POW: out.append("Math.pow(").append(a).append(", ").append(b).append(")"); break;
+                case InstructionTape.SQUARE: out.append(a).append(" * ").append(a); break;
+                case InstructionTape.ABS: out.append("Math.abs(").append(a).append(")"); break;
+                case InstructionTape.ACOS: out.append("Math.acos(").append(a).append(")"); break;
+                case InstructionTape.ASIN: out.append("Math.asin(").append(a).append(")"); break;
+                case InstructionTape.ATAN: out.append("Math.atan(").append(a).append(")"); break;
+                case InstructionTape.CEIL: out.append("Math.ceil(").append(a).append(")"); break;
+                case InstructionTape.COS: out.append("Math.cos(").append(a).append(")"); break;
+                case InstructionTape.EXP: out.append("Math.exp(").append(a).append(")"); break;
+                case InstructionTape.FACT: out.append("factorial(").append(a).append(")"); usesFactorial = true; break;
+                case InstructionTape.FLOOR: out.append("Math.floor(").append(a).append(")"); break;
+                case InstructionTape.LOG: out.append("Math.log(").append(a).append(")"); break;
+                case InstructionTape.SIN: out.append("Math.sin(").append(a).append(")"); break;
+                case InstructionTape.SQRT: out.append("Math.sqrt(").append(a).append(")"); break;
+                case InstructionTape.TAN: out.append("Math.tan(").append(a).append(")"); break;
+                default: throw new IllegalStateException("Unknown opcode " + code[pc]);
+            }
+            out.append(";\n");
+            written[dest] = true;
+        }
+
+        // store the written registers
+        int storedRegisters = storeTemporaries ? tape.registerCount : tape.temporaryBase;
+        for (int register = 0; register < storedRegisters; register++)
+            if (written[register])
+                out.append("        r[").append(register).append("] = v").append(register).append(";\n");
+        out.append("    }\n");
+        return usesFactorial;
+    }
+
+    private static boolean isBinary(int opcode) {
+        switch (opcode) {
+            case InstructionTape.ADD:
+            case InstructionTape.SUB:
+            case InstructionTape.MUL:
+            case InstructionTape.DIV:
+            case InstructionTape.POW:
+                return true;
+            default:
+                return false;
+        }
+    }
+
+    private static String operand(int register, boolean[] isConstant, double[] constants) {
+        if (!isConstant[register])
+            return "v" + register;
+        double value = constants[register];
+        if (Double.isNaN(value))
+            return "Double.NaN";
+        if (Double.isInfinite(value))
+            return (value > 0) ? "Double.POSITIVE_INFINITY" : "Double.NEGATIVE_INFINITY";
+        return "(" + Double.toString(value) + ")";
+    }
+
+    /**
+     * Compiles the body of a class in memory and instantiates the class
+     * @param body The body of the class
+     * @return The instance, null if the compilation failed
+     */
+    private static TapeProgram compile(String body) {
+        JavaCompiler compiler = ToolProvider.getSystemJavaCompiler();
+        if (compiler == null) {
+            Logger.getLogger(TapeJitCompiler.class.getName()).log(Level.WARNING, "No Java compiler available, the tape is interpreted.");
+            return null;
+        }
+
+        String className = "GeneratedTapeProgram" + classCounter.incrementAndGet();
+        final String source = "package " + PACKAGE + ";\n\npublic final class " + className + " implements TapeProgram {\n\n" + body + "}\n";
+        JavaFileObject sourceFile = new SimpleJavaFileObject(URI.create("string:///" + className + JavaFileObject.Kind.SOURCE.extension), JavaFileObject.Kind.SOURCE) {
+            @Override
+            public CharSequence getCharContent(boolean ignoreEncodingErrors) {
+                return source;
+            }
+        };
+
+        final HashMap<String, ByteArrayOutputStream> classes = new HashMap<String, ByteArrayOutputStream>();
+        DiagnosticCollector<JavaFileObject> diagnostics = new DiagnosticCollector<JavaFileObject>();
+        StandardJavaFileManager standardFileManager = compiler.getStandardFileManager(diagnostics, null, null);
+        JavaFileManager fileManager = new ForwardingJavaFileManager<StandardJavaFileManager>(standardFileManager) {
+            @Override
+            public JavaFileObject getJavaFileForOutput(Location location, final String name, JavaFileObject.Kind kind, FileObject sibling) {
+                return new SimpleJavaFileObject(URI.create("mem:///" + name.replace('.', '/') + kind.extension), kind) {
+                    @Override
+                    public OutputStream openOutputStream() {
+                        ByteArrayOutputStream out = new ByteArrayOutputStream();
+                        classes.put(name, out);
+                        return out;
+                    }
+                };
+            }
+        };
+
+        Boolean success = compiler.getTask(null, fileManager, diagnostics, Arrays.asList("-classpath", getClassPath(), "-g:none"), null, Collections.singletonList(sourceFile)).call();
+        if (!success) {
+            StringBuilder message = new StringBuilder("Compilation of the tape failed, the tape is interpreted.");
+            for (Diagnostic<? extends JavaFileObject> diagnostic : diagnostics.getDiagnostics())
+                message.append('\n').append(diagnostic.getMessage(null));
+            Logger.getLogger(TapeJitCompiler.class.getName()).log(Level.WARNING, message.toString());
+            return null;
+        }
+
+        ClassLoader loader = new ClassLoader(TapeProgram.class.getClassLoader()) {
+            @Override
+            protected Class<?> findClass(String name) throws ClassNotFoundException {
+                ByteArrayOutputStream bytes = classes.get(name);
+                if (bytes == null)
+                    throw new ClassNotFoundException(name);
+                byte[] b = bytes.toByteArray();
+                return defineClass(name, b, 0, b.length);
+            }
+        };
+        try {
+            return (TapeProgram) loader.loadClass(PACKAGE + "." + className).getConstructor().newInstance();
+        } catch (ReflectiveOperationException ex) {
+            Logger.getLogger(TapeJitCompiler.class.getName()).log(Level.WARNING, "Loading of the compiled tape failed, the tape is interpreted.", ex);
+            return null;
+        }
+    }
+
+    /**
+     * Returns the class path of the compilation, which contains the class path of the JVM and the location of TapeProgram
+     * @return The class path
+     */
+    private static String getClassPath() {
+        StringBuilder classPath = new StringBuilder(System.getProperty("java.class.path"));
+        try {
+            CodeSource codeSource = TapeProgram.class.getProtectionDomain().getCodeSource();
+            if (codeSource != null)
+                classPath.append(File.pathSeparator).append(new File(codeSource.getLocation().toURI()).getPath());
+        } catch (URISyntaxException ex) {
+            // the class path of the JVM has to suffice
+        }
+        return classPath.toString();
+    }
+
+}
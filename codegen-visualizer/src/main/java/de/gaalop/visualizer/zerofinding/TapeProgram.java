@@ -0,0 +1,15 @@
+package de.gaalop.visualizer.zerofinding;
+
+/**
+ * An instruction tape, that is compiled into a Java class
+ * @author Christian Steinmetz
+ */
+public interface TapeProgram {
+
+    /**
+     * Evaluates the compiled tape
+     * @param registers The register file of the tape
+     */
+    void evaluate(double[] registers);
+
+}
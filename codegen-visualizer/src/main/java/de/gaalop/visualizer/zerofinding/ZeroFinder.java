@@ -8,6 +8,7 @@ import de.gaalop.visualizer.Differentiater;
 import de.gaalop.visualizer.Point3d;
 import java.util.HashMap;
 import java.util.LinkedList;
+import java.util.List;
 
 /**
  * Definies an interface for an zero finding method
@@ -20,6 +21,26 @@ public abstract class ZeroFinder {
     public void setDifferentiater(Differentiater differentiater) {
         this.differentiater = differentiater;
     }
+
+    protected boolean jitCompilation = false;
+
+    public void setJitCompilation(boolean jitCompilation) {
+        this.jitCompilation = jitCompilation;
+    }
+
+    /**
+     * Compiles a list of assignment nodes into an instruction tape,
+     * which is compiled into a Java class, if the jit compilation is enabled
+     * @param nodes The list of assignment nodes
+     * @param inputs The multivector components, that need a register
+     * @return The tape
+     */
+    protected InstructionTape createTape(List<AssignmentNode> nodes, MultivectorComponent... inputs) {
+        InstructionTape tape = new InstructionTape(nodes, inputs);
+        if (jitCompilation)
+            tape.compileToBytecode();
+        return tape;
+    }
     
     /**
      * Finds the zero locations in a list of assignmentnodes, given a global values set
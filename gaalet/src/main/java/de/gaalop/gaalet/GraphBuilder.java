@@ -129,7 +129,9 @@ public final class GraphBuilder {
 	
 	private String currentMacroDefinition;	
 	
-	private VariableScope currentScope = VariableScope.GLOBAL;
+	private VariableScope currentScope = new VariableScope(VariableScope.GLOBAL);
+
+	private final Set<Variable> gaVariables = new HashSet<Variable>();
 
 	private static final Map<String, String> illegalNames = new HashMap<String, String>();
 	
@@ -244,7 +246,7 @@ public final class GraphBuilder {
 		}
 		// save counter variable for this loop
 		if (counter != null) {
-			if (CheckGAVisitor.isGAVariable(counter)) {
+			if (gaVariables.contains(counter)) {
 				throw new IllegalArgumentException("Counter variable " + counter + " is not scalar. Please use "
 						+ counter + " only as counter variable and do not assign Geometric Algebra expressions to it.");
 			}
@@ -329,7 +331,7 @@ public final class GraphBuilder {
 	public AssignmentNode handleAssignment(Variable variable, Expression expression) {
 		checkIllegalVariable(variable);
 
-		CheckGAVisitor gaVisitor = new CheckGAVisitor();
+		CheckGAVisitor gaVisitor = new CheckGAVisitor(gaVariables);
 		expression.accept(gaVisitor);
 		if (gaVisitor.isGA()) {
 			//gaVisitor.addGAVariable(variable);
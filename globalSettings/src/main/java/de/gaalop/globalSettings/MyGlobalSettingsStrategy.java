@@ -21,6 +21,8 @@ public class MyGlobalSettingsStrategy implements GlobalSettingsStrategy {
     public void transform(ControlFlowGraph graph) throws OptimizationException {
         graph.globalSettings.maximaCommand = plugin.maximaCommand;
         graph.globalSettings.optMaxima = plugin.optMaxima;
+        graph.globalSettings.maximaSessions = plugin.maximaSessions;
+        graph.globalSettings.optPolynomialSimplifier = plugin.optPolynomialSimplifier;
     }
 
 }
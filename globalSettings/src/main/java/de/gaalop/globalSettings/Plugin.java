@@ -20,6 +20,20 @@ public class Plugin extends Observable implements GlobalSettingsStrategyPlugin {
      */
     @ConfigurationProperty(type=Type.BOOLEAN)
     public boolean optMaxima = false;
+
+    /*
+     * The number of long-running Maxima processes, which are shared between compilations.
+     * 0 starts a new Maxima process for every call.
+     */
+    @ConfigurationProperty(type=Type.NUMBER)
+    public int maximaSessions = 0;
+
+    /*
+     * Simplifies the expressions in-process instead of calling Maxima.
+     * If this is enabled, optMaxima is ignored by the table based approach.
+     */
+    @ConfigurationProperty(type=Type.BOOLEAN)
+    public boolean optPolynomialSimplifier = false;
     
     @ConfigurationProperty(type=Type.NUMBER)
     public int editorFontSize = 12;
@@ -68,6 +82,22 @@ public class Plugin extends Observable implements GlobalSettingsStrategyPlugin {
         this.optMaxima = optMaxima;
     }
 
+    public int getMaximaSessions() {
+        return maximaSessions;
+    }
+
+    public void setMaximaSessions(int maximaSessions) {
+        this.maximaSessions = maximaSessions;
+    }
+
+    public boolean isOptPolynomialSimplifier() {
+        return optPolynomialSimplifier;
+    }
+
+    public void setOptPolynomialSimplifier(boolean optPolynomialSimplifier) {
+        this.optPolynomialSimplifier = optPolynomialSimplifier;
+    }
+
     public int getEditorFontSize() {
         return editorFontSize;
     }
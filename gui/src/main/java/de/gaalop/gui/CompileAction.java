@@ -13,6 +13,7 @@ import java.io.IOException;
 import java.lang.reflect.Field;
 import java.lang.reflect.InvocationTargetException;
 import java.net.URL;
+import java.util.Observable;
 import java.util.Set;
 import java.util.logging.Level;
 import java.util.logging.Logger;
@@ -28,6 +29,11 @@ public class CompileAction extends AbstractAction {
 
 	private Log log = LogFactory.getLog(CompileAction.class);
 
+    /**
+     * The cache of compilation results, which is enabled by the system property gaalop.cache.dir
+     */
+    private static final CompilationCache compilationCache = CompilationCache.fromSystemProperties();
+
     private final SourceFilePanel sourcePanel;
 
 	private final StatusBar statusBar;
@@ -82,6 +88,7 @@ public class CompileAction extends AbstractAction {
         }
 
         CodeParserPlugin parserPlugin = sourcePanel.getParserPlugin();
+        CodeGeneratorPlugin codeGeneratorPlugin = panelPluginSelection.getCodeGeneratorPlugin();
         
         AlgebraStrategyPlugin algebra = Plugins.getAlgebraStrategyPlugins().iterator().next();
         
@@ -104,15 +111,25 @@ public class CompileAction extends AbstractAction {
         
         
 
+        // the compilation runs in its own thread and must not see configuration changes made meanwhile
+        parserPlugin = snapshot(parserPlugin);
+        globalSettingsPlugin = snapshot(globalSettingsPlugin);
+        visualizerPlugin = snapshot(visualizerPlugin);
+        algebraPlugin = snapshot(algebraPlugin);
+        optimizationPlugin = snapshot(optimizationPlugin);
+        codeGeneratorPlugin = snapshot(codeGeneratorPlugin);
+
         final CompilerFacade facade = new CompilerFacade(parserPlugin.createCodeParser(),
                 globalSettingsPlugin.createGlobalSettingsStrategy(),
                 visualizerPlugin.createVisualCodeInserterStrategy(),
                 algebraPlugin.createAlgebraStrategy(),
                 optimizationPlugin.createOptimizationStrategy(),
-                panelPluginSelection.getCodeGeneratorPlugin().createCodeGenerator(),
+                codeGeneratorPlugin.createCodeGenerator(),
                 algebraToUse.algebraName,algebraToUse.ressource,algebraBaseDirectory
                 );
         facade.addObserver(statusBar);
+        facade.setCompilationCache(compilationCache, parserPlugin, globalSettingsPlugin, visualizerPlugin,
+                algebraPlugin, optimizationPlugin, codeGeneratorPlugin);
 
         // start new thread in order to see status changes in main thread (GUI)
 		Thread compiler = new Thread(new Runnable() {
@@ -135,6 +152,17 @@ public class CompileAction extends AbstractAction {
 		compiler.start();
     }
 
+    /**
+     * Creates a configuration snapshot of a plugin and lets the status bar observe the snapshot
+     */
+    private <T extends Plugin> T snapshot(T plugin) {
+        T snapshot = Plugins.createSnapshot(plugin);
+        if (snapshot != plugin && snapshot instanceof Observable) {
+            ((Observable) snapshot).addObserver(statusBar);
+        }
+        return snapshot;
+    }
+
     private void displayOutput(Set<OutputFile> output) {
         ResultForm resultForm = new ResultForm(output);
 
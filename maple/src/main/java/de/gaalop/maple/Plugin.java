@@ -1,7 +1,6 @@
 package de.gaalop.maple;
 
 import com.sun.jna.Platform;
-import de.gaalop.CompilerFacade;
 import de.gaalop.ConfigurationProperty;
 import de.gaalop.Notifications;
 import de.gaalop.OptimizationStrategy;
@@ -164,13 +163,11 @@ public class Plugin extends Observable implements OptimizationStrategyPlugin {
 	}
 	
 	public boolean getUseCodeSegmenter() {
-		useCodeSegmenter = CompilerFacade.isUseCodeSegmenter();
 		return useCodeSegmenter;
 	}
 
 	public void setUseCodeSegmenter(boolean useCodeSegmenter) {
 		this.useCodeSegmenter = useCodeSegmenter;
-		CompilerFacade.setUseCodeSegmenter(useCodeSegmenter);
 	}
 
 	@Override
@@ -21,7 +21,6 @@ import de.gaalop.cfg.StoreResultNode;
 public class CFGNodeTypeGetter implements ControlFlowVisitor {
 
     private CFGNodeType type;
-    private static final CFGNodeTypeGetter getter = new CFGNodeTypeGetter();
 
     /**
      * Returns the type of a ControlFlowGraphNode
@@ -33,6 +32,7 @@ public class CFGNodeTypeGetter implements ControlFlowVisitor {
             return null;
         }
 
+        CFGNodeTypeGetter getter = new CFGNodeTypeGetter();
         node.accept(getter);
         return getter.type;
     }
@@ -32,7 +32,6 @@ import de.gaalop.dfg.Variable;
 public class DFGNodeTypeGetter implements ExpressionVisitor {
 
     private DFGNodeType type;
-    private static final DFGNodeTypeGetter getter = new DFGNodeTypeGetter();
 
     /**
      * Returns the type of a Expression
@@ -44,6 +43,7 @@ public class DFGNodeTypeGetter implements ExpressionVisitor {
             return null;
         }
 
+        DFGNodeTypeGetter getter = new DFGNodeTypeGetter();
         expression.accept(getter);
         return getter.type;
     }
@@ -0,0 +1,383 @@
+package de.gaalop.productComputer;
+
+import de.gaalop.tba.BladeRef;
+import de.gaalop.tba.Multivector;
+import de.gaalop.tba.Products;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedList;
+
+/**
+ * Computes the product of two blades, working on raw long bitmaps.
+ *
+ * In contrast to the ProductComputer, the base transformations between the
+ * zero-infinity base and the plus-minus base are precomputed once as sparse matrices,
+ * the signature is stored as bit masks and the reordering sign is computed via popcounts.
+ * The coefficients of the result blades are accumulated in primitive float arrays.
+ *
+ * The computed products are equal to the products of the ProductComputer,
+ * the result blades are sorted ascending by their indices.
+ *
+ * @author Christian Steinmetz
+ */
+public class BitmaskProductComputer {
+
+    private static final float EPSILON = 10E-4f;
+
+    private int bitCount;
+    private int bladeCount;
+
+    private long zeroSquareMask;
+    private long negativeSquareMask;
+
+    private long[] bitmapOfBlade;
+    private int[] bladeOfBitmap;
+
+    // base transformation zero-infinity -> plus-minus, indexed by blade index
+    private long[][] zIToPMBitmaps;
+    private float[][] zIToPMCoefficients;
+
+    // base transformation plus-minus -> zero-infinity, indexed by plus-minus bitmap
+    private long[][] pMToZIBitmaps;
+    private float[][] pMToZICoefficients;
+
+    private ThreadLocal<Accumulator> accumulators = new ThreadLocal<Accumulator>() {
+        @Override
+        protected Accumulator initialValue() {
+            return new Accumulator(bladeCount);
+        }
+    };
+
+    // ============================ INITIALIZATION ============================
+
+    /**
+     * Initializes the BitmaskProductComputer using an AlgebraPC instance
+     * @param algebraPC The AlgebraPC instance
+     */
+    public void initialize(AlgebraPC algebraPC) {
+        bitCount = algebraPC.base.length;
+        if (bitCount > 30)
+            throw new IllegalArgumentException("Algebras with more than 30 base vectors are not supported");
+        bladeCount = 1 << bitCount;
+
+        //set square masks
+        zeroSquareMask = 0;
+        negativeSquareMask = 0;
+        for (int index = 0; index < algebraPC.base2.length; index++) {
+            byte square = algebraPC.baseSquaresStr.get(algebraPC.base2[index]);
+            if (square == 0)
+                zeroSquareMask |= 1L << index;
+            if (square < 0)
+                negativeSquareMask |= 1L << index;
+        }
+
+        //fill blade list in zero inf base, in the same order as the ProductComputer
+        bitmapOfBlade = new long[bladeCount];
+        bladeOfBitmap = new int[bladeCount];
+        int index = 1;
+        for (int k = 1; k <= bitCount; k++)
+            index = createBlades(0, 0, k, index);
+        for (int blade = 0; blade < bladeCount; blade++)
+            bladeOfBitmap[(int) bitmapOfBlade[blade]] = blade;
+
+        //precompute the base transformations
+        SparseTerms[] mapZIToPM = createVectorMap(algebraPC.base2, algebraPC.base, algebraPC.mapToPlusMinus);
+        SparseTerms[] mapPMToZI = createVectorMap(algebraPC.base, algebraPC.base2, algebraPC.mapToZeroInf);
+
+        zIToPMBitmaps = new long[bladeCount][];
+        zIToPMCoefficients = new float[bladeCount][];
+        pMToZIBitmaps = new long[bladeCount][];
+        pMToZICoefficients = new float[bladeCount][];
+        for (int i = 0; i < bladeCount; i++) {
+            SparseTerms zIToPM = transform(bitmapOfBlade[i], mapZIToPM);
+            zIToPMBitmaps[i] = Arrays.copyOf(zIToPM.bitmaps, zIToPM.size);
+            zIToPMCoefficients[i] = Arrays.copyOf(zIToPM.coefficients, zIToPM.size);
+
+            SparseTerms pMToZI = transform(i, mapPMToZI);
+            pMToZIBitmaps[i] = Arrays.copyOf(pMToZI.bitmaps, pMToZI.size);
+            pMToZICoefficients[i] = Arrays.copyOf(pMToZI.coefficients, pMToZI.size);
+        }
+    }
+
+    /**
+     * Creates the bitmaps of all blades with a given grade in lexicographical order
+     * @param trailing The bitmap of the already chosen base vectors
+     * @param startPos The start position in the base
+     * @param k The number of base vectors to be chosen
+     * @param index The next free blade index
+     * @return The next free blade index after insertion
+     */
+    private int createBlades(long trailing, int startPos, int k, int index) {
+        for (int s = startPos; s <= bitCount - k; s++) {
+            long bitmap = trailing | (1L << s);
+            if (k == 1)
+                bitmapOfBlade[index++] = bitmap;
+            else
+                index = createBlades(bitmap, s + 1, k - 1, index);
+        }
+        return index;
+    }
+
+    /**
+     * Returns the index of an element in an array
+     * @param element The element to search
+     * @param arr The array to search in
+     * @return The index of the element
+     */
+    private static int getIndex(String element, String[] arr) {
+        for (int i = 0; i < arr.length; i++)
+            if (element.equals(arr[i]))
+                return i;
+        return -1;
+    }
+
+    /**
+     * Creates the transformation of every base vector into the other base
+     * @param base The base of the transformed vectors
+     * @param base2 The base of the source vectors
+     * @param source The map of the algebra definition
+     * @return The transformations, indexed by the bit of the source vector
+     */
+    private SparseTerms[] createVectorMap(String[] base, String[] base2, HashMap<String, LinkedList<BladeStr>> source) {
+        SparseTerms[] result = new SparseTerms[bitCount];
+        for (int bit = 0; bit < bitCount; bit++) {
+            result[bit] = new SparseTerms();
+            result[bit].add(1L << bit, 1);
+        }
+        for (String baseElement: source.keySet()) {
+            SparseTerms terms = new SparseTerms();
+            for (BladeStr bladeStr: source.get(baseElement)) {
+                String[] baseVectors = bladeStr.getBaseVectors();
+                int[] indices = new int[baseVectors.length];
+                long bitmap = 0;
+                for (int i = 0; i < baseVectors.length; i++) {
+                    indices[i] = getIndex(baseVectors[i], base);
+                    if (indices[i] >= 0)
+                        bitmap |= 1L << indices[i];
+                }
+                // count the inversions to get the sign of the canonical order
+                int inversions = 0;
+                for (int i = 0; i < indices.length; i++)
+                    for (int j = i + 1; j < indices.length; j++)
+                        if (indices[i] > indices[j])
+                            inversions++;
+                terms.add(bitmap, ((inversions & 1) == 0) ? bladeStr.getPrefactor() : -bladeStr.getPrefactor());
+            }
+            result[getIndex(baseElement, base2)] = terms;
+        }
+        return result;
+    }
+
+    /**
+     * Transforms a blade into another base by wedging the transformed base vectors
+     * @param bitmap The bitmap of the blade
+     * @param vectorMap The transformations of the base vectors
+     * @return The transformed blade
+     */
+    private SparseTerms transform(long bitmap, SparseTerms[] vectorMap) {
+        SparseTerms result = new SparseTerms();
+        result.add(0, 1);
+        for (int bit = 0; bit < bitCount; bit++)
+            if ((bitmap & (1L << bit)) != 0) {
+                SparseTerms vector = vectorMap[bit];
+                SparseTerms next = new SparseTerms();
+                for (int i = 0; i < result.size; i++)
+                    for (int j = 0; j < vector.size; j++)
+                        if ((result.bitmaps[i] & vector.bitmaps[j]) == 0)
+                            next.add(result.bitmaps[i] | vector.bitmaps[j],
+                                    result.coefficients[i] * vector.coefficients[j] * reorderingSign(result.bitmaps[i], vector.bitmaps[j]));
+                result = next;
+            }
+        return result;
+    }
+
+    // ============================ COMPUTATION OF PRODUCTS ============================
+
+    /**
+     * Computes the 'reordering sign' to get two blades into canonical order.
+     * This method is taken from the dissertation of Daniel Fontijne - Efficient Implementation of Geometric Algebra
+     * @param a The bitmap of the first blade
+     * @param b The bitmap of the second blade
+     * @return The sign which is yielded while reordering
+     */
+    public static int reorderingSign(long a, long b) {
+        a >>>= 1;
+        int sum = 0;
+        while (a != 0) {
+            sum += Long.bitCount(a & b);
+            a >>>= 1;
+        }
+        return ((sum & 1) == 0) ? 1 : -1;
+    }
+
+    /**
+     * Computes the coefficient of the product of two blades in the plus-minus base.
+     * The bitmap of the result blade is always a xor b.
+     * @param product The type of the product
+     * @param a The bitmap of the first blade
+     * @param b The bitmap of the second blade
+     * @return The coefficient, 0 if the product vanishes
+     */
+    private int productSign(Products product, long a, long b) {
+        long common = a & b;
+        switch (product) {
+            case OUTER:
+                if (common != 0)
+                    return 0;
+                return reorderingSign(a, b);
+            case INNER:
+                if (a == 0 || b == 0)
+                    return 0;
+                // left contraction, if the grade of a is less or equal than the grade of b, right contraction otherwise
+                if (Long.bitCount(a) <= Long.bitCount(b)) {
+                    if (common != a)
+                        return 0;
+                } else {
+                    if (common != b)
+                        return 0;
+                }
+                return geoSign(a, b, common);
+            case GEO:
+                return geoSign(a, b, common);
+            default:
+                throw new IllegalArgumentException("Product type is unknown!");
+        }
+    }
+
+    /**
+     * Computes the coefficient of the geometric product of two blades in the plus-minus base
+     * @param a The bitmap of the first blade
+     * @param b The bitmap of the second blade
+     * @param common The bitmap of the base vectors, which are contained in both blades
+     * @return The coefficient, 0 if the product vanishes
+     */
+    private int geoSign(long a, long b, long common) {
+        if ((common & zeroSquareMask) != 0)
+            return 0;
+        int sign = reorderingSign(a, b);
+        return ((Long.bitCount(common & negativeSquareMask) & 1) == 0) ? sign : -sign;
+    }
+
+    /**
+     * Computes a product of two blades
+     * @param product The type of the product
+     * @param factor1 The index of the first blade
+     * @param factor2 The index of the second blade
+     * @return The product of the two blades
+     */
+    public Multivector calcProduct(Products product, int factor1, int factor2) {
+        Accumulator accumulator = accumulators.get();
+
+        long[] bitmaps1 = zIToPMBitmaps[factor1];
+        float[] coefficients1 = zIToPMCoefficients[factor1];
+        long[] bitmaps2 = zIToPMBitmaps[factor2];
+        float[] coefficients2 = zIToPMCoefficients[factor2];
+
+        for (int i = 0; i < bitmaps1.length; i++)
+            for (int j = 0; j < bitmaps2.length; j++) {
+                int sign = productSign(product, bitmaps1[i], bitmaps2[j]);
+                if (sign != 0) {
+                    float coefficient = sign * coefficients1[i] * coefficients2[j];
+                    int resultPM = (int) (bitmaps1[i] ^ bitmaps2[j]);
+                    long[] resultBitmaps = pMToZIBitmaps[resultPM];
+                    float[] resultCoefficients = pMToZICoefficients[resultPM];
+                    for (int k = 0; k < resultBitmaps.length; k++)
+                        accumulator.add(bladeOfBitmap[(int) resultBitmaps[k]], coefficient * resultCoefficients[k]);
+                }
+            }
+
+        return accumulator.toMultivector();
+    }
+
+    /**
+     * Returns the number of blades in the algebra
+     * @return The number of blades
+     */
+    public int getBladeCount() {
+        return bladeCount;
+    }
+
+    /**
+     * Stores a sum of weighted blades in primitive arrays
+     */
+    private static class SparseTerms {
+
+        private long[] bitmaps = new long[4];
+        private float[] coefficients = new float[4];
+        private int size = 0;
+
+        /**
+         * Adds a weighted blade, merging equal blades
+         * @param bitmap The bitmap of the blade
+         * @param coefficient The coefficient of the blade
+         */
+        private void add(long bitmap, float coefficient) {
+            for (int i = 0; i < size; i++)
+                if (bitmaps[i] == bitmap) {
+                    coefficients[i] += coefficient;
+                    return;
+                }
+            if (size == bitmaps.length) {
+                bitmaps = Arrays.copyOf(bitmaps, 2 * size);
+                coefficients = Arrays.copyOf(coefficients, 2 * size);
+            }
+            bitmaps[size] = bitmap;
+            coefficients[size] = coefficient;
+            size++;
+        }
+    }
+
+    /**
+     * Accumulates the coefficients of result blades, indexed by blade index
+     */
+    private static class Accumulator {
+
+        private float[] coefficients;
+        private boolean[] touched;
+        private int[] touchedBlades;
+        private int touchedCount;
+
+        public Accumulator(int bladeCount) {
+            coefficients = new float[bladeCount];
+            touched = new boolean[bladeCount];
+            touchedBlades = new int[bladeCount];
+            touchedCount = 0;
+        }
+
+        /**
+         * Adds a coefficient to a blade
+         * @param blade The index of the blade
+         * @param coefficient The coefficient
+         */
+        private void add(int blade, float coefficient) {
+            if (!touched[blade]) {
+                touched[blade] = true;
+                touchedBlades[touchedCount++] = blade;
+            }
+            coefficients[blade] += coefficient;
+        }
+
+        /**
+         * Converts the accumulated coefficients to a multivector and resets this accumulator
+         * @return The multivector
+         */
+        private Multivector toMultivector() {
+            Arrays.sort(touchedBlades, 0, touchedCount);
+            Multivector result = new Multivector();
+            for (int i = 0; i < touchedCount; i++) {
+                int blade = touchedBlades[i];
+                float coefficient = coefficients[blade];
+                if (Math.abs(coefficient) > EPSILON) {
+                    if (1 - Math.abs(coefficient) > EPSILON)
+                        System.err.println("Error: MvCoeff is not -1,0,1 but " + coefficient);
+                    result.addBlade(new BladeRef((coefficient > 0) ? (byte) 1 : (byte) -1, blade));
+                }
+                coefficients[blade] = 0;
+                touched[blade] = false;
+            }
+            touchedCount = 0;
+            return result;
+        }
+    }
+
+}
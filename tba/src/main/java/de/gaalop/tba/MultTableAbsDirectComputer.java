@@ -4,6 +4,7 @@ import de.gaalop.productComputer.ProductComputer;
 import de.gaalop.productComputer.ProductCalculator;
 import de.gaalop.cfg.AlgebraDefinitionFile;
 import de.gaalop.productComputer.AlgebraPC;
+import de.gaalop.productComputer.BitmaskProductComputer;
 
 /**
  * Provides methods for direct computation of the product of two blades
@@ -14,6 +15,9 @@ public class MultTableAbsDirectComputer implements IMultTable {
     private ProductComputer computer;
     private ProductCalculator calculator;
 
+    private BitmaskProductComputer bitmaskComputer;
+    private Products product;
+
     public MultTableAbsDirectComputer(AlgebraDefinitionFile alFile, ProductCalculator calculator) {
         AlgebraPC algebraPC = new AlgebraPC(alFile);
         computer = new ProductComputer();
@@ -21,13 +25,25 @@ public class MultTableAbsDirectComputer implements IMultTable {
         this.calculator = calculator;
     }
 
+    /**
+     * Creates a direct computer, that uses a (shared) BitmaskProductComputer instance
+     * @param bitmaskComputer The initialized BitmaskProductComputer instance
+     * @param product The type of the product
+     */
+    public MultTableAbsDirectComputer(BitmaskProductComputer bitmaskComputer, Products product) {
+        this.bitmaskComputer = bitmaskComputer;
+        this.product = product;
+    }
+
     @Override
     public void createTable(int dimension) {
         //Do nothing
     }
-    
+
     @Override
     public Multivector getProduct(Integer factor1, Integer factor2) {
+        if (bitmaskComputer != null)
+            return bitmaskComputer.calcProduct(product, factor1, factor2);
         return computer.calcProduct(factor1, factor2, calculator);
     }
 
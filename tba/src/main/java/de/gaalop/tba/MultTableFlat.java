@@ -0,0 +1,269 @@
+package de.gaalop.tba;
+
+import java.util.Arrays;
+
+/**
+ * Stores the inner, outer and geometric product tables of an algebra
+ * in one flat, sparse primitive layout.
+ *
+ * For every blade pair (i,j) and every product type, the non-zero result blades
+ * are stored contiguously in an int array (blade indices) and a byte array (prefactors),
+ * sorted ascending by blade index. The entries are addressed by a start and
+ * a length array, which are indexed by the slot (i*bladeCount+j)*3+product.
+ *
+ * Since the tables are usually filled pair by pair (like in TableCompressed),
+ * the entries are appended sequentially, which results in a CSR-like layout.
+ *
+ * The three product tables are accessible as IMultTable views via getTable.
+ *
+ * @author Christian Steinmetz
+ */
+public class MultTableFlat {
+
+    private static final int PRODUCT_COUNT = Products.values().length;
+
+    private int bladeCount;
+
+    private int[] starts;
+    private int[] lengths;
+
+    private int[] blades;
+    private byte[] prefactors;
+    private int size;
+
+    private IMultTable[] views;
+
+    public MultTableFlat() {
+        views = new IMultTable[PRODUCT_COUNT];
+        for (Products product: Products.values())
+            views[product.ordinal()] = new View(product);
+        createTable(0);
+    }
+
+    /**
+     * Creates new empty tables with a given dimension.
+     * The dimension equals to the number of blades in the algebra
+     *
+     * @param dimension The dimension of the tables
+     */
+    public final void createTable(int dimension) {
+        bladeCount = dimension;
+        int slotCount = dimension * dimension * PRODUCT_COUNT;
+        starts = new int[slotCount];
+        lengths = new int[slotCount];
+        blades = new int[Math.max(16, slotCount)];
+        prefactors = new byte[blades.length];
+        size = 0;
+    }
+
+    /**
+     * Returns the number of blades, this tables were created with
+     * @return The number of blades
+     */
+    public int getBladeCount() {
+        return bladeCount;
+    }
+
+    /**
+     * Returns the IMultTable view on the table of a product type
+     * @param product The type of the product
+     * @return The view
+     */
+    public IMultTable getTable(Products product) {
+        return views[product.ordinal()];
+    }
+
+    /**
+     * Returns the slot of a product in the start and length arrays
+     * @param product The type of the product
+     * @param factor1 The index of the blade of the first factor
+     * @param factor2 The index of the blade of the second factor
+     * @return The slot
+     */
+    private int getSlot(Products product, int factor1, int factor2) {
+        return (factor1 * bladeCount + factor2) * PRODUCT_COUNT + product.ordinal();
+    }
+
+    /**
+     * Returns the number of non-zero result blades of the product of two blades
+     * @param product The type of the product
+     * @param factor1 The index of the blade of the first factor
+     * @param factor2 The index of the blade of the second factor
+     * @return The number of non-zero result blades
+     */
+    public int getResultCount(Products product, int factor1, int factor2) {
+        return lengths[getSlot(product, factor1, factor2)];
+    }
+
+    /**
+     * Copies the non-zero result blades of the product of two blades into the given buffers,
+     * sorted ascending by blade index. No objects are allocated.
+     * The buffers must be able to hold getResultCount(product, factor1, factor2) entries,
+     * bladeCount entries are always sufficient.
+     *
+     * @param product The type of the product
+     * @param factor1 The index of the blade of the first factor
+     * @param factor2 The index of the blade of the second factor
+     * @param resultBlades The buffer for the indices of the result blades
+     * @param resultPrefactors The buffer for the prefactors of the result blades
+     * @return The number of non-zero result blades
+     */
+    public int getProductBlades(Products product, int factor1, int factor2, int[] resultBlades, byte[] resultPrefactors) {
+        int slot = getSlot(product, factor1, factor2);
+        int length = lengths[slot];
+        System.arraycopy(blades, starts[slot], resultBlades, 0, length);
+        System.arraycopy(prefactors, starts[slot], resultPrefactors, 0, length);
+        return length;
+    }
+
+    /**
+     * Sets the product of two blades.
+     * The entries are appended at the end of the data arrays.
+     * If the product was set before, the old entries remain unused.
+     *
+     * @param product The type of the product
+     * @param factor1 The index of the blade of the first factor
+     * @param factor2 The index of the blade of the second factor
+     * @param mv The product
+     */
+    public void setProduct(Products product, int factor1, int factor2, Multivector mv) {
+        int count = mv.getBlades().size();
+        ensureCapacity(size + count);
+        int slot = getSlot(product, factor1, factor2);
+        starts[slot] = size;
+        for (BladeRef ref: mv.getBlades()) {
+            blades[size] = ref.getIndex();
+            prefactors[size] = ref.getPrefactor();
+            size++;
+        }
+        lengths[slot] = normalize(blades, prefactors, starts[slot], count);
+        size = starts[slot] + lengths[slot];
+    }
+
+    /**
+     * Returns the product of two blades as a newly created Multivector instance
+     * @param product The type of the product
+     * @param factor1 The index of the blade of the first factor
+     * @param factor2 The index of the blade of the second factor
+     * @return The product
+     */
+    public Multivector getProduct(Products product, int factor1, int factor2) {
+        int slot = getSlot(product, factor1, factor2);
+        Multivector result = new Multivector();
+        for (int i = starts[slot]; i < starts[slot] + lengths[slot]; i++)
+            result.addBlade(new BladeRef(prefactors[i], blades[i]));
+        return result;
+    }
+
+    /**
+     * Shrinks the data arrays to the number of stored entries
+     */
+    public void trimToSize() {
+        blades = Arrays.copyOf(blades, size);
+        prefactors = Arrays.copyOf(prefactors, size);
+    }
+
+    /**
+     * Ensures that the data arrays can hold a given number of entries
+     * @param capacity The number of entries
+     */
+    private void ensureCapacity(int capacity) {
+        if (capacity > blades.length) {
+            int newLength = Math.max(capacity, blades.length + (blades.length >> 1));
+            blades = Arrays.copyOf(blades, newLength);
+            prefactors = Arrays.copyOf(prefactors, newLength);
+        }
+    }
+
+    /**
+     * Copies the non-zero blades of a multivector into the given buffers,
+     * sorted ascending by blade index. Prefactors of equal blades are summed up.
+     * No objects are allocated.
+     *
+     * @param mv The multivector
+     * @param resultBlades The buffer for the indices of the blades
+     * @param resultPrefactors The buffer for the prefactors of the blades
+     * @return The number of non-zero blades
+     */
+    public static int getBlades(Multivector mv, int[] resultBlades, byte[] resultPrefactors) {
+        int count = 0;
+        for (BladeRef ref: mv.getBlades()) {
+            resultBlades[count] = ref.getIndex();
+            resultPrefactors[count] = ref.getPrefactor();
+            count++;
+        }
+        return normalize(resultBlades, resultPrefactors, 0, count);
+    }
+
+    /**
+     * Sums up the prefactors of equal blades, removes blades with zero prefactor
+     * and sorts the remaining blades ascending by index (in place).
+     * The blade lists of products are very short, so quadratic algorithms are used.
+     *
+     * @param blades The indices of the blades
+     * @param prefactors The prefactors of the blades
+     * @param start The start position in the arrays
+     * @param count The number of entries
+     * @return The number of remaining entries
+     */
+    private static int normalize(int[] blades, byte[] prefactors, int start, int count) {
+        int end = start;
+        for (int i = start; i < start + count; i++) {
+            int j = start;
+            while (j < end && blades[j] != blades[i]) j++;
+            if (j < end) {
+                prefactors[j] += prefactors[i];
+            } else {
+                blades[end] = blades[i];
+                prefactors[end] = prefactors[i];
+                end++;
+            }
+        }
+
+        int length = 0;
+        for (int i = start; i < end; i++)
+            if (prefactors[i] != 0) {
+                int blade = blades[i];
+                byte prefactor = prefactors[i];
+                int j = start + length;
+                while (j > start && blades[j - 1] > blade) {
+                    blades[j] = blades[j - 1];
+                    prefactors[j] = prefactors[j - 1];
+                    j--;
+                }
+                blades[j] = blade;
+                prefactors[j] = prefactor;
+                length++;
+            }
+        return length;
+    }
+
+    /**
+     * Implements the IMultTable interface for one product type of the flat tables
+     */
+    private class View implements IMultTable {
+
+        private Products product;
+
+        public View(Products product) {
+            this.product = product;
+        }
+
+        @Override
+        public void createTable(int dimension) {
+            if (dimension != bladeCount)
+                MultTableFlat.this.createTable(dimension);
+        }
+
+        @Override
+        public Multivector getProduct(Integer factor1, Integer factor2) {
+            return MultTableFlat.this.getProduct(product, factor1, factor2);
+        }
+
+        @Override
+        public void setProduct(Integer factor1, Integer factor2, Multivector product) {
+            MultTableFlat.this.setProduct(this.product, factor1, factor2, product);
+        }
+    }
+
+}
@@ -0,0 +1,200 @@
+package de.gaalop.tba;
+
+import java.util.Iterator;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Implements the IMultTable interface as a memoizing cache in front of another table,
+ * usually a MultTableAbsDirectComputer.
+ *
+ * Every product is computed on first request and stored in a compact encoding
+ * (one int per result blade, the blade index in the upper and the prefactor in the lowest byte).
+ * The number of cached products is bounded. If the bound is reached,
+ * a quarter of the cached products is evicted.
+ *
+ * The table is safe for concurrent readers, as long as the underlying table is.
+ *
+ * @author Christian Steinmetz
+ */
+public class MultTableMemoizing implements IMultTable {
+
+    private static final int[] EMPTY = new int[0];
+
+    private IMultTable source;
+    private int bladeCount;
+    private int maxEntries;
+
+    private ConcurrentHashMap<Integer, int[]> cache;
+    private AtomicInteger size = new AtomicInteger(0);
+    private ReentrantLock evictionLock = new ReentrantLock();
+
+    private AtomicLong hits = new AtomicLong(0);
+    private AtomicLong misses = new AtomicLong(0);
+    private AtomicLong evictions = new AtomicLong(0);
+
+    /**
+     * Creates a new memoizing table
+     * @param source The table, that computes the products
+     * @param bladeCount The number of blades in the algebra
+     * @param maxEntries The maximum number of cached products
+     */
+    public MultTableMemoizing(IMultTable source, int bladeCount, int maxEntries) {
+        if (maxEntries <= 0)
+            throw new IllegalArgumentException("The maximum number of cached products must be positive");
+        this.source = source;
+        this.bladeCount = bladeCount;
+        this.maxEntries = maxEntries;
+        cache = new ConcurrentHashMap<Integer, int[]>(Math.min(maxEntries, bladeCount * bladeCount));
+    }
+
+    @Override
+    public void createTable(int dimension) {
+        source.createTable(dimension);
+        cache.clear();
+        size.set(0);
+    }
+
+    @Override
+    public Multivector getProduct(Integer factor1, Integer factor2) {
+        int[] encoded = getEncoded(factor1, factor2);
+        Multivector result = new Multivector();
+        for (int e: encoded)
+            result.addBlade(new BladeRef((byte) e, e >>> 8));
+        return result;
+    }
+
+    @Override
+    public void setProduct(Integer factor1, Integer factor2, Multivector product) {
+        put(factor1 * bladeCount + factor2, encode(product));
+    }
+
+    /**
+     * Copies the non-zero result blades of the product of two blades into the given buffers,
+     * sorted ascending by blade index. If the product is cached, no multivector or blade objects are created,
+     * only the Integer key of the cache lookup is boxed (for keys outside of the Integer cache).
+     * The buffers must be able to hold bladeCount entries.
+     *
+     * @param factor1 The index of the blade of the first factor
+     * @param factor2 The index of the blade of the second factor
+     * @param resultBlades The buffer for the indices of the result blades
+     * @param resultPrefactors The buffer for the prefactors of the result blades
+     * @return The number of non-zero result blades
+     */
+    public int getProductBlades(int factor1, int factor2, int[] resultBlades, byte[] resultPrefactors) {
+        int[] encoded = getEncoded(factor1, factor2);
+        for (int i = 0; i < encoded.length; i++) {
+            resultBlades[i] = encoded[i] >>> 8;
+            resultPrefactors[i] = (byte) encoded[i];
+        }
+        return encoded.length;
+    }
+
+    /**
+     * Returns the encoded product of two blades, computes it on a cache miss
+     * @param factor1 The index of the blade of the first factor
+     * @param factor2 The index of the blade of the second factor
+     * @return The encoded product
+     */
+    private int[] getEncoded(int factor1, int factor2) {
+        Integer key = factor1 * bladeCount + factor2;
+        int[] encoded = cache.get(key);
+        if (encoded != null) {
+            hits.incrementAndGet();
+            return encoded;
+        }
+        misses.incrementAndGet();
+        encoded = encode(source.getProduct(factor1, factor2));
+        put(key, encoded);
+        return encoded;
+    }
+
+    /**
+     * Puts an encoded product into the cache and evicts products, if the bound is reached
+     * @param key The key of the product
+     * @param encoded The encoded product
+     */
+    private void put(Integer key, int[] encoded) {
+        if (cache.put(key, encoded) == null && size.incrementAndGet() > maxEntries)
+            evict();
+    }
+
+    /**
+     * Evicts a quarter of the cached products.
+     * Only one thread evicts at a time, other threads proceed without waiting.
+     */
+    private void evict() {
+        if (!evictionLock.tryLock())
+            return;
+        try {
+            int target = maxEntries - maxEntries / 4;
+            Iterator<Integer> it = cache.keySet().iterator();
+            while (size.get() > target && it.hasNext()) {
+                it.next();
+                it.remove();
+                size.decrementAndGet();
+                evictions.incrementAndGet();
+            }
+        } finally {
+            evictionLock.unlock();
+        }
+    }
+
+    /**
+     * Encodes a multivector as sorted int array
+     * @param product The multivector
+     * @return The encoded multivector
+     */
+    private int[] encode(Multivector product) {
+        int count = product.getBlades().size();
+        if (count == 0)
+            return EMPTY;
+        int[] blades = new int[count];
+        byte[] prefactors = new byte[count];
+        count = MultTableFlat.getBlades(product, blades, prefactors);
+        int[] encoded = new int[count];
+        for (int i = 0; i < count; i++)
+            encoded[i] = (blades[i] << 8) | (prefactors[i] & 0xFF);
+        return encoded;
+    }
+
+    /**
+     * Returns the number of requests, which were answered from the cache
+     * @return The number of cache hits
+     */
+    public long getHitCount() {
+        return hits.get();
+    }
+
+    /**
+     * Returns the number of requests, which lead to a computation of the product
+     * @return The number of cache misses
+     */
+    public long getMissCount() {
+        return misses.get();
+    }
+
+    /**
+     * Returns the number of evicted products
+     * @return The number of evictions
+     */
+    public long getEvictionCount() {
+        return evictions.get();
+    }
+
+    /**
+     * Returns the number of currently cached products
+     * @return The number of cached products
+     */
+    public int getSize() {
+        return size.get();
+    }
+
+    @Override
+    public String toString() {
+        return "hits=" + getHitCount() + ", misses=" + getMissCount() + ", evictions=" + getEvictionCount() + ", size=" + getSize();
+    }
+
+}
@@ -36,6 +36,18 @@ public class Plugin extends Observable implements OptimizationStrategyPlugin {
     @ConfigurationProperty(type = Type.NUMBER)
     public int numberOfRoundingDigits = 6;
 
+    // maximum number of assignments, that are simplified by one Maxima run, 0 for a single run
+    @ConfigurationProperty(type = Type.NUMBER)
+    public int maximaChunkSize = 0;
+
+    // seconds to wait for the simplification of a chunk, 0 for no limit
+    @ConfigurationProperty(type = Type.NUMBER)
+    public int maximaChunkTimeout = 0;
+
+    // share structurally equal subexpressions while building the multivector expressions
+    @ConfigurationProperty(type = Type.BOOLEAN)
+    public boolean internExpressions = false;
+
     public boolean isOptConstantPropagation() {
         return optConstantPropagation;
     }
@@ -108,6 +120,30 @@ public class Plugin extends Observable implements OptimizationStrategyPlugin {
         this.doRoundingAfterOptimization = doRoundingAfterOptimization;
     }
 
+    public int getMaximaChunkSize() {
+        return maximaChunkSize;
+    }
+
+    public void setMaximaChunkSize(int maximaChunkSize) {
+        this.maximaChunkSize = maximaChunkSize;
+    }
+
+    public int getMaximaChunkTimeout() {
+        return maximaChunkTimeout;
+    }
+
+    public void setMaximaChunkTimeout(int maximaChunkTimeout) {
+        this.maximaChunkTimeout = maximaChunkTimeout;
+    }
+
+    public boolean isInternExpressions() {
+        return internExpressions;
+    }
+
+    public void setInternExpressions(boolean internExpressions) {
+        this.internExpressions = internExpressions;
+    }
+
     @Override
     public String getDescription() {
         return "This plugin uses a table based approach to optimize Geometric Algebra";
@@ -4,6 +4,7 @@ import de.gaalop.OptimizationException;
 import de.gaalop.OptimizationStrategy;
 import de.gaalop.cfg.ControlFlowGraph;
 import de.gaalop.tba.cfgImport.CFGImporterFacade;
+import de.gaalop.tba.cfgImport.optimization.OptimizationPassManager;
 
 /**
  * Defines a facade class for the table based approach
@@ -21,5 +22,18 @@ public class TBAOptStrategy implements OptimizationStrategy {
     public void transform(ControlFlowGraph graph) throws OptimizationException {
         CFGImporterFacade importer = new CFGImporterFacade(plugin);
         importer.importGraph(graph);
+
+        if (graph.statistics != null) {
+            OptimizationPassManager passManager = importer.getPassManager();
+            graph.statistics.addCounter("tba.rounds", passManager.getIterationCount());
+            for (OptimizationPassManager.PassStatistics pass : passManager.getStatistics()) {
+                String name = pass.getName().replace(" ", "");
+                String prefix = "tba." + Character.toLowerCase(name.charAt(0)) + name.substring(1) + ".";
+                graph.statistics.addCounter(prefix + "runs", pass.getRunCount());
+                graph.statistics.addCounter(prefix + "modifyingRuns", pass.getModifyingRunCount());
+                graph.statistics.addCounter(prefix + "examinedNodes", pass.getExaminedNodeCount());
+                graph.statistics.addCounter(prefix + "timeNs", pass.getTime());
+            }
+        }
     }
 }
\ No newline at end of file
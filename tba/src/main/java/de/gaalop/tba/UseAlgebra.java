@@ -5,6 +5,10 @@ import de.gaalop.algebra.BladeArrayRoutines;
 import de.gaalop.algebra.TCBlade;
 import de.gaalop.cfg.AlgebraDefinitionFile;
 import de.gaalop.dfg.Expression;
+import de.gaalop.productComputer.AlgebraPC;
+import de.gaalop.productComputer.BitmaskProductComputer;
+import de.gaalop.tba.table.MultTableMapped;
+import de.gaalop.tba.table.TableFormat;
 import java.io.File;
 import java.io.FileNotFoundException;
 import java.io.IOException;
@@ -23,42 +27,72 @@ public class UseAlgebra {
     private IMultTable tableInner;
     private IMultTable tableOuter;
     private IMultTable tableGeo;
+    private MultTableFlat tableFlat;
+    private MultTableMapped tableMapped;
 
     public UseAlgebra(AlgebraDefinitionFile alFile) {
         if (alFile.isUsePrecalculatedTable()) {
             algebra = new Algebra(alFile);
-            tableInner = new MultTableImpl();
-            tableOuter = new MultTableImpl();
-            tableGeo = new MultTableImpl();
-            tableInner.createTable(algebra.getBladeCount());
-            tableOuter.createTable(algebra.getBladeCount());
-            tableGeo.createTable(algebra.getBladeCount());
-
-            MultTableLoader loader = new MultTableLoader();
             try {
-                loader.load(this, alFile.getProductsFilePath(), alFile.isUseAsRessource());
+                File productsFile = new File(alFile.getProductsFilePath());
+                if (!alFile.isUseAsRessource() && TableFormat.readFormat(productsFile) == TableFormat.TABLE_INDEXED) {
+                    // indexed tables are mapped and decoded on demand
+                    tableMapped = MultTableMapped.open(productsFile);
+                    tableInner = tableMapped.getTable(Products.INNER);
+                    tableOuter = tableMapped.getTable(Products.OUTER);
+                    tableGeo = tableMapped.getTable(Products.GEO);
+                } else {
+                    createFlatTables(algebra.getBladeCount());
+                    MultTableLoader loader = new MultTableLoader();
+                    loader.load(this, alFile.getProductsFilePath(), alFile.isUseAsRessource());
+                    tableFlat.trimToSize();
+                }
             } catch (IOException ex) {
                 Logger.getLogger(UseAlgebra.class.getName()).log(Level.SEVERE, null, ex);
             }
         } else {
-            tableInner = new MultTableAbsDirectComputer(alFile, new de.gaalop.productComputer.InnerProductCalculator());
-            tableInner.createTable(0);
-            tableOuter = new MultTableAbsDirectComputer(alFile, new de.gaalop.productComputer.OuterProductCalculator());
-            tableOuter.createTable(0);
-            tableGeo = new MultTableAbsDirectComputer(alFile, new de.gaalop.productComputer.GeoProductCalculator());
-            tableGeo.createTable(0);
+            BitmaskProductComputer computer = new BitmaskProductComputer();
+            computer.initialize(new AlgebraPC(alFile));
             algebra = new Algebra(alFile);
+            tableInner = createLiveTable(computer, Products.INNER, alFile.getProductCacheSize());
+            tableOuter = createLiveTable(computer, Products.OUTER, alFile.getProductCacheSize());
+            tableGeo = createLiveTable(computer, Products.GEO, alFile.getProductCacheSize());
         }
+        // build the blade index eagerly, so the instance can be shared between compilations
+        algebra.buildMap();
     }
 
     public UseAlgebra(Algebra algebra, int bladeCount) {
         this.algebra = algebra;
-        tableInner = new MultTableImpl();
-        tableOuter = new MultTableImpl();
-        tableGeo = new MultTableImpl();
-        tableInner.createTable(bladeCount);
-        tableOuter.createTable(bladeCount);
-        tableGeo.createTable(bladeCount);
+        createFlatTables(bladeCount);
+    }
+
+    /**
+     * Creates a table, that computes the products directly.
+     * The products are memoized, if the cache size is positive.
+     * @param computer The computer to be used
+     * @param product The type of the product
+     * @param cacheSize The maximum number of cached products, 0 disables caching
+     * @return The table
+     */
+    private IMultTable createLiveTable(BitmaskProductComputer computer, Products product, int cacheSize) {
+        IMultTable table = new MultTableAbsDirectComputer(computer, product);
+        table.createTable(0);
+        if (cacheSize > 0)
+            table = new MultTableMemoizing(table, computer.getBladeCount(), cacheSize);
+        return table;
+    }
+
+    /**
+     * Creates the flat product tables and uses their views as inner, outer and geometric product table
+     * @param bladeCount The number of blades
+     */
+    private void createFlatTables(int bladeCount) {
+        tableFlat = new MultTableFlat();
+        tableFlat.createTable(bladeCount);
+        tableInner = tableFlat.getTable(Products.INNER);
+        tableOuter = tableFlat.getTable(Products.OUTER);
+        tableGeo = tableFlat.getTable(Products.GEO);
     }
 
     /**
@@ -124,6 +158,24 @@ public class UseAlgebra {
         return tableGeo;
     }
 
+    /**
+     * Returns the table of a product type
+     * @param typeProduct The type of the product
+     * @return The table
+     */
+    public IMultTable getTable(Products typeProduct) {
+        switch (typeProduct) {
+            case INNER:
+                return tableInner;
+            case OUTER:
+                return tableOuter;
+            case GEO:
+                return tableGeo;
+            default:
+                throw new IllegalArgumentException("Product type is unknown!");
+        }
+    }
+
     /**
      * Returns the useAlgebra which represents the calculations in 5d conformal geometric algebra
      * @return The useAlgebra instance
@@ -203,6 +255,32 @@ public class UseAlgebra {
 
     }
 
+    /**
+     * Copies the non-zero result blades of the product of two blades into the given buffers,
+     * sorted ascending by blade index.
+     * If the products are stored in flat or mapped tables, no objects are allocated.
+     * The buffers must be able to hold bladeCount entries.
+     *
+     * @param typeProduct The type of the product
+     * @param bladeL The index of the blade of the first factor
+     * @param bladeR The index of the blade of the second factor
+     * @param resultBlades The buffer for the indices of the result blades
+     * @param resultPrefactors The buffer for the prefactors of the result blades
+     * @return The number of non-zero result blades
+     */
+    public int getProductBlades(Products typeProduct, int bladeL, int bladeR, int[] resultBlades, byte[] resultPrefactors) {
+        if (tableFlat != null)
+            return tableFlat.getProductBlades(typeProduct, bladeL, bladeR, resultBlades, resultPrefactors);
+        if (tableMapped != null)
+            return tableMapped.getProductBlades(typeProduct, bladeL, bladeR, resultBlades, resultPrefactors);
+
+        IMultTable table = getTable(typeProduct);
+        if (table instanceof MultTableMemoizing)
+            return ((MultTableMemoizing) table).getProductBlades(bladeL, bladeR, resultBlades, resultPrefactors);
+        else
+            return MultTableFlat.getBlades(table.getProduct(bladeL, bladeR), resultBlades, resultPrefactors);
+    }
+
     public void saveToDir(File dir, int from, int to) throws FileNotFoundException {
 
         //save blade file
@@ -32,6 +32,10 @@ public class CFGImporter extends MvExpressionsBuilder {
             Expression e = mvExpr.bladeExpressions[i];
 
             if (e != null) {
+                if (e.isInterned()) {
+                    // interned expressions are shared, the graph gets a changeable copy
+                    e = e.copy();
+                }
                 inserted = true;
                 AssignmentNode insNode = new AssignmentNode(node.getGraph(), new MultivectorComponent(variable.getName(), i), e);
 
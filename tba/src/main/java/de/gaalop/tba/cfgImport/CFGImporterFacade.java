@@ -1,18 +1,19 @@
 package de.gaalop.tba.cfgImport;
 
 import de.gaalop.OptimizationException;
+import de.gaalop.algebra.AlgebraRegistry;
 import de.gaalop.algebra.UpdateLocalVariableSet;
 import de.gaalop.api.cfg.RoundingCFGVisitor;
+import de.gaalop.cfg.AlgebraDefinitionFile;
 import de.gaalop.cfg.ControlFlowGraph;
+import de.gaalop.dfg.ExpressionInterner;
 import de.gaalop.dfg.Variable;
 import de.gaalop.tba.Plugin;
 import de.gaalop.tba.UseAlgebra;
-import de.gaalop.tba.cfgImport.optimization.OptConstantPropagation;
 import de.gaalop.tba.cfgImport.optimization.OptMaxima;
-import de.gaalop.tba.cfgImport.optimization.OptOneExpressionsRemoval;
-import de.gaalop.tba.cfgImport.optimization.OptimizationStrategyWithModifyFlag;
-import de.gaalop.tba.cfgImport.optimization.OptUnusedAssignmentsRemoval;
-import java.util.LinkedList;
+import de.gaalop.tba.cfgImport.optimization.OptPolynomialSimplification;
+import de.gaalop.tba.cfgImport.optimization.OptimizationPassManager;
+import de.gaalop.tba.cfgImport.optimization.maxima.MaximaSessionPool;
 
 /**
  * This class provides a simple facade to transform the graph
@@ -22,25 +23,15 @@ import java.util.LinkedList;
  */
 public class CFGImporterFacade {
 
-    private LinkedList<OptimizationStrategyWithModifyFlag> optimizations;
+    private OptimizationPassManager passManager;
     private Plugin plugin;
     private UseAlgebra usedAlgebra;
 
     public CFGImporterFacade(Plugin plugin) {
         this.plugin = plugin;
 
-        optimizations = new LinkedList<OptimizationStrategyWithModifyFlag>();
-
-        if (plugin.isOptConstantPropagation()) {
-            optimizations.add(new OptConstantPropagation());
-        }
-        if (plugin.isOptUnusedAssignments()) {
-            optimizations.add(new OptUnusedAssignmentsRemoval());
-        }
-        if (plugin.isOptOneExpressionRemoval()) {
-            optimizations.add(new OptOneExpressionsRemoval());
-        }
-
+        passManager = new OptimizationPassManager(plugin.isOptConstantPropagation(),
+                plugin.isOptUnusedAssignments(), plugin.isOptOneExpressionRemoval());
     }
 
     /**
@@ -54,7 +45,7 @@ public class CFGImporterFacade {
     public ControlFlowGraph importGraph(ControlFlowGraph graph) throws OptimizationException {
 
         //load desired algebra
-        usedAlgebra = new UseAlgebra(graph.getAlgebraDefinitionFile());
+        usedAlgebra = loadAlgebra(graph);
 
         if (ContainsControlFlow.containsControlFlow(graph)) {
             throw new OptimizationException("Due to Control Flow Existence in Source, TBA isn't assigned on graph!", graph);
@@ -81,32 +72,26 @@ public class CFGImporterFacade {
 
 
         CFGImporter builder = new CFGImporter(usedAlgebra, plugin.isScalarFunctions(), graph.getAlgebraDefinitionFile());
+        if (plugin.isInternExpressions()) {
+            builder.setInterner(new ExpressionInterner());
+        }
         graph.accept(builder);
 
-        int count = 0;
-        boolean repeat;
-        do {
-            repeat = false;
-            for (OptimizationStrategyWithModifyFlag curOpt : optimizations) {
-                repeat = repeat || curOpt.transform(graph, usedAlgebra);
-            }
-            count++;
-        } while (repeat);
-
-        //Use Maxima only once
-        if (graph.globalSettings.isOptMaxima()) {
-            OptMaxima optMaxima = new OptMaxima(graph.globalSettings.getMaximaCommand(), plugin);
+        passManager.optimize(graph, usedAlgebra);
+
+        //Use the polynomial simplification or Maxima only once
+        if (graph.globalSettings.isOptPolynomialSimplifier()) {
+            new OptPolynomialSimplification(plugin).transform(graph, usedAlgebra);
+
+            //repeat other optimizations
+            passManager.optimize(graph, usedAlgebra);
+        } else if (graph.globalSettings.isOptMaxima()) {
+            OptMaxima optMaxima = new OptMaxima(MaximaSessionPool.createConnection(
+                    graph.globalSettings.getMaximaCommand(), graph.globalSettings.getMaximaSessions()), plugin);
             optMaxima.transform(graph, usedAlgebra);
 
             //repeat other optimizations
-            count = 0;
-            do {
-                repeat = false;
-                for (OptimizationStrategyWithModifyFlag curOpt : optimizations) {
-                    repeat = repeat || curOpt.transform(graph, usedAlgebra);
-                }
-                count++;
-            } while (repeat);
+            passManager.optimize(graph, usedAlgebra);
         }
 
         // update variable sets
@@ -119,8 +104,36 @@ public class CFGImporterFacade {
         return graph;
     }
 
+    /**
+     * Returns the product tables of the algebra of a graph.
+     * The tables are shared with other compilations through the AlgebraRegistry,
+     * if the algebra is cached there.
+     * @param graph The graph
+     * @return The algebra with its product tables
+     */
+    private static UseAlgebra loadAlgebra(ControlFlowGraph graph) {
+        AlgebraDefinitionFile alFile = graph.getAlgebraDefinitionFile();
+        AlgebraRegistry.Entry loadedAlgebra = AlgebraRegistry.getInstance().lookup(graph);
+        if (loadedAlgebra == null)
+            return new UseAlgebra(alFile);
+
+        String key = UseAlgebra.class.getName() + ":" + alFile.isUsePrecalculatedTable() + ":" + alFile.getProductCacheSize();
+        UseAlgebra algebra = (UseAlgebra) loadedAlgebra.getAttachment(key);
+        if (algebra == null)
+            algebra = (UseAlgebra) loadedAlgebra.attach(key, new UseAlgebra(alFile));
+        return algebra;
+    }
+
     public UseAlgebra getUsedAlgebra() {
         return usedAlgebra;
     }
 
+    /**
+     * Returns the pass manager with the statistics of the applied optimizations
+     * @return The pass manager
+     */
+    public OptimizationPassManager getPassManager() {
+        return passManager;
+    }
+
 }
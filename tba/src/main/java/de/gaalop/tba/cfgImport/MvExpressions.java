@@ -15,4 +15,18 @@ public class MvExpressions {
         this.nameMv = nameMv;
         bladeExpressions = new Expression[bladeCount];
     }
+
+    /**
+     * Copies the indices of all non-null blade expressions in ascending order into a given buffer.
+     * The buffer must be able to hold bladeCount entries.
+     * @param indices The buffer for the indices
+     * @return The number of non-null blade expressions
+     */
+    public int getBladeIndices(int[] indices) {
+        int count = 0;
+        for (int blade = 0; blade < bladeExpressions.length; blade++)
+            if (bladeExpressions[blade] != null)
+                indices[count++] = blade;
+        return count;
+    }
 }
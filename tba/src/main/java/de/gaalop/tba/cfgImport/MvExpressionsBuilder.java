@@ -5,6 +5,7 @@ import de.gaalop.dfg.ExpressionVisitor;
 import de.gaalop.cfg.AssignmentNode;
 import de.gaalop.cfg.EmptyControlFlowVisitor;
 import java.util.HashMap;
+import java.util.IdentityHashMap;
 import de.gaalop.dfg.Addition;
 import de.gaalop.dfg.BaseVector;
 import de.gaalop.dfg.BinaryOperation;
@@ -12,6 +13,7 @@ import de.gaalop.dfg.Division;
 import de.gaalop.dfg.Equality;
 import de.gaalop.dfg.Exponentiation;
 import de.gaalop.dfg.Expression;
+import de.gaalop.dfg.ExpressionInterner;
 import de.gaalop.dfg.FloatConstant;
 import de.gaalop.dfg.FunctionArgument;
 import de.gaalop.dfg.Inequality;
@@ -31,8 +33,6 @@ import de.gaalop.dfg.Reverse;
 import de.gaalop.dfg.Subtraction;
 import de.gaalop.dfg.UnaryOperation;
 import de.gaalop.dfg.Variable;
-import de.gaalop.tba.Algebra;
-import de.gaalop.tba.Multivector;
 import de.gaalop.tba.Products;
 import de.gaalop.tba.UseAlgebra;
 
@@ -43,14 +43,23 @@ import de.gaalop.tba.UseAlgebra;
 public class MvExpressionsBuilder extends EmptyControlFlowVisitor implements ExpressionVisitor {
 
     public HashMap<String, MvExpressions> variables;
-    public HashMap<Expression, MvExpressions> expressions;
+    /**
+     * The MvExpressions of the visited expressions.
+     * Every lookup uses the visited node itself, so the nodes are compared by identity
+     * instead of hashing and comparing whole subtrees.
+     */
+    public IdentityHashMap<Expression, MvExpressions> expressions;
     private int counterMv;
     public int bladeCount;
     private UseAlgebra usedAlgebra;
-    private final double EPSILON = 10E-07;
+    private int[] productBlades;
+    private byte[] productPrefactors;
+    private int[] leftBlades;
+    private int[] rightBlades;
     private boolean scalarFunctions;
     private Variable curVariable;
     private AlgebraDefinitionFile alFile;
+    private ExpressionInterner interner;
 
     public MvExpressionsBuilder(UseAlgebra usedAlgebra, boolean scalarFunctions, AlgebraDefinitionFile alFile) {
         this.scalarFunctions = scalarFunctions;
@@ -60,8 +69,38 @@ public class MvExpressionsBuilder extends EmptyControlFlowVisitor implements Exp
         counterMv = 0;
 
         bladeCount = usedAlgebra.getBladeCount();
+        productBlades = new int[bladeCount];
+        productPrefactors = new byte[bladeCount];
+        leftBlades = new int[bladeCount];
+        rightBlades = new int[bladeCount];
+
+        expressions = new IdentityHashMap<Expression, MvExpressions>();
+    }
+
+    /**
+     * Sets the interner, which makes the blade expressions of all built MvExpressions canonical,
+     * so that structurally equal subexpressions are shared and hashed in constant time.
+     * Interned expressions must not be changed, use copy() to insert them into the graph.
+     * @param interner The interner, null to build the expressions without interning
+     */
+    public void setInterner(ExpressionInterner interner) {
+        this.interner = interner;
+    }
 
-        expressions = new HashMap<Expression, MvExpressions>();
+    /**
+     * Interns the blade expressions of a MvExpressions instance, if an interner is set
+     * @param mv The MvExpressions instance
+     * @return The given instance
+     */
+    private MvExpressions intern(MvExpressions mv) {
+        if (interner != null && mv != null) {
+            for (int blade = 0; blade < bladeCount; blade++) {
+                if (mv.bladeExpressions[blade] != null) {
+                    mv.bladeExpressions[blade] = interner.intern(mv.bladeExpressions[blade]);
+                }
+            }
+        }
+        return mv;
     }
 
     /**
@@ -125,28 +164,26 @@ public class MvExpressionsBuilder extends EmptyControlFlowVisitor implements Exp
      */
     private MvExpressions calculateUsingMultTable(Products typeProduct, MvExpressions left, MvExpressions right) {
         MvExpressions result = createNewMvExpressions();
-        Algebra algebra = usedAlgebra.getAlgebra();
         boolean set = false;
-        for (int bladeL = 0; bladeL < bladeCount; bladeL++) {
-            if (left.bladeExpressions[bladeL] != null) {
-                for (int bladeR = 0; bladeR < bladeCount; bladeR++) {
-                    if (right.bladeExpressions[bladeR] != null) {
-                        Expression prodExpr = new Multiplication(left.bladeExpressions[bladeL], right.bladeExpressions[bladeR]);
-                        Multivector prodMv = usedAlgebra.getProduct(typeProduct, bladeL, bladeR);
-
-                        byte[] prod = prodMv.getValueArr(algebra);
-
-                        for (int bladeResult = 0; bladeResult < bladeCount; bladeResult++) {
-                            if (Math.abs(prod[bladeResult]) > EPSILON) {
-                                Expression prodExpri = new Multiplication(prodExpr, new FloatConstant(prod[bladeResult]));
-                                if (result.bladeExpressions[bladeResult] == null) {
-                                    set = true; 
-                                   result.bladeExpressions[bladeResult] = prodExpri;
-                                } else {
-                                    result.bladeExpressions[bladeResult] = new Addition(result.bladeExpressions[bladeResult], prodExpri);
-                                }
-                            }
-                        }
+        int countL = left.getBladeIndices(leftBlades);
+        int countR = right.getBladeIndices(rightBlades);
+        for (int l = 0; l < countL; l++) {
+            int bladeL = leftBlades[l];
+            for (int r = 0; r < countR; r++) {
+                int bladeR = rightBlades[r];
+                int count = usedAlgebra.getProductBlades(typeProduct, bladeL, bladeR, productBlades, productPrefactors);
+                if (count == 0)
+                    continue;
+
+                Expression prodExpr = new Multiplication(left.bladeExpressions[bladeL], right.bladeExpressions[bladeR]);
+                for (int i = 0; i < count; i++) {
+                    int bladeResult = productBlades[i];
+                    Expression prodExpri = new Multiplication(prodExpr, new FloatConstant(productPrefactors[i]));
+                    if (result.bladeExpressions[bladeResult] == null) {
+                        set = true; 
+                        result.bladeExpressions[bladeResult] = prodExpri;
+                    } else {
+                        result.bladeExpressions[bladeResult] = new Addition(result.bladeExpressions[bladeResult], prodExpri);
                     }
                 }
             }
@@ -167,7 +204,7 @@ public class MvExpressionsBuilder extends EmptyControlFlowVisitor implements Exp
 
         MvExpressions result = calculateUsingMultTable(typeProduct, left, right);
 
-        expressions.put(node, result);
+        expressions.put(node, intern(result));
     }
 
     /**
@@ -209,7 +246,7 @@ public class MvExpressionsBuilder extends EmptyControlFlowVisitor implements Exp
 
         }
 
-        expressions.put(node, result);
+        expressions.put(node, intern(result));
     }
 
     @Override
@@ -234,7 +271,7 @@ public class MvExpressionsBuilder extends EmptyControlFlowVisitor implements Exp
 
         }
 
-        expressions.put(node, result);
+        expressions.put(node, intern(result));
 
     }
 
@@ -290,7 +327,7 @@ public class MvExpressionsBuilder extends EmptyControlFlowVisitor implements Exp
 
         MvExpressions result = calculateUsingMultTable(Products.GEO, l, inverse);
 
-        expressions.put(node, result);
+        expressions.put(node, intern(result));
 
     }
 
@@ -347,7 +384,7 @@ public class MvExpressionsBuilder extends EmptyControlFlowVisitor implements Exp
             }
         }
 
-        expressions.put(node, result);
+        expressions.put(node, intern(result));
     }
 
     @Override
@@ -370,7 +407,7 @@ public class MvExpressionsBuilder extends EmptyControlFlowVisitor implements Exp
             v.bladeExpressions[0] = node;
         }
 
-        expressions.put(node, v);
+        expressions.put(node, intern(v));
     }
 
     @Override
@@ -382,7 +419,7 @@ public class MvExpressionsBuilder extends EmptyControlFlowVisitor implements Exp
     public void visit(FloatConstant node) {
         MvExpressions result = createNewMvExpressions();
         result.bladeExpressions[0] = node;
-        expressions.put(node, result);
+        expressions.put(node, intern(result));
     }
 
     @Override
@@ -395,7 +432,7 @@ public class MvExpressionsBuilder extends EmptyControlFlowVisitor implements Exp
     public void visit(BaseVector node) {
         MvExpressions result = createNewMvExpressions();
         result.bladeExpressions[alFile.getIndex(node.toString())] = new FloatConstant(1);
-        expressions.put(node, result);
+        expressions.put(node, intern(result));
     }
 
     @Override
@@ -412,7 +449,7 @@ public class MvExpressionsBuilder extends EmptyControlFlowVisitor implements Exp
         }
 
 
-        expressions.put(node, result);
+        expressions.put(node, intern(result));
     }
 
     @Override
@@ -423,7 +460,7 @@ public class MvExpressionsBuilder extends EmptyControlFlowVisitor implements Exp
 
         MvExpressions result = getReverse(op);
 
-        expressions.put(node, result);
+        expressions.put(node, intern(result));
 
     }
 
@@ -437,7 +474,7 @@ public class MvExpressionsBuilder extends EmptyControlFlowVisitor implements Exp
 
         result.bladeExpressions[0] = new LogicalOr(l.bladeExpressions[0], r.bladeExpressions[0]);
 
-        expressions.put(node, result);
+        expressions.put(node, intern(result));
 
         System.err.println("Warning: LogicalOr is only implemented for scalars!");
     }
@@ -452,7 +489,7 @@ public class MvExpressionsBuilder extends EmptyControlFlowVisitor implements Exp
 
         result.bladeExpressions[0] = new LogicalAnd(l.bladeExpressions[0], r.bladeExpressions[0]);
 
-        expressions.put(node, result);
+        expressions.put(node, intern(result));
 
         System.err.println("Warning: LogicalAnd is only implemented for scalars!");
     }
@@ -466,7 +503,7 @@ public class MvExpressionsBuilder extends EmptyControlFlowVisitor implements Exp
 
         result.bladeExpressions[0] = new LogicalNegation(op.bladeExpressions[0]);
 
-        expressions.put(node, result);
+        expressions.put(node, intern(result));
 
         System.err.println("Warning: LogicalNegation is only implemented for scalars!");
     }
@@ -481,7 +518,7 @@ public class MvExpressionsBuilder extends EmptyControlFlowVisitor implements Exp
 
         result.bladeExpressions[0] = new Equality(l.bladeExpressions[0], r.bladeExpressions[0]);
 
-        expressions.put(node, result);
+        expressions.put(node, intern(result));
 
         System.err.println("Warning: Equality is only implemented for scalars!");
     }
@@ -496,7 +533,7 @@ public class MvExpressionsBuilder extends EmptyControlFlowVisitor implements Exp
 
         result.bladeExpressions[0] = new Inequality(l.bladeExpressions[0], r.bladeExpressions[0]);
 
-        expressions.put(node, result);
+        expressions.put(node, intern(result));
 
         System.err.println("Warning: Inequality is only implemented for scalars!");
     }
@@ -511,7 +548,7 @@ public class MvExpressionsBuilder extends EmptyControlFlowVisitor implements Exp
 
         result.bladeExpressions[0] = new Relation(l.bladeExpressions[0], r.bladeExpressions[0], node.getType());
 
-        expressions.put(node, result);
+        expressions.put(node, intern(result));
 
         System.err.println("Warning: Relation is only implemented for scalars!");
     }
@@ -526,7 +563,7 @@ public class MvExpressionsBuilder extends EmptyControlFlowVisitor implements Exp
 
         result.bladeExpressions[0] = new Exponentiation(l.bladeExpressions[0], r.bladeExpressions[0]);
 
-        expressions.put(node, result);
+        expressions.put(node, intern(result));
 
         System.err.println("Warning: Exponentiation is only implemented for scalars!");
     }
@@ -0,0 +1,323 @@
+package de.gaalop.tba.cfgImport.optimization;
+
+import de.gaalop.cfg.AssignmentNode;
+import de.gaalop.cfg.ColorNode;
+import de.gaalop.cfg.ControlFlowGraph;
+import de.gaalop.cfg.ExpressionStatement;
+import de.gaalop.cfg.Node;
+import de.gaalop.cfg.SequentialNode;
+import de.gaalop.cfg.StoreResultNode;
+import de.gaalop.dfg.Expression;
+import de.gaalop.tba.UseAlgebra;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.LinkedList;
+import java.util.Set;
+
+/**
+ * Stores the def-use chains between the nodes of a graph without control flow.
+ *
+ * Every node gets a fixed position in program order. A used variable component
+ * refers to the last definition (AssignmentNode) before the using node.
+ * StoreResultNodes use the outputted blades of their variable.
+ *
+ * The chains must be updated by calling update, if an expression of a node has been changed,
+ * and remove, if a node should be removed from the graph.
+ * Registered optimizations are notified about these changes.
+ *
+ * @author Christian Steinmetz
+ */
+public class DefUseChains {
+
+    private ControlFlowGraph graph;
+    private UseAlgebra usedAlgebra;
+    private HashMap<String, LinkedList<Integer>> outputBlades = new HashMap<String, LinkedList<Integer>>();
+
+    private ArrayList<SequentialNode> nodes = new ArrayList<SequentialNode>();
+    private IdentityHashMap<SequentialNode, Integer> positions = new IdentityHashMap<SequentialNode, Integer>();
+    private IdentityHashMap<SequentialNode, HashSet<VariableComponent>> usedComponents = new IdentityHashMap<SequentialNode, HashSet<VariableComponent>>();
+    private HashMap<VariableComponent, ArrayList<AssignmentNode>> definitions = new HashMap<VariableComponent, ArrayList<AssignmentNode>>();
+    private HashMap<VariableComponent, Set<SequentialNode>> usages = new HashMap<VariableComponent, Set<SequentialNode>>();
+    private IdentityHashMap<AssignmentNode, VariableComponent> targets = new IdentityHashMap<AssignmentNode, VariableComponent>();
+    private Set<SequentialNode> removed = Collections.newSetFromMap(new IdentityHashMap<SequentialNode, Boolean>());
+
+    private LinkedList<IncrementalOptimization> listeners = new LinkedList<IncrementalOptimization>();
+
+    /**
+     * Builds the def-use chains of a graph
+     * @param graph The graph, which must not contain control flow
+     * @param usedAlgebra The used algebra
+     */
+    public DefUseChains(ControlFlowGraph graph, UseAlgebra usedAlgebra) {
+        this.graph = graph;
+        this.usedAlgebra = usedAlgebra;
+
+        for (String output : graph.getPragmaOutputVariables()) {
+            String[] parts = output.split("\\$");
+            LinkedList<Integer> list = outputBlades.get(parts[0]);
+            if (list == null) {
+                list = new LinkedList<Integer>();
+                outputBlades.put(parts[0], list);
+            }
+            list.add(Integer.parseInt(parts[1]));
+        }
+
+        NodeCollectorControlFlowVisitor collector = new NodeCollectorControlFlowVisitor();
+        graph.accept(collector);
+        for (Node node : collector.getNodeList()) {
+            SequentialNode sequentialNode = (SequentialNode) node;
+            positions.put(sequentialNode, nodes.size());
+            nodes.add(sequentialNode);
+
+            addUsages(sequentialNode, collectUsedComponents(sequentialNode));
+
+            if (node instanceof AssignmentNode) {
+                AssignmentNode assignment = (AssignmentNode) node;
+                VariableComponent target = getVariableComponent(assignment.getVariable());
+                targets.put(assignment, target);
+                ArrayList<AssignmentNode> list = definitions.get(target);
+                if (list == null) {
+                    list = new ArrayList<AssignmentNode>(1);
+                    definitions.put(target, list);
+                }
+                list.add(assignment);
+            }
+        }
+    }
+
+    /**
+     * Registers an optimization, which is notified about changes
+     * @param optimization The optimization
+     */
+    public void addListener(IncrementalOptimization optimization) {
+        listeners.add(optimization);
+    }
+
+    public ControlFlowGraph getGraph() {
+        return graph;
+    }
+
+    public UseAlgebra getUsedAlgebra() {
+        return usedAlgebra;
+    }
+
+    /**
+     * Returns the number of positions, including the positions of removed nodes
+     * @return The number of positions
+     */
+    public int getNodeCount() {
+        return nodes.size();
+    }
+
+    /**
+     * Returns the node at a position
+     * @param position The position
+     * @return The node, null if the node has been removed
+     */
+    public SequentialNode getNode(int position) {
+        SequentialNode node = nodes.get(position);
+        return (removed.contains(node)) ? null : node;
+    }
+
+    public int getPosition(SequentialNode node) {
+        return positions.get(node);
+    }
+
+    /**
+     * Returns the defined variable component of an assignment
+     * @param node The assignment
+     * @return The defined variable component
+     */
+    public VariableComponent getTarget(AssignmentNode node) {
+        return targets.get(node);
+    }
+
+    /**
+     * Returns the definition, a variable component at a position refers to
+     * @param component The variable component
+     * @param position The position of the using node
+     * @return The last assignment before the position, null if the component is not defined before
+     */
+    public AssignmentNode getDefinition(VariableComponent component, int position) {
+        ArrayList<AssignmentNode> list = definitions.get(component);
+        if (list == null) {
+            return null;
+        }
+        for (int i = list.size() - 1; i >= 0; i--) {
+            AssignmentNode definition = list.get(i);
+            if (positions.get(definition) < position && !removed.contains(definition)) {
+                return definition;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Returns all nodes which use the target of an assignment, ordered by their position
+     * @param definition The assignment
+     * @return The using nodes
+     */
+    public LinkedList<SequentialNode> getUsers(AssignmentNode definition) {
+        LinkedList<SequentialNode> result = new LinkedList<SequentialNode>();
+        VariableComponent target = targets.get(definition);
+        Set<SequentialNode> users = usages.get(target);
+        if (users == null) {
+            return result;
+        }
+        ArrayList<Integer> userPositions = new ArrayList<Integer>(users.size());
+        for (SequentialNode user : users) {
+            int position = positions.get(user);
+            if (getDefinition(target, position) == definition) {
+                userPositions.add(position);
+            }
+        }
+        Collections.sort(userPositions);
+        for (Integer position : userPositions) {
+            result.add(nodes.get(position));
+        }
+        return result;
+    }
+
+    /**
+     * Determines, if the target of an assignment is used by another node
+     * @param definition The assignment
+     * @return <value>true</value> if the target is used, <value>false</value> otherwise
+     */
+    public boolean isUsed(AssignmentNode definition) {
+        VariableComponent target = targets.get(definition);
+        Set<SequentialNode> users = usages.get(target);
+        if (users == null) {
+            return false;
+        }
+        for (SequentialNode user : users) {
+            if (getDefinition(target, positions.get(user)) == definition) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Updates the chains after the expressions of a node have been changed
+     * @param node The changed node
+     */
+    public void update(SequentialNode node) {
+        HashSet<VariableComponent> oldComponents = usedComponents.get(node);
+        HashSet<VariableComponent> newComponents = collectUsedComponents(node);
+        removeUsages(node);
+        addUsages(node, newComponents);
+
+        int position = positions.get(node);
+        for (VariableComponent component : oldComponents) {
+            if (!newComponents.contains(component)) {
+                notifyUsageRemoved(getDefinition(component, position));
+            }
+        }
+        for (IncrementalOptimization listener : listeners) {
+            listener.valueChanged(node);
+        }
+    }
+
+    /**
+     * Removes a node from the graph and from the chains
+     * @param node The node to be removed
+     */
+    public void remove(SequentialNode node) {
+        graph.removeNode(node);
+        HashSet<VariableComponent> oldComponents = usedComponents.get(node);
+        removeUsages(node);
+        removed.add(node);
+
+        int position = positions.get(node);
+        for (VariableComponent component : oldComponents) {
+            notifyUsageRemoved(getDefinition(component, position));
+        }
+    }
+
+    /**
+     * Notifies all listeners, that a usage of an assignment has been removed
+     * @param definition The assignment, may be null
+     */
+    private void notifyUsageRemoved(AssignmentNode definition) {
+        if (definition == null) {
+            return;
+        }
+        for (IncrementalOptimization listener : listeners) {
+            listener.usageRemoved(definition);
+        }
+    }
+
+    private void addUsages(SequentialNode node, HashSet<VariableComponent> components) {
+        usedComponents.put(node, components);
+        for (VariableComponent component : components) {
+            Set<SequentialNode> users = usages.get(component);
+            if (users == null) {
+                users = Collections.newSetFromMap(new IdentityHashMap<SequentialNode, Boolean>());
+                usages.put(component, users);
+            }
+            users.add(node);
+        }
+    }
+
+    private void removeUsages(SequentialNode node) {
+        for (VariableComponent component : usedComponents.get(node)) {
+            usages.get(component).remove(node);
+        }
+        usedComponents.put(node, new HashSet<VariableComponent>());
+    }
+
+    /**
+     * Collects all variable components, that are used in a node
+     * @param node The node
+     * @return The used variable components
+     */
+    private HashSet<VariableComponent> collectUsedComponents(SequentialNode node) {
+        HashSet<VariableComponent> result = new HashSet<VariableComponent>();
+        if (node instanceof AssignmentNode) {
+            collectUsedComponents(((AssignmentNode) node).getValue(), result);
+        } else if (node instanceof ExpressionStatement) {
+            collectUsedComponents(((ExpressionStatement) node).getExpression(), result);
+        } else if (node instanceof ColorNode) {
+            ColorNode colorNode = (ColorNode) node;
+            collectUsedComponents(colorNode.getR(), result);
+            collectUsedComponents(colorNode.getG(), result);
+            collectUsedComponents(colorNode.getB(), result);
+            collectUsedComponents(colorNode.getAlpha(), result);
+        } else if (node instanceof StoreResultNode) {
+            String name = ((StoreResultNode) node).getValue().getName();
+            if (outputBlades.containsKey(name)) {
+                // only special blades are outputted
+                for (Integer bladeIndex : outputBlades.get(name)) {
+                    result.add(new VariableComponent(name, bladeIndex, null));
+                }
+            } else {
+                // all blades are outputted
+                int bladeCount = usedAlgebra.getBladeCount();
+                for (int blade = 0; blade < bladeCount; blade++) {
+                    result.add(new VariableComponent(name, blade, null));
+                }
+            }
+        }
+        return result;
+    }
+
+    private void collectUsedComponents(Expression expression, HashSet<VariableComponent> result) {
+        DFGVisitorUsedVariables visitor = new DFGVisitorUsedVariables();
+        expression.accept(visitor);
+        result.addAll(visitor.getVariables());
+    }
+
+    /**
+     * Returns the VariableComponent of a Variable or MultivectorComponent
+     * @param expression The expression
+     * @return The VariableComponent
+     */
+    static VariableComponent getVariableComponent(Expression expression) {
+        DFGVisitorUsedVariables visitor = new DFGVisitorUsedVariables();
+        expression.accept(visitor);
+        return visitor.getVariables().getFirst();
+    }
+}
@@ -0,0 +1,129 @@
+package de.gaalop.tba.cfgImport.optimization;
+
+import de.gaalop.api.dfg.DFGNodeType;
+import de.gaalop.api.dfg.DFGNodeTypeGetter;
+import de.gaalop.cfg.AssignmentNode;
+import de.gaalop.cfg.ColorNode;
+import de.gaalop.cfg.ExpressionStatement;
+import de.gaalop.cfg.SequentialNode;
+import de.gaalop.cfg.StoreResultNode;
+import de.gaalop.dfg.Expression;
+import de.gaalop.dfg.FloatConstant;
+
+/**
+ * Performs the Constant Propagation and Constant Folding of ConstantPropagation
+ * only on the nodes, that are affected by previous changes.
+ *
+ * One call of transform corresponds to one traversal of ConstantPropagation:
+ * nodes, whose folding has changed them, are examined again in the next call,
+ * users of new constants are examined in the same call.
+ *
+ * @author Christian Steinmetz
+ */
+public class IncrementalConstantPropagation extends IncrementalOptimization {
+
+    private boolean nodeModified;
+
+    public IncrementalConstantPropagation(DefUseChains chains) {
+        super(chains);
+    }
+
+    @Override
+    public String getName() {
+        return "Constant Propagation";
+    }
+
+    @Override
+    public boolean transform() {
+        boolean graphModified = false;
+        for (int position = nextNode(0); position >= 0; position = nextNode(position + 1)) {
+            if (propagate(chains.getNode(position), position)) {
+                graphModified = true;
+            }
+        }
+        return graphModified;
+    }
+
+    /**
+     * Performs constant propagation on a node
+     * @param node The node
+     * @param position The position of the node
+     * @return <value>true</value> if the node has been modified, <value>false</value> otherwise
+     */
+    private boolean propagate(SequentialNode node, int position) {
+        nodeModified = false;
+        if (node instanceof AssignmentNode) {
+            AssignmentNode assignment = (AssignmentNode) node;
+            assignment.setValue(performConstantPropagationOnExpression(assignment.getValue(), position));
+        } else if (node instanceof ColorNode) {
+            ColorNode colorNode = (ColorNode) node;
+            colorNode.setR(performConstantPropagationOnExpression(colorNode.getR(), position));
+            colorNode.setG(performConstantPropagationOnExpression(colorNode.getG(), position));
+            colorNode.setB(performConstantPropagationOnExpression(colorNode.getB(), position));
+            colorNode.setAlpha(performConstantPropagationOnExpression(colorNode.getAlpha(), position));
+        } else if (node instanceof ExpressionStatement) {
+            ExpressionStatement statement = (ExpressionStatement) node;
+            statement.setExpression(performConstantPropagationOnExpression(statement.getExpression(), position));
+        }
+
+        if (!nodeModified) {
+            return false;
+        }
+
+        // the node itself is examined again in the next call
+        chains.update(node);
+
+        // users of a new constant are examined in this call
+        if (node instanceof AssignmentNode && isFloatConstant(((AssignmentNode) node).getValue())) {
+            for (SequentialNode user : chains.getUsers((AssignmentNode) node)) {
+                if (!(user instanceof StoreResultNode)) {
+                    addNode(user);
+                }
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Performs constant propagtion on an expression and returns the result expression
+     * @param expression the expression for constant propagtion
+     * @param position The position of the node containing the expression
+     * @return the result expression, where constant variables are constant
+     */
+    private Expression performConstantPropagationOnExpression(Expression expression, int position) {
+        DFGVisitorUsedVariables dfgVisitorUsedVariables = new DFGVisitorUsedVariables();
+        expression.accept(dfgVisitorUsedVariables);
+
+        for (VariableComponent varComp : dfgVisitorUsedVariables.getVariables()) {
+            AssignmentNode definition = chains.getDefinition(varComp, position);
+            if (definition != null && isFloatConstant(definition.getValue())) {
+                // replace variable with constant
+                FloatConstant constant = (FloatConstant) definition.getValue();
+                if (expression == varComp.getReferredExpression()) {
+                    expression = constant;
+                } else {
+                    expression.replaceExpression(varComp.getReferredExpression(), constant);
+                }
+                nodeModified = true;
+            }
+        }
+
+        // do a constant folding on the value
+        ConstantFolding constantFolding = new ConstantFolding();
+        expression.accept(constantFolding);
+        if (constantFolding.isGraphModified()) {
+            nodeModified = true;
+        }
+
+        return constantFolding.getResultExpr();
+    }
+
+    /**
+     * Determines if a expression is a FloatConstant
+     * @param expression The expression to be checked
+     * @return <value>true</value> if the expression is a FloatConstant, <value>false</value> otherwise
+     */
+    private boolean isFloatConstant(Expression expression) {
+        return DFGNodeTypeGetter.getTypeOfDFGNode(expression) == DFGNodeType.FloatConstant;
+    }
+}
@@ -0,0 +1,120 @@
+package de.gaalop.tba.cfgImport.optimization;
+
+import de.gaalop.api.cfg.GetAllOutputBlades;
+import de.gaalop.api.dfg.DFGNodeType;
+import de.gaalop.api.dfg.DFGNodeTypeGetter;
+import de.gaalop.cfg.AssignmentNode;
+import de.gaalop.cfg.ColorNode;
+import de.gaalop.cfg.ExpressionStatement;
+import de.gaalop.cfg.SequentialNode;
+import de.gaalop.dfg.Expression;
+import java.util.HashSet;
+
+/**
+ * Removes assignments that consists only of one Variable as value,
+ * and those target variable are not outputted, like OneExpressionRemoval.
+ * Only assignments, whose value has been changed, are examined.
+ *
+ * The target variable is replaced by the value only in the users of the assignment.
+ *
+ * @author Christian Steinmetz
+ */
+public class IncrementalOneExpressionsRemoval extends IncrementalOptimization {
+
+    private HashSet<VariableComponent> tabuVariables = new HashSet<VariableComponent>();
+
+    public IncrementalOneExpressionsRemoval(DefUseChains chains) {
+        super(chains);
+
+        // mark output vars as tabu
+        tabuVariables.addAll(GetAllOutputBlades.getAllOutputBlades(chains.getGraph(), chains.getUsedAlgebra()));
+        // mark only evaluation vars as tabu
+        int bladeCount = chains.getUsedAlgebra().getBladeCount();
+        for (String var: chains.getGraph().getPragmaOnlyEvaluateVariables())
+            for (int blade = 0; blade < bladeCount; blade++)
+                tabuVariables.add(new VariableComponent(var, blade, null));
+    }
+
+    @Override
+    public String getName() {
+        return "One Expressions Removal";
+    }
+
+    @Override
+    public boolean transform() {
+        boolean graphModified = false;
+        // changed users are behind the removed assignment, so they are examined in this call
+        for (int position = nextNode(0); position >= 0; position = nextNode(position + 1)) {
+            SequentialNode node = chains.getNode(position);
+            if (!(node instanceof AssignmentNode)) {
+                continue;
+            }
+            AssignmentNode assignment = (AssignmentNode) node;
+            VariableComponent target = chains.getTarget(assignment);
+            DFGNodeType typeValue = DFGNodeTypeGetter.getTypeOfDFGNode(assignment.getValue());
+            if (tabuVariables.contains(target)
+                    || (typeValue != DFGNodeType.MultivectorComponent && typeValue != DFGNodeType.Variable)) {
+                continue;
+            }
+
+            Expression replacement = assignment.getValue();
+            for (SequentialNode user : chains.getUsers(assignment)) {
+                if (performExpressionReplacements(user, target, replacement)) {
+                    chains.update(user);
+                }
+            }
+            chains.remove(assignment);
+            graphModified = true;
+        }
+        return graphModified;
+    }
+
+    /**
+     * Replaces a variable component in all expressions of a node
+     * @param node The node
+     * @param target The variable component
+     * @param replacement The replacement
+     * @return <value>true</value> if the node has been changed, <value>false</value> otherwise
+     */
+    private boolean performExpressionReplacements(SequentialNode node, VariableComponent target, Expression replacement) {
+        if (node instanceof AssignmentNode) {
+            AssignmentNode assignment = (AssignmentNode) node;
+            assignment.setValue(performExpressionReplacements(assignment.getValue(), target, replacement));
+            return true;
+        }
+        if (node instanceof ColorNode) {
+            ColorNode colorNode = (ColorNode) node;
+            colorNode.setR(performExpressionReplacements(colorNode.getR(), target, replacement));
+            colorNode.setG(performExpressionReplacements(colorNode.getG(), target, replacement));
+            colorNode.setB(performExpressionReplacements(colorNode.getB(), target, replacement));
+            colorNode.setAlpha(performExpressionReplacements(colorNode.getAlpha(), target, replacement));
+            return true;
+        }
+        if (node instanceof ExpressionStatement) {
+            ExpressionStatement statement = (ExpressionStatement) node;
+            statement.setExpression(performExpressionReplacements(statement.getExpression(), target, replacement));
+            return true;
+        }
+        // StoreResultNodes only use tabu variables
+        return false;
+    }
+
+    /**
+     * Replaces a variable component in an expression
+     * @param value The expression to search in
+     * @param target The variable component
+     * @param replacement The replacement
+     * @return The result expression
+     */
+    private Expression performExpressionReplacements(Expression value, VariableComponent target, Expression replacement) {
+        DFGVisitorUsedVariables dfgVisitorusedVariables = new DFGVisitorUsedVariables();
+        value.accept(dfgVisitorusedVariables);
+        for (VariableComponent variable : dfgVisitorusedVariables.getVariables()) {
+            if (variable.equals(target)) {
+                ExpressionReplacer replacer = new ExpressionReplacer(variable.getReferredExpression(), replacement);
+                value = replacer.replace(value);
+            }
+        }
+        return value;
+    }
+}
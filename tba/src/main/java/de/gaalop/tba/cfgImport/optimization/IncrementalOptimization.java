@@ -0,0 +1,93 @@
+package de.gaalop.tba.cfgImport.optimization;
+
+import de.gaalop.cfg.AssignmentNode;
+import de.gaalop.cfg.SequentialNode;
+import java.util.BitSet;
+
+/**
+ * Base class of an optimization, which only examines the nodes of a graph
+ * that have been affected by previous changes.
+ *
+ * The nodes to be examined are stored as positions of the def-use chains in a worklist.
+ * Initially, all nodes are in the worklist.
+ *
+ * @author Christian Steinmetz
+ */
+public abstract class IncrementalOptimization {
+
+    protected DefUseChains chains;
+    protected BitSet worklist = new BitSet();
+
+    private int examinedNodeCount = 0;
+
+    public IncrementalOptimization(DefUseChains chains) {
+        this.chains = chains;
+        worklist.set(0, chains.getNodeCount());
+        chains.addListener(this);
+    }
+
+    /**
+     * Returns the name of this optimization
+     * @return The name
+     */
+    public abstract String getName();
+
+    /**
+     * Transforms the affected nodes of the graph.
+     * Returns a flag, which signals a modification in the graph.
+     *
+     * @return <value>true</value> if the graph has been modified, <value>false</value> otherwise
+     */
+    public abstract boolean transform();
+
+    /**
+     * Returns the number of nodes, which have been examined by this optimization
+     * @return The number of examined nodes
+     */
+    public int getExaminedNodeCount() {
+        return examinedNodeCount;
+    }
+
+    /**
+     * Returns the next node in the worklist at or after a position and removes it from the worklist
+     * @param position The position to start from
+     * @return The position of the node, -1 if there is no further node
+     */
+    protected int nextNode(int position) {
+        int next = worklist.nextSetBit(position);
+        while (next >= 0 && chains.getNode(next) == null) {
+            worklist.clear(next);
+            next = worklist.nextSetBit(next + 1);
+        }
+        if (next >= 0) {
+            worklist.clear(next);
+            examinedNodeCount++;
+        }
+        return next;
+    }
+
+    /**
+     * Adds a node to the worklist
+     * @param node The node
+     */
+    protected void addNode(SequentialNode node) {
+        worklist.set(chains.getPosition(node));
+    }
+
+    /**
+     * This method is called, if the expressions of a node have been changed.
+     * This implementation adds the node to the worklist.
+     * @param node The changed node
+     */
+    public void valueChanged(SequentialNode node) {
+        addNode(node);
+    }
+
+    /**
+     * This method is called, if a usage of the target of an assignment has been removed.
+     * This implementation does nothing.
+     * @param definition The assignment
+     */
+    public void usageRemoved(AssignmentNode definition) {
+    }
+}
@@ -0,0 +1,79 @@
+package de.gaalop.tba.cfgImport.optimization;
+
+import de.gaalop.cfg.AssignmentNode;
+import de.gaalop.cfg.SequentialNode;
+import de.gaalop.dfg.FloatConstant;
+import java.util.BitSet;
+
+/**
+ * Removes unused assignments and zero assignments like OptUnusedAssignmentsRemoval,
+ * but only examines assignments, whose usages have been removed or whose value has been changed.
+ *
+ * As in OptUnusedAssignmentsRemoval, the removal of zero assignments does not signal a modification.
+ *
+ * @author Christian Steinmetz
+ */
+public class IncrementalUnusedAssignmentsRemoval extends IncrementalOptimization {
+
+    private static final double EPSILON = (double) 10E-10;
+
+    private BitSet zeroCandidates = new BitSet();
+
+    public IncrementalUnusedAssignmentsRemoval(DefUseChains chains) {
+        super(chains);
+        zeroCandidates.set(0, chains.getNodeCount());
+    }
+
+    @Override
+    public String getName() {
+        return "Unused Assignments Removal";
+    }
+
+    @Override
+    public boolean transform() {
+        boolean graphModified = false;
+
+        // removals add earlier assignments to the worklist, so start again from the beginning
+        for (int position = nextNode(0); position >= 0; position = nextNode(0)) {
+            SequentialNode node = chains.getNode(position);
+            if (node instanceof AssignmentNode && !chains.isUsed((AssignmentNode) node)) {
+                chains.remove(node);
+                graphModified = true;
+            }
+        }
+
+        // remove zero assignments
+        for (int position = zeroCandidates.nextSetBit(0); position >= 0; position = zeroCandidates.nextSetBit(position + 1)) {
+            SequentialNode node = chains.getNode(position);
+            if (node instanceof AssignmentNode && isZero((AssignmentNode) node)) {
+                chains.remove(node);
+            }
+        }
+        zeroCandidates.clear();
+
+        return graphModified;
+    }
+
+    /**
+     * Determines, if the value of an assignment is a zero FloatConstant
+     * @param node The assignment
+     * @return <value>true</value> if the value is zero, <value>false</value> otherwise
+     */
+    private boolean isZero(AssignmentNode node) {
+        if (node.getValue() instanceof FloatConstant) {
+            double value = ((FloatConstant) node.getValue()).getValue();
+            return Math.abs(value) <= EPSILON;
+        }
+        return false;
+    }
+
+    @Override
+    public void valueChanged(SequentialNode node) {
+        zeroCandidates.set(chains.getPosition(node));
+    }
+
+    @Override
+    public void usageRemoved(AssignmentNode definition) {
+        addNode(definition);
+    }
+}
@@ -4,6 +4,7 @@ import de.gaalop.OptimizationException;
 import de.gaalop.cfg.ControlFlowGraph;
 import de.gaalop.tba.Plugin;
 import de.gaalop.tba.UseAlgebra;
+import de.gaalop.tba.cfgImport.optimization.maxima.MaximaConnection;
 import de.gaalop.tba.cfgImport.optimization.maxima.MaximaOptimizer;
 import de.gaalop.tba.cfgImport.optimization.maxima.ProcessBuilderMaximaConnection;
 import java.util.logging.Level;
@@ -18,7 +19,11 @@ public class OptMaxima implements OptimizationStrategyWithModifyFlag {
     private MaximaOptimizer transformer;
 
     public OptMaxima(String commandMaxima, Plugin plugin) {
-        transformer = new MaximaOptimizer(new ProcessBuilderMaximaConnection(commandMaxima), plugin);
+        this(new ProcessBuilderMaximaConnection(commandMaxima), plugin);
+    }
+
+    public OptMaxima(MaximaConnection connection, Plugin plugin) {
+        transformer = new MaximaOptimizer(connection, plugin);
     }
 
     @Override
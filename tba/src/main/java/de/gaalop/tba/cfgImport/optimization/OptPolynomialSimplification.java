@@ -0,0 +1,32 @@
+package de.gaalop.tba.cfgImport.optimization;
+
+import de.gaalop.OptimizationException;
+import de.gaalop.cfg.ControlFlowGraph;
+import de.gaalop.tba.Plugin;
+import de.gaalop.tba.UseAlgebra;
+import de.gaalop.tba.cfgImport.optimization.polynomial.PolynomialSimplifier;
+
+/**
+ * Facade class for the in-process polynomial simplification,
+ * which can be used instead of the optimization using maxima
+ * @author Christian Steinmetz
+ */
+public class OptPolynomialSimplification implements OptimizationStrategyWithModifyFlag {
+
+    private PolynomialSimplifier simplifier;
+    private Plugin plugin;
+
+    public OptPolynomialSimplification(Plugin plugin) {
+        this(new PolynomialSimplifier(), plugin);
+    }
+
+    public OptPolynomialSimplification(PolynomialSimplifier simplifier, Plugin plugin) {
+        this.simplifier = simplifier;
+        this.plugin = plugin;
+    }
+
+    @Override
+    public boolean transform(ControlFlowGraph graph, UseAlgebra usedAlgebra) throws OptimizationException {
+        return simplifier.transformGraph(graph, plugin.isOptInserting(), plugin.isScalarFunctions());
+    }
+}
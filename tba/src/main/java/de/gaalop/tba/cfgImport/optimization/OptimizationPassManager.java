@@ -0,0 +1,178 @@
+package de.gaalop.tba.cfgImport.optimization;
+
+import de.gaalop.cfg.ControlFlowGraph;
+import de.gaalop.tba.UseAlgebra;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.LinkedList;
+
+/**
+ * Applies the Constant Propagation, the Unused Assignments Removal
+ * and the One Expressions Removal on a graph until a fixed point is reached.
+ *
+ * The optimizations are run in rounds in this order. A round ends after the first optimization,
+ * which has modified the graph. The rounds are repeated, until no optimization modifies the graph.
+ * All optimizations share the def-use chains of the graph, so that every optimization
+ * only examines the nodes that are affected by previous changes.
+ *
+ * The numbers of rounds, runs and examined nodes and the time of every optimization are recorded
+ * over all calls of optimize.
+ *
+ * @author Christian Steinmetz
+ */
+public class OptimizationPassManager {
+
+    private boolean optConstantPropagation;
+    private boolean optUnusedAssignments;
+    private boolean optOneExpressionRemoval;
+
+    private int iterationCount = 0;
+    private LinkedHashMap<String, PassStatistics> statistics = new LinkedHashMap<String, PassStatistics>();
+
+    public OptimizationPassManager(boolean optConstantPropagation, boolean optUnusedAssignments, boolean optOneExpressionRemoval) {
+        this.optConstantPropagation = optConstantPropagation;
+        this.optUnusedAssignments = optUnusedAssignments;
+        this.optOneExpressionRemoval = optOneExpressionRemoval;
+    }
+
+    /**
+     * Optimizes a graph without control flow until a fixed point is reached
+     * @param graph The graph
+     * @param usedAlgebra The used algebra
+     * @return <value>true</value> if the graph has been modified, <value>false</value> otherwise
+     */
+    public boolean optimize(ControlFlowGraph graph, UseAlgebra usedAlgebra) {
+        DefUseChains chains = new DefUseChains(graph, usedAlgebra);
+        LinkedList<IncrementalOptimization> optimizations = new LinkedList<IncrementalOptimization>();
+        if (optConstantPropagation) {
+            optimizations.add(new IncrementalConstantPropagation(chains));
+        }
+        if (optUnusedAssignments) {
+            optimizations.add(new IncrementalUnusedAssignmentsRemoval(chains));
+        }
+        if (optOneExpressionRemoval) {
+            optimizations.add(new IncrementalOneExpressionsRemoval(chains));
+        }
+        if (optimizations.isEmpty()) {
+            return false;
+        }
+
+        boolean graphModified = false;
+        boolean repeat;
+        do {
+            repeat = false;
+            for (IncrementalOptimization curOpt : optimizations) {
+                if (!repeat) {
+                    long start = System.nanoTime();
+                    repeat = curOpt.transform();
+                    getStatistics(curOpt.getName()).addRun(repeat, System.nanoTime() - start);
+                }
+            }
+            graphModified = graphModified || repeat;
+            iterationCount++;
+        } while (repeat);
+
+        for (IncrementalOptimization curOpt : optimizations) {
+            getStatistics(curOpt.getName()).examinedNodeCount += curOpt.getExaminedNodeCount();
+        }
+
+        if (optUnusedAssignments || optOneExpressionRemoval) {
+            UpdateLocalVariableSet.updateVariableSets(graph);
+        }
+
+        return graphModified;
+    }
+
+    private PassStatistics getStatistics(String name) {
+        PassStatistics result = statistics.get(name);
+        if (result == null) {
+            result = new PassStatistics(name);
+            statistics.put(name, result);
+        }
+        return result;
+    }
+
+    /**
+     * Returns the number of rounds over all calls of optimize
+     * @return The number of rounds
+     */
+    public int getIterationCount() {
+        return iterationCount;
+    }
+
+    /**
+     * Returns the statistics of all optimizations, which have been run
+     * @return The statistics in order of the optimizations
+     */
+    public Collection<PassStatistics> getStatistics() {
+        return statistics.values();
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder sb = new StringBuilder();
+        sb.append("Optimization rounds: ").append(iterationCount);
+        for (PassStatistics passStatistics : statistics.values()) {
+            sb.append("\n").append(passStatistics);
+        }
+        return sb.toString();
+    }
+
+    /**
+     * The recorded statistics of an optimization
+     */
+    public static class PassStatistics {
+
+        private String name;
+        private int runCount = 0;
+        private int modifyingRunCount = 0;
+        private int examinedNodeCount = 0;
+        private long time = 0;
+
+        public PassStatistics(String name) {
+            this.name = name;
+        }
+
+        private void addRun(boolean modified, long duration) {
+            runCount++;
+            if (modified) {
+                modifyingRunCount++;
+            }
+            time += duration;
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        public int getRunCount() {
+            return runCount;
+        }
+
+        /**
+         * Returns the number of runs, which have modified the graph
+         * @return The number of modifying runs
+         */
+        public int getModifyingRunCount() {
+            return modifyingRunCount;
+        }
+
+        public int getExaminedNodeCount() {
+            return examinedNodeCount;
+        }
+
+        /**
+         * Returns the time of all runs
+         * @return The time in nanoseconds
+         */
+        public long getTime() {
+            return time;
+        }
+
+        @Override
+        public String toString() {
+            return name + ": " + runCount + " runs (" + modifyingRunCount + " modifying), "
+                    + examinedNodeCount + " examined nodes, " + (time / 1000000) + " ms";
+        }
+    }
+}
@@ -0,0 +1,137 @@
+package de.gaalop.tba.cfgImport.optimization.maxima;
+
+import de.gaalop.OptimizationException;
+import java.util.ArrayList;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.regex.Pattern;
+
+/**
+ * Decorates a Maxima connection with a MaximaCache.
+ *
+ * The input is expected in the format of MaximaOptimizer and MaximaDifferentiater:
+ * statements, that set flags, followed by one statement per expression (containing ratsimp)
+ * and a final quit().
+ * Only statements, which are independent of the other statements, are looked up in the cache,
+ * i.e. statements, that use no variable bound with :: by a previous statement
+ * and whose bound variable is not used by a following statement.
+ * The remaining statements are sent to Maxima, if there are any.
+ * The returned output contains one input and one output line for every statement.
+ *
+ * @author Christian Steinmetz
+ */
+public class CachingMaximaConnection implements MaximaConnection {
+
+    private static final String NAME_CHARACTERS = "[A-Za-z0-9_\\\\$]";
+
+    private MaximaConnection connection;
+    private MaximaCache cache;
+    private String commandMaxima;
+
+    public CachingMaximaConnection(MaximaConnection connection, MaximaCache cache, String commandMaxima) {
+        this.connection = connection;
+        this.cache = cache;
+        this.commandMaxima = commandMaxima;
+    }
+
+    @Override
+    public MaximaOutput optimizeWithMaxima(MaximaInput input) throws OptimizationException {
+        ArrayList<String> lines = new ArrayList<String>(input);
+        int first = 0;
+        while (first < lines.size() && !lines.get(first).contains("ratsimp(")) {
+            first++;
+        }
+        int end = lines.size();
+        while (end > first && lines.get(end - 1).trim().equals("quit();")) {
+            end--;
+        }
+        if (first == end) {
+            return connection.optimizeWithMaxima(input);
+        }
+
+        List<String> flags = lines.subList(0, first);
+        List<String> statements = lines.subList(first, end);
+        int count = statements.size();
+
+        // determine the bound variables and the dependencies between the statements
+        String[] values = new String[count];
+        Pattern[] bound = new Pattern[count];
+        for (int i = 0; i < count; i++) {
+            String statement = statements.get(i);
+            int binding = statement.indexOf("::");
+            values[i] = (binding >= 0) ? statement.substring(binding + 2) : statement;
+            if (binding >= 0) {
+                bound[i] = Pattern.compile("(?<!" + NAME_CHARACTERS + ")" + Pattern.quote(statement.substring(0, binding).trim()) + "(?!" + NAME_CHARACTERS + ")");
+            }
+        }
+        boolean[] independent = new boolean[count];
+        for (int i = 0; i < count; i++) {
+            independent[i] = true;
+        }
+        for (int i = 0; i < count; i++) {
+            if (bound[i] == null) {
+                continue;
+            }
+            for (int j = i + 1; j < count; j++) {
+                if (bound[i].matcher(values[j]).find()) {
+                    independent[i] = false;
+                    independent[j] = false;
+                }
+            }
+        }
+
+        // look the independent statements up
+        String[] results = new String[count];
+        String[] keys = new String[count];
+        MaximaInput remaining = new MaximaInput();
+        remaining.addAll(flags);
+        ArrayList<Integer> remainingIndices = new ArrayList<Integer>();
+        for (int i = 0; i < count; i++) {
+            if (independent[i]) {
+                keys[i] = MaximaCache.computeKey(commandMaxima, flags, values[i]);
+                results[i] = cache.get(keys[i]);
+            }
+            if (results[i] == null) {
+                remaining.add(statements.get(i));
+                remainingIndices.add(i);
+            }
+        }
+
+        String[] flagResults = new String[flags.size()];
+        if (!remainingIndices.isEmpty()) {
+            remaining.addAll(lines.subList(end, lines.size()));
+            LinkedList<String> connected = new LinkedList<String>();
+            MaximaRoutines.groupMaximaInAndOutputs(connected, connection.optimizeWithMaxima(remaining));
+            for (int i = 0; i < flagResults.length && !connected.isEmpty(); i++) {
+                flagResults[i] = connected.removeFirst();
+            }
+            for (Integer index : remainingIndices) {
+                if (connected.isEmpty()) {
+                    break;
+                }
+                results[index] = connected.removeFirst();
+                if (keys[index] != null) {
+                    cache.put(keys[index], results[index]);
+                }
+            }
+        }
+
+        // build an output with one input and one output line per statement
+        MaximaOutput output = new MaximaOutput();
+        int label = 1;
+        for (int i = 0; i < flags.size(); i++, label++) {
+            output.add("(%i" + label + ") " + flags.get(i));
+            String flag = flags.get(i);
+            output.add("(%o" + label + ") " + ((flagResults[i] != null) ? flagResults[i] : flag.substring(flag.indexOf(':') + 1, flag.length() - 1)));
+        }
+        for (int i = 0; i < count; i++, label++) {
+            if (results[i] == null) {
+                // Maxima has not answered all statements
+                break;
+            }
+            output.add("(%i" + label + ") " + statements.get(i));
+            output.add("(%o" + label + ") " + results[i]);
+        }
+        return output;
+    }
+}
@@ -0,0 +1,325 @@
+package de.gaalop.tba.cfgImport.optimization.maxima;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.Charset;
+import java.nio.file.Files;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * A content-addressed cache for the outputs of single Maxima statements.
+ *
+ * The key of a statement contains the Maxima command, the flags set before the statement
+ * (e.g. keepfloat) and the normalised statement itself.
+ * The outputs are kept in memory with a bounded number of entries and optionally in a directory,
+ * both are evicted in least recently used order.
+ * The shared cache is disabled by default and enabled by one of the system properties
+ * gaalop.maxima.cache.entries or gaalop.maxima.cache.dir.
+ *
+ * @author Christian Steinmetz
+ */
+public class MaximaCache {
+
+    /**
+     * The system property, that sets the cache directory. If it is not set, outputs are only cached in memory.
+     */
+    public static final String PROPERTY_DIRECTORY = "gaalop.maxima.cache.dir";
+
+    /**
+     * The system property, that sets the maximum size of the cache directory in megabytes
+     */
+    public static final String PROPERTY_MAX_SIZE = "gaalop.maxima.cache.size";
+
+    /**
+     * The system property, that sets the maximum number of outputs in memory, 0 (the default) disables the memory cache
+     */
+    public static final String PROPERTY_MEMORY_ENTRIES = "gaalop.maxima.cache.entries";
+
+    public static final int DEFAULT_MAX_SIZE = 64;
+    public static final int DEFAULT_MEMORY_ENTRIES = 0;
+
+    private static final String SUFFIX = ".maxima";
+    private static final Charset UTF8 = Charset.forName("UTF-8");
+
+    private static MaximaCache instance;
+
+    private final LinkedHashMap<String, String> memory;
+    private final int maxMemoryEntries;
+    private final File directory;
+    private final long maxDiskSize;
+    private long diskSize = -1;
+
+    private long memoryHits = 0;
+    private long diskHits = 0;
+    private long misses = 0;
+
+    /**
+     * Creates a new cache
+     * @param maxMemoryEntries The maximum number of outputs in memory
+     * @param directory The cache directory, which is created if necessary, null for a cache only in memory
+     * @param maxDiskSize The maximum size of the cache directory in bytes
+     */
+    public MaximaCache(final int maxMemoryEntries, File directory, long maxDiskSize) {
+        this.maxMemoryEntries = maxMemoryEntries;
+        this.directory = directory;
+        this.maxDiskSize = maxDiskSize;
+        this.memory = new LinkedHashMap<String, String>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, String> eldest) {
+                return size() > maxMemoryEntries;
+            }
+        };
+        if (directory != null) {
+            directory.mkdirs();
+        }
+    }
+
+    /**
+     * Returns the cache shared by all Maxima connections, which is configured by the system properties
+     * gaalop.maxima.cache.entries, gaalop.maxima.cache.dir and gaalop.maxima.cache.size
+     * @return The cache, null if caching is disabled
+     */
+    public static synchronized MaximaCache getInstance() {
+        if (instance == null) {
+            int entries = getIntProperty(PROPERTY_MEMORY_ENTRIES, DEFAULT_MEMORY_ENTRIES);
+            String dir = System.getProperty(PROPERTY_DIRECTORY);
+            File directory = (dir == null || dir.trim().isEmpty()) ? null : new File(dir.trim());
+            if (entries <= 0 && directory == null) {
+                return null;
+            }
+            instance = new MaximaCache(Math.max(0, entries), directory, getIntProperty(PROPERTY_MAX_SIZE, DEFAULT_MAX_SIZE) * 1024L * 1024L);
+        }
+        return instance;
+    }
+
+    private static int getIntProperty(String name, int defaultValue) {
+        String value = System.getProperty(name);
+        if (value == null) {
+            return defaultValue;
+        }
+        try {
+            return Integer.parseInt(value.trim());
+        } catch (NumberFormatException ex) {
+            System.err.println("Invalid value " + value + " of " + name + ", using " + defaultValue);
+            return defaultValue;
+        }
+    }
+
+    /**
+     * Computes the key of a statement
+     * @param commandMaxima The Maxima command
+     * @param flags The statements, which set the flags before the statement
+     * @param statement The statement without assignment to a variable
+     * @return The key
+     */
+    public static String computeKey(String commandMaxima, List<String> flags, String statement) {
+        StringBuilder sb = new StringBuilder(commandMaxima);
+        for (String flag : flags) {
+            sb.append('\n').append(normalise(flag));
+        }
+        sb.append('\n').append(normalise(statement));
+        return sb.toString();
+    }
+
+    private static String normalise(String statement) {
+        return statement.replaceAll("\\s+", "");
+    }
+
+    /**
+     * Returns the cached output of a statement
+     * @param key The key of the statement
+     * @return The output, null if the statement is not cached
+     */
+    public synchronized String get(String key) {
+        String output = memory.get(key);
+        if (output != null) {
+            memoryHits++;
+            return output;
+        }
+        if (directory != null) {
+            File file = getFile(key);
+            if (file.exists()) {
+                try {
+                    output = new String(Files.readAllBytes(file.toPath()), UTF8);
+                    // mark as recently used
+                    file.setLastModified(System.currentTimeMillis());
+                    diskHits++;
+                    putInMemory(key, output);
+                    return output;
+                } catch (IOException ex) {
+                    Logger.getLogger(MaximaCache.class.getName()).log(Level.WARNING, "Unable to read cached output " + file, ex);
+                }
+            }
+        }
+        misses++;
+        return null;
+    }
+
+    /**
+     * Stores the output of a statement
+     * @param key The key of the statement
+     * @param output The output of Maxima
+     */
+    public synchronized void put(String key, String output) {
+        putInMemory(key, output);
+        if (directory == null) {
+            return;
+        }
+        File file = getFile(key);
+        File tempFile = null;
+        try {
+            tempFile = File.createTempFile("output", ".tmp", directory);
+            Files.write(tempFile.toPath(), output.getBytes(UTF8));
+            long oldLength = file.length();
+            file.delete();
+            if (!tempFile.renameTo(file)) {
+                throw new IOException("Unable to rename " + tempFile + " to " + file);
+            }
+            if (diskSize < 0) {
+                diskSize = getDiskSize();
+            } else {
+                diskSize += file.length() - oldLength;
+            }
+        } catch (IOException ex) {
+            Logger.getLogger(MaximaCache.class.getName()).log(Level.WARNING, "Unable to cache output " + file, ex);
+            if (tempFile != null) {
+                tempFile.delete();
+            }
+            return;
+        }
+        if (diskSize > maxDiskSize) {
+            evict();
+        }
+    }
+
+    private void putInMemory(String key, String output) {
+        if (maxMemoryEntries > 0) {
+            memory.put(key, output);
+        }
+    }
+
+    /**
+     * Removes all cached outputs and resets the statistics
+     */
+    public synchronized void clear() {
+        memory.clear();
+        for (File file : listOutputs()) {
+            file.delete();
+        }
+        diskSize = -1;
+        memoryHits = 0;
+        diskHits = 0;
+        misses = 0;
+    }
+
+    public synchronized long getMemoryHitCount() {
+        return memoryHits;
+    }
+
+    public synchronized long getDiskHitCount() {
+        return diskHits;
+    }
+
+    public synchronized long getMissCount() {
+        return misses;
+    }
+
+    /**
+     * Returns the ratio of the hits to all lookups
+     * @return The hit rate between 0 and 1, 0 if there were no lookups
+     */
+    public synchronized double getHitRate() {
+        long lookups = memoryHits + diskHits + misses;
+        return (lookups == 0) ? 0 : (double) (memoryHits + diskHits) / lookups;
+    }
+
+    public synchronized int getMemoryEntryCount() {
+        return memory.size();
+    }
+
+    @Override
+    public synchronized String toString() {
+        return "Maxima cache: " + memoryHits + " memory hits, " + diskHits + " disk hits, " + misses + " misses";
+    }
+
+    /**
+     * Returns the total size of the cached outputs in the cache directory
+     * @return The size in bytes
+     */
+    public synchronized long getDiskSize() {
+        long size = 0;
+        for (File file : listOutputs()) {
+            size += file.length();
+        }
+        return size;
+    }
+
+    /**
+     * Deletes the least recently used outputs, until the size of the cache directory is not greater than its bound
+     */
+    private void evict() {
+        List<File> files = listOutputs();
+        final long[] lastModified = new long[files.size()];
+        List<Integer> order = new ArrayList<Integer>(files.size());
+        long size = 0;
+        for (int i = 0; i < files.size(); i++) {
+            lastModified[i] = files.get(i).lastModified();
+            size += files.get(i).length();
+            order.add(i);
+        }
+        Collections.sort(order, new Comparator<Integer>() {
+            @Override
+            public int compare(Integer o1, Integer o2) {
+                return Long.compare(lastModified[o1], lastModified[o2]);
+            }
+        });
+        // evict a little more than necessary to avoid evicting with every stored output
+        long bound = maxDiskSize - maxDiskSize / 10;
+        for (Integer index : order) {
+            if (size <= bound) {
+                break;
+            }
+            File file = files.get(index);
+            long length = file.length();
+            if (file.delete()) {
+                size -= length;
+            }
+        }
+        diskSize = size;
+    }
+
+    private List<File> listOutputs() {
+        List<File> result = new ArrayList<File>();
+        File[] files = (directory != null) ? directory.listFiles() : null;
+        if (files != null) {
+            for (File file : files) {
+                if (file.getName().endsWith(SUFFIX)) {
+                    result.add(file);
+                }
+            }
+        }
+        return result;
+    }
+
+    private File getFile(String key) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            StringBuilder sb = new StringBuilder();
+            for (byte b : digest.digest(key.getBytes(UTF8))) {
+                sb.append(String.format("%02x", b & 0xff));
+            }
+            return new File(directory, sb.toString() + SUFFIX);
+        } catch (NoSuchAlgorithmException ex) {
+            throw new IllegalStateException(ex);
+        }
+    }
+}
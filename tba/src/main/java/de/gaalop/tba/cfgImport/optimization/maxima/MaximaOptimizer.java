@@ -7,8 +7,25 @@ import de.gaalop.cfg.ControlFlowGraph;
 import de.gaalop.dfg.Expression;
 import de.gaalop.dfg.MultivectorComponent;
 import de.gaalop.tba.Plugin;
+import de.gaalop.tba.cfgImport.optimization.DFGVisitorUsedVariables;
+import de.gaalop.tba.cfgImport.optimization.VariableComponent;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.LinkedList;
+import java.util.List;
 import java.util.ListIterator;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.logging.Level;
+import java.util.logging.Logger;
 
 /**
  * Defines a facade class for transforming a graph with maxima
@@ -35,15 +52,45 @@ public class MaximaOptimizer {
         collector = new StoreResultNodesCollector();
         graph.accept(collector);
 
+        MaximaInput statements = new MaximaInput();
+        fillMaximaInput(graph, statements);
+        LinkedList<AssignmentNode> nodes = assignmentNodeCollector.getAssignmentNodes();
+
+        if (plugin.getMaximaChunkSize() <= 0 || nodes.size() <= plugin.getMaximaChunkSize()) {
+            MaximaOutput output = connection.optimizeWithMaxima(createMaximaInput(statements));
+            applyMaximaOutput(nodes, output);
+        } else {
+            transformChunks(nodes, statements);
+        }
+/*
+        if (plugin.isOptInserting() && plugin.isScalarFunctions()) {
+            removeUnusedAssignments(graph, collector.getVariables());
+        }
+*/
+
+    }
+
+    /**
+     * Creates the input for maxima from a list of statements
+     * @param statements The statements
+     * @return The input for maxima
+     */
+    private static MaximaInput createMaximaInput(List<String> statements) {
         MaximaInput input = new MaximaInput();
         input.add("display2d:false;"); // very important!
         input.add("ratprint:false;"); // very important!
         input.add("keepfloat:true;");
-        fillMaximaInput(graph, input);
+        input.addAll(statements);
         input.add("quit();"); // very important!
+        return input;
+    }
 
-        MaximaOutput output = connection.optimizeWithMaxima(input);
-
+    /**
+     * Sets the values of assignments to the according outputs of maxima
+     * @param nodes The assignments in the order of the statements of the input
+     * @param output The output of maxima
+     */
+    private static void applyMaximaOutput(List<AssignmentNode> nodes, MaximaOutput output) {
         //connect in and output
         LinkedList<String> connected = new LinkedList<String>();
         MaximaRoutines.groupMaximaInAndOutputs(connected, output);
@@ -52,17 +99,153 @@ public class MaximaOptimizer {
         connected.removeFirst(); // remove ratsimp
         connected.removeFirst(); // remove keepfloat
 
-        ListIterator<AssignmentNode> listIterator = assignmentNodeCollector.getAssignmentNodes().listIterator();
+        ListIterator<AssignmentNode> listIterator = nodes.listIterator();
         for (String io : connected) {
             Expression exp = MaximaRoutines.getExpressionFromMaximaOutput(io);
             listIterator.next().setValue(exp);
         }
-/*
-        if (plugin.isOptInserting() && plugin.isScalarFunctions()) {
-            removeUnusedAssignments(graph, collector.getVariables());
+    }
+
+    /**
+     * Splits the statements into chunks of independent statements and sends the chunks
+     * to maxima in parallel.
+     * Statements, that use a variable bound with :: by another statement, are in the same chunk as the other statement.
+     * The assignments of a chunk, which is not simplified within the timeout, keep their values.
+     *
+     * @param nodes The assignments
+     * @param statements The statements for maxima, one per assignment
+     */
+    private void transformChunks(LinkedList<AssignmentNode> nodes, MaximaInput statements) throws OptimizationException {
+        // union-find of dependent statements
+        int count = nodes.size();
+        int[] group = new int[count];
+        HashMap<VariableComponent, Integer> binding = new HashMap<VariableComponent, Integer>();
+        ListIterator<AssignmentNode> nodeIterator = nodes.listIterator();
+        ListIterator<String> statementIterator = statements.listIterator();
+        for (int i = 0; i < count; i++) {
+            group[i] = i;
+            AssignmentNode node = nodeIterator.next();
+            DFGVisitorUsedVariables visitor = new DFGVisitorUsedVariables();
+            node.getValue().accept(visitor);
+            for (VariableComponent used : visitor.getVariables()) {
+                Integer definition = binding.get(used);
+                if (definition != null) {
+                    group[findGroup(group, i)] = findGroup(group, definition);
+                }
+            }
+            if (statementIterator.next().contains("::")) {
+                DFGVisitorUsedVariables target = new DFGVisitorUsedVariables();
+                node.getVariable().accept(target);
+                binding.put(target.getVariables().getFirst(), i);
+            }
         }
-*/
 
+        // pack the groups into chunks, the statements of a chunk keep their order
+        LinkedHashMap<Integer, ArrayList<Integer>> groups = new LinkedHashMap<Integer, ArrayList<Integer>>();
+        for (int i = 0; i < count; i++) {
+            int root = findGroup(group, i);
+            if (!groups.containsKey(root)) {
+                groups.put(root, new ArrayList<Integer>());
+            }
+            groups.get(root).add(i);
+        }
+        ArrayList<ArrayList<Integer>> chunks = new ArrayList<ArrayList<Integer>>();
+        ArrayList<Integer> chunk = new ArrayList<Integer>();
+        for (ArrayList<Integer> members : groups.values()) {
+            if (!chunk.isEmpty() && chunk.size() + members.size() > plugin.getMaximaChunkSize()) {
+                chunks.add(chunk);
+                chunk = new ArrayList<Integer>();
+            }
+            chunk.addAll(members);
+        }
+        chunks.add(chunk);
+
+        AssignmentNode[] nodeArray = nodes.toArray(new AssignmentNode[count]);
+        String[] statementArray = statements.toArray(new String[count]);
+        int threads = Math.min(chunks.size(), Runtime.getRuntime().availableProcessors());
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        try {
+            ArrayList<Future<MaximaOutput>> outputs = new ArrayList<Future<MaximaOutput>>(chunks.size());
+            // the start times of the chunks, 0 while a chunk is waiting for a thread
+            final AtomicLongArray startTimes = new AtomicLongArray(chunks.size());
+            for (ArrayList<Integer> members : chunks) {
+                final int chunkIndex = outputs.size();
+                Collections.sort(members);
+                ArrayList<String> chunkStatements = new ArrayList<String>(members.size());
+                for (int index : members) {
+                    chunkStatements.add(statementArray[index]);
+                }
+                final MaximaInput input = createMaximaInput(chunkStatements);
+                outputs.add(executor.submit(new Callable<MaximaOutput>() {
+                    @Override
+                    public MaximaOutput call() throws Exception {
+                        startTimes.set(chunkIndex, System.currentTimeMillis());
+                        return connection.optimizeWithMaxima(input);
+                    }
+                }));
+            }
+
+            long timeout = plugin.getMaximaChunkTimeout() * 1000L;
+            for (int c = 0; c < chunks.size(); c++) {
+                ArrayList<AssignmentNode> chunkNodes = new ArrayList<AssignmentNode>();
+                for (int index : chunks.get(c)) {
+                    chunkNodes.add(nodeArray[index]);
+                }
+                try {
+                    MaximaOutput output = (timeout > 0)
+                            ? getInTime(outputs.get(c), startTimes, c, timeout)
+                            : outputs.get(c).get();
+                    applyMaximaOutput(chunkNodes, output);
+                } catch (TimeoutException e) {
+                    outputs.get(c).cancel(true);
+                    Logger.getLogger(MaximaOptimizer.class.getName()).log(Level.WARNING,
+                            "Maxima did not simplify a chunk of {0} assignments in time, they are not simplified", chunkNodes.size());
+                } catch (ExecutionException e) {
+                    if (e.getCause() instanceof OptimizationException) {
+                        throw (OptimizationException) e.getCause();
+                    }
+                    throw new OptimizationException("Maxima optimization failed: " + e.getCause(), null);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new OptimizationException("Interrupted while waiting for Maxima", null);
+                }
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    /**
+     * Waits for the output of a chunk, which has to be computed within the timeout after the chunk has been started
+     * @param output The future output of the chunk
+     * @param startTimes The start times of the chunks
+     * @param chunk The index of the chunk
+     * @param timeout The timeout in milliseconds
+     * @return The output of the chunk
+     */
+    private static MaximaOutput getInTime(Future<MaximaOutput> output, AtomicLongArray startTimes, int chunk, long timeout)
+            throws InterruptedException, ExecutionException, TimeoutException {
+        while (true) {
+            long start = startTimes.get(chunk);
+            long wait = (start == 0) ? timeout : start + timeout - System.currentTimeMillis();
+            try {
+                return output.get(Math.max(0, wait), TimeUnit.MILLISECONDS);
+            } catch (TimeoutException e) {
+                // a chunk, that has not been started yet, gets the full timeout
+                start = startTimes.get(chunk);
+                if (start != 0 && System.currentTimeMillis() - start >= timeout) {
+                    throw e;
+                }
+            }
+        }
+    }
+
+    private static int findGroup(int[] group, int index) {
+        while (group[index] != index) {
+            group[index] = group[group[index]];
+            index = group[index];
+        }
+        return index;
     }
 
     /**
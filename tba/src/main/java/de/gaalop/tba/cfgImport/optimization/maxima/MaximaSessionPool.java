@@ -0,0 +1,337 @@
+package de.gaalop.tba.cfgImport.optimization.maxima;
+
+import de.gaalop.OptimizationException;
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.PrintWriter;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedList;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Pattern;
+
+/**
+ * Implements the Maxima connection with a pool of long-running Maxima processes.
+ *
+ * Every job is sent to an idle Maxima REPL, which is reset with kill(all) and reset() before.
+ * The output of a job is framed by printing sentinel strings before and after the batch command,
+ * so the output has the same format as the output of the ProcessBuilderMaximaConnection.
+ * A trailing quit() of the input is not sent to the process.
+ *
+ * Processes are recycled after a number of jobs, after a maximum lifetime
+ * and if they have been idle for too long. A process, that does not answer within the timeout,
+ * is killed. Concurrent callers wait until a process is available.
+ *
+ * @author Christian Steinmetz
+ */
+public class MaximaSessionPool implements MaximaConnection {
+
+    public static final int DEFAULT_MAX_JOBS = 100;
+    public static final long DEFAULT_MAX_LIFETIME = 30 * 60 * 1000;
+    public static final long DEFAULT_MAX_IDLE_TIME = 5 * 60 * 1000;
+    public static final long DEFAULT_TIMEOUT = 10 * 60 * 1000;
+
+    private static final HashMap<String, MaximaSessionPool> pools = new HashMap<String, MaximaSessionPool>();
+
+    private static final Pattern PROMPTS = Pattern.compile("(\\s*\\(%i\\d+\\))*\\s*");
+
+    /**
+     * Returns the shared pool of a Maxima command
+     * @param commandMaxima The Maxima command
+     * @param maxSessions The maximum number of concurrently running processes
+     * @return The pool
+     */
+    public static MaximaSessionPool getInstance(String commandMaxima, int maxSessions) {
+        synchronized (pools) {
+            if (pools.isEmpty()) {
+                Runtime.getRuntime().addShutdownHook(new Thread() {
+                    @Override
+                    public void run() {
+                        synchronized (pools) {
+                            for (MaximaSessionPool pool : pools.values()) {
+                                pool.shutdown();
+                            }
+                        }
+                    }
+                });
+            }
+            MaximaSessionPool pool = pools.get(commandMaxima);
+            if (pool == null) {
+                pool = new MaximaSessionPool(commandMaxima, maxSessions);
+                pools.put(commandMaxima, pool);
+            } else {
+                pool.setMaxSessions(maxSessions);
+            }
+            return pool;
+        }
+    }
+
+    /**
+     * Creates a connection to Maxima, which uses the shared MaximaCache, if it is enabled
+     * @param commandMaxima The Maxima command
+     * @param maxSessions The maximum number of long-running processes,
+     * 0 to start a new process for every call
+     * @return The connection
+     */
+    public static MaximaConnection createConnection(String commandMaxima, int maxSessions) {
+        MaximaConnection connection = (maxSessions > 0)
+                ? getInstance(commandMaxima, maxSessions)
+                : new ProcessBuilderMaximaConnection(commandMaxima);
+        MaximaCache cache = MaximaCache.getInstance();
+        return (cache != null) ? new CachingMaximaConnection(connection, cache, commandMaxima) : connection;
+    }
+
+    private String commandMaxima;
+    private int maxSessions;
+    private int maxJobs = DEFAULT_MAX_JOBS;
+    private long maxLifetime = DEFAULT_MAX_LIFETIME;
+    private long maxIdleTime = DEFAULT_MAX_IDLE_TIME;
+    private volatile long timeout = DEFAULT_TIMEOUT;
+
+    private LinkedList<Session> idleSessions = new LinkedList<Session>();
+    private int sessionCount = 0;
+    private int startedSessionCount = 0;
+    private int jobCount = 0;
+
+    public MaximaSessionPool(String commandMaxima, int maxSessions) {
+        this.commandMaxima = commandMaxima;
+        this.maxSessions = Math.max(1, maxSessions);
+    }
+
+    @Override
+    public MaximaOutput optimizeWithMaxima(MaximaInput input) throws OptimizationException {
+        Session session = borrowSession();
+        boolean reusable = false;
+        try {
+            MaximaOutput output = session.execute(input);
+            reusable = true;
+            return output;
+        } finally {
+            returnSession(session, reusable);
+        }
+    }
+
+    private synchronized Session borrowSession() throws OptimizationException {
+        while (true) {
+            removeIdleSessions();
+            if (!idleSessions.isEmpty()) {
+                return idleSessions.removeLast();
+            }
+            if (sessionCount < maxSessions) {
+                try {
+                    Session session = new Session(startedSessionCount);
+                    sessionCount++;
+                    startedSessionCount++;
+                    return session;
+                } catch (IOException e) {
+                    throw new OptimizationException("Maxima is not accessible. Please check the Maxima command in the Configurations panel or disable the usage of Maxima.", null);
+                }
+            }
+            try {
+                wait();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new OptimizationException("Interrupted while waiting for a Maxima process", null);
+            }
+        }
+    }
+
+    private synchronized void returnSession(Session session, boolean reusable) {
+        jobCount++;
+        long now = System.currentTimeMillis();
+        if (reusable && session.executedJobs < maxJobs && now - session.startTime < maxLifetime) {
+            session.lastUsed = now;
+            idleSessions.addLast(session);
+        } else {
+            session.close();
+            sessionCount--;
+        }
+        notifyAll();
+    }
+
+    private void removeIdleSessions() {
+        long now = System.currentTimeMillis();
+        Iterator<Session> iterator = idleSessions.iterator();
+        while (iterator.hasNext()) {
+            Session session = iterator.next();
+            if (now - session.lastUsed >= maxIdleTime || now - session.startTime >= maxLifetime) {
+                iterator.remove();
+                session.close();
+                sessionCount--;
+            }
+        }
+    }
+
+    /**
+     * Terminates all idle processes. Busy processes are terminated, when their job is finished.
+     */
+    public synchronized void shutdown() {
+        for (Session session : idleSessions) {
+            session.close();
+        }
+        sessionCount -= idleSessions.size();
+        idleSessions.clear();
+    }
+
+    public synchronized void setMaxSessions(int maxSessions) {
+        this.maxSessions = Math.max(1, maxSessions);
+        notifyAll();
+    }
+
+    public synchronized void setMaxJobs(int maxJobs) {
+        this.maxJobs = maxJobs;
+    }
+
+    public synchronized void setMaxLifetime(long maxLifetime) {
+        this.maxLifetime = maxLifetime;
+    }
+
+    public synchronized void setMaxIdleTime(long maxIdleTime) {
+        this.maxIdleTime = maxIdleTime;
+    }
+
+    public synchronized void setTimeout(long timeout) {
+        this.timeout = timeout;
+    }
+
+    /**
+     * Returns the number of Maxima processes, which have been started by this pool
+     * @return The number of started processes
+     */
+    public synchronized int getStartedSessionCount() {
+        return startedSessionCount;
+    }
+
+    /**
+     * Returns the number of jobs, which have been executed by this pool
+     * @return The number of jobs
+     */
+    public synchronized int getJobCount() {
+        return jobCount;
+    }
+
+    /**
+     * A running Maxima process
+     */
+    private class Session {
+
+        private final String endOfStream = new String("end of stream");
+
+        private int id;
+        private Process process;
+        private PrintWriter writer;
+        private LinkedBlockingQueue<String> lines = new LinkedBlockingQueue<String>();
+        private int executedJobs = 0;
+        private long startTime = System.currentTimeMillis();
+        private long lastUsed = startTime;
+
+        public Session(int id) throws IOException {
+            this.id = id;
+            ProcessBuilder builder = new ProcessBuilder(commandMaxima);
+            builder.redirectError(ProcessBuilder.Redirect.INHERIT);
+            process = builder.start();
+            writer = new PrintWriter(process.getOutputStream());
+
+            final BufferedReader reader = new BufferedReader(new InputStreamReader(process.getInputStream()));
+            Thread readerThread = new Thread("Maxima session " + id) {
+                @Override
+                public void run() {
+                    try {
+                        String line;
+                        while ((line = reader.readLine()) != null) {
+                            lines.add(line);
+                        }
+                        reader.close();
+                    } catch (IOException e) {
+                        // the process has been terminated
+                    }
+                    lines.add(endOfStream);
+                }
+            };
+            readerThread.setDaemon(true);
+            readerThread.start();
+        }
+
+        /**
+         * Executes a job in this process
+         * @param input The input for Maxima
+         * @return The output of Maxima for the input
+         */
+        public MaximaOutput execute(MaximaInput input) throws OptimizationException {
+            executedJobs++;
+            File tmpFile = null;
+            try {
+                tmpFile = File.createTempFile("tbaMaxima", ".txt");
+                PrintWriter out = new PrintWriter(tmpFile);
+                for (String line : input) {
+                    if (!line.trim().equals("quit();")) {
+                        out.println(line);
+                    }
+                }
+                out.close();
+
+                String path = tmpFile.getCanonicalPath();
+                if (File.separatorChar == '\\') {
+                    path = path.replaceAll("\\\\", "\\\\\\\\");
+                }
+
+                String begin = "gaalopBegin" + id + "x" + executedJobs;
+                String end = "gaalopEnd" + id + "x" + executedJobs;
+                writer.println("kill(all)$");
+                writer.println("reset()$");
+                writer.println("print(\"" + begin + "\")$");
+                writer.println("batch(\"" + path + "\")$");
+                writer.println("print(\"" + end + "\")$");
+                writer.flush();
+
+                MaximaOutput output = new MaximaOutput();
+                long deadline = System.currentTimeMillis() + timeout;
+                boolean started = false;
+                while (true) {
+                    String line = lines.poll(Math.max(0, deadline - System.currentTimeMillis()), TimeUnit.MILLISECONDS);
+                    if (line == null) {
+                        throw new OptimizationException("Maxima did not answer within " + timeout + " ms.", null);
+                    }
+                    if (line == endOfStream) {
+                        throw new OptimizationException("Maxima is not accessible. Please check the Maxima command in the Configurations panel or disable the usage of Maxima.", null);
+                    }
+                    if (!started) {
+                        started = line.contains(begin);
+                    } else {
+                        int index = line.indexOf(end);
+                        if (index >= 0) {
+                            // the sentinel may follow the prompt or the last line of output
+                            String rest = line.substring(0, index);
+                            if (!PROMPTS.matcher(rest).matches()) {
+                                output.add(rest);
+                            }
+                            return output;
+                        }
+                        output.add(line);
+                    }
+                }
+            } catch (IOException e) {
+                throw new OptimizationException("Maxima input could not be written: " + e.getMessage(), null);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new OptimizationException("Interrupted while waiting for Maxima", null);
+            } finally {
+                if (tmpFile != null) {
+                    tmpFile.delete();
+                }
+            }
+        }
+
+        /**
+         * Terminates the process
+         */
+        public void close() {
+            writer.println("quit();");
+            writer.close();
+            process.destroy();
+        }
+    }
+}
@@ -53,18 +53,39 @@ public class ProcessBuilderMaximaConnection implements MaximaConnection {
                 throw new OptimizationException("Maxima is not accessible. Please check the Maxima command in the Configurations panel or disable the usage of Maxima.", null);
             }
 
-            BufferedReader b = new BufferedReader(new InputStreamReader(p.getInputStream()));
+            // the output is read by another thread, so that the process can be destroyed,
+            // if the calling thread is interrupted, e.g. by a timeout of the MaximaOptimizer
+            final Process process = p;
+            final MaximaOutput lines = output;
+            Thread readerThread = new Thread("Maxima output reader") {
+                @Override
+                public void run() {
+                    try {
+                        BufferedReader b = new BufferedReader(new InputStreamReader(process.getInputStream()));
+                        String line;
+                        while ((line = b.readLine()) != null) {
+                            lines.add(line);
+                        }
+                        b.close();
+                    } catch (IOException e) {
+                        // the process has been destroyed
+                    }
+                }
+            };
+            readerThread.setDaemon(true);
+            readerThread.start();
 
-            String line;
-            while ((line = b.readLine()) != null) {
-                output.add(line);
+            try {
+                p.waitFor();
+                readerThread.join();
+            } catch (InterruptedException e) {
+                p.destroy();
+                Thread.currentThread().interrupt();
+                throw new OptimizationException("Interrupted while waiting for Maxima", null);
+            } finally {
+                tmpFile.delete();
             }
 
-            b.close();
-
-            tmpFile.delete();
-
-
             return output;
         } catch (IOException ex) {
             Logger.getLogger(ProcessBuilderMaximaConnection.class.getName()).log(Level.SEVERE, null, ex);
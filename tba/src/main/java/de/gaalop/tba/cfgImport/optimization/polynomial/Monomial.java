@@ -0,0 +1,178 @@
+package de.gaalop.tba.cfgImport.optimization.polynomial;
+
+import java.util.Arrays;
+
+/**
+ * An immutable product of symbols with positive integer exponents.
+ * The symbols are kept sorted by their names.
+ * @author Christian Steinmetz
+ */
+public final class Monomial implements Comparable<Monomial> {
+
+    /**
+     * The empty product
+     */
+    public static final Monomial ONE = new Monomial(new String[0], new int[0]);
+
+    private final String[] symbols;
+    private final int[] exponents;
+    private final int hash;
+
+    private Monomial(String[] symbols, int[] exponents) {
+        this.symbols = symbols;
+        this.exponents = exponents;
+        this.hash = 31 * Arrays.hashCode(symbols) + Arrays.hashCode(exponents);
+    }
+
+    /**
+     * Creates a monomial consisting of a single symbol
+     * @param symbol The name of the symbol
+     * @return The monomial
+     */
+    public static Monomial of(String symbol) {
+        return new Monomial(new String[]{symbol}, new int[]{1});
+    }
+
+    /**
+     * Returns the product of this and another monomial
+     * @param other The other monomial
+     * @return The product
+     */
+    public Monomial multiply(Monomial other) {
+        if (other.symbols.length == 0) {
+            return this;
+        }
+        if (symbols.length == 0) {
+            return other;
+        }
+        String[] resultSymbols = new String[symbols.length + other.symbols.length];
+        int[] resultExponents = new int[resultSymbols.length];
+        int i = 0;
+        int j = 0;
+        int k = 0;
+        while (i < symbols.length || j < other.symbols.length) {
+            int cmp = (i == symbols.length) ? 1
+                    : (j == other.symbols.length) ? -1
+                    : symbols[i].compareTo(other.symbols[j]);
+            if (cmp < 0) {
+                resultSymbols[k] = symbols[i];
+                resultExponents[k] = exponents[i++];
+            } else if (cmp > 0) {
+                resultSymbols[k] = other.symbols[j];
+                resultExponents[k] = other.exponents[j++];
+            } else {
+                resultSymbols[k] = symbols[i];
+                resultExponents[k] = exponents[i++] + other.exponents[j++];
+            }
+            k++;
+        }
+        return new Monomial(Arrays.copyOf(resultSymbols, k), Arrays.copyOf(resultExponents, k));
+    }
+
+    /**
+     * Divides this monomial by a symbol, which must be contained in this monomial
+     * @param symbol The name of the symbol
+     * @return The quotient
+     */
+    public Monomial divide(String symbol) {
+        int index = Arrays.binarySearch(symbols, symbol);
+        if (index < 0) {
+            throw new IllegalArgumentException(symbol + " is not contained in " + this);
+        }
+        if (exponents[index] > 1) {
+            int[] resultExponents = exponents.clone();
+            resultExponents[index]--;
+            return new Monomial(symbols, resultExponents);
+        }
+        String[] resultSymbols = new String[symbols.length - 1];
+        int[] resultExponents = new int[symbols.length - 1];
+        System.arraycopy(symbols, 0, resultSymbols, 0, index);
+        System.arraycopy(symbols, index + 1, resultSymbols, index, resultSymbols.length - index);
+        System.arraycopy(exponents, 0, resultExponents, 0, index);
+        System.arraycopy(exponents, index + 1, resultExponents, index, resultExponents.length - index);
+        return new Monomial(resultSymbols, resultExponents);
+    }
+
+    /**
+     * Returns the exponent of a symbol
+     * @param symbol The name of the symbol
+     * @return The exponent, 0 if the symbol is not contained in this monomial
+     */
+    public int getExponent(String symbol) {
+        int index = Arrays.binarySearch(symbols, symbol);
+        return (index < 0) ? 0 : exponents[index];
+    }
+
+    public int getSymbolCount() {
+        return symbols.length;
+    }
+
+    public String getSymbol(int index) {
+        return symbols[index];
+    }
+
+    public int getExponent(int index) {
+        return exponents[index];
+    }
+
+    public int getDegree() {
+        int degree = 0;
+        for (int exponent : exponents) {
+            degree += exponent;
+        }
+        return degree;
+    }
+
+    /**
+     * Orders the monomials lexicographically by their symbols, higher powers first
+     */
+    @Override
+    public int compareTo(Monomial other) {
+        int n = Math.min(symbols.length, other.symbols.length);
+        for (int i = 0; i < n; i++) {
+            int cmp = symbols[i].compareTo(other.symbols[i]);
+            if (cmp != 0) {
+                return cmp;
+            }
+            if (exponents[i] != other.exponents[i]) {
+                return (exponents[i] > other.exponents[i]) ? -1 : 1;
+            }
+        }
+        return (symbols.length == other.symbols.length) ? 0 : (symbols.length > n ? -1 : 1);
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+        if (this == obj) {
+            return true;
+        }
+        if (!(obj instanceof Monomial)) {
+            return false;
+        }
+        Monomial other = (Monomial) obj;
+        return hash == other.hash && Arrays.equals(symbols, other.symbols) && Arrays.equals(exponents, other.exponents);
+    }
+
+    @Override
+    public int hashCode() {
+        return hash;
+    }
+
+    @Override
+    public String toString() {
+        if (symbols.length == 0) {
+            return "1";
+        }
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < symbols.length; i++) {
+            if (i > 0) {
+                sb.append('*');
+            }
+            sb.append(symbols[i]);
+            if (exponents[i] != 1) {
+                sb.append('^').append(exponents[i]);
+            }
+        }
+        return sb.toString();
+    }
+}
@@ -0,0 +1,239 @@
+package de.gaalop.tba.cfgImport.optimization.polynomial;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A sparse multivariate polynomial, that maps monomials to their coefficients.
+ * Monomials with a coefficient of zero are not stored.
+ * Operations with a term limit throw a PolynomialSizeException,
+ * if the result would have more terms than the limit.
+ * @author Christian Steinmetz
+ */
+public class Polynomial {
+
+    private final HashMap<Monomial, Double> terms;
+
+    public Polynomial() {
+        terms = new HashMap<Monomial, Double>();
+    }
+
+    private Polynomial(int capacity) {
+        terms = new HashMap<Monomial, Double>(Math.max(16, capacity * 4 / 3 + 1));
+    }
+
+    /**
+     * Creates a constant polynomial
+     * @param value The constant
+     * @return The polynomial
+     */
+    public static Polynomial constant(double value) {
+        Polynomial result = new Polynomial();
+        result.addTerm(Monomial.ONE, value);
+        return result;
+    }
+
+    /**
+     * Creates a polynomial consisting of a single symbol
+     * @param symbol The name of the symbol
+     * @return The polynomial
+     */
+    public static Polynomial symbol(String symbol) {
+        Polynomial result = new Polynomial();
+        result.addTerm(Monomial.of(symbol), 1);
+        return result;
+    }
+
+    private void addTerm(Monomial monomial, double coefficient) {
+        Double old = terms.get(monomial);
+        double sum = (old == null) ? coefficient : old + coefficient;
+        if (sum == 0) {
+            terms.remove(monomial);
+        } else {
+            terms.put(monomial, sum);
+        }
+    }
+
+    /**
+     * Returns the sum of this and another polynomial
+     * @param other The other polynomial
+     * @return The sum
+     */
+    public Polynomial add(Polynomial other) {
+        Polynomial result = new Polynomial(terms.size() + other.terms.size());
+        result.terms.putAll(terms);
+        for (Map.Entry<Monomial, Double> term : other.terms.entrySet()) {
+            result.addTerm(term.getKey(), term.getValue());
+        }
+        return result;
+    }
+
+    /**
+     * Returns the difference of this and another polynomial
+     * @param other The other polynomial
+     * @return The difference
+     */
+    public Polynomial subtract(Polynomial other) {
+        Polynomial result = new Polynomial(terms.size() + other.terms.size());
+        result.terms.putAll(terms);
+        for (Map.Entry<Monomial, Double> term : other.terms.entrySet()) {
+            result.addTerm(term.getKey(), -term.getValue());
+        }
+        return result;
+    }
+
+    /**
+     * Returns this polynomial multiplied by a constant
+     * @param factor The constant
+     * @return The product
+     */
+    public Polynomial scale(double factor) {
+        Polynomial result = new Polynomial(terms.size());
+        if (factor != 0) {
+            for (Map.Entry<Monomial, Double> term : terms.entrySet()) {
+                result.addTerm(term.getKey(), term.getValue() * factor);
+            }
+        }
+        return result;
+    }
+
+    public Polynomial negate() {
+        return scale(-1);
+    }
+
+    /**
+     * Returns the product of this and another polynomial
+     * @param other The other polynomial
+     * @param maxTerms The maximum number of terms during the multiplication
+     * @return The product
+     * @throws PolynomialSizeException if the product has more terms than maxTerms
+     */
+    public Polynomial multiply(Polynomial other, int maxTerms) {
+        Polynomial result = new Polynomial(Math.min(maxTerms, terms.size() * other.terms.size()));
+        for (Map.Entry<Monomial, Double> term : terms.entrySet()) {
+            for (Map.Entry<Monomial, Double> otherTerm : other.terms.entrySet()) {
+                result.addTerm(term.getKey().multiply(otherTerm.getKey()), term.getValue() * otherTerm.getValue());
+            }
+            if (result.terms.size() > maxTerms) {
+                throw new PolynomialSizeException(maxTerms);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Returns a power of this polynomial
+     * @param exponent The non-negative exponent
+     * @param maxTerms The maximum number of terms during the multiplications
+     * @return The power
+     * @throws PolynomialSizeException if the power has more terms than maxTerms
+     */
+    public Polynomial pow(int exponent, int maxTerms) {
+        Polynomial result = constant(1);
+        Polynomial base = this;
+        while (exponent > 0) {
+            if ((exponent & 1) != 0) {
+                result = result.multiply(base, maxTerms);
+            }
+            exponent >>= 1;
+            if (exponent > 0) {
+                base = base.multiply(base, maxTerms);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Returns the polynomial, which contains all terms of this polynomial with a given symbol
+     * divided by the symbol
+     * @param symbol The name of the symbol
+     * @return The quotient
+     */
+    public Polynomial quotient(String symbol) {
+        Polynomial result = new Polynomial();
+        for (Map.Entry<Monomial, Double> term : terms.entrySet()) {
+            if (term.getKey().getExponent(symbol) > 0) {
+                result.terms.put(term.getKey().divide(symbol), term.getValue());
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Returns the polynomial, which contains all terms of this polynomial without a given symbol
+     * @param symbol The name of the symbol
+     * @return The remainder
+     */
+    public Polynomial remainder(String symbol) {
+        Polynomial result = new Polynomial();
+        for (Map.Entry<Monomial, Double> term : terms.entrySet()) {
+            if (term.getKey().getExponent(symbol) == 0) {
+                result.terms.put(term.getKey(), term.getValue());
+            }
+        }
+        return result;
+    }
+
+    public boolean isZero() {
+        return terms.isEmpty();
+    }
+
+    public boolean isConstant() {
+        return terms.isEmpty() || (terms.size() == 1 && terms.containsKey(Monomial.ONE));
+    }
+
+    /**
+     * Returns the constant term of this polynomial
+     * @return The coefficient of the empty monomial
+     */
+    public double getConstant() {
+        Double value = terms.get(Monomial.ONE);
+        return (value == null) ? 0 : value;
+    }
+
+    public int size() {
+        return terms.size();
+    }
+
+    public double getCoefficient(Monomial monomial) {
+        Double value = terms.get(monomial);
+        return (value == null) ? 0 : value;
+    }
+
+    /**
+     * Returns the monomials of this polynomial in the order of Monomial.compareTo
+     * @return The sorted monomials
+     */
+    public List<Monomial> getSortedMonomials() {
+        ArrayList<Monomial> monomials = new ArrayList<Monomial>(terms.keySet());
+        Collections.sort(monomials);
+        return monomials;
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+        return (obj instanceof Polynomial) && terms.equals(((Polynomial) obj).terms);
+    }
+
+    @Override
+    public int hashCode() {
+        return terms.hashCode();
+    }
+
+    @Override
+    public String toString() {
+        if (terms.isEmpty()) {
+            return "0";
+        }
+        StringBuilder sb = new StringBuilder();
+        for (Monomial monomial : getSortedMonomials()) {
+            double coefficient = terms.get(monomial);
+            sb.append((coefficient < 0) ? " - " : " + ");
+            sb.append(Math.abs(coefficient)).append('*').append(monomial);
+        }
+        return sb.substring(sb.charAt(1) == '-' ? 1 : 3);
+    }
+}
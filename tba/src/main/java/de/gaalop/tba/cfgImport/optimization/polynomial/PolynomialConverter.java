@@ -0,0 +1,244 @@
+package de.gaalop.tba.cfgImport.optimization.polynomial;
+
+import de.gaalop.dfg.Addition;
+import de.gaalop.dfg.BaseVector;
+import de.gaalop.dfg.Division;
+import de.gaalop.dfg.Equality;
+import de.gaalop.dfg.Exponentiation;
+import de.gaalop.dfg.Expression;
+import de.gaalop.dfg.ExpressionVisitor;
+import de.gaalop.dfg.FloatConstant;
+import de.gaalop.dfg.FunctionArgument;
+import de.gaalop.dfg.Inequality;
+import de.gaalop.dfg.InnerProduct;
+import de.gaalop.dfg.LogicalAnd;
+import de.gaalop.dfg.LogicalNegation;
+import de.gaalop.dfg.LogicalOr;
+import de.gaalop.dfg.MacroCall;
+import de.gaalop.dfg.MathFunctionCall;
+import de.gaalop.dfg.Multiplication;
+import de.gaalop.dfg.MultivectorComponent;
+import de.gaalop.dfg.Negation;
+import de.gaalop.dfg.OuterProduct;
+import de.gaalop.dfg.Relation;
+import de.gaalop.dfg.Reverse;
+import de.gaalop.dfg.Subtraction;
+import de.gaalop.dfg.Variable;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Converts an expression into a polynomial.
+ *
+ * Variables and multivector components become symbols, which are replaced by their bound polynomials.
+ * Parts of the expression, that are not polynomial (e.g. function calls or divisions by non-constant expressions)
+ * become atomic symbols, whose operands are simplified.
+ * The bindings are not inserted into the operands of atomic symbols,
+ * so that the size of nested atomic symbols does not grow with every insertion.
+ * @author Christian Steinmetz
+ */
+public class PolynomialConverter implements ExpressionVisitor {
+
+    /**
+     * The maximum integer exponent, that is expanded
+     */
+    public static final int MAX_EXPANDED_EXPONENT = 8;
+
+    /**
+     * Provides the polynomials bound to variables
+     */
+    public interface Bindings {
+
+        /**
+         * Returns the polynomial bound to a variable
+         * @param name The name of the variable, as returned by toString()
+         * @return The polynomial, null if the variable is not bound
+         */
+        Polynomial getBinding(String name);
+    }
+
+    private final ConcurrentMap<String, Expression> symbols;
+    private final Bindings bindings;
+    private final int maxTerms;
+    private Polynomial result;
+
+    /**
+     * Creates a new converter
+     * @param symbols The expressions of the symbols, new symbols are added
+     * @param bindings The bindings of variables, null if no variable is bound
+     * @param maxTerms The maximum number of terms of a polynomial
+     */
+    public PolynomialConverter(ConcurrentMap<String, Expression> symbols, Bindings bindings, int maxTerms) {
+        this.symbols = symbols;
+        this.bindings = bindings;
+        this.maxTerms = maxTerms;
+    }
+
+    /**
+     * Converts an expression into a polynomial
+     * @param expression The expression
+     * @return The polynomial
+     * @throws PolynomialSizeException if a polynomial has more terms than the limit
+     */
+    public Polynomial convert(Expression expression) {
+        expression.accept(this);
+        return result;
+    }
+
+    private Polynomial symbol(String name, Expression expression) {
+        symbols.putIfAbsent(name, expression);
+        return Polynomial.symbol(name);
+    }
+
+    private Polynomial atom(Expression expression) {
+        return symbol("{" + expression + "}", expression);
+    }
+
+    /**
+     * Simplifies an operand of an atomic symbol without inserting bindings
+     * @param expression The operand
+     * @return The simplified operand
+     */
+    private Expression simplifyOperand(Expression expression) {
+        Polynomial polynomial = new PolynomialConverter(symbols, null, maxTerms).convert(expression);
+        return new PolynomialEmitter(symbols).emit(polynomial);
+    }
+
+    private Polynomial checkSize(Polynomial polynomial) {
+        if (polynomial.size() > maxTerms) {
+            throw new PolynomialSizeException(maxTerms);
+        }
+        return polynomial;
+    }
+
+    @Override
+    public void visit(Subtraction node) {
+        Polynomial left = convert(node.getLeft());
+        result = checkSize(left.subtract(convert(node.getRight())));
+    }
+
+    @Override
+    public void visit(Addition node) {
+        Polynomial left = convert(node.getLeft());
+        result = checkSize(left.add(convert(node.getRight())));
+    }
+
+    @Override
+    public void visit(Division node) {
+        Polynomial right = convert(node.getRight());
+        if (right.isConstant() && !right.isZero()) {
+            result = convert(node.getLeft()).scale(1 / right.getConstant());
+        } else {
+            result = atom(new Division(simplifyOperand(node.getLeft()), simplifyOperand(node.getRight())));
+        }
+    }
+
+    @Override
+    public void visit(Multiplication node) {
+        Polynomial left = convert(node.getLeft());
+        result = left.multiply(convert(node.getRight()), maxTerms);
+    }
+
+    @Override
+    public void visit(Exponentiation node) {
+        Polynomial exponent = convert(node.getRight());
+        if (exponent.isConstant()) {
+            double value = exponent.getConstant();
+            if (value == Math.rint(value) && value >= 0 && value <= MAX_EXPANDED_EXPONENT) {
+                result = convert(node.getLeft()).pow((int) value, maxTerms);
+                return;
+            }
+        }
+        result = atom(new Exponentiation(simplifyOperand(node.getLeft()), simplifyOperand(node.getRight())));
+    }
+
+    @Override
+    public void visit(Negation node) {
+        result = convert(node.getOperand()).negate();
+    }
+
+    @Override
+    public void visit(FloatConstant node) {
+        result = Polynomial.constant(node.getValue());
+    }
+
+    @Override
+    public void visit(MathFunctionCall node) {
+        result = atom(new MathFunctionCall(simplifyOperand(node.getOperand()), node.getFunction()));
+    }
+
+    @Override
+    public void visit(Variable node) {
+        visitVariable(node);
+    }
+
+    @Override
+    public void visit(MultivectorComponent node) {
+        visitVariable(node);
+    }
+
+    private void visitVariable(Variable node) {
+        String name = node.toString();
+        Polynomial bound = (bindings != null) ? bindings.getBinding(name) : null;
+        result = (bound != null) ? bound : symbol(name, node);
+    }
+
+    @Override
+    public void visit(InnerProduct node) {
+        result = atom(node.copy());
+    }
+
+    @Override
+    public void visit(OuterProduct node) {
+        result = atom(node.copy());
+    }
+
+    @Override
+    public void visit(BaseVector node) {
+        result = atom(node.copy());
+    }
+
+    @Override
+    public void visit(Reverse node) {
+        result = atom(node.copy());
+    }
+
+    @Override
+    public void visit(LogicalOr node) {
+        result = atom(node.copy());
+    }
+
+    @Override
+    public void visit(LogicalAnd node) {
+        result = atom(node.copy());
+    }
+
+    @Override
+    public void visit(LogicalNegation node) {
+        result = atom(node.copy());
+    }
+
+    @Override
+    public void visit(Equality node) {
+        result = atom(node.copy());
+    }
+
+    @Override
+    public void visit(Inequality node) {
+        result = atom(node.copy());
+    }
+
+    @Override
+    public void visit(Relation relation) {
+        result = atom(relation.copy());
+    }
+
+    @Override
+    public void visit(FunctionArgument node) {
+        result = atom(node.copy());
+    }
+
+    @Override
+    public void visit(MacroCall node) {
+        result = atom(node.copy());
+    }
+}
@@ -0,0 +1,166 @@
+package de.gaalop.tba.cfgImport.optimization.polynomial;
+
+import de.gaalop.dfg.Addition;
+import de.gaalop.dfg.Exponentiation;
+import de.gaalop.dfg.Expression;
+import de.gaalop.dfg.FloatConstant;
+import de.gaalop.dfg.Multiplication;
+import de.gaalop.dfg.Negation;
+import de.gaalop.dfg.Subtraction;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Converts a polynomial back into an expression.
+ *
+ * The polynomial is factored greedily in Horner style:
+ * the symbol, that occurs in the most monomials, is factored out of these monomials,
+ * and the quotient as well as the remainder are factored recursively.
+ * @author Christian Steinmetz
+ */
+public class PolynomialEmitter {
+
+    /**
+     * The maximum exponent, that is emitted as repeated multiplication
+     */
+    private static final int MAX_MULTIPLIED_EXPONENT = 3;
+
+    private final Map<String, Expression> symbols;
+
+    /**
+     * Creates a new emitter
+     * @param symbols The expressions of the symbols
+     */
+    public PolynomialEmitter(Map<String, Expression> symbols) {
+        this.symbols = symbols;
+    }
+
+    /**
+     * A summand with its sign
+     */
+    private static class Summand {
+        private Expression expression;
+        private boolean negative;
+
+        public Summand(Expression expression, boolean negative) {
+            this.expression = expression;
+            this.negative = negative;
+        }
+    }
+
+    /**
+     * Converts a polynomial into an expression
+     * @param polynomial The polynomial
+     * @return The expression
+     */
+    public Expression emit(Polynomial polynomial) {
+        if (polynomial.isConstant()) {
+            return new FloatConstant(polynomial.getConstant());
+        }
+        ArrayList<Summand> summands = new ArrayList<Summand>();
+        collectSummands(polynomial, summands);
+
+        Expression result = null;
+        for (Summand summand : summands) {
+            if (!summand.negative) {
+                result = (result == null) ? summand.expression : new Addition(result, summand.expression);
+            }
+        }
+        for (Summand summand : summands) {
+            if (summand.negative) {
+                result = (result == null) ? new Negation(summand.expression) : new Subtraction(result, summand.expression);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Factors a polynomial and collects the summands of the factored form
+     * @param polynomial The polynomial
+     * @param summands The list to be filled
+     */
+    private void collectSummands(Polynomial polynomial, List<Summand> summands) {
+        List<Monomial> monomials = polynomial.getSortedMonomials();
+
+        // determine the symbol, which occurs in the most monomials
+        HashMap<String, Integer> counts = new HashMap<String, Integer>();
+        String best = null;
+        int bestCount = 1;
+        for (Monomial monomial : monomials) {
+            for (int i = 0; i < monomial.getSymbolCount(); i++) {
+                String symbol = monomial.getSymbol(i);
+                Integer count = counts.get(symbol);
+                count = (count == null) ? 1 : count + 1;
+                counts.put(symbol, count);
+                if (count > bestCount || (count == bestCount && best != null && symbol.compareTo(best) < 0)) {
+                    best = symbol;
+                    bestCount = count;
+                }
+            }
+        }
+
+        if (best == null) {
+            for (Monomial monomial : monomials) {
+                double coefficient = polynomial.getCoefficient(monomial);
+                summands.add(new Summand(createTerm(monomial, Math.abs(coefficient)), coefficient < 0));
+            }
+            return;
+        }
+
+        Polynomial remainder = polynomial.remainder(best);
+        if (!remainder.isZero()) {
+            collectSummands(remainder, summands);
+        }
+        Polynomial quotient = polynomial.quotient(best);
+        boolean negative = allNegative(quotient);
+        if (negative) {
+            quotient = quotient.negate();
+        }
+        summands.add(new Summand(new Multiplication(getSymbol(best), emit(quotient)), negative));
+    }
+
+    private static boolean allNegative(Polynomial polynomial) {
+        for (Monomial monomial : polynomial.getSortedMonomials()) {
+            if (polynomial.getCoefficient(monomial) > 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Creates the expression of a monomial with a positive coefficient
+     * @param monomial The monomial
+     * @param coefficient The coefficient
+     * @return The expression
+     */
+    private Expression createTerm(Monomial monomial, double coefficient) {
+        Expression result = (coefficient != 1 || monomial.getSymbolCount() == 0) ? new FloatConstant(coefficient) : null;
+        for (int i = 0; i < monomial.getSymbolCount(); i++) {
+            Expression power = createPower(monomial.getSymbol(i), monomial.getExponent(i));
+            result = (result == null) ? power : new Multiplication(result, power);
+        }
+        return result;
+    }
+
+    private Expression createPower(String symbol, int exponent) {
+        if (exponent > MAX_MULTIPLIED_EXPONENT) {
+            return new Exponentiation(getSymbol(symbol), new FloatConstant(exponent));
+        }
+        Expression result = getSymbol(symbol);
+        for (int i = 1; i < exponent; i++) {
+            result = new Multiplication(result, getSymbol(symbol));
+        }
+        return result;
+    }
+
+    private Expression getSymbol(String symbol) {
+        Expression expression = symbols.get(symbol);
+        if (expression == null) {
+            throw new IllegalStateException("Unknown symbol " + symbol);
+        }
+        return expression.copy();
+    }
+}
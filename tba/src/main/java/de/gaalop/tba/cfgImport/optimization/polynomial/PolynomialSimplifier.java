@@ -0,0 +1,199 @@
+package de.gaalop.tba.cfgImport.optimization.polynomial;
+
+import de.gaalop.OptimizationException;
+import de.gaalop.api.cfg.AssignmentNodeCollector;
+import de.gaalop.cfg.AssignmentNode;
+import de.gaalop.cfg.ControlFlowGraph;
+import de.gaalop.dfg.Expression;
+import de.gaalop.dfg.MultivectorComponent;
+import de.gaalop.dfg.Variable;
+import de.gaalop.tba.cfgImport.optimization.maxima.StoreResultNodesCollector;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Simplifies expressions in-process by converting them into sparse multivariate polynomials,
+ * which collects like terms, folds constants and expands products,
+ * and emitting the polynomials in factored form.
+ *
+ * Like the MaximaOptimizer, a graph can be simplified with inserting:
+ * the polynomials of assigned variables are inserted into the following assignments.
+ * The assignments are simplified in parallel, an assignment waits only for the assignments,
+ * whose polynomials it inserts.
+ * @author Christian Steinmetz
+ */
+public class PolynomialSimplifier {
+
+    public static final int DEFAULT_MAX_TERMS = 10000;
+
+    private final ConcurrentHashMap<String, Expression> symbols = new ConcurrentHashMap<String, Expression>();
+    private final int maxTerms;
+    private final int threads;
+
+    public PolynomialSimplifier() {
+        this(DEFAULT_MAX_TERMS, Runtime.getRuntime().availableProcessors());
+    }
+
+    /**
+     * Creates a new simplifier
+     * @param maxTerms The maximum number of terms of a polynomial.
+     * Expressions with larger polynomials are not simplified.
+     * @param threads The maximum number of threads for simplifying a graph
+     */
+    public PolynomialSimplifier(int maxTerms, int threads) {
+        this.maxTerms = maxTerms;
+        this.threads = Math.max(1, threads);
+    }
+
+    /**
+     * Converts an expression into a polynomial
+     * @param expression The expression
+     * @return The polynomial
+     * @throws PolynomialSizeException if the polynomial has more terms than the limit
+     */
+    public Polynomial toPolynomial(Expression expression) {
+        return new PolynomialConverter(symbols, null, maxTerms).convert(expression);
+    }
+
+    /**
+     * Simplifies an expression
+     * @param expression The expression
+     * @return The simplified expression, a copy of the expression if its polynomial is too large
+     */
+    public Expression simplify(Expression expression) {
+        try {
+            return new PolynomialEmitter(symbols).emit(toPolynomial(expression));
+        } catch (PolynomialSizeException e) {
+            return expression.copy();
+        }
+    }
+
+    /**
+     * A binding of a variable to the polynomial of its assignment
+     */
+    private static class Binding {
+        private int index;
+        private Future<Polynomial> polynomial;
+
+        public Binding(int index, Future<Polynomial> polynomial) {
+            this.index = index;
+            this.polynomial = polynomial;
+        }
+    }
+
+    /**
+     * Simplifies all assignments of a graph
+     * @param graph The graph
+     * @param inserting true, if the polynomials of assigned variables should be inserted into the following assignments
+     * @param scalarFunctions true, if also the polynomials of scalar variables should be inserted
+     * @return true, if an assignment has been changed
+     * @throws OptimizationException
+     */
+    public boolean transformGraph(ControlFlowGraph graph, boolean inserting, boolean scalarFunctions) throws OptimizationException {
+        StoreResultNodesCollector storeResultCollector = new StoreResultNodesCollector();
+        graph.accept(storeResultCollector);
+        AssignmentNodeCollector assignmentNodeCollector = new AssignmentNodeCollector();
+        graph.accept(assignmentNodeCollector);
+        final AssignmentNode[] nodes = assignmentNodeCollector.getAssignmentNodes().toArray(new AssignmentNode[0]);
+        final Expression[] values = new Expression[nodes.length];
+
+        // all bindings of a variable ordered by their index, because a variable may be assigned several times
+        final HashMap<String, ArrayList<Binding>> bindings = new HashMap<String, ArrayList<Binding>>();
+        ExecutorService executor = Executors.newFixedThreadPool(Math.max(1, Math.min(threads, nodes.length)));
+        try {
+            // the tasks are submitted in the order of the assignments,
+            // so every task waits only for tasks, that have been started before
+            ArrayList<Future<Polynomial>> futures = new ArrayList<Future<Polynomial>>(nodes.length);
+            for (int i = 0; i < nodes.length; i++) {
+                final int index = i;
+                final PolynomialConverter.Bindings visible = new PolynomialConverter.Bindings() {
+                    @Override
+                    public Polynomial getBinding(String name) {
+                        // the visible binding is the last assignment before this one,
+                        // later assignments may already have been registered
+                        Binding binding = null;
+                        synchronized (bindings) {
+                            ArrayList<Binding> list = bindings.get(name);
+                            if (list != null) {
+                                for (int j = list.size() - 1; j >= 0 && binding == null; j--) {
+                                    if (list.get(j).index < index) {
+                                        binding = list.get(j);
+                                    }
+                                }
+                            }
+                        }
+                        if (binding == null) {
+                            return null;
+                        }
+                        try {
+                            return binding.polynomial.get();
+                        } catch (InterruptedException e) {
+                            Thread.currentThread().interrupt();
+                            throw new IllegalStateException(e);
+                        } catch (ExecutionException e) {
+                            throw new IllegalStateException(e.getCause());
+                        }
+                    }
+                };
+                Future<Polynomial> future = executor.submit(new Callable<Polynomial>() {
+                    @Override
+                    public Polynomial call() {
+                        AssignmentNode node = nodes[index];
+                        try {
+                            Polynomial polynomial = new PolynomialConverter(symbols, visible, maxTerms).convert(node.getValue());
+                            values[index] = new PolynomialEmitter(symbols).emit(polynomial);
+                            return polynomial;
+                        } catch (PolynomialSizeException e) {
+                            Logger.getLogger(PolynomialSimplifier.class.getName()).log(Level.FINE,
+                                    "{0} is not simplified: {1}", new Object[]{node.getVariable(), e.getMessage()});
+                            return null;
+                        }
+                    }
+                });
+                futures.add(future);
+
+                Variable variable = nodes[i].getVariable();
+                String name = variable.getName();
+                if (inserting && !graph.getPragmaOnlyEvaluateVariables().contains(name)
+                        && !storeResultCollector.containsStoreResultVariableName(name)
+                        && (scalarFunctions || variable instanceof MultivectorComponent)) {
+                    synchronized (bindings) {
+                        ArrayList<Binding> list = bindings.get(variable.toString());
+                        if (list == null) {
+                            list = new ArrayList<Binding>();
+                            bindings.put(variable.toString(), list);
+                        }
+                        list.add(new Binding(i, future));
+                    }
+                }
+            }
+
+            boolean changed = false;
+            for (int i = 0; i < nodes.length; i++) {
+                try {
+                    futures.get(i).get();
+                } catch (ExecutionException e) {
+                    throw new OptimizationException("Polynomial simplification of " + nodes[i].getVariable() + " failed", e.getCause(), graph);
+                }
+                if (values[i] != null && !values[i].equals(nodes[i].getValue())) {
+                    nodes[i].setValue(values[i]);
+                    changed = true;
+                }
+            }
+            return changed;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new OptimizationException("Interrupted while simplifying polynomials", graph);
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+}
@@ -0,0 +1,12 @@
+package de.gaalop.tba.cfgImport.optimization.polynomial;
+
+/**
+ * Signals, that a polynomial exceeds the maximum number of terms
+ * @author Christian Steinmetz
+ */
+public class PolynomialSizeException extends RuntimeException {
+
+    public PolynomialSizeException(int maxTerms) {
+        super("The polynomial has more than " + maxTerms + " terms");
+    }
+}
@@ -0,0 +1,218 @@
+package de.gaalop.tba.table;
+
+import de.gaalop.tba.BladeRef;
+import de.gaalop.tba.IMultTable;
+import de.gaalop.tba.Multivector;
+import de.gaalop.tba.Products;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.WeakReference;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Provides random access to a product table file in the TABLE_INDEXED format.
+ *
+ * The file is memory-mapped and the products are decoded on demand,
+ * so opening a table takes constant time, independent of the size of the algebra.
+ * The tables are read-only and safe for concurrent readers.
+ * Tables are shared: opening the same unchanged file again returns the already mapped table,
+ * as long as it is in use. The shared tables are only weakly referenced, so a table,
+ * whose algebra is no longer used (e.g. after its eviction from the AlgebraRegistry),
+ * is garbage collected and its file is unmapped.
+ *
+ * @author Christian Steinmetz
+ */
+public class MultTableMapped {
+
+    /**
+     * A weak reference to a shared table, which knows its key in the map of the shared tables
+     */
+    private static class TableReference extends WeakReference<MultTableMapped> {
+
+        private final String key;
+
+        public TableReference(String key, MultTableMapped table, ReferenceQueue<MultTableMapped> queue) {
+            super(table, queue);
+            this.key = key;
+        }
+    }
+
+    private static final ConcurrentHashMap<String, TableReference> openedTables = new ConcurrentHashMap<String, TableReference>();
+    private static final ReferenceQueue<MultTableMapped> collectedTables = new ReferenceQueue<MultTableMapped>();
+
+    private MappedByteBuffer buffer;
+    private int dimension;
+    private int bladeCount;
+    private int dataPosition;
+    private long lastModified;
+    private long length;
+
+    private MultTableMapped(File file) throws IOException {
+        RandomAccessFile randomAccessFile = new RandomAccessFile(file, "r");
+        try {
+            FileChannel channel = randomAccessFile.getChannel();
+            buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+        } finally {
+            randomAccessFile.close();
+        }
+        if (buffer.get(0) != TableFormat.TABLE_INDEXED)
+            throw new IOException("The products file " + file + " is not in the indexed format");
+        dimension = buffer.get(1);
+        bladeCount = 1 << dimension;
+        dataPosition = TableIndexed.INDEX_POSITION + 4 * bladeCount * bladeCount;
+        lastModified = file.lastModified();
+        length = file.length();
+    }
+
+    /**
+     * Opens a product table file in the TABLE_INDEXED format.
+     * If the file was opened before and has not changed since, the mapped table is reused.
+     * @param file The products file
+     * @return The mapped table
+     * @throws IOException
+     */
+    public static MultTableMapped open(File file) throws IOException {
+        removeCollectedTables();
+        String key = file.getCanonicalPath();
+        TableReference reference = openedTables.get(key);
+        MultTableMapped table = (reference != null) ? reference.get() : null;
+        if (table != null && table.lastModified == file.lastModified() && table.length == file.length())
+            return table;
+        table = new MultTableMapped(file);
+        openedTables.put(key, new TableReference(key, table, collectedTables));
+        return table;
+    }
+
+    /**
+     * Removes the entries of garbage collected tables from the shared tables
+     */
+    private static void removeCollectedTables() {
+        TableReference reference;
+        while ((reference = (TableReference) collectedTables.poll()) != null)
+            openedTables.remove(reference.key, reference);
+    }
+
+    /**
+     * Returns the dimension of the algebra
+     * @return The dimension
+     */
+    public int getDimension() {
+        return dimension;
+    }
+
+    /**
+     * Returns the number of blades
+     * @return The number of blades
+     */
+    public int getBladeCount() {
+        return bladeCount;
+    }
+
+    /**
+     * Returns the position of the products of a blade pair in the mapped file
+     * @param factor1 The index of the blade of the first factor
+     * @param factor2 The index of the blade of the second factor
+     * @return The position of the blade counts of the pair
+     */
+    private int getPairPosition(int factor1, int factor2) {
+        return dataPosition + buffer.getInt(TableIndexed.INDEX_POSITION + 4 * (factor1 * bladeCount + factor2));
+    }
+
+    /**
+     * Returns the position of the first encoded blade of a product
+     * @param pairPosition The position of the blade pair
+     * @param product The type of the product
+     * @return The position of the first encoded blade
+     */
+    private int getBladesPosition(int pairPosition, Products product) {
+        int position = pairPosition + 6;
+        for (int p = 0; p < product.ordinal(); p++)
+            position += 4 * buffer.getShort(pairPosition + 2 * p);
+        return position;
+    }
+
+    /**
+     * Copies the result blades of the product of two blades into the given buffers,
+     * sorted ascending by blade index. No objects are allocated.
+     * The buffers must be able to hold bladeCount entries.
+     *
+     * @param product The type of the product
+     * @param factor1 The index of the blade of the first factor
+     * @param factor2 The index of the blade of the second factor
+     * @param resultBlades The buffer for the indices of the result blades
+     * @param resultPrefactors The buffer for the prefactors of the result blades
+     * @return The number of result blades
+     */
+    public int getProductBlades(Products product, int factor1, int factor2, int[] resultBlades, byte[] resultPrefactors) {
+        int pairPosition = getPairPosition(factor1, factor2);
+        int position = getBladesPosition(pairPosition, product);
+        int count = buffer.getShort(pairPosition + 2 * product.ordinal());
+        for (int i = 0; i < count; i++) {
+            int encoded = buffer.getInt(position + 4 * i);
+            resultBlades[i] = encoded >>> 8;
+            resultPrefactors[i] = (byte) encoded;
+        }
+        return count;
+    }
+
+    /**
+     * Returns the product of two blades
+     * @param product The type of the product
+     * @param factor1 The index of the blade of the first factor
+     * @param factor2 The index of the blade of the second factor
+     * @return The product
+     */
+    public Multivector getProduct(Products product, int factor1, int factor2) {
+        int pairPosition = getPairPosition(factor1, factor2);
+        int position = getBladesPosition(pairPosition, product);
+        int count = buffer.getShort(pairPosition + 2 * product.ordinal());
+        Multivector result = new Multivector();
+        for (int i = 0; i < count; i++) {
+            int encoded = buffer.getInt(position + 4 * i);
+            result.addBlade(new BladeRef((byte) encoded, encoded >>> 8));
+        }
+        return result;
+    }
+
+    /**
+     * Returns a read-only view of the table of one product type
+     * @param product The type of the product
+     * @return The view
+     */
+    public IMultTable getTable(Products product) {
+        return new View(product);
+    }
+
+    /**
+     * A read-only view of the table of one product type
+     */
+    private class View implements IMultTable {
+
+        private Products product;
+
+        public View(Products product) {
+            this.product = product;
+        }
+
+        @Override
+        public void createTable(int dimension) {
+            if (dimension != bladeCount)
+                throw new UnsupportedOperationException("Mapped product tables are read-only");
+        }
+
+        @Override
+        public Multivector getProduct(Integer factor1, Integer factor2) {
+            return MultTableMapped.this.getProduct(product, factor1, factor2);
+        }
+
+        @Override
+        public void setProduct(Integer factor1, Integer factor2, Multivector product) {
+            throw new UnsupportedOperationException("Mapped product tables are read-only");
+        }
+    }
+
+}
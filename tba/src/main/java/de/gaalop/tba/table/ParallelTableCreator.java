@@ -0,0 +1,291 @@
+package de.gaalop.tba.table;
+
+import de.gaalop.cfg.AlgebraDefinitionFile;
+import de.gaalop.productComputer.AlgebraPC;
+import de.gaalop.productComputer.BitmaskProductComputer;
+import de.gaalop.tba.BladeRef;
+import de.gaalop.tba.Multivector;
+import de.gaalop.tba.Products;
+import de.gaalop.tba.table.BitIO.AbsBitWriter;
+import de.gaalop.tba.table.BitIO.MaxWriter;
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.LinkedList;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Creates the product table of an algebra, given by its definition file, in parallel.
+ *
+ * The rows of the table are split into shards, which are computed concurrently on a fork-join pool.
+ * Every shard is written to its own file in a shard directory. A shard file is written under
+ * a temporary name and renamed after completion, so an interrupted run can be resumed:
+ * already finished shards are not computed again.
+ * At the end, all shards are merged into the TABLE_COMPRESSED_MAX format.
+ *
+ * @author Christian Steinmetz
+ */
+public class ParallelTableCreator {
+
+    public static final String SHARD_DIRECTORY = "products.shards";
+    private static final String SHARD_SUFFIX = ".shard";
+    private static final String PART_SUFFIX = ".part";
+
+    private static final Products[] PRODUCTS = {Products.INNER, Products.OUTER, Products.GEO};
+
+    private BitmaskProductComputer computer;
+    private int dimension;
+    private int bladeCount;
+    private File shardDirectory;
+    private int rowsPerShard;
+
+    /**
+     * Creates a new ParallelTableCreator
+     * @param alFile The definition of the algebra
+     * @param shardDirectory The directory for the shard files
+     * @param rowsPerShard The number of table rows in one shard
+     */
+    public ParallelTableCreator(AlgebraDefinitionFile alFile, File shardDirectory, int rowsPerShard) {
+        computer = new BitmaskProductComputer();
+        computer.initialize(new AlgebraPC(alFile));
+        dimension = alFile.base.length - 1;
+        bladeCount = computer.getBladeCount();
+        this.shardDirectory = shardDirectory;
+        this.rowsPerShard = Math.max(1, rowsPerShard);
+    }
+
+    /**
+     * Returns the number of shards
+     * @return The number of shards
+     */
+    public int getShardCount() {
+        return (bladeCount + rowsPerShard - 1) / rowsPerShard;
+    }
+
+    /**
+     * Returns the file of a finished shard
+     * @param shard The index of the shard
+     * @return The file
+     */
+    public File getShardFile(int shard) {
+        return new File(shardDirectory, "products" + shard + SHARD_SUFFIX);
+    }
+
+    /**
+     * Computes all shards, which are not finished yet
+     * @param parallelism The number of threads to be used
+     * @return The number of computed shards
+     * @throws IOException
+     */
+    public int createShards(int parallelism) throws IOException {
+        if (!shardDirectory.exists() && !shardDirectory.mkdirs())
+            throw new IOException("The shard directory " + shardDirectory + " could not be created");
+
+        final LinkedList<ShardTask> tasks = new LinkedList<ShardTask>();
+        for (int shard = 0; shard < getShardCount(); shard++)
+            if (!getShardFile(shard).exists())
+                tasks.add(new ShardTask(shard));
+
+        ForkJoinPool pool = new ForkJoinPool(parallelism);
+        try {
+            pool.invoke(new RecursiveAction() {
+                @Override
+                protected void compute() {
+                    invokeAll(tasks);
+                }
+            });
+        } catch (IllegalStateException e) {
+            if (e.getCause() instanceof IOException)
+                throw (IOException) e.getCause();
+            throw e;
+        } finally {
+            pool.shutdown();
+        }
+        return tasks.size();
+    }
+
+    /**
+     * Computes the rows of one shard and writes them to the shard file
+     * @param shard The index of the shard
+     * @throws IOException
+     */
+    private void writeShard(int shard) throws IOException {
+        File part = new File(shardDirectory, "products" + shard + PART_SUFFIX);
+        DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(part)));
+        try {
+            int to = Math.min(bladeCount, (shard + 1) * rowsPerShard);
+            for (int i = shard * rowsPerShard; i < to; i++)
+                for (int j = 0; j < bladeCount; j++)
+                    for (Products product: PRODUCTS)
+                        writeMultivector(computer.calcProduct(product, i, j), out);
+        } finally {
+            out.close();
+        }
+        if (!part.renameTo(getShardFile(shard)))
+            throw new IOException("The shard file " + part + " could not be renamed");
+    }
+
+    /**
+     * Merges all shards into the TABLE_COMPRESSED_MAX format
+     * @param outputStream The stream to write the table to
+     * @throws IOException
+     */
+    public void merge(OutputStream outputStream) throws IOException {
+        for (int shard = 0; shard < getShardCount(); shard++)
+            if (!getShardFile(shard).exists())
+                throw new IOException("The shard " + shard + " is not finished");
+
+        // first pass: determine the maximum number of blades in one product
+        int maxNumber = 0;
+        for (int shard = 0; shard < getShardCount(); shard++) {
+            DataInputStream in = openShard(shard);
+            try {
+                for (int n = 0; n < getShardPairCount(shard) * PRODUCTS.length; n++)
+                    maxNumber = Math.max(maxNumber, readMultivector(in).getBlades().size());
+            } finally {
+                in.close();
+            }
+        }
+        int bitCount = TableCompressed.getBitCount(maxNumber);
+
+        // second pass: write the compressed table
+        DataOutputStream out = new DataOutputStream(new BufferedOutputStream(outputStream));
+        out.writeByte(TableFormat.TABLE_COMPRESSED_MAX);
+        out.writeByte(dimension);
+        out.writeByte(bitCount);
+        AbsBitWriter writer = new MaxWriter();
+        writer.setDataOutputStream(out);
+        for (int shard = 0; shard < getShardCount(); shard++) {
+            DataInputStream in = openShard(shard);
+            try {
+                for (int n = 0; n < getShardPairCount(shard) * PRODUCTS.length; n++)
+                    TableCompressed.writeMultivector(readMultivector(in), dimension, writer, bitCount);
+            } finally {
+                in.close();
+            }
+        }
+        writer.finish();
+        out.close();
+    }
+
+    /**
+     * Deletes all shard files and the shard directory
+     */
+    public void deleteShards() {
+        for (int shard = 0; shard < getShardCount(); shard++)
+            getShardFile(shard).delete();
+        shardDirectory.delete();
+    }
+
+    /**
+     * Returns the number of blade pairs in a shard
+     * @param shard The index of the shard
+     * @return The number of blade pairs
+     */
+    private int getShardPairCount(int shard) {
+        int to = Math.min(bladeCount, (shard + 1) * rowsPerShard);
+        return (to - shard * rowsPerShard) * bladeCount;
+    }
+
+    private DataInputStream openShard(int shard) throws IOException {
+        return new DataInputStream(new BufferedInputStream(new FileInputStream(getShardFile(shard))));
+    }
+
+    /**
+     * Writes a multivector to a shard file
+     * @param product The multivector
+     * @param out The stream of the shard file
+     * @throws IOException
+     */
+    private static void writeMultivector(Multivector product, DataOutputStream out) throws IOException {
+        out.writeShort(product.getBlades().size());
+        for (BladeRef bR: product.getBlades()) {
+            out.writeInt(bR.getIndex());
+            out.writeByte(bR.getPrefactor());
+        }
+    }
+
+    /**
+     * Reads a multivector from a shard file
+     * @param in The stream of the shard file
+     * @return The read multivector
+     * @throws IOException
+     */
+    private static Multivector readMultivector(DataInputStream in) throws IOException {
+        Multivector result = new Multivector();
+        int size = in.readShort();
+        for (int i = 0; i < size; i++) {
+            int index = in.readInt();
+            result.addBlade(new BladeRef(in.readByte(), index));
+        }
+        return result;
+    }
+
+    /**
+     * Computes the rows of one shard in a fork-join pool
+     */
+    private class ShardTask extends RecursiveAction {
+
+        private int shard;
+
+        public ShardTask(int shard) {
+            this.shard = shard;
+        }
+
+        @Override
+        protected void compute() {
+            try {
+                writeShard(shard);
+                Logger.getLogger(ParallelTableCreator.class.getName()).log(Level.FINE, "Shard {0} finished", shard);
+            } catch (IOException e) {
+                throw new IllegalStateException(e);
+            }
+        }
+    }
+
+    /**
+     * @param args the command line arguments:
+     * 0: directory path of the algebra, that contains the 'definition.csv' file
+     * 1: (optional) the number of threads, default: the number of available processors
+     * 2: (optional) the number of table rows in one shard, default: bladeCount/64
+     */
+    public static void main(String[] args) throws IOException {
+        if (args.length == 0) {
+            System.out.println("Usage: ParallelTableCreator <algebraDirectory> [threads] [rowsPerShard]");
+            System.exit(1);
+        }
+        File dir = new File(args[0]);
+        File definitionFile = new File(dir, "definition.csv");
+        if (!definitionFile.exists()) {
+            System.out.println("There is no file named 'definition.csv' in the directory!");
+            System.exit(3);
+        }
+        AlgebraDefinitionFile alFile = new AlgebraDefinitionFile();
+        FileInputStream inputStream = new FileInputStream(definitionFile);
+        alFile.loadFromFile(inputStream);
+        inputStream.close();
+
+        int parallelism = (args.length > 1) ? Integer.parseInt(args[1]) : Runtime.getRuntime().availableProcessors();
+        int bladeCount = 1 << (alFile.base.length - 1);
+        int rowsPerShard = (args.length > 2) ? Integer.parseInt(args[2]) : Math.max(1, bladeCount / 64);
+
+        ParallelTableCreator creator = new ParallelTableCreator(alFile, new File(dir, SHARD_DIRECTORY), rowsPerShard);
+        int computed = creator.createShards(parallelism);
+        System.out.println(computed + " of " + creator.getShardCount() + " shards computed");
+
+        FileOutputStream out = new FileOutputStream(new File(dir, "products.csv"));
+        creator.merge(out);
+        creator.deleteShards();
+        System.out.println("Table written to " + new File(dir, "products.csv"));
+    }
+
+}
@@ -76,7 +76,7 @@ public class TableCompressed implements TableReaderIO {
      * @param bitCount The bit count
      * @throws IOException
      */
-    private void writeMultivector(Multivector product, int dimension, AbsBitWriter out, int bitCount) throws IOException {
+    static void writeMultivector(Multivector product, int dimension, AbsBitWriter out, int bitCount) throws IOException {
         int size = product.getBlades().size();
         out.write(size, bitCount);
         for (BladeRef bR: product.getBlades()) {
@@ -124,12 +124,7 @@ public class TableCompressed implements TableReaderIO {
             r.setDataInputStream(in);
 
 
-            int number = 2;
-            int bitCount2 = 1;
-            while (number < maxNumber+1) {
-                bitCount2++;
-                number *= 2;
-            }
+            int bitCount2 = getBitCount(maxNumber);
 
             out.writeByte(dimension); //dimension
             out.writeByte(bitCount2);
@@ -152,6 +147,21 @@ public class TableCompressed implements TableReaderIO {
         }
     }
 
+    /**
+     * Returns the number of bits, which are needed to store the number of blades of a product
+     * @param maxNumber The maximum number of blades of a product
+     * @return The number of bits
+     */
+    static int getBitCount(int maxNumber) {
+        int number = 2;
+        int bitCount = 1;
+        while (number < maxNumber+1) {
+            bitCount++;
+            number *= 2;
+        }
+        return bitCount;
+    }
+
     public AbsBitReader getReader() {
         return reader;
     }
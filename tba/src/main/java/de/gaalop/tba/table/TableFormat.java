@@ -4,6 +4,8 @@ import de.gaalop.tba.IMultTable;
 import de.gaalop.tba.table.BitIO.*;
 import java.io.DataInputStream;
 import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
@@ -15,6 +17,7 @@ import java.io.OutputStream;
 public class TableFormat {
     
     public static final int TABLE_COMPRESSED_MAX       = 1;
+    public static final int TABLE_INDEXED              = 2;
     public static final int TABLE_HUMAN_READABLE       = 69;
 
     /**
@@ -29,6 +32,8 @@ public class TableFormat {
             if (reader instanceof MaxReader) 
                 return TABLE_COMPRESSED_MAX;
         }
+        if (tableReaderIO instanceof TableIndexed)
+            return TABLE_INDEXED;
         if (tableReaderIO instanceof TableHumanReadable) 
             return TABLE_HUMAN_READABLE;
         
@@ -44,6 +49,8 @@ public class TableFormat {
         switch (byteFormat) {
             case TABLE_COMPRESSED_MAX:
                 return new TableCompressed(new MaxReader(), new MaxWriter());
+            case TABLE_INDEXED:
+                return new TableIndexed();
             case TABLE_HUMAN_READABLE:
                 return new TableHumanReadable();
             default:
@@ -51,6 +58,21 @@ public class TableFormat {
         }
     }
 
+    /**
+     * Reads the format of a products file
+     * @param file The products file
+     * @return The format
+     * @throws IOException
+     */
+    public static int readFormat(File file) throws IOException {
+        DataInputStream in = new DataInputStream(new FileInputStream(file));
+        try {
+            return in.readByte();
+        } finally {
+            in.close();
+        }
+    }
+
     public static void readFromFile(InputStream filestream, IMultTable innerTable, IMultTable outerTable, IMultTable geoTable) throws IOException {
         DataInputStream in = new DataInputStream(filestream);
         byte format = in.readByte();
@@ -0,0 +1,142 @@
+package de.gaalop.tba.table;
+
+import de.gaalop.tba.BladeRef;
+import de.gaalop.tba.IMultTable;
+import de.gaalop.tba.MultTableFlat;
+import de.gaalop.tba.Multivector;
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Stores the product tables in a random-access format with a per-pair offset index.
+ *
+ * Layout (after the format byte):
+ * <ul>
+ * <li>byte: the dimension of the algebra</li>
+ * <li>int[bladeCount*bladeCount]: the offset of the products of every blade pair (i,j)
+ *      at position i*bladeCount+j, relative to the start of the data section</li>
+ * <li>data section: for every blade pair, three shorts with the number of blades
+ *      of the inner, outer and geometric product, followed by one int per blade
+ *      (blade index in the upper and prefactor in the lowest byte),
+ *      sorted ascending by blade index</li>
+ * </ul>
+ *
+ * Files in this format can be opened in constant time with MultTableMapped.
+ *
+ * @author Christian Steinmetz
+ */
+public class TableIndexed implements TableReaderIO {
+
+    /**
+     * The position of the offset index in a file, after the format and the dimension byte
+     */
+    public static final int INDEX_POSITION = 2;
+
+    @Override
+    public void readFromInputStream(DataInputStream in, IMultTable innerTable, IMultTable outerTable, IMultTable geoTable) {
+        try {
+            int dimension = in.readByte();
+            int bladeCount = 1 << dimension;
+            //the data section is ordered by pairs, so the index can be skipped
+            for (int pair = 0; pair < bladeCount * bladeCount; pair++)
+                in.readInt();
+
+            for (int i = 0; i < bladeCount; i++)
+                for (int j = 0; j < bladeCount; j++) {
+                    int countInner = in.readShort();
+                    int countOuter = in.readShort();
+                    int countGeo = in.readShort();
+                    innerTable.setProduct(i, j, readMultivector(in, countInner));
+                    outerTable.setProduct(i, j, readMultivector(in, countOuter));
+                    geoTable.setProduct(i, j, readMultivector(in, countGeo));
+                }
+
+            in.close();
+        } catch (IOException ex) {
+            Logger.getLogger(TableIndexed.class.getName()).log(Level.SEVERE, null, ex);
+        }
+    }
+
+    /**
+     * Reads a multivector
+     * @param in The stream to be used
+     * @param count The number of blades
+     * @return The read multivector
+     * @throws IOException
+     */
+    private Multivector readMultivector(DataInputStream in, int count) throws IOException {
+        Multivector result = new Multivector();
+        for (int i = 0; i < count; i++) {
+            int encoded = in.readInt();
+            result.addBlade(new BladeRef((byte) encoded, encoded >>> 8));
+        }
+        return result;
+    }
+
+    /**
+     * Writes the blades of a product, sorted ascending by blade index
+     * @param count The number of blades
+     * @param blades The indices of the blades
+     * @param prefactors The prefactors of the blades
+     * @param out The stream to be used
+     * @throws IOException
+     */
+    private void writeBlades(int count, int[] blades, byte[] prefactors, DataOutputStream out) throws IOException {
+        for (int k = 0; k < count; k++)
+            out.writeInt((blades[k] << 8) | (prefactors[k] & 0xFF));
+    }
+
+    @Override
+    public void writeFromInputStream(int bladeCount, int dimension, IMultTable innerTable, IMultTable outerTable, IMultTable geoTable, DataOutputStream out) {
+        try {
+            //write the data section into a temporary file, to determine the offsets
+            int[] offsets = new int[bladeCount * bladeCount];
+            int[] innerBlades = new int[bladeCount];
+            int[] outerBlades = new int[bladeCount];
+            int[] geoBlades = new int[bladeCount];
+            byte[] innerPrefactors = new byte[bladeCount];
+            byte[] outerPrefactors = new byte[bladeCount];
+            byte[] geoPrefactors = new byte[bladeCount];
+            File tempFile = File.createTempFile("TableCreator", "txt");
+            DataOutputStream data = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(tempFile)));
+            for (int i = 0; i < bladeCount; i++)
+                for (int j = 0; j < bladeCount; j++) {
+                    offsets[i * bladeCount + j] = data.size();
+                    int countInner = MultTableFlat.getBlades(innerTable.getProduct(i, j), innerBlades, innerPrefactors);
+                    int countOuter = MultTableFlat.getBlades(outerTable.getProduct(i, j), outerBlades, outerPrefactors);
+                    int countGeo = MultTableFlat.getBlades(geoTable.getProduct(i, j), geoBlades, geoPrefactors);
+                    data.writeShort(countInner);
+                    data.writeShort(countOuter);
+                    data.writeShort(countGeo);
+                    writeBlades(countInner, innerBlades, innerPrefactors, data);
+                    writeBlades(countOuter, outerBlades, outerPrefactors, data);
+                    writeBlades(countGeo, geoBlades, geoPrefactors, data);
+                }
+            data.close();
+
+            out.writeByte(dimension);
+            for (int offset: offsets)
+                out.writeInt(offset);
+
+            BufferedInputStream in = new BufferedInputStream(new FileInputStream(tempFile));
+            byte[] buffer = new byte[8192];
+            int read;
+            while ((read = in.read(buffer)) != -1)
+                out.write(buffer, 0, read);
+            in.close();
+            out.close();
+            tempFile.delete();
+        } catch (IOException ex) {
+            Logger.getLogger(TableIndexed.class.getName()).log(Level.SEVERE, null, ex);
+        }
+    }
+
+}
@@ -0,0 +1,76 @@
+package de.gaalop.testbenchTbaGapp.productComputer;
+
+import de.gaalop.algebra.AlStrategy;
+import de.gaalop.cfg.AlgebraDefinitionFile;
+import de.gaalop.productComputer.AlgebraPC;
+import de.gaalop.productComputer.BitmaskProductComputer;
+import de.gaalop.productComputer.GeoProductCalculator;
+import de.gaalop.productComputer.InnerProductCalculator;
+import de.gaalop.productComputer.OuterProductCalculator;
+import de.gaalop.productComputer.ProductCalculator;
+import de.gaalop.productComputer.ProductComputer;
+import de.gaalop.tba.BladeRef;
+import de.gaalop.tba.Multivector;
+import de.gaalop.tba.Products;
+import java.io.IOException;
+import java.util.HashSet;
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+/**
+ * Compares the products of the BitmaskProductComputer with the products of the ProductComputer
+ * @author Christian Steinmetz
+ */
+public class BitmaskProductTest {
+
+    private void dummy(String algebraName) throws IOException {
+        AlgebraDefinitionFile alFile = new AlgebraDefinitionFile();
+        alFile.loadFromFile(AlStrategy.class.getResourceAsStream("algebra/"+algebraName+"/definition.csv"));
+        AlgebraPC algebraPC = new AlgebraPC(alFile);
+
+        ProductComputer computer = new ProductComputer();
+        computer.initialize(algebraPC);
+        BitmaskProductComputer bitmaskComputer = new BitmaskProductComputer();
+        bitmaskComputer.initialize(algebraPC);
+
+        ProductCalculator[] calculators = {new InnerProductCalculator(), new OuterProductCalculator(), new GeoProductCalculator()};
+        Products[] products = {Products.INNER, Products.OUTER, Products.GEO};
+
+        int bladeCount = bitmaskComputer.getBladeCount();
+        for (int p=0;p<products.length;p++)
+            for (int i=0;i<bladeCount;i++)
+                for (int j=0;j<bladeCount;j++) {
+                    Multivector expected = computer.calcProduct(i, j, calculators[p]);
+                    Multivector actual = bitmaskComputer.calcProduct(products[p], i, j);
+                    assertEquals(algebraName+" "+products[p]+"["+i+","+j+"]",
+                            new HashSet<BladeRef>(expected.getBlades()), new HashSet<BladeRef>(actual.getBlades()));
+                }
+    }
+
+    @Test
+    public void algebra3d() throws IOException {
+        dummy("3d");
+    }
+
+    @Test
+    public void algebra5d() throws IOException {
+        dummy("5d");
+    }
+
+    @Test
+    public void algebraCr4d() throws IOException {
+        dummy("cr4d");
+    }
+
+    @Test
+    public void algebraSt4d() throws IOException {
+        dummy("st4d");
+    }
+
+    @Test
+    public void algebra8d() throws IOException {
+        dummy("8d");
+    }
+
+}
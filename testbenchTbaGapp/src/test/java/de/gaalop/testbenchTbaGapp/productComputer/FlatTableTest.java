@@ -0,0 +1,61 @@
+package de.gaalop.testbenchTbaGapp.productComputer;
+
+import de.gaalop.tba.Products;
+import de.gaalop.tba.UseAlgebra;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+/**
+ * Provides methods for testing the iteration over the result blades of the flat product tables
+ * @author Christian Steinmetz
+ */
+public class FlatTableTest {
+
+    public static UseAlgebra table;
+    public static UseAlgebra live;
+
+    @BeforeClass
+    public static void setUp() {
+        table = UseAlgebra.get5dConformalGATable();
+        live = UseAlgebra.get5dConformalGALive();
+    }
+
+    private void dummy(Products product) {
+        int bladeCount = table.getBladeCount();
+        int[] bladesTable = new int[bladeCount];
+        byte[] prefactorsTable = new byte[bladeCount];
+        int[] bladesLive = new int[bladeCount];
+        byte[] prefactorsLive = new byte[bladeCount];
+        for (int i=0;i<bladeCount;i++)
+            for (int j=0;j<bladeCount;j++) {
+                String message = product+"["+i+","+j+"]";
+                int countTable = table.getProductBlades(product, i, j, bladesTable, prefactorsTable);
+                int countLive = live.getProductBlades(product, i, j, bladesLive, prefactorsLive);
+                assertEquals(message, countLive, countTable);
+                for (int k=0;k<countTable;k++) {
+                    assertEquals(message, bladesLive[k], bladesTable[k]);
+                    assertEquals(message, prefactorsLive[k], prefactorsTable[k]);
+                    if (k > 0)
+                        assertTrue(message, bladesTable[k-1] < bladesTable[k]);
+                }
+            }
+    }
+
+    @Test
+    public void inner() {
+        dummy(Products.INNER);
+    }
+
+    @Test
+    public void outer() {
+        dummy(Products.OUTER);
+    }
+
+    @Test
+    public void geo() {
+        dummy(Products.GEO);
+    }
+
+}
@@ -0,0 +1,115 @@
+package de.gaalop.testbenchTbaGapp.productComputer;
+
+import de.gaalop.algebra.AlStrategy;
+import de.gaalop.algebra.BladeArrayRoutines;
+import de.gaalop.algebra.TCBlade;
+import de.gaalop.cfg.AlgebraDefinitionFile;
+import de.gaalop.dfg.Expression;
+import de.gaalop.tba.BladeRef;
+import de.gaalop.tba.MultTableFlat;
+import de.gaalop.tba.Products;
+import de.gaalop.tba.UseAlgebra;
+import de.gaalop.tba.table.MultTableMapped;
+import de.gaalop.tba.table.TableFormat;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.lang.ref.WeakReference;
+import java.util.Arrays;
+import java.util.HashSet;
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+/**
+ * Tests the indexed table format and the memory-mapped access to it
+ * @author Christian Steinmetz
+ */
+public class MappedTableTest {
+
+    private static final int BLADECOUNT = 32;
+
+    private File writeIndexed5d(UseAlgebra shipped) throws IOException {
+        File file = File.createTempFile("products", ".csv");
+        file.deleteOnExit();
+        TableFormat.writeToFile(BLADECOUNT, 5, shipped.getTableInner(), shipped.getTableOuter(), shipped.getTableGeo(),
+                new FileOutputStream(file), TableFormat.TABLE_INDEXED);
+        return file;
+    }
+
+    private void assertSameProducts(UseAlgebra expected, UseAlgebra actual) {
+        int[] blades = new int[BLADECOUNT];
+        byte[] prefactors = new byte[BLADECOUNT];
+        int[] expectedBlades = new int[BLADECOUNT];
+        byte[] expectedPrefactors = new byte[BLADECOUNT];
+        for (Products product: Products.values())
+            for (int i=0;i<BLADECOUNT;i++)
+                for (int j=0;j<BLADECOUNT;j++) {
+                    assertEquals(product+"["+i+","+j+"]",
+                            new HashSet<BladeRef>(expected.getProduct(product, i, j).getBlades()),
+                            new HashSet<BladeRef>(actual.getProduct(product, i, j).getBlades()));
+                    int expectedCount = expected.getProductBlades(product, i, j, expectedBlades, expectedPrefactors);
+                    int count = actual.getProductBlades(product, i, j, blades, prefactors);
+                    assertEquals(expectedCount, count);
+                    assertArrayEquals(Arrays.copyOf(expectedBlades, count), Arrays.copyOf(blades, count));
+                    assertArrayEquals(Arrays.copyOf(expectedPrefactors, count), Arrays.copyOf(prefactors, count));
+                }
+    }
+
+    @Test
+    public void mapped5d() throws IOException {
+        UseAlgebra shipped = UseAlgebra.get5dConformalGATable();
+        File file = writeIndexed5d(shipped);
+        assertEquals(TableFormat.TABLE_INDEXED, TableFormat.readFormat(file));
+
+        AlgebraDefinitionFile alFile = new AlgebraDefinitionFile();
+        alFile.loadFromFile(AlStrategy.class.getResourceAsStream("algebra/5d/definition.csv"));
+        alFile.setProductsFilePath(file.getAbsolutePath());
+        alFile.setUseAsRessource(false);
+        alFile.setUsePrecalculatedTable(true);
+        TCBlade[] tcBlades = BladeArrayRoutines.createBlades(Arrays.copyOfRange(alFile.base,1,alFile.base.length));
+        alFile.blades = new Expression[tcBlades.length];
+        for (int i = 0; i < tcBlades.length; i++)
+            alFile.blades[i] = tcBlades[i].toExpression();
+
+        UseAlgebra mapped = new UseAlgebra(alFile);
+        assertSameProducts(shipped, mapped);
+
+        // an unchanged file is mapped only once
+        assertSame(MultTableMapped.open(file), MultTableMapped.open(file));
+    }
+
+    @Test
+    public void unusedTableIsReleased() throws IOException, InterruptedException {
+        File file = writeIndexed5d(UseAlgebra.get5dConformalGATable());
+        WeakReference<MultTableMapped> table = new WeakReference<MultTableMapped>(MultTableMapped.open(file));
+
+        // the shared tables do not keep an unused table alive
+        for (int i = 0; i < 50 && table.get() != null; i++) {
+            System.gc();
+            Thread.sleep(20);
+        }
+        assertNull(table.get());
+        assertNotNull(MultTableMapped.open(file));
+    }
+
+    @Test
+    public void eagerRead5d() throws IOException {
+        UseAlgebra shipped = UseAlgebra.get5dConformalGATable();
+        File file = writeIndexed5d(shipped);
+
+        MultTableFlat read = new MultTableFlat();
+        read.createTable(BLADECOUNT);
+        TableFormat.readFromFile(new FileInputStream(file),
+                read.getTable(Products.INNER), read.getTable(Products.OUTER), read.getTable(Products.GEO));
+
+        for (Products product: Products.values())
+            for (int i=0;i<BLADECOUNT;i++)
+                for (int j=0;j<BLADECOUNT;j++)
+                    assertEquals(product+"["+i+","+j+"]",
+                            new HashSet<BladeRef>(shipped.getProduct(product, i, j).getBlades()),
+                            new HashSet<BladeRef>(read.getProduct(product, i, j).getBlades()));
+    }
+
+}
@@ -0,0 +1,51 @@
+package de.gaalop.testbenchTbaGapp.productComputer;
+
+import de.gaalop.tba.BladeRef;
+import de.gaalop.tba.IMultTable;
+import de.gaalop.tba.MultTableMemoizing;
+import de.gaalop.tba.UseAlgebra;
+import java.util.HashSet;
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+/**
+ * Provides methods for testing the memoizing product table
+ * @author Christian Steinmetz
+ */
+public class MemoizingTableTest {
+
+    private void dummy(int maxEntries) {
+        IMultTable geo = UseAlgebra.get5dConformalGATable().getTableGeo();
+        int bladeCount = 32;
+        MultTableMemoizing memo = new MultTableMemoizing(geo, bladeCount, maxEntries);
+        for (int run=0;run<2;run++)
+            for (int i=0;i<bladeCount;i++)
+                for (int j=0;j<bladeCount;j++)
+                    assertEquals("["+i+","+j+"]",
+                            new HashSet<BladeRef>(geo.getProduct(i, j).getBlades()),
+                            new HashSet<BladeRef>(memo.getProduct(i, j).getBlades()));
+
+        assertEquals(2*bladeCount*bladeCount, memo.getHitCount()+memo.getMissCount());
+        assertTrue(memo.getSize() <= maxEntries);
+    }
+
+    @Test
+    public void unbounded() {
+        MultTableMemoizing memo = new MultTableMemoizing(UseAlgebra.get5dConformalGATable().getTableGeo(), 32, 32*32);
+        dummy(32*32);
+        for (int i=0;i<32;i++)
+            memo.getProduct(i, 5);
+        for (int i=0;i<32;i++)
+            memo.getProduct(i, 5);
+        assertEquals(32, memo.getMissCount());
+        assertEquals(32, memo.getHitCount());
+        assertEquals(0, memo.getEvictionCount());
+    }
+
+    @Test
+    public void bounded() {
+        dummy(100);
+    }
+
+}
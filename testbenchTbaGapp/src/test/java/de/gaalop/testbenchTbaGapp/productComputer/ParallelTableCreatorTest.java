@@ -0,0 +1,61 @@
+package de.gaalop.testbenchTbaGapp.productComputer;
+
+import de.gaalop.algebra.AlStrategy;
+import de.gaalop.cfg.AlgebraDefinitionFile;
+import de.gaalop.tba.BladeRef;
+import de.gaalop.tba.MultTableFlat;
+import de.gaalop.tba.Products;
+import de.gaalop.tba.UseAlgebra;
+import de.gaalop.tba.table.ParallelTableCreator;
+import de.gaalop.tba.table.TableFormat;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.util.HashSet;
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+/**
+ * Tests the parallel creation of product tables
+ * @author Christian Steinmetz
+ */
+public class ParallelTableCreatorTest {
+
+    @Test
+    public void createAndResume5d() throws IOException {
+        AlgebraDefinitionFile alFile = new AlgebraDefinitionFile();
+        alFile.loadFromFile(AlStrategy.class.getResourceAsStream("algebra/5d/definition.csv"));
+
+        File shardDirectory = File.createTempFile("products", "shards");
+        shardDirectory.delete();
+
+        ParallelTableCreator creator = new ParallelTableCreator(alFile, shardDirectory, 5);
+        assertEquals(7, creator.getShardCount());
+        assertEquals(7, creator.createShards(3));
+
+        // simulate an interrupted run
+        assertTrue(creator.getShardFile(2).delete());
+        assertEquals(1, creator.createShards(3));
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        creator.merge(out);
+        creator.deleteShards();
+        assertFalse(shardDirectory.exists());
+
+        MultTableFlat created = new MultTableFlat();
+        created.createTable(32);
+        TableFormat.readFromFile(new ByteArrayInputStream(out.toByteArray()),
+                created.getTable(Products.INNER), created.getTable(Products.OUTER), created.getTable(Products.GEO));
+
+        UseAlgebra shipped = UseAlgebra.get5dConformalGATable();
+        for (Products product: Products.values())
+            for (int i=0;i<32;i++)
+                for (int j=0;j<32;j++)
+                    assertEquals(product+"["+i+","+j+"]",
+                            new HashSet<BladeRef>(shipped.getProduct(product, i, j).getBlades()),
+                            new HashSet<BladeRef>(created.getProduct(product, i, j).getBlades()));
+    }
+
+}
@@ -0,0 +1,100 @@
+package de.gaalop.testbenchTbaGapp.tba;
+
+import de.gaalop.CodeParserException;
+import de.gaalop.algebra.AlStrategy;
+import de.gaalop.algebra.AlgebraRegistry;
+import de.gaalop.cfg.ControlFlowGraph;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+/**
+ * Tests the caching of loaded algebras
+ * @author Christian Steinmetz
+ */
+public class AlgebraRegistryTest {
+
+    private ControlFlowGraph createGraph(String algebraName, File baseDirectory) {
+        ControlFlowGraph graph = new ControlFlowGraph();
+        graph.algebraName = algebraName;
+        graph.asRessource = (baseDirectory == null);
+        graph.algebraBaseDirectory = (baseDirectory == null) ? "" : baseDirectory.getAbsolutePath();
+        return graph;
+    }
+
+    private void copyRessource(String name, File dir) throws IOException {
+        InputStream in = AlStrategy.class.getResourceAsStream("algebra/3d/"+name);
+        FileOutputStream out = new FileOutputStream(new File(dir, name));
+        byte[] buffer = new byte[4096];
+        int read;
+        while ((read = in.read(buffer)) != -1)
+            out.write(buffer, 0, read);
+        in.close();
+        out.close();
+    }
+
+    @Test
+    public void ressourceAlgebras() throws IOException, CodeParserException {
+        AlgebraRegistry registry = new AlgebraRegistry(1);
+        AlgebraRegistry.Entry entry = registry.get(createGraph("3d", null));
+        assertEquals(8, entry.getDefinition().getBladeCount());
+        assertFalse(entry.getMacros().isEmpty());
+        assertSame(entry, registry.get(createGraph("3d", null)));
+        assertEquals(1, registry.getHitCount());
+        assertEquals(1, registry.getMissCount());
+
+        // the bound evicts the least recently used algebra
+        registry.get(createGraph("5d", null));
+        assertEquals(1, registry.getSize());
+        assertNull(registry.lookup(createGraph("3d", null)));
+        assertNotSame(entry, registry.get(createGraph("3d", null)));
+
+        registry.invalidateAll();
+        assertEquals(0, registry.getSize());
+    }
+
+    @Test
+    public void modifiedFiles() throws IOException, CodeParserException {
+        File baseDirectory = File.createTempFile("algebras", "");
+        baseDirectory.delete();
+        File dir = new File(baseDirectory, "my3d");
+        dir.mkdirs();
+        copyRessource("definition.csv", dir);
+        copyRessource("macros.clu", dir);
+
+        AlgebraRegistry registry = new AlgebraRegistry(4);
+        AlgebraRegistry.Entry entry = registry.get(createGraph("my3d", baseDirectory));
+        assertSame(entry, registry.get(createGraph("my3d", baseDirectory)));
+
+        File macros = new File(dir, "macros.clu");
+        assertTrue(macros.setLastModified(macros.lastModified() - 10000));
+        assertNull(registry.lookup(createGraph("my3d", baseDirectory)));
+        AlgebraRegistry.Entry reloaded = registry.get(createGraph("my3d", baseDirectory));
+        assertNotSame(entry, reloaded);
+
+        registry.invalidate(createGraph("my3d", baseDirectory));
+        assertNull(registry.lookup(createGraph("my3d", baseDirectory)));
+
+        new File(dir, "definition.csv").delete();
+        macros.delete();
+        dir.delete();
+        baseDirectory.delete();
+    }
+
+    @Test
+    public void pluginConfiguresRegistry() {
+        AlgebraRegistry registry = AlgebraRegistry.getInstance();
+        de.gaalop.algebra.Plugin plugin = new de.gaalop.algebra.Plugin();
+        try {
+            plugin.setAlgebraCacheSize(3);
+            assertEquals(3, registry.getMaxEntries());
+        } finally {
+            plugin.setAlgebraCacheSize(AlgebraRegistry.DEFAULT_MAX_ENTRIES);
+        }
+    }
+
+}
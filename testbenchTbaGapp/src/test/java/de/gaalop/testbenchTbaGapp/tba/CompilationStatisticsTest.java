@@ -0,0 +1,101 @@
+package de.gaalop.testbenchTbaGapp.tba;
+
+import de.gaalop.CompilationCache;
+import de.gaalop.CompilationException;
+import de.gaalop.CompilationResult;
+import de.gaalop.CompilationStatistics;
+import de.gaalop.CompilerFacade;
+import de.gaalop.InputFile;
+import java.io.File;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.LinkedList;
+import java.util.List;
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+/**
+ * Tests the statistics of the compilation stages
+ * @author Christian Steinmetz
+ */
+public class CompilationStatisticsTest {
+
+    private static final String SCRIPT = "a = createPoint(x1,y1,z1);\n?b = a*a;\n";
+
+    private CompilerFacade createFacade() {
+        return new CompilerFacade(
+                new de.gaalop.clucalc.input.Plugin().createCodeParser(),
+                new de.gaalop.globalSettings.Plugin().createGlobalSettingsStrategy(),
+                new de.gaalop.visualCodeInserter.Plugin().createVisualCodeInserterStrategy(),
+                new de.gaalop.algebra.Plugin().createAlgebraStrategy(),
+                new de.gaalop.tba.Plugin().createOptimizationStrategy(),
+                new de.gaalop.java.Plugin().createCodeGenerator(),
+                "5d", true, "");
+    }
+
+    @Test
+    public void stagesAndCounters() throws CompilationException {
+        CompilerFacade facade = createFacade();
+        facade.setCountGraphs(true);
+        CompilationResult result = facade.compileWithStatistics(new InputFile("Test", SCRIPT));
+        assertFalse(result.getOutputFiles().isEmpty());
+
+        CompilationStatistics statistics = result.getStatistics();
+        assertFalse(statistics.isCached());
+        List<String> names = new LinkedList<String>();
+        for (CompilationStatistics.Stage stage : statistics.getStages()) {
+            names.add(stage.getName());
+            assertTrue(stage.getTime() >= 0);
+            assertTrue(stage.getNodeCountAfter() > 0);
+        }
+        assertEquals(Arrays.asList("parse", "globalSettings", "visualCodeInserter", "algebra", "optimization", "codeGeneration"), names);
+
+        CompilationStatistics.Stage parse = statistics.getStages().get(0);
+        assertEquals(-1, parse.getNodeCountBefore());
+        CompilationStatistics.Stage algebra = statistics.getStages().get(3);
+        assertTrue(algebra.getExpressionCountAfter() > algebra.getExpressionCountBefore());
+
+        assertTrue(statistics.getCounters().get("tba.rounds") > 0);
+        assertTrue(statistics.getCounters().containsKey("tba.constantPropagation.runs"));
+
+        String json = statistics.toJson();
+        assertTrue(json.startsWith("{\"input\": \"Test\""));
+        assertTrue(json.contains("\"name\": \"optimization\""));
+    }
+
+    @Test
+    public void graphsAreNotCountedByDefault() throws CompilationException {
+        CompilationStatistics statistics = createFacade().compileWithStatistics(new InputFile("Test", SCRIPT)).getStatistics();
+        assertFalse(statistics.getStages().isEmpty());
+        for (CompilationStatistics.Stage stage : statistics.getStages()) {
+            assertTrue(stage.getTime() >= 0);
+            assertEquals(-1, stage.getNodeCountBefore());
+            assertEquals(-1, stage.getNodeCountAfter());
+            assertEquals(-1, stage.getExpressionCountAfter());
+        }
+        assertTrue(statistics.getCounters().get("tba.rounds") > 0);
+    }
+
+    @Test
+    public void cachedCompilation() throws CompilationException, IOException {
+        File directory = File.createTempFile("compilationCache", "");
+        directory.delete();
+        try {
+            CompilationCache cache = new CompilationCache(directory, 1024 * 1024);
+            CompilerFacade facade = createFacade();
+            facade.setCompilationCache(cache);
+            assertFalse(facade.compileWithStatistics(new InputFile("Test", SCRIPT)).getStatistics().isCached());
+
+            CompilationStatistics statistics = facade.compileWithStatistics(new InputFile("Test", SCRIPT)).getStatistics();
+            assertTrue(statistics.isCached());
+            assertEquals(1, statistics.getStages().size());
+            assertEquals("cache lookup", statistics.getStages().get(0).getName());
+        } finally {
+            for (File file : directory.listFiles()) {
+                file.delete();
+            }
+            directory.delete();
+        }
+    }
+}
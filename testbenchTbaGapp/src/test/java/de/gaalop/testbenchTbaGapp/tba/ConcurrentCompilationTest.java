@@ -0,0 +1,131 @@
+package de.gaalop.testbenchTbaGapp.tba;
+
+import de.gaalop.CompilationException;
+import de.gaalop.CompilerFacade;
+import de.gaalop.InputFile;
+import de.gaalop.OutputFile;
+import de.gaalop.Plugins;
+import de.gaalop.testbenchTbaGapp.tba.circle.CircleNoVarsTest;
+import de.gaalop.testbenchTbaGapp.tba.circle.CircleOneVarTest;
+import de.gaalop.testbenchTbaGapp.tba.common.OneMacroTest;
+import de.gaalop.testbenchTbaGapp.tba.common.OutputCountTest;
+import de.gaalop.testbenchTbaGapp.tba.common.TrafoTest;
+import de.gaalop.testbenchTbaGapp.tba.common.TrigonometricFunctions;
+import de.gaalop.testbenchTbaGapp.tba.common.TwoMacrosTest;
+import de.gaalop.testbenchTbaGapp.tba.common.UnusedTest;
+import de.gaalop.testbenchTbaGapp.tba.framework.TBATestCase;
+import de.gaalop.testbenchTbaGapp.tba.gps.GPSOnlyVarsTest;
+import de.gaalop.testbenchTbaGapp.tba.gps.Point3D;
+import de.gaalop.testbenchTbaGapp.tba.linePointDistance.LinePointDistance;
+import java.awt.Point;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import java.util.TreeMap;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+/**
+ * Compiles many scripts in parallel, every compilation with its own facade,
+ * and compares the results with the results of serial compilations
+ * @author Christian Steinmetz
+ */
+public class ConcurrentCompilationTest {
+
+    private static final int THREADS = 8;
+    private static final int REPETITIONS = 4;
+
+    private final de.gaalop.tba.Plugin tbaPlugin = new de.gaalop.tba.Plugin();
+
+    private static TBATestCase[] createTestCases() {
+        return new TBATestCase[]{
+            new CircleNoVarsTest(new Point(5, 2), new Point(3, 9), new Point(6, 4)),
+            new CircleOneVarTest(new Point(5, 2), new Point(3, 9), new Point(6, 4)),
+            new GPSOnlyVarsTest(new Point3D(1, 1, 1), new Point3D(0, 0, 1), new Point3D(0, 1, 0), 0.6f, 0.7f, 0.9f),
+            new LinePointDistance(new Point3D(3, 4, 5), new Point3D(7, 8, 10), new Point3D(3, 8, 10)),
+            new OneMacroTest(),
+            new TwoMacrosTest(),
+            new TrafoTest(),
+            new TrigonometricFunctions(),
+            new OutputCountTest(),
+            new UnusedTest()
+        };
+    }
+
+    /**
+     * Compiles a test case with a new facade, whose optimization strategy is created from a snapshot of the tba plugin
+     * @param testCase The test case
+     * @return The names and contents of the output files
+     */
+    private String compile(TBATestCase testCase) throws CompilationException {
+        CompilerFacade facade = new CompilerFacade(
+                new de.gaalop.clucalc.input.Plugin().createCodeParser(),
+                new de.gaalop.globalSettings.Plugin().createGlobalSettingsStrategy(),
+                new de.gaalop.visualCodeInserter.Plugin().createVisualCodeInserterStrategy(),
+                new de.gaalop.algebra.Plugin().createAlgebraStrategy(),
+                Plugins.createSnapshot(tbaPlugin).createOptimizationStrategy(),
+                new de.gaalop.java.Plugin().createCodeGenerator(),
+                testCase.getAlgebraName(), true, "");
+        TreeMap<String, String> files = new TreeMap<String, String>();
+        for (OutputFile file : facade.compile(new InputFile("TestCase", testCase.getCLUScript()))) {
+            files.put(file.getName(), file.getContent());
+        }
+        return files.toString();
+    }
+
+    @Test
+    public void snapshotCopiesConfiguration() {
+        de.gaalop.tba.Plugin plugin = new de.gaalop.tba.Plugin();
+        plugin.setOptInserting(false);
+        plugin.setNumberOfRoundingDigits(3);
+
+        de.gaalop.tba.Plugin snapshot = Plugins.createSnapshot(plugin);
+        assertNotSame(plugin, snapshot);
+        assertFalse(snapshot.isOptInserting());
+        assertEquals(3, snapshot.getNumberOfRoundingDigits());
+
+        plugin.setOptInserting(true);
+        assertFalse(snapshot.isOptInserting());
+    }
+
+    @Test
+    public void parallelEqualsSerial() throws Exception {
+        final TBATestCase[] testCases = createTestCases();
+        String[] expected = new String[testCases.length];
+        for (int i = 0; i < testCases.length; i++) {
+            expected[i] = compile(testCases[i]);
+        }
+
+        List<Integer> order = new ArrayList<Integer>();
+        for (int r = 0; r < REPETITIONS; r++) {
+            for (int i = 0; i < testCases.length; i++) {
+                order.add(i);
+            }
+        }
+        Collections.shuffle(order, new Random(42));
+
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        try {
+            List<Future<String>> results = new ArrayList<Future<String>>();
+            for (final int index : order) {
+                results.add(executor.submit(new Callable<String>() {
+                    @Override
+                    public String call() throws CompilationException {
+                        return compile(testCases[index]);
+                    }
+                }));
+            }
+            for (int i = 0; i < order.size(); i++) {
+                assertEquals(testCases[order.get(i)].getClass().getSimpleName(), expected[order.get(i)], results.get(i).get());
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+}
@@ -0,0 +1,53 @@
+package de.gaalop.testbenchTbaGapp.tba;
+
+import de.gaalop.CompilationException;
+import de.gaalop.InputFile;
+import de.gaalop.OptimizationException;
+import de.gaalop.algebra.Inliner;
+import de.gaalop.algebra.MacroCallCounter;
+import de.gaalop.algebra.MacrosVisitor;
+import de.gaalop.cfg.ControlFlowGraph;
+import de.gaalop.testbenchTbaGapp.tba.common.TwoMacrosTest;
+import de.gaalop.testbenchTbaGapp.tba.framework.TestDummy;
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+/**
+ * Tests the single pass inlining of macros
+ * @author Christian Steinmetz
+ */
+public class InlinerTest {
+
+    private ControlFlowGraph parse(String script) throws CompilationException {
+        return new de.gaalop.clucalc.input.Plugin().createCodeParser().parseFile(new InputFile("TestCase", script));
+    }
+
+    @Test
+    public void nestedMacros() throws CompilationException {
+        ControlFlowGraph graph = parse(
+                "sq = { _P(1)*_P(1) }\n"
+                + "sum = { a = sq(_P(1)); a + sq(_P(2)) }\n"
+                + "?x = sum(y, z);\n"
+                + "?w = sum(sum(y, 1), z);\n");
+        int expansions = Inliner.inline(graph, MacrosVisitor.getAllMacros(graph));
+
+        assertEquals(0, MacroCallCounter.countMacroCallsInGraph(graph));
+        // sum is expanded once with its two calls of sq, then inlined at three call sites
+        assertEquals(5, expansions);
+    }
+
+    @Test(expected = OptimizationException.class)
+    public void recursiveMacros() throws CompilationException {
+        ControlFlowGraph graph = parse(
+                "f = { g(_P(1)) }\n"
+                + "g = { f(_P(1)) }\n"
+                + "?x = f(y);\n");
+        Inliner.inline(graph, MacrosVisitor.getAllMacros(graph));
+    }
+
+    @Test
+    public void compileWithMacros() {
+        assertTrue(TestDummy.compile(new TwoMacrosTest()));
+    }
+}
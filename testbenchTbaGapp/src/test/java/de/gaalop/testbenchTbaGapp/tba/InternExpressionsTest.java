@@ -0,0 +1,55 @@
+package de.gaalop.testbenchTbaGapp.tba;
+
+import de.gaalop.CompilationException;
+import de.gaalop.InputFile;
+import de.gaalop.api.cfg.AssignmentNodeCollector;
+import de.gaalop.cfg.AssignmentNode;
+import de.gaalop.cfg.ControlFlowGraph;
+import de.gaalop.tba.Plugin;
+import de.gaalop.tba.cfgImport.CFGImporterFacade;
+import java.util.LinkedList;
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+/**
+ * Tests the import of a graph with interned multivector expressions
+ * @author Christian Steinmetz
+ */
+public class InternExpressionsTest {
+
+    private LinkedList<String> importGraph(Plugin plugin) throws CompilationException {
+        String script = "a = createPoint(x1,y1,z1);\n"
+                + "b = createPoint(x2,y2,z2);\n"
+                + "c = a^b;\n"
+                + "?d = c*c/(a.b);\n"
+                + "?f = abs(a.b) + sqrt(x3*x3);\n"
+                + "?g = (a+b)*(a+b)*~(a+b);\n";
+        ControlFlowGraph graph = new de.gaalop.clucalc.input.Plugin().createCodeParser().parseFile(new InputFile("TestCase", script));
+        graph.algebraName = "5d";
+        graph.asRessource = true;
+        graph.algebraBaseDirectory = "";
+        new de.gaalop.globalSettings.Plugin().createGlobalSettingsStrategy().transform(graph);
+        new de.gaalop.visualCodeInserter.Plugin().createVisualCodeInserterStrategy().transform(graph);
+        new de.gaalop.algebra.Plugin().createAlgebraStrategy().transform(graph);
+        new CFGImporterFacade(plugin).importGraph(graph);
+
+        AssignmentNodeCollector collector = new AssignmentNodeCollector();
+        graph.accept(collector);
+        LinkedList<String> values = new LinkedList<String>();
+        for (AssignmentNode node : collector.getAssignmentNodes()) {
+            assertFalse(node.getValue().isInterned());
+            values.add(node.getVariable() + " = " + node.getValue());
+        }
+        return values;
+    }
+
+    @Test
+    public void internedImportGivesSameResult() throws CompilationException {
+        Plugin plugin = new Plugin();
+        LinkedList<String> expected = importGraph(plugin);
+
+        plugin.setInternExpressions(true);
+        assertEquals(expected, importGraph(plugin));
+    }
+}
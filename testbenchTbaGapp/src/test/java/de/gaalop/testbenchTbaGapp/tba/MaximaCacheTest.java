@@ -0,0 +1,172 @@
+package de.gaalop.testbenchTbaGapp.tba;
+
+import de.gaalop.OptimizationException;
+import de.gaalop.tba.cfgImport.optimization.maxima.CachingMaximaConnection;
+import de.gaalop.tba.cfgImport.optimization.maxima.MaximaCache;
+import de.gaalop.tba.cfgImport.optimization.maxima.MaximaConnection;
+import de.gaalop.tba.cfgImport.optimization.maxima.MaximaInput;
+import de.gaalop.tba.cfgImport.optimization.maxima.MaximaOutput;
+import de.gaalop.tba.cfgImport.optimization.maxima.MaximaRoutines;
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedList;
+import java.util.List;
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+/**
+ * Tests the MaximaCache and the CachingMaximaConnection
+ * @author Christian Steinmetz
+ */
+public class MaximaCacheTest {
+
+    /**
+     * Answers every statement with the doubled expression of the statement
+     */
+    private static class DoublingConnection implements MaximaConnection {
+
+        private List<MaximaInput> inputs = new ArrayList<MaximaInput>();
+
+        @Override
+        public MaximaOutput optimizeWithMaxima(MaximaInput input) throws OptimizationException {
+            inputs.add(input);
+            MaximaOutput output = new MaximaOutput();
+            int n = 0;
+            for (String statement : input) {
+                n++;
+                output.add("(%i" + n + ") " + statement);
+                if (statement.contains("ratsimp(")) {
+                    String value = statement.substring(statement.indexOf("ratsimp(") + 8, statement.length() - 2);
+                    output.add("(%o" + n + ") 2*(" + value + ")");
+                } else if (!statement.equals("quit();")) {
+                    output.add("(%o" + n + ") " + statement.substring(statement.indexOf(':') + 1, statement.length() - 1));
+                }
+            }
+            return output;
+        }
+    }
+
+    private MaximaInput createInput(String... statements) {
+        MaximaInput input = new MaximaInput();
+        input.add("display2d:false;");
+        input.add("ratprint:false;");
+        input.add("keepfloat:true;");
+        input.addAll(Arrays.asList(statements));
+        input.add("quit();");
+        return input;
+    }
+
+    private LinkedList<String> getResults(MaximaOutput output) {
+        LinkedList<String> connected = new LinkedList<String>();
+        MaximaRoutines.groupMaximaInAndOutputs(connected, output);
+        connected.removeFirst(); // remove display2d
+        connected.removeFirst(); // remove ratprint
+        connected.removeFirst(); // remove keepfloat
+        return connected;
+    }
+
+    private File createDirectory() throws IOException {
+        File directory = File.createTempFile("maximaCache", "");
+        directory.delete();
+        directory.mkdirs();
+        return directory;
+    }
+
+    private void delete(File directory) {
+        for (File file : directory.listFiles()) {
+            file.delete();
+        }
+        directory.delete();
+    }
+
+    @Test
+    public void repeatedStatements() throws OptimizationException {
+        DoublingConnection maxima = new DoublingConnection();
+        MaximaCache cache = new MaximaCache(100, null, 0);
+        CachingMaximaConnection connection = new CachingMaximaConnection(maxima, cache, "maxima");
+
+        LinkedList<String> first = getResults(connection.optimizeWithMaxima(createInput("ratsimp(a+b);", "x\\$1::ratsimp(a*b);")));
+        assertEquals(Arrays.asList("2*(a+b)", "2*(a*b)"), first);
+        assertEquals(1, maxima.inputs.size());
+
+        // the bound variable is not part of the key
+        LinkedList<String> second = getResults(connection.optimizeWithMaxima(createInput("ratsimp( a+b );", "y\\$1::ratsimp(a*b);")));
+        assertEquals(first, second);
+        assertEquals(1, maxima.inputs.size());
+
+        // only the new statement is sent to Maxima
+        LinkedList<String> third = getResults(connection.optimizeWithMaxima(createInput("ratsimp(a+b);", "ratsimp(c);")));
+        assertEquals(Arrays.asList("2*(a+b)", "2*(c)"), third);
+        assertEquals(2, maxima.inputs.size());
+        assertEquals(createInput("ratsimp(c);"), maxima.inputs.get(1));
+
+        assertEquals(3, cache.getMemoryHitCount());
+        assertEquals(3, cache.getMissCount());
+        assertEquals(0.5, cache.getHitRate(), 1E-10);
+    }
+
+    @Test
+    public void dependentStatementsNotCached() throws OptimizationException {
+        DoublingConnection maxima = new DoublingConnection();
+        MaximaCache cache = new MaximaCache(100, null, 0);
+        CachingMaximaConnection connection = new CachingMaximaConnection(maxima, cache, "maxima");
+
+        MaximaInput input = createInput("x\\$1::ratsimp(a);", "ratsimp(x\\$1*b);", "ratsimp(x\\$10);");
+        connection.optimizeWithMaxima(input);
+        LinkedList<String> results = getResults(connection.optimizeWithMaxima(input));
+        assertEquals(Arrays.asList("2*(a)", "2*(x\\$1*b)", "2*(x\\$10)"), results);
+        assertEquals(2, maxima.inputs.size());
+        // only the independent statement has been cached
+        assertEquals(createInput("x\\$1::ratsimp(a);", "ratsimp(x\\$1*b);"), maxima.inputs.get(1));
+    }
+
+    @Test
+    public void memoryEviction() {
+        MaximaCache cache = new MaximaCache(2, null, 0);
+        cache.put("a", "1");
+        cache.put("b", "2");
+        assertEquals("1", cache.get("a"));
+        cache.put("c", "3");
+        assertNull(cache.get("b"));
+        assertEquals("1", cache.get("a"));
+        assertEquals("3", cache.get("c"));
+        assertEquals(2, cache.getMemoryEntryCount());
+    }
+
+    @Test
+    public void diskCache() throws IOException {
+        File directory = createDirectory();
+        try {
+            MaximaCache cache = new MaximaCache(10, directory, 1024 * 1024);
+            cache.put(MaximaCache.computeKey("maxima", Arrays.asList("keepfloat:true;"), "ratsimp(a);"), "a");
+
+            MaximaCache other = new MaximaCache(10, directory, 1024 * 1024);
+            assertEquals("a", other.get(MaximaCache.computeKey("maxima", Arrays.asList("keepfloat : true;"), "ratsimp(a);")));
+            assertNull(other.get(MaximaCache.computeKey("maxima", Arrays.asList("keepfloat:false;"), "ratsimp(a);")));
+            assertEquals(1, other.getDiskHitCount());
+            assertEquals(1, other.getMissCount());
+        } finally {
+            delete(directory);
+        }
+    }
+
+    @Test
+    public void diskEviction() throws IOException {
+        File directory = createDirectory();
+        try {
+            char[] value = new char[100];
+            Arrays.fill(value, 'x');
+            MaximaCache cache = new MaximaCache(0, directory, 1000);
+            for (int i = 0; i < 30; i++) {
+                cache.put("key" + i, new String(value));
+            }
+            assertTrue(cache.getDiskSize() <= 1000);
+            assertTrue(cache.getDiskSize() > 0);
+        } finally {
+            delete(directory);
+        }
+    }
+}
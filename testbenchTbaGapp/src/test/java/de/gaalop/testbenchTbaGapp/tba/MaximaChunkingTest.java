@@ -0,0 +1,192 @@
+package de.gaalop.testbenchTbaGapp.tba;
+
+import de.gaalop.CompilationException;
+import de.gaalop.InputFile;
+import de.gaalop.OptimizationException;
+import de.gaalop.api.cfg.AssignmentNodeCollector;
+import de.gaalop.cfg.AssignmentNode;
+import de.gaalop.cfg.ControlFlowGraph;
+import de.gaalop.tba.Plugin;
+import de.gaalop.tba.cfgImport.CFGImporterFacade;
+import de.gaalop.tba.cfgImport.optimization.maxima.MaximaConnection;
+import de.gaalop.tba.cfgImport.optimization.maxima.MaximaInput;
+import de.gaalop.tba.cfgImport.optimization.maxima.MaximaOptimizer;
+import de.gaalop.tba.cfgImport.optimization.maxima.MaximaOutput;
+import de.gaalop.tba.cfgImport.optimization.maxima.ProcessBuilderMaximaConnection;
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.regex.Pattern;
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+/**
+ * Tests the simplification of independent chunks of assignments in parallel
+ * with a connection, which answers like Maxima and doubles every expression.
+ * @author Christian Steinmetz
+ */
+public class MaximaChunkingTest {
+
+    /**
+     * Answers every statement with the doubled expression of the statement
+     */
+    private static class DoublingConnection implements MaximaConnection {
+
+        private List<MaximaInput> inputs = Collections.synchronizedList(new ArrayList<MaximaInput>());
+        private String blockingVariable;
+
+        @Override
+        public MaximaOutput optimizeWithMaxima(MaximaInput input) throws OptimizationException {
+            inputs.add(input);
+            MaximaOutput output = new MaximaOutput();
+            int n = 0;
+            for (String statement : input) {
+                n++;
+                output.add("(%i" + n + ") " + statement);
+                if (blockingVariable != null && statement.startsWith(blockingVariable)) {
+                    try {
+                        Thread.sleep(10000);
+                    } catch (InterruptedException e) {
+                        return output;
+                    }
+                }
+                if (statement.contains("ratsimp(")) {
+                    String value = statement.substring(statement.indexOf("ratsimp(") + 8, statement.length() - 2);
+                    output.add("(%o" + n + ") 2*(" + value + ")");
+                } else if (!statement.equals("quit();")) {
+                    output.add("(%o" + n + ") " + statement.substring(statement.indexOf(':') + 1, statement.length() - 1));
+                }
+            }
+            return output;
+        }
+    }
+
+    private ControlFlowGraph createGraph() throws CompilationException {
+        String script = "a = createPoint(x1,y1,z1);\n"
+                + "b = createPoint(x2,y2,z2);\n"
+                + "c = a^b;\n"
+                + "?d = c.e1;\n"
+                + "?f = a.b;\n"
+                + "?g = b^e2;\n"
+                + "?h = x3*x3+y3;\n";
+        ControlFlowGraph graph = new de.gaalop.clucalc.input.Plugin().createCodeParser().parseFile(new InputFile("TestCase", script));
+        graph.algebraName = "5d";
+        graph.asRessource = true;
+        graph.algebraBaseDirectory = "";
+        new de.gaalop.globalSettings.Plugin().createGlobalSettingsStrategy().transform(graph);
+        new de.gaalop.visualCodeInserter.Plugin().createVisualCodeInserterStrategy().transform(graph);
+        new de.gaalop.algebra.Plugin().createAlgebraStrategy().transform(graph);
+        new CFGImporterFacade(new Plugin()).importGraph(graph);
+        return graph;
+    }
+
+    private LinkedList<String> getValues(ControlFlowGraph graph) {
+        AssignmentNodeCollector collector = new AssignmentNodeCollector();
+        graph.accept(collector);
+        LinkedList<String> values = new LinkedList<String>();
+        for (AssignmentNode node : collector.getAssignmentNodes()) {
+            values.add(node.getVariable() + " = " + node.getValue());
+        }
+        return values;
+    }
+
+    @Test
+    public void chunksGiveSameResult() throws CompilationException {
+        Plugin plugin = new Plugin();
+        ControlFlowGraph single = createGraph();
+        DoublingConnection singleConnection = new DoublingConnection();
+        new MaximaOptimizer(singleConnection, plugin).transformGraph(single);
+        assertEquals(1, singleConnection.inputs.size());
+
+        plugin.setMaximaChunkSize(2);
+        ControlFlowGraph chunked = createGraph();
+        DoublingConnection chunkedConnection = new DoublingConnection();
+        new MaximaOptimizer(chunkedConnection, plugin).transformGraph(chunked);
+        assertTrue(chunkedConnection.inputs.size() > 1);
+
+        assertEquals(getValues(single), getValues(chunked));
+    }
+
+    @Test
+    public void dependentStatementsInSameChunk() throws CompilationException {
+        Plugin plugin = new Plugin();
+        plugin.setMaximaChunkSize(1);
+        ControlFlowGraph graph = createGraph();
+        DoublingConnection connection = new DoublingConnection();
+        new MaximaOptimizer(connection, plugin).transformGraph(graph);
+        assertTrue(connection.inputs.size() > 1);
+
+        for (MaximaInput input : connection.inputs) {
+            for (MaximaInput other : connection.inputs) {
+                if (input == other) continue;
+                // a variable bound in one chunk is not used in another chunk
+                for (String statement : input) {
+                    if (!statement.contains("::")) continue;
+                    Pattern variable = Pattern.compile(Pattern.quote(statement.substring(0, statement.indexOf("::"))) + "(?![0-9])");
+                    for (String otherStatement : other) {
+                        assertFalse(variable.matcher(otherStatement).find());
+                    }
+                }
+            }
+        }
+    }
+
+    @Test
+    public void timeoutKeepsValues() throws CompilationException {
+        ControlFlowGraph original = createGraph();
+        LinkedList<String> originalValues = getValues(original);
+
+        Plugin plugin = new Plugin();
+        plugin.setMaximaChunkSize(1);
+        plugin.setMaximaChunkTimeout(1);
+        ControlFlowGraph graph = createGraph();
+        AssignmentNodeCollector collector = new AssignmentNodeCollector();
+        graph.accept(collector);
+        DoublingConnection connection = new DoublingConnection();
+        connection.blockingVariable = collector.getAssignmentNodes().getFirst().getVariable().getName();
+        new MaximaOptimizer(connection, plugin).transformGraph(graph);
+
+        LinkedList<String> values = getValues(graph);
+        assertEquals(originalValues.size(), values.size());
+        int unchanged = 0;
+        for (int i = 0; i < values.size(); i++) {
+            if (values.get(i).equals(originalValues.get(i))) {
+                unchanged++;
+            }
+        }
+        assertTrue(unchanged > 0);
+        assertTrue(unchanged < values.size());
+    }
+
+    @Test
+    public void interruptDestroysMaximaProcess() throws InterruptedException {
+        if (!new File("/bin/cat").exists()) {
+            return;
+        }
+        // cat echoes the batch command and waits for further input like a hanging Maxima
+        final ProcessBuilderMaximaConnection connection = new ProcessBuilderMaximaConnection("/bin/cat");
+        final AtomicReference<Exception> exception = new AtomicReference<Exception>();
+        Thread thread = new Thread() {
+            @Override
+            public void run() {
+                try {
+                    MaximaInput input = new MaximaInput();
+                    input.add("ratsimp(x);");
+                    connection.optimizeWithMaxima(input);
+                } catch (OptimizationException e) {
+                    exception.set(e);
+                }
+            }
+        };
+        thread.start();
+        Thread.sleep(200);
+        thread.interrupt();
+        thread.join(5000);
+        assertFalse(thread.isAlive());
+        assertNotNull(exception.get());
+    }
+}
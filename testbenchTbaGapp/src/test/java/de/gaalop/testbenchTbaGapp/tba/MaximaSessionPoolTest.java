@@ -0,0 +1,160 @@
+package de.gaalop.testbenchTbaGapp.tba;
+
+import de.gaalop.OptimizationException;
+import de.gaalop.tba.cfgImport.optimization.maxima.MaximaInput;
+import de.gaalop.tba.cfgImport.optimization.maxima.MaximaOutput;
+import de.gaalop.tba.cfgImport.optimization.maxima.MaximaRoutines;
+import de.gaalop.tba.cfgImport.optimization.maxima.MaximaSessionPool;
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.util.LinkedList;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.After;
+import org.junit.Assume;
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+/**
+ * Tests the MaximaSessionPool with a stub script, which answers like a Maxima REPL:
+ * batch files are echoed, the result of ratsimp(x) is x, a statement containing hang never returns.
+ * @author Christian Steinmetz
+ */
+public class MaximaSessionPoolTest {
+
+    private static final String[] STUB = {
+        "#!/bin/sh",
+        "n=0",
+        "echo 'Maxima stub'",
+        "while IFS= read -r line; do",
+        "  n=$((n+1)); printf '(%%i%d) ' $n",
+        "  case \"$line\" in",
+        "    batch*)",
+        "      file=${line#batch(\\\"}; file=${file%\\\")\\$}",
+        "      echo; echo \"read and interpret file: $file\"",
+        "      while IFS= read -r statement; do",
+        "        case \"$statement\" in *hang*) sleep 10;; esac",
+        "        n=$((n+1)); echo \"(%i$n) $statement\"",
+        "        echo \"(%o$n) $(echo \"$statement\" | sed -e 's/^.*ratsimp(\\(.*\\));$/\\1/' -e 's/^.*:\\(.*\\);$/\\1/')\"",
+        "      done < \"$file\";;",
+        "    print*) value=${line#print(\\\"}; echo \"${value%\\\")\\$}\";;",
+        "    quit*) exit 0;;",
+        "  esac",
+        "done"
+    };
+
+    private File stub;
+    private MaximaSessionPool pool;
+
+    @Before
+    public void createStub() throws IOException {
+        Assume.assumeTrue(new File("/bin/sh").canExecute());
+        stub = File.createTempFile("maximaStub", ".sh");
+        PrintWriter out = new PrintWriter(stub);
+        for (String line : STUB) {
+            out.println(line);
+        }
+        out.close();
+        stub.setExecutable(true);
+        pool = new MaximaSessionPool(stub.getAbsolutePath(), 2);
+    }
+
+    @After
+    public void deleteStub() {
+        if (pool != null) {
+            pool.shutdown();
+        }
+        if (stub != null) {
+            stub.delete();
+        }
+    }
+
+    private MaximaInput createInput(String... values) {
+        MaximaInput input = new MaximaInput();
+        input.add("display2d:false;");
+        input.add("ratprint:false;");
+        input.add("keepfloat:true;");
+        for (String value : values) {
+            input.add("ratsimp(" + value + ");");
+        }
+        input.add("quit();");
+        return input;
+    }
+
+    private LinkedList<String> getResults(MaximaOutput output) {
+        LinkedList<String> connected = new LinkedList<String>();
+        MaximaRoutines.groupMaximaInAndOutputs(connected, output);
+        connected.removeFirst(); // remove display2d
+        connected.removeFirst(); // remove ratprint
+        connected.removeFirst(); // remove keepfloat
+        return connected;
+    }
+
+    @Test
+    public void reuseSessions() throws OptimizationException {
+        for (int i = 0; i < 5; i++) {
+            LinkedList<String> results = getResults(pool.optimizeWithMaxima(createInput("a+" + i, "b*" + i)));
+            assertEquals(2, results.size());
+            assertEquals("a+" + i, results.get(0));
+            assertEquals("b*" + i, results.get(1));
+        }
+        assertEquals(1, pool.getStartedSessionCount());
+        assertEquals(5, pool.getJobCount());
+    }
+
+    @Test
+    public void recycleSessions() throws OptimizationException {
+        pool.setMaxJobs(2);
+        for (int i = 0; i < 5; i++) {
+            assertEquals("x" + i, getResults(pool.optimizeWithMaxima(createInput("x" + i))).getFirst());
+        }
+        assertEquals(3, pool.getStartedSessionCount());
+    }
+
+    @Test
+    public void concurrentCallers() throws InterruptedException {
+        final AtomicInteger failures = new AtomicInteger();
+        Thread[] threads = new Thread[4];
+        for (int t = 0; t < threads.length; t++) {
+            final int id = t;
+            threads[t] = new Thread() {
+                @Override
+                public void run() {
+                    for (int i = 0; i < 5; i++) {
+                        try {
+                            String value = "v" + id + "*" + i;
+                            if (!getResults(pool.optimizeWithMaxima(createInput(value))).getFirst().equals(value)) {
+                                failures.incrementAndGet();
+                            }
+                        } catch (OptimizationException e) {
+                            failures.incrementAndGet();
+                        }
+                    }
+                }
+            };
+            threads[t].start();
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        assertEquals(0, failures.get());
+        assertEquals(20, pool.getJobCount());
+        assertTrue(pool.getStartedSessionCount() <= 2);
+    }
+
+    @Test
+    public void timeout() throws OptimizationException {
+        pool.setTimeout(500);
+        try {
+            pool.optimizeWithMaxima(createInput("hang"));
+            fail("The timeout has not been detected");
+        } catch (OptimizationException e) {
+            // expected
+        }
+        assertEquals("y", getResults(pool.optimizeWithMaxima(createInput("y"))).getFirst());
+        assertEquals(2, pool.getStartedSessionCount());
+    }
+
+}
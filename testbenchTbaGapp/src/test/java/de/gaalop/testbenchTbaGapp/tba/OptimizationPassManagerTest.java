@@ -0,0 +1,73 @@
+package de.gaalop.testbenchTbaGapp.tba;
+
+import de.gaalop.CompilationException;
+import de.gaalop.InputFile;
+import de.gaalop.cfg.ControlFlowGraph;
+import de.gaalop.tba.Plugin;
+import de.gaalop.tba.cfgImport.CFGImporterFacade;
+import de.gaalop.tba.cfgImport.optimization.OptConstantPropagation;
+import de.gaalop.tba.cfgImport.optimization.OptOneExpressionsRemoval;
+import de.gaalop.tba.cfgImport.optimization.OptUnusedAssignmentsRemoval;
+import de.gaalop.tba.cfgImport.optimization.OptimizationPassManager;
+import de.gaalop.testbenchTbaGapp.tba.circle.CircleOneVarTest;
+import java.awt.Point;
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+/**
+ * Tests the fixed point iteration of the optimizations with the OptimizationPassManager
+ * @author Christian Steinmetz
+ */
+public class OptimizationPassManagerTest {
+
+    private ControlFlowGraph createGraph(String script) throws CompilationException {
+        ControlFlowGraph graph = new de.gaalop.clucalc.input.Plugin().createCodeParser().parseFile(new InputFile("TestCase", script));
+        graph.algebraName = "5d";
+        graph.asRessource = true;
+        graph.algebraBaseDirectory = "";
+        new de.gaalop.globalSettings.Plugin().createGlobalSettingsStrategy().transform(graph);
+        new de.gaalop.visualCodeInserter.Plugin().createVisualCodeInserterStrategy().transform(graph);
+        new de.gaalop.algebra.Plugin().createAlgebraStrategy().transform(graph);
+        return graph;
+    }
+
+    @Test
+    public void fixedPoint() throws CompilationException {
+        String script = new CircleOneVarTest(new Point(5, 2), new Point(3, 9), new Point(6, 4)).getCLUScript();
+        ControlFlowGraph graph = createGraph(script);
+        CFGImporterFacade facade = new CFGImporterFacade(new Plugin());
+        facade.importGraph(graph);
+
+        OptimizationPassManager passManager = facade.getPassManager();
+        assertTrue(passManager.getIterationCount() > 1);
+        assertEquals(3, passManager.getStatistics().size());
+        for (OptimizationPassManager.PassStatistics statistics : passManager.getStatistics()) {
+            assertTrue(statistics.getRunCount() > 0);
+            assertTrue(statistics.getExaminedNodeCount() > 0);
+        }
+
+        // the graph is a fixed point of the single optimizations
+        String optimized = graph.prettyPrint();
+        assertFalse(new OptConstantPropagation().transform(graph, facade.getUsedAlgebra()));
+        assertFalse(new OptUnusedAssignmentsRemoval().transform(graph, facade.getUsedAlgebra()));
+        assertFalse(new OptOneExpressionsRemoval().transform(graph, facade.getUsedAlgebra()));
+        assertFalse(passManager.optimize(graph, facade.getUsedAlgebra()));
+        assertEquals(optimized, graph.prettyPrint());
+    }
+
+    @Test
+    public void disabledOptimizations() throws CompilationException {
+        String script = new CircleOneVarTest(new Point(5, 2), new Point(3, 9), new Point(6, 4)).getCLUScript();
+        ControlFlowGraph graph = createGraph(script);
+        Plugin plugin = new Plugin();
+        plugin.setOptConstantPropagation(false);
+        plugin.setOptUnusedAssignments(false);
+        plugin.setOptOneExpressionRemoval(false);
+        CFGImporterFacade facade = new CFGImporterFacade(plugin);
+        facade.importGraph(graph);
+
+        assertEquals(0, facade.getPassManager().getIterationCount());
+        assertTrue(facade.getPassManager().getStatistics().isEmpty());
+    }
+}
@@ -0,0 +1,124 @@
+package de.gaalop.testbenchTbaGapp.tba;
+
+import de.gaalop.OptimizationException;
+import de.gaalop.api.cfg.AssignmentNodeCollector;
+import de.gaalop.cfg.AssignmentNode;
+import de.gaalop.cfg.ControlFlowGraph;
+import de.gaalop.dfg.Addition;
+import de.gaalop.dfg.Division;
+import de.gaalop.dfg.Exponentiation;
+import de.gaalop.dfg.Expression;
+import de.gaalop.dfg.FloatConstant;
+import de.gaalop.dfg.MathFunction;
+import de.gaalop.dfg.MathFunctionCall;
+import de.gaalop.dfg.Multiplication;
+import de.gaalop.dfg.MultivectorComponent;
+import de.gaalop.dfg.Negation;
+import de.gaalop.dfg.Subtraction;
+import de.gaalop.tba.cfgImport.optimization.polynomial.PolynomialSimplifier;
+import de.gaalop.testbenchTbaGapp.tba.circle.CircleNoVarsTest;
+import de.gaalop.testbenchTbaGapp.tba.circle.CircleOnlyVarsTest;
+import de.gaalop.testbenchTbaGapp.tba.common.TrigonometricFunctions;
+import de.gaalop.testbenchTbaGapp.tba.framework.TestDummy;
+import de.gaalop.testbenchTbaGapp.tba.gps.GPSOnlyVarsTest;
+import de.gaalop.testbenchTbaGapp.tba.gps.Point3D;
+import de.gaalop.testbenchTbaGapp.tba.linePointDistance.LinePointDistance;
+import java.awt.Point;
+import java.util.List;
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+/**
+ * Tests the in-process polynomial simplification
+ * @author Christian Steinmetz
+ */
+public class PolynomialSimplifierTest {
+
+    private static final MultivectorComponent X = new MultivectorComponent("x", 1);
+    private static final MultivectorComponent Y = new MultivectorComponent("y", 2);
+
+    private static Expression c(double value) {
+        return new FloatConstant(value);
+    }
+
+    private de.gaalop.globalSettings.Plugin createGlobalSettings() {
+        de.gaalop.globalSettings.Plugin plugin = new de.gaalop.globalSettings.Plugin();
+        plugin.setOptPolynomialSimplifier(true);
+        return plugin;
+    }
+
+    @Test
+    public void collectLikeTerms() {
+        PolynomialSimplifier simplifier = new PolynomialSimplifier();
+        assertEquals(c(0), simplifier.simplify(new Subtraction(X.copy(), X.copy())));
+
+        // (x+1)*(x+1) - x*x - 2*x = 1
+        Expression e = new Subtraction(new Subtraction(
+                new Multiplication(new Addition(X.copy(), c(1)), new Addition(X.copy(), c(1))),
+                new Multiplication(X.copy(), X.copy())),
+                new Multiplication(c(2), X.copy()));
+        assertEquals(c(1), simplifier.simplify(e));
+
+        // x/2 + x/2 = x
+        assertEquals(X, simplifier.simplify(new Addition(new Division(X.copy(), c(2)), new Division(X.copy(), c(2)))));
+    }
+
+    @Test
+    public void simplifiedExpressionIsEquivalent() {
+        PolynomialSimplifier simplifier = new PolynomialSimplifier();
+        Expression[] expressions = {
+            new Exponentiation(new Subtraction(X.copy(), new Multiplication(c(3), Y.copy())), c(4)),
+            new Multiplication(new Negation(new Addition(X.copy(), Y.copy())), new Subtraction(Y.copy(), c(0.5))),
+            new Addition(new MathFunctionCall(new Subtraction(new Multiplication(X.copy(), X.copy()), new Negation(X.copy())), MathFunction.SQRT),
+                new MathFunctionCall(new Addition(X.copy(), new Multiplication(X.copy(), X.copy())), MathFunction.SQRT)),
+            new Division(new Addition(X.copy(), c(1)), new Addition(Y.copy(), Y.copy()))
+        };
+        for (Expression expression : expressions) {
+            Expression simplified = simplifier.simplify(expression);
+            assertEquals(simplifier.toPolynomial(expression), simplifier.toPolynomial(simplified));
+        }
+        // both square roots have the same simplified operand
+        assertEquals(1, simplifier.toPolynomial(expressions[2]).size());
+    }
+
+    @Test
+    public void tooLargePolynomialIsKept() {
+        PolynomialSimplifier simplifier = new PolynomialSimplifier(3, 1);
+        Expression e = new Exponentiation(new Addition(X.copy(), Y.copy()), c(4));
+        assertEquals(e, simplifier.simplify(e));
+    }
+
+    @Test
+    public void reassignedVariableIsInsertedInOrder() throws OptimizationException {
+        MultivectorComponent a = new MultivectorComponent("a", 1);
+        PolynomialSimplifier simplifier = new PolynomialSimplifier(PolynomialSimplifier.DEFAULT_MAX_TERMS, 4);
+        // repeated, because the old value of x was only lost with an unlucky scheduling
+        for (int run = 0; run < 20; run++) {
+            ControlFlowGraph graph = new ControlFlowGraph();
+            graph.getEndNode().insertBefore(new AssignmentNode(graph, X.copy(), new Addition(a.copy(), c(1))));
+            graph.getEndNode().insertBefore(new AssignmentNode(graph, Y.copy(), new Multiplication(X.copy(), c(2))));
+            graph.getEndNode().insertBefore(new AssignmentNode(graph, X.copy(), a.copy()));
+            graph.getEndNode().insertBefore(new AssignmentNode(graph, new MultivectorComponent("z", 3), new Addition(X.copy(), Y.copy())));
+            simplifier.transformGraph(graph, true, true);
+
+            AssignmentNodeCollector collector = new AssignmentNodeCollector();
+            graph.accept(collector);
+            List<AssignmentNode> nodes = collector.getAssignmentNodes();
+            // y = (a+1)*2 uses the first value of x, z = a + (a+1)*2 the second one
+            assertEquals(simplifier.toPolynomial(new Multiplication(new Addition(a.copy(), c(1)), c(2))),
+                    simplifier.toPolynomial(nodes.get(1).getValue()));
+            assertEquals(simplifier.toPolynomial(new Addition(new Multiplication(c(3), a.copy()), c(2))),
+                    simplifier.toPolynomial(nodes.get(3).getValue()));
+        }
+    }
+
+    @Test
+    public void compileWithPolynomialSimplifier() {
+        assertTrue(TestDummy.compile(new CircleNoVarsTest(new Point(5, 2), new Point(3, 9), new Point(6, 4)), createGlobalSettings()));
+        assertTrue(TestDummy.compile(new CircleOnlyVarsTest(new Point(5, 2), new Point(3, 9), new Point(6, 4)), createGlobalSettings()));
+        assertTrue(TestDummy.compile(new GPSOnlyVarsTest(new Point3D(1, 1, 1), new Point3D(0, 0, 1), new Point3D(0, 1, 0), 0.6f, 0.7f, 0.9f), createGlobalSettings()));
+        assertTrue(TestDummy.compile(new LinePointDistance(new Point3D(3, 4, 5), new Point3D(7, 8, 10), new Point3D(3, 8, 10)), createGlobalSettings()));
+        assertTrue(TestDummy.compile(new TrigonometricFunctions(), createGlobalSettings()));
+    }
+}
@@ -21,9 +21,13 @@ import java.util.logging.Logger;
 public class TestDummy {
     
     public static boolean compile(TBATestCase tBATestCase) {
+        return compile(tBATestCase, new de.gaalop.globalSettings.Plugin());
+    }
+
+    public static boolean compile(TBATestCase tBATestCase, GlobalSettingsStrategyPlugin globalSettingsPlugin) {
         
         CodeParser parser                                       = new de.gaalop.clucalc.input.Plugin().createCodeParser();
-        GlobalSettingsStrategy globalSettingsStrategy           = new de.gaalop.globalSettings.Plugin().createGlobalSettingsStrategy();
+        GlobalSettingsStrategy globalSettingsStrategy           = globalSettingsPlugin.createGlobalSettingsStrategy();
         VisualCodeInserterStrategy visualCodeInserterStrategy   = new de.gaalop.visualCodeInserter.Plugin().createVisualCodeInserterStrategy();
         AlgebraStrategy algebraStrategy                         = new de.gaalop.algebra.Plugin().createAlgebraStrategy();
         OptimizationStrategy optimizationStrategy               = new de.gaalop.tba.Plugin().createOptimizationStrategy();
@@ -0,0 +1,119 @@
+package de.gaalop.testbenchVisualizer;
+
+import de.gaalop.cfg.AssignmentNode;
+import de.gaalop.dfg.Addition;
+import de.gaalop.dfg.FloatConstant;
+import de.gaalop.dfg.Multiplication;
+import de.gaalop.dfg.MultivectorComponent;
+import de.gaalop.dfg.Subtraction;
+import de.gaalop.visualizer.Point3d;
+import de.gaalop.visualizer.zerofinding.DiscreteCubeMethod;
+import de.gaalop.visualizer.zerofinding.Evaluater;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedList;
+import java.util.List;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/**
+ * Tests the batched sampling of the discrete cube method against a sampling with the Evaluater
+ * @author Christian Steinmetz
+ */
+public class TestDiscreteCubeMethod {
+
+    private static final MultivectorComponent X = new MultivectorComponent("_V_X", 0);
+    private static final MultivectorComponent Y = new MultivectorComponent("_V_Y", 0);
+    private static final MultivectorComponent Z = new MultivectorComponent("_V_Z", 0);
+    private static final MultivectorComponent PRODUCT = new MultivectorComponent("_V_PRODUCT_S", 0);
+
+    private static final int A = 3;
+    private static final float DIST = 0.25f;
+    private static final double EPSILON = 0.3;
+
+    /**
+     * Creates the sphere x*x+y*y+z*z-r*r with the radius r as global value
+     */
+    private LinkedList<AssignmentNode> createNodes() {
+        LinkedList<AssignmentNode> nodes = new LinkedList<AssignmentNode>();
+        nodes.add(new AssignmentNode(null, PRODUCT, new Subtraction(
+                new Addition(new Addition(new Multiplication(X.copy(), X.copy()), new Multiplication(Y.copy(), Y.copy())), new Multiplication(Z.copy(), Z.copy())),
+                new Multiplication(new MultivectorComponent("r", 0), new MultivectorComponent("r", 0)))));
+        return nodes;
+    }
+
+    /**
+     * Creates the sphere with the radius r, which is a global value and assigned before the sphere, i.e. r = r + 0.5
+     */
+    private LinkedList<AssignmentNode> createAssignedGlobalNodes() {
+        LinkedList<AssignmentNode> nodes = createNodes();
+        nodes.addFirst(new AssignmentNode(null, new MultivectorComponent("r", 0),
+                new Addition(new MultivectorComponent("r", 0), new FloatConstant(0.5))));
+        return nodes;
+    }
+
+    private List<String> toSortedStrings(List<Point3d> points) {
+        List<String> result = new ArrayList<String>();
+        for (Point3d p : points)
+            result.add(p.toString());
+        Collections.sort(result);
+        return result;
+    }
+
+    /**
+     * Compares the points of the discrete cube method with a sampling,
+     * which evaluates every sample point on a new copy of the global values
+     */
+    private void assertEqualsEvaluater(boolean assignedGlobal) {
+        HashMap<MultivectorComponent, Double> globalValues = new HashMap<MultivectorComponent, Double>();
+        globalValues.put(new MultivectorComponent("r", 0), 2.0);
+
+        List<Point3d> expected = new ArrayList<Point3d>();
+        for (float x = -A; x < A; x += DIST)
+            for (float y = -A; y <= A; y += DIST)
+                for (float z = -A; z <= A; z += DIST) {
+                    HashMap<MultivectorComponent, Double> values = new HashMap<MultivectorComponent, Double>(globalValues);
+                    values.put(X, (double) x);
+                    values.put(Y, (double) y);
+                    values.put(Z, (double) z);
+                    new Evaluater(values).evaluate(assignedGlobal ? createAssignedGlobalNodes() : createNodes());
+                    if (Math.abs(values.get(PRODUCT)) <= EPSILON)
+                        expected.add(new Point3d(x, y, z));
+                }
+        assertFalse(expected.isEmpty());
+
+        DiscreteCubeMethod method = new DiscreteCubeMethod();
+        HashMap<String, String> settings = method.getSettings();
+        settings.put("cubeEdgeLength", Integer.toString(A));
+        settings.put("density", Float.toString(DIST));
+        settings.put("epsilon", Double.toString(EPSILON));
+        HashMap<String, LinkedList<Point3d>> points = method.findZeroLocations(globalValues,
+                assignedGlobal ? createAssignedGlobalNodes() : createNodes(), settings, false);
+
+        assertEquals(1, points.size());
+        assertEquals(toSortedStrings(expected), toSortedStrings(points.get("_V_PRODUCT_S")));
+    }
+
+    @Test
+    public void testEqualsEvaluater() {
+        assertEqualsEvaluater(false);
+    }
+
+    @Test
+    public void testAssignedGlobalValue() {
+        assertEqualsEvaluater(true);
+    }
+
+    @Test
+    public void testNoZeros() {
+        HashMap<MultivectorComponent, Double> globalValues = new HashMap<MultivectorComponent, Double>();
+        globalValues.put(new MultivectorComponent("r", 0), 10.0);
+
+        DiscreteCubeMethod method = new DiscreteCubeMethod();
+        HashMap<String, String> settings = method.getSettings();
+        settings.put("cubeEdgeLength", Integer.toString(A));
+        settings.put("density", Float.toString(DIST));
+        assertTrue(method.findZeroLocations(globalValues, createNodes(), settings, true).isEmpty());
+    }
+}
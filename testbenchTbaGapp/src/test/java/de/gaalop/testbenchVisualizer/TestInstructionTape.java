@@ -0,0 +1,191 @@
+package de.gaalop.testbenchVisualizer;
+
+import de.gaalop.cfg.AssignmentNode;
+import de.gaalop.dfg.Addition;
+import de.gaalop.dfg.Division;
+import de.gaalop.dfg.Exponentiation;
+import de.gaalop.dfg.Expression;
+import de.gaalop.dfg.FloatConstant;
+import de.gaalop.dfg.MathFunction;
+import de.gaalop.dfg.MathFunctionCall;
+import de.gaalop.dfg.Multiplication;
+import de.gaalop.dfg.MultivectorComponent;
+import de.gaalop.dfg.Negation;
+import de.gaalop.dfg.Subtraction;
+import de.gaalop.dfg.Variable;
+import de.gaalop.visualizer.zerofinding.Evaluater;
+import de.gaalop.visualizer.zerofinding.InstructionTape;
+import de.gaalop.visualizer.zerofinding.TapeJitCompiler;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedList;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/**
+ * Tests the evaluation of instruction tapes against the Evaluater
+ * and the compilation of instruction tapes into Java classes
+ * @author Christian Steinmetz
+ */
+public class TestInstructionTape {
+
+    private static final MultivectorComponent X = new MultivectorComponent("_V_X", 0);
+    private static final MultivectorComponent Y = new MultivectorComponent("_V_Y", 0);
+
+    private static AssignmentNode assign(String name, int blade, Expression value) {
+        return new AssignmentNode(null, new MultivectorComponent(name, blade), value);
+    }
+
+    private static Expression c(double value) {
+        return new FloatConstant(value);
+    }
+
+    private LinkedList<AssignmentNode> createNodes() {
+        LinkedList<AssignmentNode> nodes = new LinkedList<AssignmentNode>();
+        // a = (x+1)*(y-2)/(x*x+1)
+        nodes.add(assign("a", 0, new Division(
+                new Multiplication(new Addition(X.copy(), c(1)), new Subtraction(Y.copy(), c(2))),
+                new Addition(new Multiplication(X.copy(), X.copy()), c(1)))));
+        // g = g*g - sqrt(|a|) + 3!
+        nodes.add(assign("g", 0, new Addition(
+                new Subtraction(new Multiplication(new Variable("g"), new Variable("g")),
+                    new MathFunctionCall(new MathFunctionCall(new Variable("a"), MathFunction.ABS), MathFunction.SQRT)),
+                new MathFunctionCall(c(3), MathFunction.FACT))));
+        nodes.add(assign("_V_PRODUCT", 1, new Exponentiation(new Negation(new Variable("a")), c(2))));
+        nodes.add(assign("_V_PRODUCT", 2, new Exponentiation(new MathFunctionCall(X.copy(), MathFunction.COS), c(1.5))));
+        nodes.add(assign("_V_PRODUCT", 3, new Variable("g")));
+        return nodes;
+    }
+
+    @Test
+    public void testEqualsEvaluater() {
+        LinkedList<AssignmentNode> nodes = createNodes();
+        HashMap<MultivectorComponent, Double> globalValues = new HashMap<MultivectorComponent, Double>();
+        globalValues.put(new MultivectorComponent("g", 0), 0.5);
+
+        InstructionTape tape = new InstructionTape(nodes, X, Y);
+        double[] initial = tape.createRegisters(globalValues);
+        double[] registers = tape.createRegisters(globalValues);
+
+        for (double x = -1; x <= 1; x += 0.25)
+            for (double y = -1; y <= 1; y += 0.5) {
+                HashMap<MultivectorComponent, Double> values = new HashMap<MultivectorComponent, Double>(globalValues);
+                values.put(X, x);
+                values.put(Y, y);
+                new Evaluater(values).evaluate(nodes);
+
+                // the registers are reused, the global value g is assigned by the tape and has to be restored
+                tape.restoreAssigned(registers, initial);
+                registers[tape.getSlot(X)] = x;
+                registers[tape.getSlot(Y)] = y;
+                tape.evaluate(registers);
+
+                for (MultivectorComponent mvC : values.keySet())
+                    assertEquals(mvC.toString(), values.get(mvC), registers[tape.getSlot(mvC)], 1E-12);
+            }
+    }
+
+    @Test
+    public void testSlots() {
+        InstructionTape tape = new InstructionTape(createNodes(), X, Y, new MultivectorComponent("unused", 0));
+        assertTrue(tape.getSlot(new MultivectorComponent("unused", 0)) >= 0);
+        assertEquals(-1, tape.getSlot(new MultivectorComponent("unknown", 0)));
+
+        LinkedHashMap<String, int[]> products = tape.getSlotsByName("_V_PRODUCT");
+        assertEquals(1, products.size());
+        assertEquals(3, products.get("_V_PRODUCT").length);
+
+        double[] registers = tape.createRegisters(new HashMap<MultivectorComponent, Double>());
+        assertTrue(Double.isNaN(registers[tape.getSlot(new MultivectorComponent("unused", 0))]));
+    }
+
+    /**
+     * Evaluates two tapes on the same points and compares the registers of all variables
+     */
+    private void assertSameEvaluation(InstructionTape expected, InstructionTape actual) {
+        HashMap<MultivectorComponent, Double> globalValues = new HashMap<MultivectorComponent, Double>();
+        globalValues.put(new MultivectorComponent("g", 0), 0.5);
+        double[] expectedRegisters = expected.createRegisters(globalValues);
+        double[] actualRegisters = actual.createRegisters(globalValues);
+        for (double x = -1; x <= 1; x += 0.25) {
+            expectedRegisters[expected.getSlot(X)] = x;
+            actualRegisters[actual.getSlot(X)] = x;
+            expectedRegisters[expected.getSlot(Y)] = 1 - x;
+            actualRegisters[actual.getSlot(Y)] = 1 - x;
+            expected.evaluate(expectedRegisters);
+            actual.evaluate(actualRegisters);
+            for (int[] slots : expected.getSlotsByName("").values())
+                for (int slot : slots)
+                    assertEquals(expectedRegisters[slot], actualRegisters[slot], 0);
+        }
+    }
+
+    @Test
+    public void testJitEqualsInterpreter() {
+        InstructionTape compiled = new InstructionTape(createNodes(), X, Y);
+        assertTrue(compiled.compileToBytecode());
+        assertSameEvaluation(new InstructionTape(createNodes(), X, Y), compiled);
+
+        // equal tapes share the compiled class
+        assertSame(TapeJitCompiler.compile(compiled), TapeJitCompiler.compile(new InstructionTape(createNodes(), X, Y)));
+    }
+
+    /**
+     * Creates a balanced sum of the terms x*i+y for all i in [from, to)
+     */
+    private Expression createSum(int from, int to) {
+        if (to - from == 1)
+            return new Addition(new Multiplication(X.copy(), c(from)), Y.copy());
+        int middle = (from + to) / 2;
+        return new Addition(createSum(from, middle), createSum(middle, to));
+    }
+
+    @Test
+    public void testJitOfHugeAssignments() {
+        // one assignment with more instructions than a generated method may have, followed by many small assignments
+        LinkedList<AssignmentNode> nodes = new LinkedList<AssignmentNode>();
+        nodes.add(assign("s", 0, createSum(0, 1024)));
+        for (int i = 0; i < 600; i++)
+            nodes.add(assign("_V_PRODUCT", i, new Subtraction(new Variable("s"), new Multiplication(X.copy(), c(i)))));
+
+        InstructionTape compiled = new InstructionTape(nodes, X, Y);
+        assertTrue(compiled.compileToBytecode());
+        assertSameEvaluation(new InstructionTape(nodes, X, Y), compiled);
+    }
+
+    @Test
+    public void testLanesEqualRegisters() {
+        InstructionTape tape = new InstructionTape(createNodes(), X, Y);
+        HashMap<MultivectorComponent, Double> globalValues = new HashMap<MultivectorComponent, Double>();
+        globalValues.put(new MultivectorComponent("g", 0), 0.5);
+
+        int count = 9;
+        double[][] lanes = tape.createLanes(globalValues, 16);
+        for (int i = 0; i < count; i++) {
+            lanes[tape.getSlot(X)][i] = -1 + 0.25 * i;
+            lanes[tape.getSlot(Y)][i] = 0.5 * i;
+        }
+        tape.evaluateLanes(lanes, count);
+
+        for (int i = 0; i < count; i++) {
+            double[] registers = tape.createRegisters(globalValues);
+            registers[tape.getSlot(X)] = -1 + 0.25 * i;
+            registers[tape.getSlot(Y)] = 0.5 * i;
+            tape.evaluate(registers);
+            for (int[] slots : tape.getSlotsByName("").values())
+                for (int slot : slots)
+                    assertEquals(registers[slot], lanes[slot][i], 0);
+        }
+        // lanes behind count are not evaluated
+        assertTrue(Double.isNaN(lanes[tape.getSlot(new MultivectorComponent("a", 0))][count]));
+
+        // a second evaluation of the restored lanes gives the same results, although the global value g is assigned
+        int slotG = tape.getSlot(new MultivectorComponent("g", 0));
+        double[] first = Arrays.copyOf(lanes[slotG], count);
+        tape.restoreAssignedLanes(lanes, tape.createRegisters(globalValues), count);
+        assertEquals(0.5, lanes[slotG][0], 0);
+        tape.evaluateLanes(lanes, count);
+        assertTrue(Arrays.equals(first, Arrays.copyOf(lanes[slotG], count)));
+    }
+}
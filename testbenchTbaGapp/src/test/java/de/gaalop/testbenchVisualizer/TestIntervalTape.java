@@ -0,0 +1,132 @@
+package de.gaalop.testbenchVisualizer;
+
+import de.gaalop.cfg.AssignmentNode;
+import de.gaalop.dfg.Addition;
+import de.gaalop.dfg.Division;
+import de.gaalop.dfg.Exponentiation;
+import de.gaalop.dfg.Expression;
+import de.gaalop.dfg.FloatConstant;
+import de.gaalop.dfg.MathFunction;
+import de.gaalop.dfg.MathFunctionCall;
+import de.gaalop.dfg.Multiplication;
+import de.gaalop.dfg.MultivectorComponent;
+import de.gaalop.dfg.Negation;
+import de.gaalop.dfg.Subtraction;
+import de.gaalop.dfg.Variable;
+import de.gaalop.visualizer.ia_math.IAException;
+import de.gaalop.visualizer.ia_math.RealInterval;
+import de.gaalop.visualizer.zerofinding.CodePiece;
+import de.gaalop.visualizer.zerofinding.InstructionTape;
+import de.gaalop.visualizer.zerofinding.IntervalEvaluater;
+import de.gaalop.visualizer.zerofinding.IntervalTape;
+import java.util.HashMap;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/**
+ * Tests the interval evaluation of instruction tapes against the IntervalEvaluater
+ * @author Christian Steinmetz
+ */
+public class TestIntervalTape {
+
+    private static final MultivectorComponent X = new MultivectorComponent("_V_X", 0);
+    private static final MultivectorComponent Y = new MultivectorComponent("_V_Y", 0);
+
+    private static AssignmentNode assign(String name, Expression value) {
+        return new AssignmentNode(null, new MultivectorComponent(name, 0), value);
+    }
+
+    private static Expression c(double value) {
+        return new FloatConstant(value);
+    }
+
+    private static Expression call(Expression operand, MathFunction function) {
+        return new MathFunctionCall(operand, function);
+    }
+
+    private CodePiece createCodePiece() {
+        CodePiece codePiece = new CodePiece();
+        // a = (x+1)*(y-2)/(x*x+1)
+        codePiece.add(assign("a", new Division(
+                new Multiplication(new Addition(X.copy(), c(1)), new Subtraction(Y.copy(), c(2))),
+                new Addition(new Multiplication(X.copy(), X.copy()), c(1)))));
+        // b = a^2 - x^3 + (-y)^2
+        codePiece.add(assign("b", new Addition(
+                new Subtraction(new Exponentiation(new Variable("a"), c(2)), new Exponentiation(X.copy(), c(3))),
+                new Exponentiation(new Negation(Y.copy()), c(2)))));
+        // d = sin(x)*cos(y) + exp(y)^1.5 - sqrt(exp(x)) + atan(b) + floor(x)*ceil(y)
+        codePiece.add(assign("d", new Addition(new Addition(new Subtraction(new Addition(
+                new Multiplication(call(X.copy(), MathFunction.SIN), call(Y.copy(), MathFunction.COS)),
+                new Exponentiation(call(Y.copy(), MathFunction.EXP), c(1.5))),
+                call(call(X.copy(), MathFunction.EXP), MathFunction.SQRT)),
+                call(new Variable("b"), MathFunction.ATAN)),
+                new Multiplication(call(X.copy(), MathFunction.FLOOR), call(Y.copy(), MathFunction.CEIL)))));
+        // e = 1/(x*g) + abs(y) + 3!
+        codePiece.add(assign("e", new Addition(new Addition(
+                new Division(c(1), new Multiplication(X.copy(), new Variable("g"))),
+                call(Y.copy(), MathFunction.ABS)),
+                call(c(3), MathFunction.FACT))));
+        return codePiece;
+    }
+
+    @Test
+    public void testEqualsIntervalEvaluater() {
+        CodePiece codePiece = createCodePiece();
+        HashMap<MultivectorComponent, Double> globalValues = new HashMap<MultivectorComponent, Double>();
+        globalValues.put(new MultivectorComponent("g", 0), -0.5);
+
+        InstructionTape tape = new InstructionTape(codePiece, X, Y);
+        IntervalTape intervalTape = new IntervalTape(tape);
+        double[] lo = intervalTape.createRegisters(globalValues);
+        double[] hi = intervalTape.createRegisters(globalValues);
+
+        double[][] intervalsX = {{-1, 2}, {0.5, 0.75}, {-3, -2}, {0, 0.25}, {1, 1}};
+        double[][] intervalsY = {{0, 1}, {1.5, 2}, {-0.5, 0.5}, {-2, -0.25}};
+        for (double[] x : intervalsX)
+            for (double[] y : intervalsY) {
+                HashMap<MultivectorComponent, RealInterval> values = new HashMap<MultivectorComponent, RealInterval>();
+                values.put(new MultivectorComponent("g", 0), new RealInterval(-0.5));
+                values.put(X, new RealInterval(x[0], x[1]));
+                values.put(Y, new RealInterval(y[0], y[1]));
+                new IntervalEvaluater(values).evaluate(codePiece);
+
+                lo[tape.getSlot(X)] = x[0];
+                hi[tape.getSlot(X)] = x[1];
+                lo[tape.getSlot(Y)] = y[0];
+                hi[tape.getSlot(Y)] = y[1];
+                intervalTape.evaluate(lo, hi);
+
+                for (MultivectorComponent mvC : values.keySet()) {
+                    assertEquals(mvC.toString(), values.get(mvC).lo(), lo[tape.getSlot(mvC)], 0);
+                    assertEquals(mvC.toString(), values.get(mvC).hi(), hi[tape.getSlot(mvC)], 0);
+                }
+            }
+    }
+
+    @Test(expected = IAException.class)
+    public void testDivisionByZero() {
+        CodePiece codePiece = new CodePiece();
+        codePiece.add(assign("a", new Division(c(1), new Multiplication(X.copy(), c(0)))));
+        InstructionTape tape = new InstructionTape(codePiece, X);
+        IntervalTape intervalTape = new IntervalTape(tape);
+        double[] lo = intervalTape.createRegisters(new HashMap<MultivectorComponent, Double>());
+        double[] hi = intervalTape.createRegisters(new HashMap<MultivectorComponent, Double>());
+        lo[tape.getSlot(X)] = -1;
+        hi[tape.getSlot(X)] = 1;
+        intervalTape.evaluate(lo, hi);
+    }
+
+    @Test
+    public void testInvalidIntervalsArePropagated() {
+        CodePiece codePiece = new CodePiece();
+        codePiece.add(assign("a", call(new Addition(X.copy(), c(1)), MathFunction.SIN)));
+        InstructionTape tape = new InstructionTape(codePiece, X);
+        IntervalTape intervalTape = new IntervalTape(tape);
+        // x is NaN, because it has no value
+        double[] lo = intervalTape.createRegisters(new HashMap<MultivectorComponent, Double>());
+        double[] hi = intervalTape.createRegisters(new HashMap<MultivectorComponent, Double>());
+        intervalTape.evaluate(lo, hi);
+        assertTrue(Double.isNaN(lo[tape.getSlot(new MultivectorComponent("a", 0))]));
+        assertTrue(Double.isNaN(hi[tape.getSlot(new MultivectorComponent("a", 0))]));
+    }
+}
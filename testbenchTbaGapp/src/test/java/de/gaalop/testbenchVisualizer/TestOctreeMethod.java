@@ -0,0 +1,129 @@
+package de.gaalop.testbenchVisualizer;
+
+import de.gaalop.cfg.AssignmentNode;
+import de.gaalop.dfg.Addition;
+import de.gaalop.dfg.Division;
+import de.gaalop.dfg.FloatConstant;
+import de.gaalop.dfg.MathFunction;
+import de.gaalop.dfg.MathFunctionCall;
+import de.gaalop.dfg.Multiplication;
+import de.gaalop.dfg.MultivectorComponent;
+import de.gaalop.dfg.Subtraction;
+import de.gaalop.visualizer.Point3d;
+import de.gaalop.visualizer.zerofinding.DiscreteCubeMethod;
+import de.gaalop.visualizer.zerofinding.OctreeMethod;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedList;
+import java.util.List;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/**
+ * Tests the octree method against the discrete cube method, which samples the whole cube
+ * @author Christian Steinmetz
+ */
+public class TestOctreeMethod {
+
+    private static final MultivectorComponent X = new MultivectorComponent("_V_X", 0);
+    private static final MultivectorComponent Y = new MultivectorComponent("_V_Y", 0);
+    private static final MultivectorComponent Z = new MultivectorComponent("_V_Z", 0);
+
+    private enum Nodes { SPHERE_AND_PLANE, FUNCTIONS, ASSIGNED_GLOBAL }
+
+    /**
+     * Creates the sphere x*x+y*y+z*z-r*r with the radius r as global value and the plane x-0.3
+     */
+    private LinkedList<AssignmentNode> createNodes() {
+        LinkedList<AssignmentNode> nodes = new LinkedList<AssignmentNode>();
+        nodes.add(new AssignmentNode(null, new MultivectorComponent("_V_PRODUCTsphere", 0), new Subtraction(
+                new Addition(new Addition(new Multiplication(X.copy(), X.copy()), new Multiplication(Y.copy(), Y.copy())), new Multiplication(Z.copy(), Z.copy())),
+                new Multiplication(new MultivectorComponent("r", 0), new MultivectorComponent("r", 0)))));
+        nodes.add(new AssignmentNode(null, new MultivectorComponent("_V_PRODUCTplane", 0), new Subtraction(X.copy(), new FloatConstant(0.3))));
+        return nodes;
+    }
+
+    /**
+     * Creates the lines |x|-1 and y-atan(1/z)/2, whose enclosures need the absolute value
+     * and a division by an interval, that can be [0,0]
+     */
+    private LinkedList<AssignmentNode> createFunctionNodes() {
+        LinkedList<AssignmentNode> nodes = new LinkedList<AssignmentNode>();
+        nodes.add(new AssignmentNode(null, new MultivectorComponent("_V_PRODUCTabs", 0), new Subtraction(
+                new MathFunctionCall(X.copy(), MathFunction.ABS), new FloatConstant(1))));
+        nodes.add(new AssignmentNode(null, new MultivectorComponent("_V_PRODUCTdiv", 0), new Subtraction(Y.copy(),
+                new Division(new MathFunctionCall(new Division(new FloatConstant(1), Z.copy()), MathFunction.ATAN), new FloatConstant(2)))));
+        return nodes;
+    }
+
+    /**
+     * Creates the sphere and the plane, whose radius r is a global value, that is assigned before, i.e. r = r + 0.5
+     */
+    private LinkedList<AssignmentNode> createAssignedGlobalNodes() {
+        LinkedList<AssignmentNode> nodes = createNodes();
+        nodes.addFirst(new AssignmentNode(null, new MultivectorComponent("r", 0),
+                new Addition(new MultivectorComponent("r", 0), new FloatConstant(0.5))));
+        return nodes;
+    }
+
+    private LinkedList<AssignmentNode> createNodes(Nodes kind) {
+        switch (kind) {
+            case FUNCTIONS: return createFunctionNodes();
+            case ASSIGNED_GLOBAL: return createAssignedGlobalNodes();
+            default: return createNodes();
+        }
+    }
+
+    private List<String> toSortedStrings(List<Point3d> points) {
+        List<String> result = new ArrayList<String>();
+        for (Point3d p : points)
+            result.add(p.toString());
+        Collections.sort(result);
+        return result;
+    }
+
+    private void assertSamePoints(Nodes nodes, String maxDepth, boolean renderIn2d) {
+        HashMap<MultivectorComponent, Double> globalValues = new HashMap<MultivectorComponent, Double>();
+        globalValues.put(new MultivectorComponent("r", 0), 2.0);
+
+        DiscreteCubeMethod cube = new DiscreteCubeMethod();
+        HashMap<String, String> settings = cube.getSettings();
+        settings.put("cubeEdgeLength", "3");
+        settings.put("density", "0.25");
+        settings.put("epsilon", "0.3");
+        HashMap<String, LinkedList<Point3d>> expected = cube.findZeroLocations(globalValues, createNodes(nodes), settings, renderIn2d);
+
+        settings.put("maxDepth", maxDepth);
+        HashMap<String, LinkedList<Point3d>> points = new OctreeMethod().findZeroLocations(globalValues, createNodes(nodes), settings, renderIn2d);
+
+        assertEquals(2, points.size());
+        for (String name : expected.keySet()) {
+            assertFalse(expected.get(name).isEmpty());
+            assertEquals(toSortedStrings(expected.get(name)), toSortedStrings(points.get(name + "_S")));
+        }
+    }
+
+    @Test
+    public void testEqualsDiscreteCubeMethod() {
+        assertSamePoints(Nodes.SPHERE_AND_PLANE, "10", false);
+        assertSamePoints(Nodes.SPHERE_AND_PLANE, "1", false);
+        assertSamePoints(Nodes.SPHERE_AND_PLANE, "0", false);
+    }
+
+    @Test
+    public void testEqualsDiscreteCubeMethodIn2d() {
+        assertSamePoints(Nodes.SPHERE_AND_PLANE, "10", true);
+    }
+
+    @Test
+    public void testAbsAndDivisionByZero() {
+        assertSamePoints(Nodes.FUNCTIONS, "10", false);
+        assertSamePoints(Nodes.FUNCTIONS, "10", true);
+    }
+
+    @Test
+    public void testAssignedGlobalValue() {
+        assertSamePoints(Nodes.ASSIGNED_GLOBAL, "10", false);
+    }
+}